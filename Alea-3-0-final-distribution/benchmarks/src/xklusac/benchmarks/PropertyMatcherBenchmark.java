@@ -0,0 +1,148 @@
+package xklusac.benchmarks;
+
+import java.util.LinkedList;
+import java.util.Random;
+import xklusac.environment.PropertyMatcher;
+
+/**
+ * Class PropertyMatcherBenchmark<p>
+ * Measures the per-call cost of the job-to-resource property check. The original string based check
+ * (replaceAll, split and String.contains per call, as formerly used in Scheduler.isSuitable) is compared with
+ * the precompiled bit masks of PropertyMatcher. Both checks are also compared for equal results.<p>
+ * Usage (after ant -f benchmarks/build.xml jar): java -cp benchmarks/dist/benchmarks.jar xklusac.benchmarks.PropertyMatcherBenchmark [calls]
+ */
+public class PropertyMatcherBenchmark {
+
+    /** properties used by the Metacentrum data sets (see Scheduler) */
+    static String[] a_v = {"amd64", "athlon", "brno", "cpmd", "debian", "debian40", "dualcore", "egee", "em64t", "forprivileged", "globus", "headnode", "i386", "ia64", "ibp", "iti", "lcc", "linux",
+        "long", "loslab", "mopac", "myrinet2000", "ncbr", "nfs4", "nodecpus1", "nodecpus16", "nodecpus2", "nodecpus4", "nodecpus8", "normal",
+        "onlycpmd", "opteron", "orca", "orca16g", "p3", "per", "per1", "per2", "per3", "per4", "plzen", "praha", "quadcore", "quark",
+        "redhat", "sarge", "slc4", "suse", "urgent", "x86", "x86_64", "xentest", "xeon", "zsc", "q_normal", "data-kky", "q_short", "pa177"
+    };
+    static LinkedList<String> avail_properties = new LinkedList();
+
+    public static void main(String[] args) {
+        int calls = 2000000;
+        if (args.length > 0) {
+            calls = Integer.parseInt(args[0]);
+        }
+        for (int i = 1; i < 40; i++) {
+            avail_properties.add("p" + i);
+        }
+        for (int i = 0; i < a_v.length; i++) {
+            avail_properties.add(a_v[i]);
+        }
+        PropertyMatcher matcher = new PropertyMatcher();
+        matcher.init("metacentrum.mwf", avail_properties);
+
+        Random r = new Random(1024);
+        int resources = 50;
+        int jobs = 1000;
+        String[] res_props = new String[resources];
+        long[][] res_masks = new long[resources][];
+        for (int i = 0; i < resources; i++) {
+            res_props[i] = randomProperties(r, 12, ";");
+            res_masks[i] = matcher.compileResource("res" + i, res_props[i]);
+        }
+        String[] job_props = new String[jobs];
+        long[][] job_masks = new long[jobs][];
+        for (int i = 0; i < jobs; i++) {
+            job_props[i] = "[" + randomProperties(r, 1 + r.nextInt(3), ";") + "]";
+            job_masks[i] = matcher.compileJob(job_props[i]);
+        }
+
+        // both checks must give the same answers
+        int diff = 0;
+        for (int j = 0; j < jobs; j++) {
+            for (int i = 0; i < resources; i++) {
+                if (stringCheck(res_props[i], job_props[j]) != matcher.matches(res_masks[i], job_masks[j])) {
+                    diff++;
+                }
+            }
+        }
+        System.out.println("Different results: " + diff);
+
+        // warm up
+        run(true, calls / 10, matcher, res_props, job_props, res_masks, job_masks);
+        run(false, calls / 10, matcher, res_props, job_props, res_masks, job_masks);
+
+        long start = System.nanoTime();
+        int ok = run(true, calls, matcher, res_props, job_props, res_masks, job_masks);
+        double string_ns = (System.nanoTime() - start) / (double) calls;
+        start = System.nanoTime();
+        int ok2 = run(false, calls, matcher, res_props, job_props, res_masks, job_masks);
+        double mask_ns = (System.nanoTime() - start) / (double) calls;
+
+        System.out.println("String check: " + Math.round(string_ns * 100) / 100.0 + " ns/call (" + ok + " suitable)");
+        System.out.println("Mask check:   " + Math.round(mask_ns * 100) / 100.0 + " ns/call (" + ok2 + " suitable)");
+        System.out.println("Speedup:      " + Math.round(string_ns / mask_ns * 10) / 10.0 + "x");
+    }
+
+    private static int run(boolean strings, int calls, PropertyMatcher matcher, String[] res_props, String[] job_props, long[][] res_masks, long[][] job_masks) {
+        int ok = 0;
+        for (int c = 0; c < calls; c++) {
+            int i = c % res_props.length;
+            int j = (c / res_props.length) % job_props.length;
+            boolean suitable;
+            if (strings) {
+                suitable = stringCheck(res_props[i], job_props[j]);
+            } else {
+                suitable = matcher.matches(res_masks[i], job_masks[j]);
+            }
+            if (suitable) {
+                ok++;
+            }
+        }
+        return ok;
+    }
+
+    private static String randomProperties(Random r, int count, String separator) {
+        String s = "";
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                s += separator;
+            }
+            s += avail_properties.get(r.nextInt(avail_properties.size()));
+        }
+        return s;
+    }
+
+    /** The original property check of Scheduler.isSuitable (metacentrum data sets). */
+    private static boolean stringCheck(String supported, String req_p) {
+        req_p = req_p.replaceAll("\\[", "");
+        req_p = req_p.replaceAll("\\]", "");
+        String[] props = req_p.split(";");
+
+        for (int i = 0; i < props.length; i++) {
+            if (!avail_properties.contains(props[i])) {
+                continue;
+            }
+            if (!supported.contains(props[i])) {
+                if (props[i].equals("nodecpus1") && (supported.contains("nodecpus2") || supported.contains("nodecpus4") || supported.contains("nodecpus8") || supported.contains("nodecpus16"))) {
+                    continue;
+                }
+                if (props[i].equals("nodecpus2") && (supported.contains("nodecpus4") || supported.contains("nodecpus8") || supported.contains("nodecpus16"))) {
+                    continue;
+                }
+                if (props[i].equals("nodecpus4") && (supported.contains("nodecpus8") || supported.contains("nodecpus16"))) {
+                    continue;
+                }
+                if (props[i].equals("nodecpus8") && supported.contains("nodecpus16")) {
+                    continue;
+                }
+                if (props[i].equals("p26") && supported.contains("p35")) {
+                    continue;
+                }
+                if (props[i].equals("p26") && supported.contains("p6")) {
+                    continue;
+                }
+                if (props[i].equals("p35") && supported.contains("p6")) {
+                    continue;
+                } else {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,87 @@
+package xklusac.benchmarks.jmh;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import xklusac.extensions.BinaryHeap;
+import xklusac.extensions.FreeSlotHeap;
+import xklusac.extensions.HeapNode;
+
+/**
+ * Class HeapBenchmark<p>
+ * Measures one step of the computation of earliest start times: CPUs that become free the earliest are taken for a job
+ * and they are inserted back with the finish time of the job. The original BinaryHeap of HeapNodes is compared with the
+ * FreeSlotHeap used by ResourceInfo. Both heaps contain pes CPUs, jobs use 1 - 8 CPUs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HeapBenchmark {
+
+    @Param({"8", "64", "512", "4096"})
+    public int pes;
+    BinaryHeap binary_heap;
+    FreeSlotHeap free_slots;
+    int[] ids;
+    /** requested CPUs and runtimes of jobs */
+    int[] sizes;
+    double[] runtimes;
+    int next = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random r = new Random(1024);
+        double[] finishTimeOnPE = new double[pes];
+        binary_heap = new BinaryHeap();
+        for (int i = 0; i < pes; i++) {
+            finishTimeOnPE[i] = r.nextInt(86400);
+            ArrayList<Integer> cpus = new ArrayList();
+            cpus.add(i);
+            binary_heap.insert(new HeapNode(finishTimeOnPE[i], cpus));
+        }
+        free_slots = new FreeSlotHeap(pes);
+        free_slots.build(finishTimeOnPE);
+        ids = new int[pes];
+        sizes = new int[1024];
+        runtimes = new double[1024];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = Math.min(pes, 1 + r.nextInt(8));
+            runtimes[i] = 600 + r.nextInt(86400);
+        }
+    }
+
+    @Benchmark
+    public double binaryHeap() {
+        next = (next + 1) % sizes.length;
+        ArrayList<Integer> cpus = new ArrayList();
+        double start = 0.0;
+        while (cpus.size() < sizes[next]) {
+            HeapNode node = (HeapNode) binary_heap.deleteMin();
+            start = node.getTime();
+            ArrayList<Integer> node_cpus = node.getCpuIDs();
+            int needed = sizes[next] - cpus.size();
+            if (node_cpus.size() > needed) {
+                // the rest of CPUs is returned with the same time
+                ArrayList<Integer> rest = new ArrayList(node_cpus.subList(needed, node_cpus.size()));
+                cpus.addAll(node_cpus.subList(0, needed));
+                binary_heap.insert(new HeapNode(start, rest));
+            } else {
+                cpus.addAll(node_cpus);
+            }
+        }
+        binary_heap.insert(new HeapNode(start + runtimes[next], cpus));
+        return start;
+    }
+
+    @Benchmark
+    public double freeSlotHeap() {
+        next = (next + 1) % sizes.length;
+        double start = free_slots.takeEarliest(sizes[next], ids);
+        free_slots.insert(start + runtimes[next], ids, 0, sizes[next]);
+        return start;
+    }
+}
@@ -0,0 +1,103 @@
+package xklusac.benchmarks.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import xklusac.environment.SimulationContext;
+import xklusac.objective_functions.CommonObjectives;
+
+/**
+ * Class ObjectivesBenchmark<p>
+ * Measures the predict* functions of CommonObjectives over clusters clusters with pes PEs and jobs planned jobs each.
+ * All schedules are marked as changed before each call, so the cost of evaluation of schedules is included (as when the
+ * objective is computed after a change made by an optimization algorithm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ObjectivesBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int clusters;
+    @Param({"8", "64", "512"})
+    public int pes;
+    @Param({"10", "100", "1000"})
+    public int jobs;
+    ScheduleFixture fixture;
+    SimulationContext ctx;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fixture = new ScheduleFixture(1024);
+        fixture.createClusters(clusters, pes, jobs);
+        ctx = fixture.getContext();
+    }
+
+    @Benchmark
+    public double predictAvgSlowdown() {
+        fixture.invalidateAll();
+        return CommonObjectives.predictAvgSlowdown(ctx, 0.0);
+    }
+
+    @Benchmark
+    public double predictAvgResponseTime() {
+        fixture.invalidateAll();
+        return CommonObjectives.predictAvgResponseTime(ctx, 0.0);
+    }
+
+    @Benchmark
+    public double predictFairness() {
+        fixture.invalidateAll();
+        return CommonObjectives.predictFairness(ctx, 0.0);
+    }
+
+    @Benchmark
+    public double predictAvgWaitTime() {
+        fixture.invalidateAll();
+        return CommonObjectives.predictAvgWaitTime(ctx, 0.0);
+    }
+
+    @Benchmark
+    public double predictAvgStartTime() {
+        fixture.invalidateAll();
+        return CommonObjectives.predictAvgStartTime(ctx, 0.0);
+    }
+
+    @Benchmark
+    public double predictWeightedMachineUsage() {
+        fixture.invalidateAll();
+        return CommonObjectives.predictWeightedMachineUsage(ctx, 0.0);
+    }
+
+    @Benchmark
+    public int predictNumberOfJobsThatMeetDeadline() {
+        fixture.invalidateAll();
+        return CommonObjectives.predictNumberOfJobsThatMeetDeadline(ctx, 0.0);
+    }
+
+    @Benchmark
+    public int predictNumberOfDelayedJobs() {
+        fixture.invalidateAll();
+        return CommonObjectives.predictNumberOfDelayedJobs(ctx, 0.0);
+    }
+
+    @Benchmark
+    public double predictMakespan() {
+        fixture.invalidateAll();
+        return CommonObjectives.predictMakespan(ctx, 0.0);
+    }
+
+    @Benchmark
+    public double predictTotalTardiness() {
+        fixture.invalidateAll();
+        return CommonObjectives.predictTotalTardiness(ctx, 0.0);
+    }
+
+    /** Schedules are not changed, i.e., only the cost of the function itself (cached results of ResourceInfo.update()). */
+    @Benchmark
+    public double predictFairnessStable() {
+        return CommonObjectives.predictFairness(ctx, 0.0);
+    }
+}
@@ -0,0 +1,139 @@
+package xklusac.benchmarks.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import xklusac.environment.GridletInfo;
+import xklusac.environment.ResourceInfo;
+
+/**
+ * Class ResourceInfoBenchmark<p>
+ * Measures the evaluation of schedules (ResourceInfo.update() and forceUpdate()), the search for a hole in the schedules
+ * (findHoleForGridlet()) and the earliest start time of a job in a queue (getEarliestStartTime()). There are clusters clusters
+ * with pes PEs each, all of them are used by running jobs, each schedule contains jobs jobs. The update, forceUpdate and
+ * findHoleForGridlet benchmarks process all clusters in one operation (as the scheduler does when a job is placed),
+ * getEarliestStartTime uses one cluster.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResourceInfoBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int clusters;
+    @Param({"8", "64", "512"})
+    public int pes;
+    @Param({"10", "100", "1000", "10000"})
+    public int jobs;
+    ScheduleFixture fixture;
+    /** clusters with a schedule */
+    ResourceInfo[] ris;
+    /** cluster with running jobs only (queue based algorithms) */
+    ResourceInfo queue_ri;
+    Random r;
+    /** jobs used as new jobs */
+    GridletInfo[] candidates;
+    int next = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fixture = new ScheduleFixture(1024);
+        r = new Random(2048);
+        fixture.createClusters(clusters, pes, jobs);
+        ris = new ResourceInfo[clusters];
+        for (int i = 0; i < clusters; i++) {
+            ris[i] = (ResourceInfo) fixture.getContext().resourceInfoList.get(i);
+        }
+        queue_ri = fixture.createCluster(pes);
+        fixture.fillRunning(queue_ri);
+        candidates = new GridletInfo[1024];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = fixture.createJob(1 + r.nextInt(Math.min(pes, 4 * ScheduleFixture.MACHINE_PE)), pes);
+        }
+    }
+
+    GridletInfo nextCandidate() {
+        next = (next + 1) % candidates.length;
+        return candidates[next];
+    }
+
+    /** In each cluster one job is moved to another position of the schedule, then the schedule is evaluated (from the changed position if possible). */
+    @Benchmark
+    public double updateAfterMove() {
+        double makespan = 0.0;
+        for (int i = 0; i < ris.length; i++) {
+            GridletInfo gi = ris[i].removeGInfoIndex(r.nextInt(jobs));
+            ris[i].addGInfo(r.nextInt(jobs), gi);
+            ris[i].update(0.0);
+            makespan = Math.max(makespan, ris[i].resource_makespan);
+        }
+        return makespan;
+    }
+
+    /** All schedules are evaluated again as after a change of running jobs. */
+    @Benchmark
+    public double updateInvalidated() {
+        double makespan = 0.0;
+        for (int i = 0; i < ris.length; i++) {
+            ris[i].invalidate();
+            ris[i].update(0.0);
+            makespan = Math.max(makespan, ris[i].resource_makespan);
+        }
+        return makespan;
+    }
+
+    @Benchmark
+    public double forceUpdate() {
+        double makespan = 0.0;
+        for (int i = 0; i < ris.length; i++) {
+            ris[i].forceUpdate(0.0);
+            makespan = Math.max(makespan, ris[i].resource_makespan);
+        }
+        return makespan;
+    }
+
+    @Benchmark
+    public double getEarliestStartTime() {
+        return queue_ri.getEarliestStartTime(nextCandidate(), 0.0);
+    }
+
+    /**
+     * Measures findHoleForGridlet(). The job is looked for a hole in each cluster, the jobs inserted into the schedules are removed
+     * again and the schedules are evaluated (so that holes are known) before each call, this is not measured.
+     */
+    @State(Scope.Thread)
+    public static class HoleState {
+
+        GridletInfo[] inserted = null;
+
+        @Setup(Level.Invocation)
+        public void restore(ResourceInfoBenchmark b) {
+            if (inserted == null) {
+                inserted = new GridletInfo[b.ris.length];
+            }
+            for (int i = 0; i < b.ris.length; i++) {
+                if (inserted[i] != null) {
+                    b.ris[i].removeGInfoIndex(b.ris[i].resSchedule.indexOf(inserted[i]));
+                    inserted[i] = null;
+                }
+                b.ris[i].update(0.0);
+            }
+        }
+    }
+
+    @Benchmark
+    public int findHoleForGridlet(HoleState state) {
+        GridletInfo gi = nextCandidate();
+        int found = 0;
+        for (int i = 0; i < ris.length; i++) {
+            if (ris[i].findHoleForGridlet(gi)) {
+                state.inserted[i] = gi;
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,199 @@
+package xklusac.benchmarks.jmh;
+
+import gridsim.Gridlet;
+import gridsim.Machine;
+import gridsim.MachineList;
+import gridsim.PE;
+import gridsim.PEList;
+import gridsim.ResourceCharacteristics;
+import java.util.LinkedList;
+import java.util.Random;
+import xklusac.environment.ComplexGridlet;
+import xklusac.environment.ComplexResourceCharacteristics;
+import xklusac.environment.ExperimentSetup;
+import xklusac.environment.GridletInfo;
+import xklusac.environment.ResourceInfo;
+import xklusac.environment.SimulationContext;
+
+/**
+ * Class ScheduleFixture<p>
+ * Builds synthetic ResourceInfo and GridletInfo objects for the JMH benchmarks without starting GridSim. Clusters consist of
+ * machines with 8 PEs of 1000 MIPS, jobs are random (1 - 8 PEs, 10 min - 1 day), they use the Metacentrum properties and 50 users.
+ * The clusters and users belong to the SimulationContext of the fixture. The same seed always gives the same fixture.
+ */
+public class ScheduleFixture {
+
+    /** number of PEs of one machine */
+    public static final int MACHINE_PE = 8;
+    /** MIPS rating of one PE */
+    public static final int PE_RATING = 1000;
+    /** number of users owning the jobs */
+    public static final int USERS = 50;
+    /** properties used by the Metacentrum data sets (see Scheduler) */
+    static String[] a_v = {"amd64", "athlon", "brno", "cpmd", "debian", "debian40", "dualcore", "egee", "em64t", "forprivileged", "globus", "headnode", "i386", "ia64", "ibp", "iti", "lcc", "linux",
+        "long", "loslab", "mopac", "myrinet2000", "ncbr", "nfs4", "nodecpus1", "nodecpus16", "nodecpus2", "nodecpus4", "nodecpus8", "normal",
+        "onlycpmd", "opteron", "orca", "orca16g", "p3", "per", "per1", "per2", "per3", "per4", "plzen", "praha", "quadcore", "quark",
+        "redhat", "sarge", "slc4", "suse", "urgent", "x86", "x86_64", "xentest", "xeon", "zsc", "q_normal", "data-kky", "q_short", "pa177"
+    };
+    private Random r;
+    private int gridlet_id = 0;
+    private SimulationContext ctx = new SimulationContext();
+
+    /**
+     * Creates a new fixture and sets up the settings used by ResourceInfo, Scheduler.isSuitable() and CommonObjectives:
+     * the heap and delta evaluation of schedules, job requirements (properties), exact runtimes and no failures.
+     */
+    public ScheduleFixture(long seed) {
+        this.r = new Random(seed);
+        ExperimentSetup.applySetting("useHeap", "true");
+        ExperimentSetup.applySetting("useDeltaUpdate", "true");
+        ExperimentSetup.applySetting("failures", "false");
+        ExperimentSetup.applySetting("reqs", "true");
+        ExperimentSetup.applySetting("estimate", "exact");
+
+        LinkedList<String> avail_properties = new LinkedList();
+        for (int i = 1; i < 40; i++) {
+            avail_properties.add("p" + i);
+        }
+        for (int i = 0; i < a_v.length; i++) {
+            avail_properties.add(a_v[i]);
+        }
+        ctx.matcher.init("metacentrum.mwf", avail_properties);
+
+        ctx.data_set = "metacentrum.mwf";
+        for (int u = 0; u < USERS; u++) {
+            ctx.users.addLast("user" + u);
+            ctx.users_time.addLast(r.nextDouble() * 100000.0);
+            ctx.total_uwt.addLast(r.nextDouble() * 100000.0);
+            ctx.users_last_length.addLast(0.0);
+            ctx.users_length.addLast(0.0);
+            ctx.users_jobs.addLast(0);
+            ctx.users_P_length.addLast(0.0);
+            ctx.users_P_jobs.addLast(0);
+        }
+    }
+
+    /** Returns the context holding the clusters (resourceInfoList) and users of this fixture. */
+    public SimulationContext getContext() {
+        return ctx;
+    }
+
+    /**
+     * Creates a cluster with numPE PEs (rounded up to whole machines) and random Metacentrum properties. The cluster is not
+     * added into the resourceInfoList of the context.
+     */
+    public ResourceInfo createCluster(int numPE) {
+        MachineList mList = new MachineList();
+        int machines = Math.max(1, (numPE + MACHINE_PE - 1) / MACHINE_PE);
+        for (int m = 0; m < machines; m++) {
+            PEList peList = new PEList();
+            for (int k = 0; k < MACHINE_PE; k++) {
+                peList.add(new PE(k, PE_RATING));
+            }
+            mList.add(new Machine(m, peList));
+        }
+        String name = "cluster" + ctx.resourceInfoList.size() + "_" + r.nextInt(1000);
+        FixtureCharacteristics resConfig = new FixtureCharacteristics(name, mList, randomProperties(12));
+        resConfig.compilePropertyMask(ctx.matcher);
+        return new ResourceInfo(resConfig, ctx);
+    }
+
+    /**
+     * Creates clusters clusters with numPE PEs each, adds them into the resourceInfoList of the context and fills each of them
+     * with running jobs (using all PEs) and jobs planned jobs. Schedules are evaluated at time 0.0.
+     */
+    public void createClusters(int clusters, int numPE, int jobs) {
+        for (int i = 0; i < clusters; i++) {
+            ResourceInfo ri = createCluster(numPE);
+            fillRunning(ri);
+            fillSchedule(ri, jobs);
+            ctx.resourceInfoList.add(ri);
+        }
+    }
+
+    /** Occupies all PEs of the cluster by running jobs. */
+    public void fillRunning(ResourceInfo ri) {
+        int pe = 0;
+        while (pe < ri.numPE) {
+            int numPE = Math.min(ri.numPE - pe, 1 + r.nextInt(MACHINE_PE));
+            GridletInfo gi = createJob(numPE, ri.numPE);
+            try {
+                gi.getGridlet().setGridletStatus(Gridlet.INEXEC);
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+            for (int k = 0; k < numPE; k++) {
+                gi.getPEs().add(pe + k);
+            }
+            pe += numPE;
+            ri.addGInfoInExec(gi);
+        }
+        ri.forceUpdate(0.0);
+    }
+
+    /** Appends jobs planned jobs to the schedule of the cluster and evaluates it. */
+    public void fillSchedule(ResourceInfo ri, int jobs) {
+        for (int j = 0; j < jobs; j++) {
+            ri.addLastGInfo(createJob(1 + r.nextInt(Math.min(MACHINE_PE, ri.numPE)), ri.numPE));
+        }
+        ri.forceUpdate(0.0);
+    }
+
+    /** Creates a random job requesting numPE PEs, runtime of the job is 10 min - 1 day. */
+    public GridletInfo createJob(int numPE, int maxPE) {
+        long job_limit = 600 + r.nextInt(86400 - 600);
+        double length = Math.max(1.0, r.nextDouble() * job_limit) * PE_RATING;
+        String user = "user" + r.nextInt(USERS);
+        String properties = "[" + randomProperties(1 + r.nextInt(3)) + "]";
+        ComplexGridlet gl = new ComplexGridlet(gridlet_id, user, job_limit, length, length, 10, 10, "Linux", "Risc arch.", 0.0,
+                job_limit, 1, Math.min(numPE, maxPE), 1.0, "normal", properties, 0.0);
+        gridlet_id++;
+        GridletInfo gi = new GridletInfo(gl);
+        gi.compilePropertyMask(ctx.matcher);
+        return gi;
+    }
+
+    /** Creates a job with random size and properties (e.g., for Scheduler.isSuitable()). */
+    public GridletInfo createJob() {
+        return createJob(1 + r.nextInt(MACHINE_PE), Integer.MAX_VALUE);
+    }
+
+    /** Marks all clusters of the context as changed (see ResourceInfo.invalidate()). */
+    public void invalidateAll() {
+        for (int i = 0; i < ctx.resourceInfoList.size(); i++) {
+            ((ResourceInfo) ctx.resourceInfoList.get(i)).invalidate();
+        }
+    }
+
+    public Random getRandom() {
+        return r;
+    }
+
+    private String randomProperties(int count) {
+        String s = "";
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                s += ";";
+            }
+            s += a_v[r.nextInt(a_v.length)];
+        }
+        return s;
+    }
+
+    /**
+     * Resource characteristics that do not need a GridSim entity to know their name.
+     */
+    static class FixtureCharacteristics extends ComplexResourceCharacteristics {
+
+        private String name;
+
+        FixtureCharacteristics(String name, MachineList mList, String properties) {
+            super("Pentium 4", "Scientific Linux", mList, ResourceCharacteristics.SPACE_SHARED, 0.0, 1.0, 2000000, properties, "");
+            this.name = name;
+        }
+
+        public String getResourceName() {
+            return name;
+        }
+    }
+}
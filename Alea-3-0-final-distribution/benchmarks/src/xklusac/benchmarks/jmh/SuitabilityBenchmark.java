@@ -0,0 +1,53 @@
+package xklusac.benchmarks.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import xklusac.environment.GridletInfo;
+import xklusac.environment.ResourceInfo;
+import xklusac.environment.Scheduler;
+import xklusac.environment.SimulationContext;
+
+/**
+ * Class SuitabilityBenchmark<p>
+ * Measures Scheduler.isSuitable() for jobs and clusters with the Metacentrum properties, i.e., the check performed for
+ * each cluster when a new job is placed. One operation checks one job against all clusters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SuitabilityBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int clusters;
+    @Param({"8", "64", "512"})
+    public int pes;
+    GridletInfo[] jobs;
+    SimulationContext ctx;
+    int next = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ScheduleFixture fixture = new ScheduleFixture(1024);
+        fixture.createClusters(clusters, pes, 0);
+        ctx = fixture.getContext();
+        jobs = new GridletInfo[1024];
+        for (int i = 0; i < jobs.length; i++) {
+            jobs[i] = fixture.createJob();
+        }
+    }
+
+    @Benchmark
+    public int isSuitable() {
+        next = (next + 1) % jobs.length;
+        int suitable = 0;
+        for (int i = 0; i < ctx.resourceInfoList.size(); i++) {
+            if (Scheduler.isSuitable((ResourceInfo) ctx.resourceInfoList.get(i), jobs[next])) {
+                suitable++;
+            }
+        }
+        return suitable;
+    }
+}
@@ -6,11 +6,13 @@ package xklusac.algorithms;
 
 import java.util.Date;
 import gridsim.GridSim;
-import xklusac.objective_functions.CommonObjectives;
+import xklusac.objective_functions.ObjectiveComparator;
+import xklusac.objective_functions.ObjectiveVector;
 import xklusac.environment.ExperimentSetup;
 import xklusac.environment.GridletInfo;
 import xklusac.environment.ResourceInfo;
 import xklusac.environment.Scheduler;
+import xklusac.environment.SimulationContext;
 
 /**
  * Class BestGap <p>
@@ -20,13 +22,19 @@ import xklusac.environment.Scheduler;
 public class BestGap implements SchedulingPolicy {
 
     private Scheduler scheduler;
+    private SimulationContext ctx;
 
     public BestGap(Scheduler scheduler) {
         this.scheduler = scheduler;
+        this.ctx = scheduler.getContext();
     }
 
     @Override
     public void addNewJob(GridletInfo gi) {
+        if (ExperimentSetup.useParallelCandidates) {
+            addNewJobParallel(gi);
+            return;
+        }
         int index = 0;
         int resIndex = -2;
         int gIndex = -1;
@@ -34,17 +42,16 @@ public class BestGap implements SchedulingPolicy {
         double runtime1 = new Date().getTime();
 
 
-        double previous_resp = CommonObjectives.predictAvgResponseTime(current_time) + 100000;
-        double previous_wait = CommonObjectives.predictAvgWaitTime(current_time) + 100000;
-        double previous_sd = CommonObjectives.predictAvgSlowdown(current_time) + 100000;
-        double previous_fair = CommonObjectives.predictFairness(current_time) + 100000;
+        ObjectiveComparator decision = ObjectiveComparator.createDefault();
+        // objective values of the best placement so far (the first placement is always accepted)
+        ObjectiveVector previous = null;
         boolean accept = true;
         boolean ok = false;
         boolean okh = false;
 
         // select schedule with earliest suitable gap
-        for (int i = 0; i < Scheduler.resourceInfoList.size(); i++) {
-            ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(i);
+        for (int i = 0; i < ctx.resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(i);
 
             boolean evaluate = false;
 
@@ -54,14 +61,20 @@ public class BestGap implements SchedulingPolicy {
             }
             ok = true;
             // if the gap is found - use it
-            if (ri.findHoleForGridlet(gi)) {
+            boolean found = false;
+            if (ExperimentSetup.useAvailabilityProfile) {
+                found = ri.findProfileSlotForGridlet(gi);
+            } else {
+                found = ri.findHoleForGridlet(gi);
+            }
+            if (found) {
                 okh = true;
-                index = ri.resSchedule.indexOf(gi);
+                index = ri.indexOfGInfo(gi);
                 evaluate = true;
 
                 // exists previous assignement
                 if (resIndex >= 0) {
-                    ResourceInfo rPrev = (ResourceInfo) Scheduler.resourceInfoList.get(resIndex);
+                    ResourceInfo rPrev = (ResourceInfo) ctx.resourceInfoList.get(resIndex);
                     boolean odstr = rPrev.removeGInfo(gi);
                 }
             } else {
@@ -70,65 +83,109 @@ public class BestGap implements SchedulingPolicy {
             // if the move was made - evaluate this solution
             if (evaluate) {
 
-                Scheduler.updateResourceInfos(current_time);
-                double new_decision = 0.0;
-
-                double current_fair = CommonObjectives.predictFairness(current_time);
-                double fair = Math.max(0.0000000000001, previous_fair);
-                double diff_fair = (previous_fair - current_fair) / fair;
-
-                double current_resp = CommonObjectives.predictAvgResponseTime(current_time);
-                double rt = Math.max(0.0000000000001, previous_resp);
-                double diff_rt = (previous_resp - current_resp) / rt;
+                ctx.updateResourceInfos(current_time);
+                ObjectiveVector current = ObjectiveVector.predict(ctx, current_time);
 
-                double current_wait = CommonObjectives.predictAvgWaitTime(current_time);
-                double wt = Math.max(0.0000000000001, previous_wait);
-                double diff_wt = (previous_wait - current_wait) / wt;
-
-                double current_sd = CommonObjectives.predictAvgSlowdown(current_time);
-                double sd = Math.max(1.0, previous_sd);
-                double diff_sd = (previous_sd - current_sd) / sd;
-
-
-                // decision taken upon slowdown, response time a wait time values
-                new_decision = (diff_fair * ExperimentSetup.fair_weight) + (diff_rt * 1.0) + (diff_wt * 1.0) + (diff_sd * 1.0);
-
-                if (new_decision <= 0.0 && accept == false) {
+                if (accept == false && !decision.isBetter(previous, current)) {
                     //bad move
                     ri.removeGInfo(gi);
-                    ResourceInfo rPrev = (ResourceInfo) Scheduler.resourceInfoList.get(resIndex);
+                    ResourceInfo rPrev = (ResourceInfo) ctx.resourceInfoList.get(resIndex);
                     rPrev.addGInfo(gIndex, gi);
 
                 } else {
                     // good move
                     accept = false;
-                    previous_sd = current_sd;
-                    previous_wait = current_wait;
-                    previous_resp = current_resp;
-                    previous_fair = current_fair;
+                    previous = current;
                     resIndex = i;
                     gIndex = index;
                     gi.setResourceID(ri.resource.getResourceID());
                 }
             }
         }
-        Scheduler.runtime += (new Date().getTime() - runtime1);
-        if (!Scheduler.isExecutable(gi)) {
+        ctx.runtime += (new Date().getTime() - runtime1);
+        if (!ctx.isExecutable(gi)) {
             System.out.println(gi.getID() + " is not executable - danger!!! ok=" + ok + " hole=" + okh);
         }
-        ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(resIndex);
+        ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(resIndex);
         // updates resource info's internal values (IMPORTANT! because of next use of this policy)
         ri.forceUpdate(GridSim.clock());
         System.out.println("New job has been received by BestGap");
 
     }
 
+    /**
+     * Parallel version of addNewJob() used when ExperimentSetup.useParallelCandidates is set. Gaps are found sequentially,
+     * placements on candidate resources are evaluated in parallel on trial copies of schedules (see CandidateEvaluator).
+     * The candidates are then compared in the order of resources using the same decision as the sequential version.
+     */
+    private void addNewJobParallel(GridletInfo gi) {
+        double current_time = GridSim.clock();
+        double runtime1 = new Date().getTime();
+
+        ObjectiveComparator decision = ObjectiveComparator.createDefault();
+        // objective values of the best placement so far (the first placement is always accepted)
+        ObjectiveVector previous = null;
+        boolean accept = true;
+        boolean ok = false;
+        boolean okh = false;
+        CandidateEvaluator candidates = new CandidateEvaluator(ctx, gi, current_time);
+
+        // find suitable gap in each schedule
+        for (int i = 0; i < ctx.resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(i);
+
+            // continue when not suitable.
+            if (!Scheduler.isSuitableThenUpdate(ri, gi, current_time)) {
+                continue;
+            }
+            ok = true;
+            int index = -1;
+            if (ExperimentSetup.useAvailabilityProfile) {
+                index = ri.findProfilePosition(gi);
+            } else {
+                index = ri.findHolePosition(gi);
+            }
+            if (index >= 0) {
+                okh = true;
+                candidates.addCandidate(i, index);
+            }
+        }
+        candidates.evaluate();
+
+        int best = -1;
+        for (int c = 0; c < candidates.size(); c++) {
+            ObjectiveVector current = candidates.predictObjectives(c);
+
+            if (accept == true || decision.isBetter(previous, current)) {
+                // good move
+                accept = false;
+                previous = current;
+                best = c;
+            }
+        }
+        ResourceInfo ri = null;
+        if (best >= 0) {
+            ri = (ResourceInfo) ctx.resourceInfoList.get(candidates.getResourceIndex(best));
+            ri.addGInfo(candidates.getPosition(best), gi);
+            gi.setResourceID(ri.resource.getResourceID());
+        }
+        ctx.runtime += (new Date().getTime() - runtime1);
+        if (!ctx.isExecutable(gi)) {
+            System.out.println(gi.getID() + " is not executable - danger!!! ok=" + ok + " hole=" + okh);
+        }
+        if (ri != null) {
+            // updates resource info's internal values (IMPORTANT! because of next use of this policy)
+            ri.forceUpdate(GridSim.clock());
+        }
+        System.out.println("New job has been received by BestGap");
+    }
+
     @Override
     public int selectJob() {
         System.out.println("Selecting job by Best Gap...");
         int scheduled = 0;
-        for (int j = 0; j < Scheduler.resourceInfoList.size(); j++) {
-            ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(j);
+        for (int j = 0; j < ctx.resourceInfoList.size(); j++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(j);
             if (ri.resSchedule.size() > 0) {
                 GridletInfo gi = (GridletInfo) ri.resSchedule.get(0);
                 if (ri.getNumFreePE() >= gi.getNumPE()) {
@@ -6,9 +6,11 @@ package xklusac.algorithms;
 
 import java.util.Date;
 import gridsim.GridSim;
+import xklusac.environment.ExperimentSetup;
 import xklusac.environment.GridletInfo;
 import xklusac.environment.ResourceInfo;
 import xklusac.environment.Scheduler;
+import xklusac.environment.SimulationContext;
 
 /**
  * Class CONS<p>
@@ -20,13 +22,19 @@ import xklusac.environment.Scheduler;
 public class CONS implements SchedulingPolicy {
 
     private Scheduler scheduler;
+    private SimulationContext ctx;
 
     public CONS(Scheduler scheduler) {
         this.scheduler = scheduler;
+        this.ctx = scheduler.getContext();
     }
 
     @Override
     public void addNewJob(GridletInfo gi) {
+        if (ExperimentSetup.useParallelCandidates) {
+            addNewJobParallel(gi);
+            return;
+        }
         int index = 0;
         int resIndex = -2;
         int gIndex = -1;
@@ -38,8 +46,8 @@ public class CONS implements SchedulingPolicy {
         boolean okh = false;
 
         // select schedule with earliest suitable gap
-        for (int i = 0; i < Scheduler.resourceInfoList.size(); i++) {
-            ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(i);
+        for (int i = 0; i < ctx.resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(i);
 
             boolean evaluate = false;
 
@@ -49,14 +57,20 @@ public class CONS implements SchedulingPolicy {
             }
             ok = true;
             // if the gap is found - use it
-            if (ri.findHoleForGridlet(gi)) {
+            boolean found = false;
+            if (ExperimentSetup.useAvailabilityProfile) {
+                found = ri.findProfileSlotForGridlet(gi);
+            } else {
+                found = ri.findHoleForGridlet(gi);
+            }
+            if (found) {
                 okh = true;
-                index = ri.resSchedule.indexOf(gi);
+                index = ri.indexOfGInfo(gi);
                 evaluate = true;
 
                 // exists previous assignement
                 if (resIndex >= 0) {
-                    ResourceInfo rPrev = (ResourceInfo) Scheduler.resourceInfoList.get(resIndex);
+                    ResourceInfo rPrev = (ResourceInfo) ctx.resourceInfoList.get(resIndex);
                     boolean odstr = rPrev.removeGInfo(gi);
                 }
             } else {
@@ -65,14 +79,14 @@ public class CONS implements SchedulingPolicy {
             // if the move was made - evaluate this solution
             if (evaluate) {
 
-                Scheduler.updateResourceInfos(current_time);
+                ctx.updateResourceInfos(current_time);
                 double start_time_new = gi.getExpectedStartTime();
 
                 // test the new assignement
                 if (start_time_new >= best_start_time && accept == false) {
                     //bad move
                     ri.removeGInfo(gi);
-                    ResourceInfo rPrev = (ResourceInfo) Scheduler.resourceInfoList.get(resIndex);
+                    ResourceInfo rPrev = (ResourceInfo) ctx.resourceInfoList.get(resIndex);
                     rPrev.addGInfo(gIndex, gi);
 
                 } else {
@@ -85,23 +99,84 @@ public class CONS implements SchedulingPolicy {
                 }
             }
         }
-        Scheduler.runtime += (new Date().getTime() - runtime1);
-        if (!Scheduler.isExecutable(gi)) {
+        ctx.runtime += (new Date().getTime() - runtime1);
+        if (!ctx.isExecutable(gi)) {
             System.out.println(gi.getID() + " is not executable - danger!!! ok=" + ok + " hole=" + okh);
         }
-        ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(resIndex);
+        ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(resIndex);
         // updates resource info's internal values (IMPORTANT! because of next use of this policy)
         ri.forceUpdate(GridSim.clock());
         System.out.println("New job has been received by CONS");
 
     }
 
+    /**
+     * Parallel version of addNewJob() used when ExperimentSetup.useParallelCandidates is set. Gaps are found sequentially,
+     * placements on candidate resources are evaluated in parallel on trial copies of schedules (see CandidateEvaluator).
+     * The job is placed on the resource with the earliest start time, the first such resource wins as in the sequential version.
+     */
+    private void addNewJobParallel(GridletInfo gi) {
+        double current_time = GridSim.clock();
+        double runtime1 = new Date().getTime();
+        boolean ok = false;
+        boolean okh = false;
+        CandidateEvaluator candidates = new CandidateEvaluator(ctx, gi, current_time);
+
+        // find suitable gap in each schedule
+        for (int i = 0; i < ctx.resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(i);
+
+            // continue when not suitable.
+            if (!Scheduler.isSuitableThenUpdate(ri, gi, current_time)) {
+                continue;
+            }
+            ok = true;
+            int index = -1;
+            if (ExperimentSetup.useAvailabilityProfile) {
+                index = ri.findProfilePosition(gi);
+            } else {
+                index = ri.findHolePosition(gi);
+            }
+            if (index >= 0) {
+                okh = true;
+                candidates.addCandidate(i, index);
+            }
+        }
+        candidates.evaluate();
+
+        // select schedule with earliest start time
+        int best = -1;
+        double best_start_time = Double.MAX_VALUE;
+        for (int c = 0; c < candidates.size(); c++) {
+            double start_time_new = candidates.getExpectedStartTime(c);
+            if (best < 0 || start_time_new < best_start_time) {
+                best = c;
+                best_start_time = start_time_new;
+            }
+        }
+        ResourceInfo ri = null;
+        if (best >= 0) {
+            ri = (ResourceInfo) ctx.resourceInfoList.get(candidates.getResourceIndex(best));
+            ri.addGInfo(candidates.getPosition(best), gi);
+            gi.setResourceID(ri.resource.getResourceID());
+        }
+        ctx.runtime += (new Date().getTime() - runtime1);
+        if (!ctx.isExecutable(gi)) {
+            System.out.println(gi.getID() + " is not executable - danger!!! ok=" + ok + " hole=" + okh);
+        }
+        if (ri != null) {
+            // updates resource info's internal values (IMPORTANT! because of next use of this policy)
+            ri.forceUpdate(GridSim.clock());
+        }
+        System.out.println("New job has been received by CONS");
+    }
+
     @Override
     public int selectJob() {
         System.out.println("Selecting job by CONS...");
         int scheduled = 0;
-        for (int j = 0; j < Scheduler.resourceInfoList.size(); j++) {
-            ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(j);
+        for (int j = 0; j < ctx.resourceInfoList.size(); j++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(j);
             if (ri.resSchedule.size() > 0) {
                 GridletInfo gi = (GridletInfo) ri.resSchedule.get(0);
                 if (ri.getNumFreePE() >= gi.getNumPE()) {
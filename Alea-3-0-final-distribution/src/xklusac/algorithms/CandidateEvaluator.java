@@ -0,0 +1,162 @@
+package xklusac.algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import xklusac.environment.ExperimentSetup;
+import xklusac.environment.GridletInfo;
+import xklusac.environment.ResourceInfo;
+import xklusac.environment.SimulationContext;
+import xklusac.environment.Scheduler;
+import xklusac.objective_functions.ObjectiveVector;
+
+/**
+ * Class CandidateEvaluator<p>
+ * Evaluates the placements of a new job on candidate resources in parallel (used by CONS and BestGap when
+ * ExperimentSetup.useParallelCandidates is set). Each candidate resource gets its own trial copy of the affected part of its
+ * schedule (see ResourceInfo.createTrialCopy()) with a copy of the job inserted, so the real schedules are not changed.
+ * Candidates are added in the order of resources, the policy then goes through the results in this order and makes the same
+ * decisions as the sequential version (ties are broken by resource order).
+ */
+public class CandidateEvaluator {
+
+    /** thread pool shared by all evaluations */
+    private static ExecutorService pool = null;
+    /** number of threads of the pool */
+    private static int pool_size = 0;
+    private SimulationContext ctx;
+    private GridletInfo gi;
+    private double current_time;
+    /** index of each candidate resource in SimulationContext.resourceInfoList */
+    private ArrayList<Integer> resources = new ArrayList();
+    /** position of the job in the schedule of each candidate resource */
+    private ArrayList<Integer> positions = new ArrayList();
+    /** evaluated trial copies of schedules */
+    private ResourceInfo[] trials;
+    /** copies of the job placed in the trial schedules */
+    private GridletInfo[] jobs;
+
+    /** Creates a new instance of CandidateEvaluator for job gi */
+    public CandidateEvaluator(SimulationContext ctx, GridletInfo gi, double current_time) {
+        this.ctx = ctx;
+        this.gi = gi;
+        this.current_time = current_time;
+    }
+
+    /**
+     * Adds candidate resource.
+     * @param resource index of resource in SimulationContext.resourceInfoList (the resource must be updated)
+     * @param position position of the job in the resource's schedule
+     */
+    public void addCandidate(int resource, int position) {
+        resources.add(resource);
+        positions.add(position);
+    }
+
+    /** Returns the number of candidates. */
+    public int size() {
+        return resources.size();
+    }
+
+    /** Returns the index of the candidate resource in SimulationContext.resourceInfoList. */
+    public int getResourceIndex(int candidate) {
+        return resources.get(candidate);
+    }
+
+    /** Returns the position of the job in the schedule of the candidate resource. */
+    public int getPosition(int candidate) {
+        return positions.get(candidate);
+    }
+
+    /** Returns the expected start time of the job on the candidate resource. */
+    public double getExpectedStartTime(int candidate) {
+        return jobs[candidate].getExpectedStartTime();
+    }
+
+    /**
+     * Creates and evaluates trial schedules of all candidates. Trials are evaluated by ExperimentSetup.candidate_threads threads.
+     * An error in the evaluation of any candidate is thrown again, as it would be thrown by the sequential evaluation.
+     */
+    public void evaluate() {
+        trials = new ResourceInfo[size()];
+        jobs = new GridletInfo[size()];
+        List<Callable<Object>> tasks = new ArrayList();
+        for (int c = 0; c < size(); c++) {
+            final int candidate = c;
+            tasks.add(new Callable<Object>() {
+
+                public Object call() {
+                    evaluateCandidate(candidate);
+                    return null;
+                }
+            });
+        }
+        try {
+            List<Future<Object>> results = getPool().invokeAll(tasks);
+            for (int c = 0; c < results.size(); c++) {
+                results.get(c).get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Evaluation of candidates of job " + gi.getID() + " was interrupted.", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException("Evaluation of candidates of job " + gi.getID() + " failed.", cause);
+        }
+    }
+
+    /**
+     * Predicts the objective values of the whole schedule when the job is placed on the candidate resource. The values are the same
+     * as when the job is added to the real schedule of the candidate resource, only the trial copy is used instead.
+     */
+    public ObjectiveVector predictObjectives(int candidate) {
+        return ObjectiveVector.predict(ctx, current_time, resources.get(candidate), trials[candidate]);
+    }
+
+    /** Creates and evaluates the trial schedule of one candidate. */
+    private void evaluateCandidate(int candidate) {
+        ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(resources.get(candidate));
+        GridletInfo trial_gi = new GridletInfo(gi);
+        ResourceInfo trial = ri.createTrialCopy(positions.get(candidate), trial_gi);
+        trial.update(current_time);
+        trial.updateFairness(new double[ctx.users.size()], new double[ctx.users.size()]);
+        trials[candidate] = trial;
+        jobs[candidate] = trial_gi;
+    }
+
+    /**
+     * Returns the thread pool. The pool is created when used for the first time and created again when
+     * ExperimentSetup.candidate_threads has changed since then.
+     */
+    private static synchronized ExecutorService getPool() {
+        int threads = Math.max(1, ExperimentSetup.candidate_threads);
+        if (pool != null && pool_size != threads) {
+            pool.shutdown();
+            pool = null;
+        }
+        if (pool == null) {
+            pool_size = threads;
+            pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "candidate-evaluator");
+                    // the pool must not prevent the simulation from finishing
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return pool;
+    }
+}
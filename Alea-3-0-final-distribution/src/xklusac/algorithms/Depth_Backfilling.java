@@ -0,0 +1,224 @@
+package xklusac.algorithms;
+
+import gridsim.GridSim;
+import gridsim.GridSimTags;
+import gridsim.Gridlet;
+import java.util.Date;
+import java.util.LinkedList;
+import xklusac.environment.ExperimentSetup;
+import xklusac.environment.GridletInfo;
+import xklusac.environment.ResourceInfo;
+import xklusac.environment.Scheduler;
+import xklusac.environment.SimulationContext;
+import xklusac.environment.WaitQueue;
+import xklusac.extensions.AvailabilityProfile;
+
+/**
+ * Class Depth_Backfilling<p>
+ * Implements backfilling with k reservations (k = ExperimentSetup.reservation_depth). The first k jobs of the queue obtain
+ * reservations (EASY Backfilling reserves the head only, CONS reserves all jobs), the remaining jobs are backfilled if they
+ * do not delay any of these reservations. Reservations are made in the availability profiles of CPUs of all clusters, which
+ * are created from the running jobs in every scheduling pass. The profiles and the queue count CPUs (WaitQueue.BY_PE), a job is
+ * started only if the cluster also has enough free nodes (as in EASY Backfilling).
+ */
+public class Depth_Backfilling implements SchedulingPolicy {
+
+    private Scheduler scheduler;
+    private SimulationContext ctx;
+
+    public Depth_Backfilling(Scheduler scheduler) {
+        this.scheduler = scheduler;
+        this.ctx = scheduler.getContext();
+        ctx.queue = new WaitQueue(ctx, WaitQueue.BY_PE, WaitQueue.ARRIVAL);
+    }
+
+    @Override
+    public void addNewJob(GridletInfo gi) {
+        double runtime1 = new Date().getTime();
+        ctx.queue.addLast(gi);
+        ctx.runtime += (new Date().getTime() - runtime1);
+        System.out.println("New job has been received by Backfilling with " + ExperimentSetup.reservation_depth + " reservations");
+    }
+
+    @Override
+    public int selectJob() {
+        System.out.println("Selecting job by Backfilling with " + ExperimentSetup.reservation_depth + " reservations...");
+        int scheduled = 0;
+        ResourceInfo r_cand = null;
+        int r_cand_speed = 0;
+
+        // free CPUs and free nodes of resources are computed once per pass
+        WaitQueue.Pass pass = ctx.queue.startPass();
+        int[] free_nodes = WaitQueue.getFreeCapacity(ctx, WaitQueue.BY_NODES);
+
+        if (ctx.queue.size() > 0) {
+            GridletInfo gi = ctx.queue.getFirst();
+            int r_index = -1;
+            for (int j = 0; j < ctx.resourceInfoList.size(); j++) {
+                ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(j);
+                if (Scheduler.isSuitable(ri, gi) && pass.getFree(j) >= gi.getNumPE() && free_nodes[j] >= gi.getGridlet().getNumNodes() && ctx.totalPower + gi.getGridlet().getPower() <= ExperimentSetup.powerCap) {
+                    int speed = ri.peRating;
+                    if (speed > r_cand_speed) {
+                        r_cand = ri;
+                        r_cand_speed = speed;
+                        r_index = j;
+                    }
+                }
+            }
+
+            if (r_cand != null) {
+                gi = ctx.queue.removeFirst();
+                startJob(gi, r_index, pass, free_nodes);
+                return 1;
+            }
+        } else {
+            return 0;
+        }
+        if (ctx.queue.size() > 1) {
+            boolean removed = false;
+            // do not create reservation for job that cannot be executed
+            while (!ctx.queue.isEmpty()) {
+
+                GridletInfo gi = ctx.queue.getFirst();
+                if (ctx.isExecutable(gi)) {
+                    break;
+                } else {
+                    // kill such job
+                    System.out.println(Math.round(GridSim.clock()) + " gi:" + gi.getID() + ": KILLED BY DEPTH-BACKFILLING: [" + gi.getProperties() + "] CPUs=" + gi.getNumPE());
+                    try {
+                        gi.getGridlet().setGridletStatus(Gridlet.CANCELED);
+                    } catch (Exception ex) {
+                        ex.printStackTrace();
+                    }
+                    removed = true;
+                    scheduler.sim_schedule(GridSim.getEntityId("Alea_3.0_scheduler"), 0.0, GridSimTags.GRIDLET_RETURN, gi.getGridlet());
+                    ctx.queue.removeFirst();
+                }
+            }
+            // we will be called again when killed jobs return to Scheduler - no waiting will happen.
+            if (removed) {
+                return 0;
+            }
+            double clock = GridSim.clock();
+            AvailabilityProfile[] profiles = new AvailabilityProfile[ctx.resourceInfoList.size()];
+            for (int j = 0; j < profiles.length; j++) {
+                profiles[j] = createProfile((ResourceInfo) ctx.resourceInfoList.get(j), clock);
+            }
+
+            // reservations of the first k jobs, a reserved job that can start right now is started
+            LinkedList<GridletInfo> reserved = ctx.queue.getHead(ExperimentSetup.reservation_depth);
+            for (int i = 0; i < reserved.size(); i++) {
+                GridletInfo gr = reserved.get(i);
+                int r_index = -1;
+                double r_start = Double.MAX_VALUE;
+                for (int j = 0; j < profiles.length; j++) {
+                    ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(j);
+                    if (!Scheduler.isSuitable(ri, gr)) {
+                        continue;
+                    }
+                    double start = profiles[j].findEarliestStart(gr.getNumPE(), gr.getJobRuntime(ri.peRating), clock);
+                    // select minimal start time, the faster resource if equal
+                    if (start < r_start || (start == r_start && r_index >= 0 && ri.peRating > ((ResourceInfo) ctx.resourceInfoList.get(r_index)).peRating)) {
+                        r_start = start;
+                        r_index = j;
+                    }
+                }
+                if (r_index < 0 || r_start == Double.MAX_VALUE) {
+                    // no working cluster can run this job now, it does not block other jobs
+                    continue;
+                }
+                ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(r_index);
+                profiles[r_index].reserve(r_start, r_start + gr.getJobRuntime(ri.peRating), gr.getNumPE());
+                if (r_start <= clock && pass.getFree(r_index) >= gr.getNumPE() && free_nodes[r_index] >= gr.getGridlet().getNumNodes() && ctx.totalPower + gr.getGridlet().getPower() <= ExperimentSetup.powerCap) {
+                    ctx.queue.remove(gr);
+                    startJob(gr, r_index, pass, free_nodes);
+                    scheduled++;
+                }
+            }
+
+            // try backfilling on all other gridlets in queue, jobs that cannot fit into free nodes are skipped by the pass
+            GridletInfo gi = pass.next();
+            while (gi != null) {
+                if (reserved.contains(gi)) {
+                    gi = pass.next();
+                    continue;
+                }
+                int r_index = findResourceBF(gi, profiles, clock, pass, free_nodes);
+                if (r_index >= 0) {
+                    ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(r_index);
+                    profiles[r_index].reserve(clock, clock + gi.getJobRuntime(ri.peRating), gi.getNumPE());
+                    pass.remove();
+                    startJob(gi, r_index, pass, free_nodes);
+                    scheduled++;
+                }
+                gi = pass.next();
+            }
+        }
+        return scheduled;
+    }
+
+    /** Starts the job (already removed from the queue) on the resource with index r_index. */
+    private void startJob(GridletInfo gi, int r_index, WaitQueue.Pass pass, int[] free_nodes) {
+        ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(r_index);
+        ri.addGInfoInExec(gi);
+        pass.allocate(r_index, gi);
+        free_nodes[r_index] = Math.max(0, free_nodes[r_index] - gi.getGridlet().getNumNodes());
+        // set the resource ID for this gridletInfo (this is the final scheduling decision)
+        gi.setResourceID(ri.resource.getResourceID());
+        // tell the JSS where to send which gridlet
+        scheduler.submitJob(gi.getGridlet(), ri.resource.getResourceID());
+        ri.is_ready = true;
+        ctx.totalPower += gi.getGridlet().getPower();
+        scheduler.sim_schedule(GridSim.getEntityId("Alea_3.0_scheduler"), 0.0, Scheduler.GridletWasSent, gi);
+    }
+
+    /**
+     * Auxiliary method for backfilling, returns the index of the fastest resource where the job can start right now
+     * without delaying any reservation, or -1.
+     */
+    private int findResourceBF(GridletInfo gi, AvailabilityProfile[] profiles, double clock, WaitQueue.Pass pass, int[] free_nodes) {
+        int r_cand = -1;
+        int r_cand_speed = 0;
+        for (int j = 0; j < profiles.length; j++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(j);
+            if (ri.peRating <= r_cand_speed || pass.getFree(j) < gi.getNumPE() || free_nodes[j] < gi.getGridlet().getNumNodes() || ctx.totalPower + gi.getGridlet().getPower() > ExperimentSetup.powerCap || !Scheduler.isSuitable(ri, gi)) {
+                continue;
+            }
+            if (profiles[j].findEarliestStart(gi.getNumPE(), gi.getJobRuntime(ri.peRating), clock) <= clock) {
+                r_cand = j;
+                r_cand_speed = ri.peRating;
+            }
+        }
+        return r_cand;
+    }
+
+    /**
+     * Creates the availability profile of CPUs of the resource since the given time. Running jobs occupy their CPUs until their
+     * expected end (at least 1 second from now if they run longer than expected), CPUs of failed machines are never available.
+     */
+    private AvailabilityProfile createProfile(ResourceInfo ri, double clock) {
+        int total = ri.resource.getNumPE();
+        AvailabilityProfile profile = new AvailabilityProfile(clock, total);
+        int failed = total - Math.min(total, ri.getNumRunningPE());
+        if (failed > 0) {
+            profile.reserve(clock, Double.MAX_VALUE, failed);
+        }
+        for (int i = 0; i < ri.resInExec.size(); i++) {
+            GridletInfo gi = ri.resInExec.get(i);
+            if (gi.getStatus() == Gridlet.SUCCESS) {
+                continue;
+            }
+            double end = 0.0;
+            if (gi.getStatus() == Gridlet.INEXEC) {
+                end = gi.getGridlet().getExecStartTime() + gi.getJobRuntime(ri.peRating);
+            } else {
+                // job has not been started by the resource yet
+                end = clock + gi.getJobRuntime(ri.peRating);
+            }
+            // the job still occupies its CPUs, reserve(clock, end) would be empty for end <= clock
+            end = Math.max(end, clock + 1.0);
+            profile.reserve(clock, end, gi.getNumPE());
+        }
+        return profile;
+    }
+}
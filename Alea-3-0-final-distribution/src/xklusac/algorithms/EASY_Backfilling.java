@@ -7,11 +7,14 @@ package xklusac.algorithms;
 import gridsim.GridSim;
 import gridsim.GridSimTags;
 import gridsim.Gridlet;
+import java.util.Arrays;
 import java.util.Date;
 import xklusac.environment.ExperimentSetup;
 import xklusac.environment.GridletInfo;
 import xklusac.environment.ResourceInfo;
 import xklusac.environment.Scheduler;
+import xklusac.environment.SimulationContext;
+import xklusac.environment.WaitQueue;
 
 /**
  * Class EASY_Backfilling<p>
@@ -22,16 +25,26 @@ import xklusac.environment.Scheduler;
 public class EASY_Backfilling implements SchedulingPolicy {
 
     private Scheduler scheduler;
+    private SimulationContext ctx;
+    /** head of the queue for which the reservation is cached */
+    private GridletInfo rsv_head = null;
+    /** EST of the head and the number of extra PEs at that time on each resource */
+    private double[] rsv_est = new double[0];
+    private int[] rsv_usable = new int[0];
+    /** version of running jobs of each resource when its EST was computed */
+    private int[] rsv_version = new int[0];
 
     public EASY_Backfilling(Scheduler scheduler) {
         this.scheduler = scheduler;
+        this.ctx = scheduler.getContext();
+        ctx.queue = new WaitQueue(ctx, WaitQueue.BY_NODES, WaitQueue.ARRIVAL);
     }
 
     @Override
     public void addNewJob(GridletInfo gi) {
         double runtime1 = new Date().getTime();
-        Scheduler.queue.addLast(gi);
-        Scheduler.runtime += (new Date().getTime() - runtime1);
+        ctx.queue.addLast(gi);
+        ctx.runtime += (new Date().getTime() - runtime1);
         System.out.println("New job has been received by EASY Backfilling");
     }
 
@@ -44,29 +57,35 @@ public class EASY_Backfilling implements SchedulingPolicy {
         ResourceInfo r_cand = null;
         int r_cand_speed = 0;
 
-        if (Scheduler.queue.size() > 0) {
-            GridletInfo gi = (GridletInfo) Scheduler.queue.getFirst();
-            for (int j = 0; j < Scheduler.resourceInfoList.size(); j++) {
-                ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(j);
-                if (Scheduler.isSuitable(ri, gi) && ri.getNumFreeNodes() >= gi.getGridlet().getNumNodes() && ExperimentSetup.totalPower + gi.getGridlet().getPower() <= ExperimentSetup.powerCap) {
+        // free nodes of resources are computed once per pass
+        WaitQueue.Pass pass = ctx.queue.startPass();
+
+        if (ctx.queue.size() > 0) {
+            GridletInfo gi = ctx.queue.getFirst();
+            int r_index = -1;
+            for (int j = 0; j < ctx.resourceInfoList.size(); j++) {
+                ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(j);
+                if (Scheduler.isSuitable(ri, gi) && pass.getFree(j) >= gi.getGridlet().getNumNodes() && ctx.totalPower + gi.getGridlet().getPower() <= ExperimentSetup.powerCap) {
                     int speed = ri.peRating;
                     if (speed > r_cand_speed) {
                         r_cand = ri;
                         r_cand_speed = speed;
+                        r_index = j;
                     }
                 }
             }
 
             if (r_cand != null) {
-                gi = (GridletInfo) Scheduler.queue.removeFirst();
+                gi = ctx.queue.removeFirst();
                 r_cand.addGInfoInExec(gi);
+                pass.allocate(r_index, gi);
                 // set the resource ID for this gridletInfo (this is the final scheduling decision)
                 gi.setResourceID(r_cand.resource.getResourceID());
                 // tell the JSS where to send which gridlet
                 scheduler.submitJob(gi.getGridlet(), r_cand.resource.getResourceID());
                 succ = true;
                 r_cand.is_ready = true;
-                ExperimentSetup.totalPower+=gi.getGridlet().getPower();
+                ctx.totalPower+=gi.getGridlet().getPower();
                 scheduler.sim_schedule(GridSim.getEntityId("Alea_3.0_scheduler"),  0.0, Scheduler.GridletWasSent, gi);
                 return 1;
             }
@@ -74,13 +93,13 @@ public class EASY_Backfilling implements SchedulingPolicy {
             return 0;
         }
         // try backfilling procedure
-        if (!succ && Scheduler.queue.size() > 1) {
+        if (!succ && ctx.queue.size() > 1) {
             boolean removed = false;
             // do not create reservation for job that cannot be executed
-            for (int j = 0; j < Scheduler.queue.size(); j++) {
+            while (!ctx.queue.isEmpty()) {
 
-                GridletInfo gi = (GridletInfo) Scheduler.queue.get(j);
-                if (Scheduler.isExecutable(gi)) {
+                GridletInfo gi = ctx.queue.getFirst();
+                if (ctx.isExecutable(gi)) {
                     break;
                 } else {
                     // kill such job
@@ -92,8 +111,7 @@ public class EASY_Backfilling implements SchedulingPolicy {
                     }
                     removed = true;
                     scheduler.sim_schedule(GridSim.getEntityId("Alea_3.0_scheduler"), 0.0, GridSimTags.GRIDLET_RETURN, gi.getGridlet());
-                    Scheduler.queue.remove(j);
-                    j--;
+                    ctx.queue.removeFirst();
                 }
             }
             // EASY will be called again when killed jobs return o Scheduler - no waiting will happen.
@@ -101,58 +119,71 @@ public class EASY_Backfilling implements SchedulingPolicy {
                 return 0;
                 // head of queue - gridlet with reservation
             }
-            GridletInfo grsv = (GridletInfo) Scheduler.queue.get(0);
-            // reserved machine (i.e. Earliest Available)
-            ResourceInfo rsv_res = findReservedResource(grsv);
-
-            // try backfilling on all gridlets in queue except for head (grsv)
-            for (int j = 1; j < Scheduler.queue.size(); j++) {
-                GridletInfo gi = (GridletInfo) Scheduler.queue.get(j);
-                /*if (gi.getNumPE() >= grsv.getNumPE()) {
-                continue; // such gridlet will never succeed (not true if requirements used)
-                TODO
-                }*/
-                ResourceInfo ri = findResourceBF(gi, grsv, rsv_res);
-                if (ri != null) {
-                    Scheduler.queue.remove(j);
+            GridletInfo grsv = ctx.queue.getFirst();
+            // reserved machine (i.e. Earliest Available), the shadow time and extra PEs of the reservation
+            int rsv_index = findReservedResource(grsv);
+            if (rsv_index < 0) {
+                return scheduled;
+            }
+            double shadow = rsv_est[rsv_index];
+            int extra = rsv_usable[rsv_index];
+
+            // try backfilling on all gridlets in queue except for head (grsv), jobs that cannot fit into free nodes are skipped by the pass
+            GridletInfo gi = pass.next();
+            while (gi != null) {
+                if (gi == grsv) {
+                    gi = pass.next();
+                    continue;
+                }
+                int r_index = findResourceBF(gi, rsv_index, shadow, extra, pass);
+                if (r_index >= 0) {
+                    ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(r_index);
+                    if (r_index == rsv_index && GridSim.clock() + gi.getJobRuntime(ri.peRating) >= shadow) {
+                        // job runs over the shadow time, it uses the extra PEs
+                        extra -= gi.getNumPE();
+                    }
+                    pass.remove();
                     ri.addGInfoInExec(gi);
+                    pass.allocate(r_index, gi);
                     // set the resource ID for this gridletInfo (this is the final scheduling decision)
                     gi.setResourceID(ri.resource.getResourceID());
                     // tell the JSS where to send which gridlet
                     scheduler.submitJob(gi.getGridlet(), ri.resource.getResourceID());
                     ri.is_ready = true;
                     succ = true;
-                    ExperimentSetup.totalPower+=gi.getGridlet().getPower();
+                    ctx.totalPower+=gi.getGridlet().getPower();
                     scheduler.sim_schedule(GridSim.getEntityId("Alea_3.0_scheduler"), 0.0, Scheduler.GridletWasSent, gi);
 
                     scheduled++;
-                    j--; //to get correct gridlet from queue in next round. The queue was shortened...
-
                 }
+                gi = pass.next();
             }
         }
         //if(scheduled>0)System.out.println(queue.size()+" remain, backfilled = "+scheduled);
         return scheduled;
     }
-    /** auxiliary method needed for easy/edf backfilling */
-    private ResourceInfo findResourceBF(GridletInfo gi, GridletInfo grsv, ResourceInfo rsv_res) {
-        ResourceInfo r_cand = null;
+    /** auxiliary method needed for easy/edf backfilling, returns the index of selected resource or -1 */
+    private int findResourceBF(GridletInfo gi, int rsv_index, double shadow, int extra, WaitQueue.Pass pass) {
+        int r_cand = -1;
         int r_cand_speed = 0;
-        for (int j = 0; j < Scheduler.resourceInfoList.size(); j++) {
-            ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(j);
-            if (Scheduler.isSuitable(ri, gi) && ri.getNumFreeNodes() >= gi.getGridlet().getNumNodes() && ri.resource.getResourceID() != rsv_res.resource.getResourceID() && ExperimentSetup.totalPower + gi.getGridlet().getPower() <= ExperimentSetup.powerCap) {
+        for (int j = 0; j < ctx.resourceInfoList.size(); j++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(j);
+            if (pass.getFree(j) < gi.getGridlet().getNumNodes() || ctx.totalPower + gi.getGridlet().getPower() > ExperimentSetup.powerCap || !Scheduler.isSuitable(ri, gi)) {
+                continue;
+            }
+            if (j != rsv_index) {
                 int speed = ri.peRating;
                 if (speed >= r_cand_speed) {
-                    r_cand = ri;
+                    r_cand = j;
                     r_cand_speed = speed;
                 }
 
-            } else if (Scheduler.isSuitable(ri, gi) && ri.getNumFreeNodes() >= gi.getGridlet().getNumNodes() && ri.resource.getResourceID() == rsv_res.resource.getResourceID() && ExperimentSetup.totalPower + gi.getGridlet().getPower() <= ExperimentSetup.powerCap) {
+            } else {
                 double eft = GridSim.clock() + gi.getJobRuntime(ri.peRating);
-                if ((eft < rsv_res.est) || rsv_res.usablePEs >= gi.getNumPE()) {
+                if ((eft < shadow) || extra >= gi.getNumPE()) {
                     int speed = ri.peRating;
                     if (speed > r_cand_speed) {
-                        r_cand = ri;
+                        r_cand = j;
                         r_cand_speed = speed;
                     }
                 }
@@ -162,31 +193,43 @@ public class EASY_Backfilling implements SchedulingPolicy {
     }
 
     /**
-     * Auxiliary method for easy/edf backfilling
+     * Auxiliary method for easy/edf backfilling, returns the index of the reserved resource (minimal EST of grsv) or -1.
+     * EST and extra PEs of each resource are cached in rsv_est and rsv_usable. They are computed again only when the head of
+     * the queue changes, when a job starts or ends on the resource or its machine fails or restarts (see ResourceInfo.getExecVersion),
+     * or when the current time reaches the cached EST (then it depends on the current time).
      */
-    private ResourceInfo findReservedResource(GridletInfo grsv) {
+    private int findReservedResource(GridletInfo grsv) {
+        int size = ctx.resourceInfoList.size();
+        if (grsv != rsv_head || rsv_est.length != size) {
+            rsv_head = grsv;
+            rsv_est = new double[size];
+            rsv_usable = new int[size];
+            rsv_version = new int[size];
+            Arrays.fill(rsv_version, -1);
+        }
+        double clock = GridSim.clock();
         double est = Double.MAX_VALUE;
-        ResourceInfo found = null;
-        for (int j = 0; j < Scheduler.resourceInfoList.size(); j++) {
-            ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(j);
-            if (ri.getNumRunningPE() >= grsv.getNumPE()) {
-                double ri_est = ri.getEarliestStartTime(grsv, GridSim.clock());
-                // select minimal EST
-                if (ri_est <= est) {
-                    est = ri_est;
-                    found = ri;
-                }
-
-            } else if (ri.resource.getNumPE() >= grsv.getNumPE()) {
-                double ri_est = Double.MAX_VALUE - 10.0;
-                // select minimal EST
-                if (ri_est <= est) {
-                    est = ri_est;
-                    found = ri;
+        int found = -1;
+        for (int j = 0; j < size; j++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(j);
+            if (rsv_version[j] != ri.getExecVersion() || clock >= rsv_est[j]) {
+                if (ri.getNumRunningPE() >= grsv.getNumPE()) {
+                    rsv_est[j] = ri.getEarliestStartTime(grsv, clock);
+                    rsv_usable[j] = ri.usablePEs;
+                } else if (ri.resource.getNumPE() >= grsv.getNumPE()) {
+                    rsv_est[j] = Double.MAX_VALUE - 10.0;
+                    rsv_usable[j] = 0;
+                } else {
+                    // this is not suitable cluster
+                    rsv_est[j] = Double.MAX_VALUE;
+                    rsv_usable[j] = 0;
                 }
-            } else {
-                continue; // this is not suitable cluster
-
+                rsv_version[j] = ri.getExecVersion();
+            }
+            // select minimal EST
+            if (rsv_est[j] < Double.MAX_VALUE && rsv_est[j] <= est) {
+                est = rsv_est[j];
+                found = j;
             }
         }
         return found;
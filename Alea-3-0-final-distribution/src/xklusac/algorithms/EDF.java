@@ -6,11 +6,11 @@ package xklusac.algorithms;
 
 import java.util.Date;
 import gridsim.GridSim;
-import java.util.Collections;
 import xklusac.environment.GridletInfo;
 import xklusac.environment.ResourceInfo;
 import xklusac.environment.Scheduler;
-import xklusac.extensions.DeadlineComparator;
+import xklusac.environment.SimulationContext;
+import xklusac.environment.WaitQueue;
 
 /**
  * Class EDF<p>
@@ -21,18 +21,21 @@ import xklusac.extensions.DeadlineComparator;
 public class EDF implements SchedulingPolicy {
 
     private Scheduler scheduler;
+    private SimulationContext ctx;
 
     public EDF(Scheduler scheduler) {
         this.scheduler = scheduler;
+        this.ctx = scheduler.getContext();
+        ctx.queue = new WaitQueue(ctx, WaitQueue.BY_PE, WaitQueue.DEADLINE);
     }
 
     @Override
     public void addNewJob(GridletInfo gi) {
         double runtime1 = new Date().getTime();
-        Scheduler.queue.addLast(gi);
-        Collections.sort(Scheduler.queue, new DeadlineComparator());
+        // the queue keeps jobs ordered by their deadlines (stable, as Collections.sort with DeadlineComparator)
+        ctx.queue.add(gi);
         //System.out.println(GridSim.clock()+": FCFS job received");
-        Scheduler.runtime += (new Date().getTime() - runtime1);
+        ctx.runtime += (new Date().getTime() - runtime1);
         System.out.println("New job has been received by EDF");
     }
 
@@ -41,21 +44,26 @@ public class EDF implements SchedulingPolicy {
         System.out.println("Selecting job by EDF...");
         int scheduled = 0;
         ResourceInfo r_cand = null;
-        for (int i = 0; i < Scheduler.queue.size(); i++) {
-            GridletInfo gi = (GridletInfo) Scheduler.queue.get(i);
-            for (int j = 0; j < Scheduler.resourceInfoList.size(); j++) {
-                ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(j);
+        int r_index = -1;
+        // free capacity of resources is computed once per pass
+        WaitQueue.Pass pass = ctx.queue.startPass();
+        while (!ctx.queue.isEmpty()) {
+            GridletInfo gi = ctx.queue.getFirst();
+            for (int j = 0; j < ctx.resourceInfoList.size(); j++) {
+                ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(j);
 
-                if (Scheduler.isSuitable(ri, gi) && ri.getNumFreePE() >= gi.getNumPE()) {
+                if (Scheduler.isSuitable(ri, gi) && pass.getFree(j) >= ctx.queue.getSize(gi)) {
 
                     r_cand = ri;
+                    r_index = j;
                     break;
                 }
             }
             if (r_cand != null) {
-                gi = (GridletInfo) Scheduler.queue.remove(i);
+                gi = ctx.queue.removeFirst();
                 //System.err.println(gi.getID()+" PEs size = "+gi.PEs.size());
                 r_cand.addGInfoInExec(gi);
+                pass.allocate(r_index, gi);
                 // set the resource ID for this gridletInfo (this is the final scheduling decision)
                 gi.setResourceID(r_cand.resource.getResourceID());
                 scheduler.submitJob(gi.getGridlet(), r_cand.resource.getResourceID());
@@ -64,7 +72,6 @@ public class EDF implements SchedulingPolicy {
                 //System.out.println(GridSim.clock()+": FCFS job submitted");
                 scheduled++;
                 r_cand = null;
-                i--;
             } else {
                 return scheduled;
             }
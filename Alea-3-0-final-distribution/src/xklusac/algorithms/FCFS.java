@@ -9,6 +9,8 @@ import gridsim.GridSim;
 import xklusac.environment.GridletInfo;
 import xklusac.environment.ResourceInfo;
 import xklusac.environment.Scheduler;
+import xklusac.environment.SimulationContext;
+import xklusac.environment.WaitQueue;
 
 /**
  * Class FCFS<p>
@@ -19,16 +21,19 @@ import xklusac.environment.Scheduler;
 public class FCFS implements SchedulingPolicy {
 
     private Scheduler scheduler;
+    private SimulationContext ctx;
 
     public FCFS(Scheduler scheduler) {
         this.scheduler = scheduler;
+        this.ctx = scheduler.getContext();
+        ctx.queue = new WaitQueue(ctx, WaitQueue.BY_NODES, WaitQueue.ARRIVAL);
     }
 
     @Override
     public void addNewJob(GridletInfo gi) {
         double runtime1 = new Date().getTime();
-        Scheduler.queue.addLast(gi);        
-        Scheduler.runtime += (new Date().getTime() - runtime1);
+        ctx.queue.addLast(gi);        
+        ctx.runtime += (new Date().getTime() - runtime1);
         System.out.println("New job has been received by FCFS");
     }
 
@@ -37,21 +42,26 @@ public class FCFS implements SchedulingPolicy {
         System.out.println("Selecting job by FCFS...");
         int scheduled = 0;
         ResourceInfo r_cand = null;
-        for (int i = 0; i < Scheduler.queue.size(); i++) {
-            GridletInfo gi = (GridletInfo) Scheduler.queue.get(i);
-            for (int j = 0; j < Scheduler.resourceInfoList.size(); j++) {
-                ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(j);
+        int r_index = -1;
+        // free capacity of resources is computed once per pass
+        WaitQueue.Pass pass = ctx.queue.startPass();
+        while (!ctx.queue.isEmpty()) {
+            GridletInfo gi = ctx.queue.getFirst();
+            for (int j = 0; j < ctx.resourceInfoList.size(); j++) {
+                ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(j);
 
-                if (Scheduler.isSuitable(ri, gi) && ri.getNumFreeNodes() >= gi.getGridlet().getNumNodes()) {
+                if (Scheduler.isSuitable(ri, gi) && pass.getFree(j) >= ctx.queue.getSize(gi)) {
 
                     r_cand = ri;
+                    r_index = j;
                     break;
                 }
             }
             if (r_cand != null) {
-                gi = (GridletInfo) Scheduler.queue.remove(i);
+                gi = ctx.queue.removeFirst();
                 //System.err.println(gi.getID()+" PEs size = "+gi.PEs.size());
                 r_cand.addGInfoInExec(gi);
+                pass.allocate(r_index, gi);
                 // set the resource ID for this gridletInfo (this is the final scheduling decision)
                 gi.setResourceID(r_cand.resource.getResourceID());
                 scheduler.submitJob(gi.getGridlet(), r_cand.resource.getResourceID());
@@ -60,7 +70,6 @@ public class FCFS implements SchedulingPolicy {
                 //System.out.println(GridSim.clock()+": FCFS job submitted");
                 scheduled++;
                 r_cand = null;
-                i--;
             } else {
                 return scheduled;
             }
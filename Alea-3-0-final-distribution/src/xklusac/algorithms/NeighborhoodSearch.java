@@ -0,0 +1,294 @@
+package xklusac.algorithms;
+
+import gridsim.GridSim;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import xklusac.environment.ExperimentSetup;
+import xklusac.environment.GridletInfo;
+import xklusac.environment.ResourceInfo;
+import xklusac.environment.SimulationContext;
+import xklusac.environment.Scheduler;
+import xklusac.objective_functions.IncrementalObjectives;
+import xklusac.objective_functions.ObjectiveComparator;
+import xklusac.objective_functions.ObjectiveVector;
+
+/**
+ * Class NeighborhoodSearch<p>
+ * This class implements Simulated Annealing and Tabu Search optimization schedule-based algorithms. Three neighborhoods are used:
+ * shift (a job is moved within its schedule), swap (two jobs exchange their positions) and move-to-gap (a job is moved to a gap in
+ * other schedule). A move changes at most two schedules, only these are evaluated again and the objective values are corrected
+ * incrementally (see IncrementalObjectives). Simulated Annealing also accepts worse moves with probability exp(decision / temperature),
+ * Tabu Search takes the best of several sampled moves that does not move a recently moved job. The best schedule found is kept.
+ */
+public class NeighborhoodSearch implements OptimizationAlgorithm {
+
+    /** Simulated Annealing acceptance */
+    public static final int ANNEALING = 0;
+    /** Tabu Search acceptance */
+    public static final int TABU = 1;
+    private static final int SHIFT = 0;
+    private static final int SWAP = 1;
+    private static final int GAP = 2;
+    /** acceptance criterion (ANNEALING or TABU) */
+    private int acceptance;
+    /** initial temperature, in the units of ObjectiveComparator.decision() (relative improvement) */
+    private double initial_temperature = 0.01;
+    /** the temperature at the end of the search, relative to the initial one */
+    private double final_temperature = 0.001;
+    /** how many iterations a moved job stays tabu */
+    private int tabu_tenure = 20;
+    /** how many moves are sampled in one iteration of Tabu Search */
+    private int tabu_sample = 5;
+    private SimulationContext ctx;
+
+    /** Creates a new instance of NeighborhoodSearch
+     * @param ctx state of the simulation run
+     * @param acceptance ANNEALING or TABU
+     */
+    public NeighborhoodSearch(SimulationContext ctx, int acceptance) {
+        this.ctx = ctx;
+        this.acceptance = acceptance;
+    }
+
+    /**
+     * Makes at most rounds iterations within time_limit (ms). Evaluations are counted in SimulationContext.opt_evaluations.
+     */
+    @Override
+    public void execute(int rounds, int time_limit) {
+        if (acceptance == TABU) {
+            System.out.println(GridSim.clock() + ": executing Tabu Search...");
+        } else {
+            System.out.println(GridSim.clock() + ": executing Simulated Annealing...");
+        }
+        rounds = rounds * ExperimentSetup.multiplicator;
+        time_limit = time_limit * ExperimentSetup.multiplicator;
+        double current_time = GridSim.clock();
+        long start = System.currentTimeMillis();
+
+        //empty schedule cannot be optimized
+        if (ctx.getScheduleSize() > 1) {
+            ObjectiveComparator decision = ObjectiveComparator.createDefault();
+            IncrementalObjectives state = new IncrementalObjectives(ctx, current_time);
+            ObjectiveVector current = state.getVector();
+            ObjectiveVector best = current;
+            ArrayList<ArrayList<GridletInfo>> best_schedule = storeSchedule();
+            boolean best_is_current = true;
+
+            double temperature = initial_temperature;
+            double cooling = Math.pow(final_temperature, 1.0 / Math.max(1, rounds));
+            LinkedList<GridletInfo> tabu = new LinkedList();
+
+            for (int i = 0; i < rounds; i++) {
+                Move move = null;
+                ObjectiveVector value = null;
+
+                if (acceptance == TABU) {
+                    // sample several moves and take the best allowed one
+                    for (int s = 0; s < tabu_sample; s++) {
+                        Move m = createMove(current_time);
+                        if (m == null) {
+                            continue;
+                        }
+                        ObjectiveVector v = evaluate(m, state);
+                        undo(m);
+                        refresh(m, state);
+                        // tabu move is allowed when it improves the best schedule (aspiration)
+                        if (isTabu(m, tabu) && !decision.isBetter(best, v)) {
+                            continue;
+                        }
+                        if (value == null || decision.isBetter(value, v)) {
+                            value = v;
+                            move = m;
+                        }
+                    }
+                    if (move != null) {
+                        redo(move);
+                        refresh(move, state);
+                        current = value;
+                        tabu.add(move.gi1);
+                        if (move.gi2 != null) {
+                            tabu.add(move.gi2);
+                        }
+                        while (tabu.size() > tabu_tenure) {
+                            tabu.removeFirst();
+                        }
+                        best_is_current = false;
+                    }
+                } else {
+                    move = createMove(current_time);
+                    if (move != null) {
+                        value = evaluate(move, state);
+                        double d = decision.decision(current, value);
+                        if (d > 0.0 || ctx.rand.nextDouble() < Math.exp(d / temperature)) {
+                            current = value;
+                            best_is_current = false;
+                        } else {
+                            undo(move);
+                            refresh(move, state);
+                            move = null;
+                        }
+                    }
+                    temperature = temperature * cooling;
+                }
+
+                if (move != null && decision.isBetter(best, current)) {
+                    best = current;
+                    best_schedule = storeSchedule();
+                    best_is_current = true;
+                }
+
+                if ((System.currentTimeMillis() - start) >= time_limit) {
+                    break;
+                }
+            }
+            // the search may have left the best schedule - return to it
+            if (!best_is_current) {
+                for (int r = 0; r < ctx.resourceInfoList.size(); r++) {
+                    ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(r);
+                    ri.setSchedule(best_schedule.get(r));
+                }
+            }
+        }
+        ctx.updateResourceInfos(current_time);
+    }
+
+    /**
+     * A move of one or two jobs. Resource indexes refer to SimulationContext.resourceInfoList.
+     */
+    private static class Move {
+
+        int type;
+        int res1;
+        int pos1;
+        int res2;
+        int pos2;
+        GridletInfo gi1;
+        GridletInfo gi2;
+    }
+
+    /** Randomly selects and applies a move, returns null when no move was applied. */
+    private Move createMove(double current_time) {
+        int type = ctx.rand.nextInt(3);
+        int res1 = RandomSearch.findRandonResource(ctx);
+        int pos1 = RandomSearch.findRandomGridletInfo(ctx, res1);
+        // this schedule has no gridlets
+        if (pos1 == -1) {
+            return null;
+        }
+        ResourceInfo r1 = (ResourceInfo) ctx.resourceInfoList.get(res1);
+        Move m = new Move();
+        m.type = type;
+        m.res1 = res1;
+        m.pos1 = pos1;
+        m.gi1 = r1.resSchedule.get(pos1);
+
+        if (type == SHIFT) {
+            if (r1.resSchedule.size() < 2) {
+                return null;
+            }
+            m.res2 = res1;
+            m.pos2 = ctx.rand.nextInt(r1.resSchedule.size() - 1);
+            if (m.pos2 >= pos1) {
+                m.pos2++;
+            }
+            redo(m);
+            return m;
+        }
+
+        int res2 = RandomSearch.findRandonResource(ctx);
+        ResourceInfo r2 = (ResourceInfo) ctx.resourceInfoList.get(res2);
+        if (type == SWAP) {
+            int pos2 = RandomSearch.findRandomGridletInfo(ctx, res2);
+            if (pos2 == -1 || (res1 == res2 && pos1 == pos2)) {
+                return null;
+            }
+            m.res2 = res2;
+            m.pos2 = pos2;
+            m.gi2 = r2.resSchedule.get(pos2);
+            if (!Scheduler.isSuitable(r2, m.gi1) || !Scheduler.isSuitable(r1, m.gi2)) {
+                return null;
+            }
+            redo(m);
+            return m;
+        }
+
+        // move-to-gap
+        if (res1 == res2 || !Scheduler.isSuitable(r2, m.gi1)) {
+            return null;
+        }
+        r2.update(current_time);
+        int pos2 = -1;
+        if (ExperimentSetup.useAvailabilityProfile) {
+            pos2 = r2.findProfilePosition(m.gi1);
+        } else {
+            pos2 = r2.findHolePosition(m.gi1);
+        }
+        if (pos2 < 0) {
+            return null;
+        }
+        m.res2 = res2;
+        m.pos2 = pos2;
+        redo(m);
+        return m;
+    }
+
+    /** Applies the move (again). */
+    private void redo(Move m) {
+        ResourceInfo r1 = (ResourceInfo) ctx.resourceInfoList.get(m.res1);
+        ResourceInfo r2 = (ResourceInfo) ctx.resourceInfoList.get(m.res2);
+        if (m.type == SWAP) {
+            r1.removeGInfoIndex(m.pos1);
+            r1.addGInfo(m.pos1, m.gi2);
+            r2.removeGInfoIndex(m.pos2);
+            r2.addGInfo(m.pos2, m.gi1);
+        } else {
+            r1.removeGInfoIndex(m.pos1);
+            r2.addGInfo(m.pos2, m.gi1);
+        }
+    }
+
+    /** Takes the move back. */
+    private void undo(Move m) {
+        ResourceInfo r1 = (ResourceInfo) ctx.resourceInfoList.get(m.res1);
+        ResourceInfo r2 = (ResourceInfo) ctx.resourceInfoList.get(m.res2);
+        if (m.type == SWAP) {
+            r2.removeGInfoIndex(m.pos2);
+            r2.addGInfo(m.pos2, m.gi2);
+            r1.removeGInfoIndex(m.pos1);
+            r1.addGInfo(m.pos1, m.gi1);
+        } else {
+            r2.removeGInfoIndex(m.pos2);
+            r1.addGInfo(m.pos1, m.gi1);
+        }
+    }
+
+    /** Evaluates the schedule after the move, only resources changed by the move are updated. */
+    private ObjectiveVector evaluate(Move m, IncrementalObjectives state) {
+        refresh(m, state);
+        ctx.opt_evaluations++;
+        return state.getVector();
+    }
+
+    /** Updates the resources changed by the move. */
+    private void refresh(Move m, IncrementalObjectives state) {
+        state.refresh(m.res1);
+        if (m.res2 != m.res1) {
+            state.refresh(m.res2);
+        }
+    }
+
+    /** Returns true if the move moves a job that is tabu. */
+    private boolean isTabu(Move m, LinkedList<GridletInfo> tabu) {
+        return tabu.contains(m.gi1) || (m.gi2 != null && tabu.contains(m.gi2));
+    }
+
+    /** Returns copies of the lists of jobs in all schedules. */
+    private ArrayList<ArrayList<GridletInfo>> storeSchedule() {
+        ArrayList<ArrayList<GridletInfo>> schedule = new ArrayList();
+        for (int r = 0; r < ctx.resourceInfoList.size(); r++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(r);
+            schedule.add(new ArrayList<GridletInfo>(ri.resSchedule));
+        }
+        return schedule;
+    }
+}
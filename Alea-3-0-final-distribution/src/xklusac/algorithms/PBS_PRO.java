@@ -6,12 +6,12 @@ package xklusac.algorithms;
 
 import java.util.Date;
 import gridsim.GridSim;
-import java.util.Collections;
-import java.util.LinkedList;
+import xklusac.environment.BinaryTrace;
 import xklusac.environment.GridletInfo;
 import xklusac.environment.ResourceInfo;
 import xklusac.environment.Scheduler;
-import xklusac.extensions.WallclockComparator;
+import xklusac.environment.SimulationContext;
+import xklusac.environment.WaitQueue;
 
 /**
  * Class PBS_PRO<p>
@@ -22,115 +22,117 @@ import xklusac.extensions.WallclockComparator;
 public class PBS_PRO implements SchedulingPolicy {
 
     private Scheduler scheduler;
+    private SimulationContext ctx;
 
     public PBS_PRO(Scheduler scheduler) {
         this.scheduler = scheduler;
+        this.ctx = scheduler.getContext();
     }
 
     @Override
     public void addNewJob(GridletInfo gi) {
         double runtime1 = new Date().getTime();
         System.out.println("New job has been received by PBS PRO");
-        if (Scheduler.data_set.equals("metacentrum.mwf")) {
+        if (BinaryTrace.getSourceName(ctx.data_set).equals("metacentrum.mwf")) {
 
             if (gi.getQueue().equals("q1")) {
-                Scheduler.q1.addLast(gi);
-                Scheduler.runtime += (new Date().getTime() - runtime1);
+                ctx.q1.addLast(gi);
+                ctx.runtime += (new Date().getTime() - runtime1);
                 return;
             }
             if (gi.getQueue().equals("q2")) {
-                Scheduler.q2.addLast(gi);
-                Scheduler.runtime += (new Date().getTime() - runtime1);
+                ctx.q2.addLast(gi);
+                ctx.runtime += (new Date().getTime() - runtime1);
                 return;
             }
             if (gi.getQueue().equals("q3")) {
-                Scheduler.q3.addLast(gi);
-                Scheduler.runtime += (new Date().getTime() - runtime1);
+                ctx.q3.addLast(gi);
+                ctx.runtime += (new Date().getTime() - runtime1);
                 return;
             }
             if (gi.getQueue().equals("q4")) {
-                Scheduler.q4.addLast(gi);
-                Scheduler.runtime += (new Date().getTime() - runtime1);
+                ctx.q4.addLast(gi);
+                ctx.runtime += (new Date().getTime() - runtime1);
                 return;
             }
             if (gi.getQueue().equals("q5")) {
-                Scheduler.q5.addLast(gi);
-                Scheduler.runtime += (new Date().getTime() - runtime1);
+                ctx.q5.addLast(gi);
+                ctx.runtime += (new Date().getTime() - runtime1);
                 return;
             }
             if (gi.getQueue().equals("q6")) {
-                Scheduler.q6.addLast(gi);
-                Scheduler.runtime += (new Date().getTime() - runtime1);
+                ctx.q6.addLast(gi);
+                ctx.runtime += (new Date().getTime() - runtime1);
                 return;
             }
             if (gi.getQueue().equals("q7")) {
-                Scheduler.q7.addLast(gi);
-                Scheduler.runtime += (new Date().getTime() - runtime1);
+                ctx.q7.addLast(gi);
+                ctx.runtime += (new Date().getTime() - runtime1);
                 return;
             }
             if (gi.getQueue().equals("q8")) {
-                Scheduler.q8.addLast(gi);
-                Scheduler.runtime += (new Date().getTime() - runtime1);
+                ctx.q8.addLast(gi);
+                ctx.runtime += (new Date().getTime() - runtime1);
                 return;
             }
             if (gi.getQueue().equals("q9")) {
-                Scheduler.q9.addLast(gi);
-                Scheduler.runtime += (new Date().getTime() - runtime1);
+                ctx.q9.addLast(gi);
+                ctx.runtime += (new Date().getTime() - runtime1);
                 return;
             }
             if (gi.getQueue().equals("q10")) {
-                Scheduler.q10.addLast(gi);
-                Scheduler.runtime += (new Date().getTime() - runtime1);
+                ctx.q10.addLast(gi);
+                ctx.runtime += (new Date().getTime() - runtime1);
                 return;
             }
             if (gi.getQueue().equals("q11")) {
-                Scheduler.q11.addLast(gi);
-                Scheduler.runtime += (new Date().getTime() - runtime1);
+                ctx.q11.addLast(gi);
+                ctx.runtime += (new Date().getTime() - runtime1);
                 return;
             }
             // All remaining non standard queues are considered to be normal
-            Scheduler.q3.addLast(gi);
+            ctx.q3.addLast(gi);
         } else {
             if (gi.getQueue().equals("short")) {
-                Scheduler.short_queue.addLast(gi);
-                Scheduler.runtime += (new Date().getTime() - runtime1);
+                ctx.short_queue.addLast(gi);
+                ctx.runtime += (new Date().getTime() - runtime1);
                 return;
             }
             if (gi.getQueue().equals("normal")) {
-                Scheduler.normal_queue.addLast(gi);
-                Scheduler.runtime += (new Date().getTime() - runtime1);
+                ctx.normal_queue.addLast(gi);
+                ctx.runtime += (new Date().getTime() - runtime1);
                 return;
             }
             if (gi.getQueue().equals("quark")) {
-                Scheduler.quark_queue.addLast(gi);
-                Scheduler.runtime += (new Date().getTime() - runtime1);
+                ctx.quark_queue.addLast(gi);
+                ctx.runtime += (new Date().getTime() - runtime1);
                 return;
             }
             if (gi.getQueue().equals("long")) {
-                Scheduler.long_queue.addLast(gi);
-                Scheduler.runtime += (new Date().getTime() - runtime1);
+                ctx.long_queue.addLast(gi);
+                ctx.runtime += (new Date().getTime() - runtime1);
                 return;
             }
             if (gi.getQueue().equals("ncbr")) {
-                Scheduler.ncbr_queue.addLast(gi);
-                Scheduler.runtime += (new Date().getTime() - runtime1);
+                ctx.ncbr_queue.addLast(gi);
+                ctx.runtime += (new Date().getTime() - runtime1);
                 return;
             }
             if (gi.getQueue().equals("iti")) {
-                Scheduler.iti_queue.addLast(gi);
-                Scheduler.runtime += (new Date().getTime() - runtime1);
+                ctx.iti_queue.addLast(gi);
+                ctx.runtime += (new Date().getTime() - runtime1);
                 return;
             }
             if (gi.getQueue().equals("cpmd")) {
-                Scheduler.cpmd_queue.addLast(gi);
-                Scheduler.runtime += (new Date().getTime() - runtime1);
+                ctx.cpmd_queue.addLast(gi);
+                ctx.runtime += (new Date().getTime() - runtime1);
                 return;
             }
 
             // All remaining non standard queues are considered to be normal
-            Scheduler.normal_queue.addLast(gi);
+            ctx.normal_queue.addLast(gi);
         }
-        Scheduler.runtime += (new Date().getTime() - runtime1);
+        ctx.runtime += (new Date().getTime() - runtime1);
 
     }
 
@@ -142,27 +144,31 @@ public class PBS_PRO implements SchedulingPolicy {
     public int selectJob() {
         System.out.println("Selecting job by PBS PRO...");
         ResourceInfo r_cand = null;
+        int r_index = -1;
         int scheduled = 0;
+        // free PEs of resources are computed once and shared by all queues
+        int[] free = WaitQueue.getFreeCapacity(ctx, WaitQueue.BY_PE);
 
         // we go through all queues according to their priority
-        for (int q = 0; q < Scheduler.all_queues.size(); q++) {
-            LinkedList curr_queue = Scheduler.all_queues.get(q);
-            Collections.sort(curr_queue, new WallclockComparator());
+        for (int q = 0; q < ctx.all_queues.size(); q++) {
+            WaitQueue curr_queue = ctx.all_queues.get(q);
+            // jobs are kept sorted by their priority (see WallclockComparator), jobs that cannot fit are skipped by the pass
+            WaitQueue.Pass pass = curr_queue.startPass(free);
 
-            for (int i = 0; i < curr_queue.size(); i++) {
+            for (GridletInfo gi = pass.next(); gi != null; gi = pass.next()) {
 
-                GridletInfo gi = (GridletInfo) curr_queue.get(i);
-
-                for (int j = 0; j < Scheduler.resourceInfoList.size(); j++) {
-                    ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(j);
-                    if (Scheduler.isSuitable(ri, gi) && ri.getNumFreePE() >= gi.getNumPE()) {
+                for (int j = 0; j < ctx.resourceInfoList.size(); j++) {
+                    ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(j);
+                    if (Scheduler.isSuitable(ri, gi) && pass.getFree(j) >= gi.getNumPE()) {
                         r_cand = ri;
+                        r_index = j;
                         break;
                     }
                 }
                 if (r_cand != null) {
-                    gi = (GridletInfo) curr_queue.remove(i);
+                    pass.remove();
                     r_cand.addGInfoInExec(gi);
+                    pass.allocate(r_index, gi);
                     // set the resource ID for this gridletInfo (this is the final scheduling decision)
                     gi.setResourceID(r_cand.resource.getResourceID());
                     if (gi.getNumPE() > r_cand.resource.getNumPE()) {
@@ -173,9 +179,6 @@ public class PBS_PRO implements SchedulingPolicy {
                     r_cand.is_ready = true;
                     scheduler.sim_schedule(GridSim.getEntityId("Alea_3.0_scheduler"), 0.0, Scheduler.GridletWasSent, gi);
                     scheduled++;
-                    // we removed a job from position i so the next job is now on i
-                    // we have to decrease the counter otherwise we would skip a job due to i++ in for loop
-                    i--;
                     r_cand = null;
                 }
 
@@ -184,13 +187,5 @@ public class PBS_PRO implements SchedulingPolicy {
         }// we went through all queues
 
         return scheduled;
-
-
-
-
-
-
-
-
     }
 }
@@ -0,0 +1,249 @@
+package xklusac.algorithms;
+
+import gridsim.GridSim;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import xklusac.environment.ExperimentSetup;
+import xklusac.environment.GridletInfo;
+import xklusac.environment.ResourceInfo;
+import xklusac.environment.SimulationContext;
+import xklusac.environment.Scheduler;
+import xklusac.objective_functions.ObjectiveComparator;
+import xklusac.objective_functions.ObjectiveVector;
+
+/**
+ * Class ParallelSearch<p>
+ * Multi-start local search. ExperimentSetup.search_walkers independent walkers optimize their private copies of all schedules
+ * in parallel, each walker uses its own random number generator seeded from SimulationContext.rand. A walker moves jobs either to a
+ * random position (as RandomSearch) or to a suitable gap (as GapSearch) and accepts improving moves only. When all walkers
+ * finish, the best schedule found is applied (ties are broken by walker order).
+ */
+public class ParallelSearch implements OptimizationAlgorithm {
+
+    /** thread pool shared by all searches */
+    private static ExecutorService pool = null;
+    /** number of threads of the pool */
+    private static int pool_size = 0;
+    /** true = jobs are moved to gaps (GapSearch), false = jobs are moved to random positions (RandomSearch) */
+    private boolean use_gaps;
+    private SimulationContext ctx;
+
+    /** Creates a new instance of ParallelSearch
+     * @param ctx state of the simulation run
+     * @param use_gaps true = walkers use GapSearch moves, false = walkers use RandomSearch moves
+     */
+    public ParallelSearch(SimulationContext ctx, boolean use_gaps) {
+        this.ctx = ctx;
+        this.use_gaps = use_gaps;
+    }
+
+    /**
+     * Runs ExperimentSetup.search_walkers walkers, each of them makes at most rounds moves within time_limit (ms). The best
+     * schedule found is then applied to SimulationContext.resourceInfoList.
+     */
+    @Override
+    public void execute(int rounds, int time_limit) {
+        System.out.println(GridSim.clock() + ": executing Parallel Search...");
+        rounds = rounds * ExperimentSetup.multiplicator;
+        time_limit = time_limit * ExperimentSetup.multiplicator;
+        double current_time = GridSim.clock();
+        long deadline = System.currentTimeMillis() + time_limit;
+
+        //empty schedule cannot be optimized
+        if (ctx.getScheduleSize() > 1) {
+            ctx.updateResourceInfos(current_time);
+            ObjectiveComparator decision = ObjectiveComparator.createDefault();
+            ObjectiveVector initial = ObjectiveVector.predict(ctx, current_time);
+
+            // walkers are created on this thread so the seeds do not depend on thread scheduling
+            int walkers = Math.max(1, ExperimentSetup.search_walkers);
+            List<Walker> tasks = new ArrayList();
+            for (int w = 0; w < walkers; w++) {
+                tasks.add(new Walker(ctx.rand.nextLong(), current_time, rounds, deadline));
+            }
+            Walker best = null;
+            try {
+                List<Future<ObjectiveVector>> results = getPool().invokeAll(tasks);
+                ObjectiveVector best_value = initial;
+                for (int w = 0; w < results.size(); w++) {
+                    ObjectiveVector value = results.get(w).get();
+                    ctx.opt_evaluations += tasks.get(w).evaluations;
+                    if (decision.isBetter(best_value, value)) {
+                        best_value = value;
+                        best = tasks.get(w);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Parallel Search was interrupted.", ex);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException("Search walker failed.", cause);
+            }
+            if (best != null) {
+                best.apply();
+            }
+        }
+        ctx.updateResourceInfos(current_time);
+    }
+
+    /**
+     * One search walker - a local search over private copies of all schedules.
+     */
+    private class Walker implements Callable<ObjectiveVector> {
+
+        private Random rand;
+        private double current_time;
+        private int rounds;
+        private long deadline;
+        /** private copies of schedules, in the order of SimulationContext.resourceInfoList */
+        private ResourceInfo[] resources;
+        /** maps the copies of jobs to the jobs in real schedules */
+        private IdentityHashMap<GridletInfo, GridletInfo> originals = new IdentityHashMap();
+        /** number of schedule evaluations made by this walker */
+        private long evaluations = 0;
+
+        Walker(long seed, double current_time, int rounds, long deadline) {
+            this.rand = new Random(seed);
+            this.current_time = current_time;
+            this.rounds = rounds;
+            this.deadline = deadline;
+            resources = new ResourceInfo[ctx.resourceInfoList.size()];
+            for (int r = 0; r < resources.length; r++) {
+                ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(r);
+                resources[r] = ri.createScheduleCopy();
+                for (int j = 0; j < ri.resSchedule.size(); j++) {
+                    originals.put(resources[r].resSchedule.get(j), ri.resSchedule.get(j));
+                }
+            }
+        }
+
+        /** Runs the local search, returns the objective values of the final schedule. */
+        public ObjectiveVector call() {
+            ObjectiveComparator decision = ObjectiveComparator.createDefault();
+            ObjectiveVector previous = ObjectiveVector.predict(ctx, current_time, resources);
+
+            for (int i = 0; i < rounds; i++) {
+                int index_prev = rand.nextInt(resources.length);
+                ResourceInfo prev_res = resources[index_prev];
+
+                // this schedule has no gridlets
+                if (prev_res.resSchedule.size() == 0) {
+                    continue;
+                }
+                int gridlet_index = rand.nextInt(prev_res.resSchedule.size());
+                // remove the gridlet and update the resource internal information
+                GridletInfo gi = prev_res.removeGInfoIndex(gridlet_index);
+                prev_res.update(current_time);
+                boolean succ = false;
+
+                // we will test schedules in random order
+                int permutation[] = permute(resources.length);
+                for (int j = 0; j < permutation.length; j++) {
+                    ResourceInfo ri = resources[permutation[j]];
+                    if (!Scheduler.isSuitable(ri, gi)) {
+                        continue;
+                    }
+                    // find new placement for a job
+                    boolean found = true;
+                    if (!use_gaps) {
+                        int size = Math.max(1, ri.resSchedule.size());
+                        ri.addGInfo(rand.nextInt(size), gi);
+                    } else if (ExperimentSetup.useAvailabilityProfile) {
+                        ri.update(current_time);
+                        found = ri.findProfileSlotForGridlet(gi);
+                    } else {
+                        ri.update(current_time);
+                        found = ri.findHoleForGridlet(gi);
+                    }
+                    if (!found) {
+                        continue;
+                    }
+                    ObjectiveVector current = ObjectiveVector.predict(ctx, current_time, resources);
+                    evaluations++;
+                    if (!decision.isBetter(previous, current)) {
+                        ri.removeGInfo(gi);
+                    } else {
+                        previous = current;
+                        succ = true;
+                        break;
+                    }
+                }
+                // no better placement was found - return the gridlet to the previous position
+                if (!succ) {
+                    prev_res.addGInfo(gridlet_index, gi);
+                }
+                if (System.currentTimeMillis() >= deadline) {
+                    break;
+                }
+            }
+            return ObjectiveVector.predict(ctx, current_time, resources);
+        }
+
+        /** Replaces the real schedules by the schedules of this walker. */
+        void apply() {
+            for (int r = 0; r < resources.length; r++) {
+                ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(r);
+                List<GridletInfo> schedule = new ArrayList();
+                for (int j = 0; j < resources[r].resSchedule.size(); j++) {
+                    schedule.add(originals.get(resources[r].resSchedule.get(j)));
+                }
+                ri.setSchedule(schedule);
+            }
+        }
+
+        /** Random permutation of 0..N-1 (see SimulationContext.permute()), uses the walker's generator. */
+        private int[] permute(int N) {
+            int[] a = new int[N];
+            for (int i = 0; i < N; i++) {
+                a[i] = i;
+            }
+            for (int i = 0; i < N; i++) {
+                int r = (int) (rand.nextDouble() * (i + 1));
+                int swap = a[r];
+                a[r] = a[i];
+                a[i] = swap;
+            }
+            return a;
+        }
+    }
+
+    /**
+     * Returns the thread pool with one thread per walker. The pool is created when used for the first time and created again
+     * when ExperimentSetup.search_walkers has changed since then (e.g., by the next run of a sweep).
+     */
+    private static synchronized ExecutorService getPool() {
+        int walkers = Math.max(1, ExperimentSetup.search_walkers);
+        if (pool != null && pool_size != walkers) {
+            pool.shutdown();
+            pool = null;
+        }
+        if (pool == null) {
+            pool_size = walkers;
+            pool = Executors.newFixedThreadPool(walkers, new ThreadFactory() {
+
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "search-walker");
+                    // the pool must not prevent the simulation from finishing
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return pool;
+    }
+}
@@ -6,10 +6,12 @@ package xklusac.algorithms;
 
 import gridsim.GridSim;
 import java.util.Date;
-import xklusac.objective_functions.CommonObjectives;
+import xklusac.objective_functions.ObjectiveComparator;
+import xklusac.objective_functions.ObjectiveVector;
 import xklusac.environment.ExperimentSetup;
 import xklusac.environment.GridletInfo;
 import xklusac.environment.ResourceInfo;
+import xklusac.environment.SimulationContext;
 import xklusac.environment.Scheduler;
 
 /**
@@ -20,7 +22,10 @@ import xklusac.environment.Scheduler;
 
 public class RandomSearch implements OptimizationAlgorithm {
 
-    public RandomSearch() {
+    private SimulationContext ctx;
+
+    public RandomSearch(SimulationContext ctx) {
+        this.ctx = ctx;
     }
 
     /**
@@ -32,22 +37,20 @@ public class RandomSearch implements OptimizationAlgorithm {
         rounds = rounds * ExperimentSetup.multiplicator;
         time_limit = time_limit * ExperimentSetup.multiplicator;
         double current_time = GridSim.clock();
+        ObjectiveComparator decision = ObjectiveComparator.createDefault();
 
         Date dd = new Date();
         long start = dd.getTime();
 
         //empty schedule cannot be optimized
-        if (Scheduler.getScheduleSize() > 1) {
+        if (ctx.getScheduleSize() > 1) {
 
             for (int i = 0; i < rounds; i++) {
-                double previous_resp = CommonObjectives.predictAvgResponseTime(current_time);
-                double previous_wait = CommonObjectives.predictAvgWaitTime(current_time);
-                double previous_sd = CommonObjectives.predictAvgSlowdown(current_time);
-                double previous_fair = CommonObjectives.predictFairness(current_time);
+                ObjectiveVector previous = ObjectiveVector.predict(ctx, current_time);
 
-                int index_prev = findRandonResource();
-                ResourceInfo prev_res = (ResourceInfo) Scheduler.resourceInfoList.get(index_prev);
-                int gridlet_index = findRandomGridletInfo(index_prev);
+                int index_prev = findRandonResource(ctx);
+                ResourceInfo prev_res = (ResourceInfo) ctx.resourceInfoList.get(index_prev);
+                int gridlet_index = findRandomGridletInfo(ctx, index_prev);
 
                 // this schedule has no gridlets
                 if (gridlet_index == -1) {
@@ -59,47 +62,23 @@ public class RandomSearch implements OptimizationAlgorithm {
                 boolean succ = false;
 
                 // we will test schedules in random order
-                int permutation[] = Scheduler.permute(Scheduler.resourceInfoList.size());
+                int permutation[] = ctx.permute(ctx.resourceInfoList.size());
                 for (int j = 0; j < permutation.length; j++) {
 
-                    ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(permutation[j]);
+                    ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(permutation[j]);
                     if (!Scheduler.isSuitable(ri, gi)) {
                         continue;
                     }
                     // find new placement for a job
                     int size = Math.max(1, ri.resSchedule.size());
-                    int new_position = Scheduler.rand.nextInt(size);
+                    int new_position = ctx.rand.nextInt(size);
                     ri.addGInfo(new_position, gi);
 
 
-                    double new_decision = 0.0;
-                    //double current_usage = predictMachineUsage(current_time);
-                    //double current_start = predictAvgStartTime(current_time);
-                    //double us = Math.max(0.0000000000001, previous_usage);
-                    //double diff_u = (current_usage - previous_usage) / us;
-
-                    double current_fair = CommonObjectives.predictFairness(current_time);
-                    //if(previous_fair > current_fair) {System.out.println(previous_fair+" inic fairness");System.out.println(current_fair);}
-                    double fair = Math.max(0.0000000000001, previous_fair);
-                    double diff_fair = (previous_fair - current_fair) / fair;
-
-
-                    double current_resp = CommonObjectives.predictAvgResponseTime(current_time);
-                    double rt = Math.max(0.0000000000001, previous_resp);
-                    double diff_rt = (previous_resp - current_resp) / rt;
-
-
-                    double current_wait = CommonObjectives.predictAvgWaitTime(current_time);
-                    double wt = Math.max(0.0000000000001, previous_wait);
-                    double diff_wt = (previous_wait - current_wait) / wt;
-
-                    double current_sd = CommonObjectives.predictAvgSlowdown(current_time);
-                    double sd = Math.max(1.0, previous_sd);
-                    double diff_sd = (previous_sd - current_sd) / sd;
-
-                    new_decision = (diff_fair * ExperimentSetup.fair_weight) + (diff_rt * 1.0) + (diff_wt * 1.0) + (diff_sd * 1.0);
+                    ObjectiveVector current = ObjectiveVector.predict(ctx, current_time);
+                    ctx.opt_evaluations++;
 
-                    if (new_decision <= 0.0) {
+                    if (!decision.isBetter(previous, current)) {
                         ri.removeGInfo(gi);
                         continue;
                     } else {
@@ -119,26 +98,26 @@ public class RandomSearch implements OptimizationAlgorithm {
                 Date d_end = new Date();
                 long is_end = d_end.getTime();
                 if ((is_end - start) >= time_limit) {
-                    Scheduler.updateResourceInfos(current_time);
+                    ctx.updateResourceInfos(current_time);
                     return;
                 }
             }
         }
-        Scheduler.updateResourceInfos(current_time);
+        ctx.updateResourceInfos(current_time);
     }
 
     /** Randomly selects resource from list. */
-    public static int findRandonResource() {
-        int index = Scheduler.rand.nextInt(Scheduler.resourceInfoList.size());
+    public static int findRandonResource(SimulationContext ctx) {
+        int index = ctx.rand.nextInt(ctx.resourceInfoList.size());
         return index;
     }
 
     /** Randomly selects gridlet from the list of gridlets on this resource. */
-    public static int findRandomGridletInfo(int ResIndex) {
-        ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(ResIndex);
+    public static int findRandomGridletInfo(SimulationContext ctx, int ResIndex) {
+        ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(ResIndex);
         int found = -1;
         if (ri.resSchedule.size() > 0) {
-            found = Scheduler.rand.nextInt(ri.resSchedule.size());
+            found = ctx.rand.nextInt(ri.resSchedule.size());
         }
         return found;
     }
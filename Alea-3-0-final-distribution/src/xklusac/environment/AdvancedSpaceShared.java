@@ -4,7 +4,12 @@ import gridsim.*;
 import java.util.Iterator;
 import eduni.simjava.Sim_event;
 import eduni.simjava.Sim_system;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.PriorityQueue;
 import xklusac.environment.FailureLoaderNew.Failure;
 
 /**
@@ -16,20 +21,35 @@ import xklusac.environment.FailureLoaderNew.Failure;
  * available. If the gridlet requires more PEs than is available in the whole resource the gridlet is returned
  * as FAILED. In this version <b>simple co-allocation</b> is allowed such that parallel jobs may be executed on one or more machines
  * if necessary (not enough PEs is available on single machine).<p>
- * Moreover, it allows to simulate specific machine's failures, killing (and returning to the Scheduler) such jobs at such machine.
+ * Moreover, it allows to simulate specific machine's failures, killing (and returning to the Scheduler) such jobs at such machine.<p>
+ * The progress of running Gridlets is not updated by every event. Each running Gridlet remembers the rating of its machine and
+ * the last update time its progress was computed for, the finished length is computed only when it is needed (completion,
+ * cancel, pause, failure). Expected completions are kept in a heap, so only Gridlets that are due are checked.<p>
+ * Free PEs are indexed per machine and working machines with a free PE are kept in a bitmap, so the first fit machine and the
+ * number of free PEs are found without scanning all machines of the resource. Running Gridlets are indexed by their machines, so a
+ * machine failure kills the Gridlets of failed machines without scanning the whole execution list.
  *
  * @author Manzur Murshed and Rajkumar Buyya
  * @author Anthony Sulistio (re-written this class)
  * @author Dalibor Klusacek (re-named and extended this class)
  * @since GridSim Toolkit 2.2
  */
-class AdvancedSpaceShared extends AllocPolicy {
+class AdvancedSpaceShared extends AllocPolicy implements EngineEntity {
 
     private ResGridletList gridletQueueList_;     // Queue list
     private ResGridletList gridletInExecList_;    // Execution list
     private ResGridletList gridletPausedList_;    // Pause list
     private double lastUpdateTime_;    // the last time Gridlets updated
     private int[] machineRating_;      // list of machine ratings available
+    private IdentityHashMap<ResGridlet, Progress> progress_;    // progress of running Gridlets
+    private PriorityQueue<Progress> completions_;    // running Gridlets by expected completion
+    private long progressSeq_;         // order of Gridlets in the execution list
+    private ArrayList<Progress>[] running_;    // running Gridlets of each machine
+    private int[] freePE_;             // number of free PEs of each machine
+    private int[] firstPE_;            // index of the first PE of each machine within the resource
+    private long[] freeMachines_;      // bitmap of working machines having a free PE
+    private int numFreePE_;            // free PEs of working machines
+    private int numFreePEAll_;         // free PEs of all machines (including failed ones)
     double used_mips = 0.0;
     double used_usage = 0.0;
     boolean failed = false;
@@ -40,6 +60,8 @@ class AdvancedSpaceShared extends AllocPolicy {
     double last_time = 0.0;
     int killed_cpus = 0;
     int shortened = 0;
+    /** state of the simulation run (load and failure counters, resource infos) */
+    SimulationContext ctx;
 
     /**
      * Allocates a new AdvancedSpaceShared object
@@ -47,6 +69,7 @@ class AdvancedSpaceShared extends AllocPolicy {
      * @param resourceName    the GridResource entity name that will contain
      *                        this allocation policy
      * @param entityName      this object entity name
+     * @param ctx             state of the simulation run
      * @see gridsim.GridSim#init(int, Calendar, boolean, String[], String[],
      *          String)
      * @post $none
@@ -63,8 +86,9 @@ class AdvancedSpaceShared extends AllocPolicy {
      *              A Machine must contain one or more PEs.
      *      </ul>
      */
-    AdvancedSpaceShared(String resourceName, String entityName, ComplexResourceCharacteristics resConfig) throws Exception {
+    AdvancedSpaceShared(String resourceName, String entityName, ComplexResourceCharacteristics resConfig, SimulationContext ctx) throws Exception {
         super(resourceName, entityName);
+        this.ctx = ctx;
 
         // initialises local data structure
         this.gridletInExecList_ = new ResGridletList();
@@ -72,6 +96,9 @@ class AdvancedSpaceShared extends AllocPolicy {
         this.gridletQueueList_ = new ResGridletList();
         this.lastUpdateTime_ = 0.0;
         this.machineRating_ = null;
+        this.progress_ = new IdentityHashMap();
+        this.completions_ = new PriorityQueue();
+        this.progressSeq_ = 0;
         this.failed = false;
         this.resource_ = resConfig;
         this.failure_time = 0.0;
@@ -85,19 +112,7 @@ class AdvancedSpaceShared extends AllocPolicy {
      * @post $none
      */
     public void body() {
-        // Gets the PE's rating for each Machine in the list.
-        // Assumed one Machine has same PE rating.
-        MachineList list = super.resource_.getMachineList();
-        int size = list.size();
-        int indexPE = 0;
-        machineRating_ = new int[size];
-        for (int i = 0; i < size; i++) {
-            PEList pl = list.getMachine(i).getPEList();
-            // in the start time there is for sure free PE - allows us give different IDs to PEs
-            indexPE = pl.getFreePEID();
-            machineRating_[i] = super.resource_.getMIPSRatingOfOnePE(i, indexPE);
-        }
-
+        initMachineRating();
 
         // a loop that is looking for internal events only
         Sim_event ev = new Sim_event();
@@ -107,101 +122,226 @@ class AdvancedSpaceShared extends AllocPolicy {
             // if the simulation finishes then exit the loop
             if (ev.get_tag() == GridSimTags.END_OF_SIMULATION ||
                     super.isEndSimulation() == true) {
-                double mips = resource_.getMIPSRating() * GridSim.clock();
-                mips -= wfailure_time;
-                double usage = resource_.getNumPE() * GridSim.clock();
-                usage -= failure_time;
-
-                used_mips = Math.round((used_mips / mips) * 10000.0);
-                used_usage = Math.round((used_usage / usage) * 10000.0);
-                System.out.println(resource_.getResourceName() + " wusage = " + used_mips / 100.0 + "%, usage = " + used_usage / 100.0 + "%, shortened = " + shortened);
-                failure_time = 0.0;
-                wfailure_time = 0.0;
-                used_mips = 0.0;
-                used_usage = 0.0;
+                printUsage();
                 break;
             }
+            processInternalEvent(ev.get_src(), ev.get_tag(), ev.get_data());
+        }
 
-            // failure finished - restart this resource
-            if (ev.get_tag() == 7777) {
-                failed = false;
-                list = super.resource_.getMachineList();
-                size = list.size();
-                for (int i = 0; i < size; i++) {
-                    list.getMachine(i).setFailed(false);
-                }
-                // update machine usage
-                Scheduler.load += (Scheduler.activePEs / Scheduler.availPEs) * (GridSim.clock() - Scheduler.last_event);
-                Scheduler.classic_load += (Scheduler.classic_activePEs / Scheduler.classic_availPEs) * (GridSim.clock() - Scheduler.last_event);
-                Scheduler.max_load += 1.0 * (GridSim.clock() - Scheduler.last_event);
-                Scheduler.last_event = GridSim.clock();
-
-                // update number of CPUs
-                Scheduler.classic_availPEs += this.totalPE_;
-                Scheduler.availPEs += this.totalPE_ * this.resource_.getMIPSRatingOfOnePE();
-                //System.out.println(resName_ + ": restart all="+this.resource_.isWorking());
-                super.sim_schedule(GridSim.getEntityId("Alea_3.0_scheduler"), 0.0, 5555511, this.resId_);
-                continue;
+        // CHECK for ANY INTERNAL EVENTS WAITING TO BE PROCESSED
+        while (super.sim_waiting() > 0) {
+            // wait for event and ignore since it is likely to be related to
+            // internal event scheduled to update Gridlets processing
+            super.sim_get_next(ev);
+
+            if (ev.get_tag() == 7777 || ev.get_tag() == 6666) {
+                System.out.println(super.resName_ + " ignore resource/machine restart.");
+            } else {
+                System.out.println(super.resName_ +
+                        ".SpaceShared.body(): ignore internal events");
             }
+        }
+    }
 
-            if (ev.get_tag() == 6666) {
-                Failure failure = (Failure) ev.get_data();
-                mach_failed = false;
-                int[] ids = failure.getIds();
-                list = super.resource_.getMachineList();
+    /**
+     * Processes one event delivered by the SimulationEngine. Such event is either a Gridlet submission
+     * (normally handled by the GridResource), a failure (normally forwarded by the GridResource) or an internal event.
+     */
+    public void processEvent(SimulationEvent ev) {
+        if (ev.getTag() == GridSimTags.GRIDLET_SUBMIT) {
+            Gridlet gl = (Gridlet) ev.getData();
+            gl.setResourceParameter(resource_.getResourceID(), resource_.getCostPerSec());
+            gridletSubmit(gl, false);
+        } else if (ev.getTag() == 9999 || ev.getTag() == 8888) {
+            processFailure(ev.getTag(), ev.getData());
+        } else {
+            processInternalEvent(ev.getSrc(), ev.getTag(), ev.getData());
+        }
+    }
 
-                int onPEs = 0;
-                double onMIPS = 0.0;
+    /**
+     * Gets the PE's rating for each Machine in the list.
+     * Assumed one Machine has same PE rating.
+     */
+    void initMachineRating() {
+        MachineList list = super.resource_.getMachineList();
+        int size = list.size();
+        int indexPE = 0;
+        machineRating_ = new int[size];
+        for (int i = 0; i < size; i++) {
+            PEList pl = list.getMachine(i).getPEList();
+            // in the start time there is for sure free PE - allows us give different IDs to PEs
+            indexPE = pl.getFreePEID();
+            machineRating_[i] = super.resource_.getMIPSRatingOfOnePE(i, indexPE);
+        }
+        initFreePEs();
+    }
 
-                for (int i = 0; i < ids.length; i++) {
-                    list.getMachine(ids[i]).setFailed(false);
-                    //System.out.println(resName_ + " starting machine: "+ids[i]);
-                    onPEs += list.getMachine(ids[i]).getNumPE();
-                    onMIPS += list.getMachine(ids[i]).getNumPE() * this.resource_.getMIPSRatingOfOnePE();
+    /**
+     * Creates the index of free PEs of all machines.
+     */
+    private void initFreePEs() {
+        MachineList list = super.resource_.getMachineList();
+        int size = list.size();
+        freePE_ = new int[size];
+        firstPE_ = new int[size];
+        freeMachines_ = new long[(size + 63) >> 6];
+        running_ = new ArrayList[size];
+        numFreePE_ = 0;
+        numFreePEAll_ = 0;
+        int first = 0;
+        for (int i = 0; i < size; i++) {
+            firstPE_[i] = first;
+            running_[i] = new ArrayList();
+            first += list.getMachine(i).getNumPE();
+            updateFreePEs(i);
+        }
+    }
 
-                }
-                // update machine usage
-                Scheduler.load += (Scheduler.activePEs / Scheduler.availPEs) * (GridSim.clock() - Scheduler.last_event);
-                Scheduler.classic_load += (Scheduler.classic_activePEs / Scheduler.classic_availPEs) * (GridSim.clock() - Scheduler.last_event);
-                Scheduler.max_load += 1.0 * (GridSim.clock() - Scheduler.last_event);
-                Scheduler.last_event = GridSim.clock();
-
-                // update number of CPUs
-                Scheduler.classic_availPEs += onPEs;
-                Scheduler.availPEs += onMIPS;
-                allocateQueueGridlet();
-                //System.out.println(resName_ + ": restart some, all on?="+this.resource_.isWorking());
-                //System.out.println(Math.round(GridSim.clock())+": restart of: "+resName_ +" restart: "+ids.length+" machines. ["+ids[0]+"](x2), running: "+getNumRunning()+"/"+this.resource_.getNumPE()+",  from: "+Math.round(failure.getTime()));
-                super.sim_schedule(GridSim.getEntityId("Alea_3.0_scheduler"), 0.0, 5555511, this.resId_);
-                continue;
+    /**
+     * Updates the index of free PEs after the status of PEs or the failure flag of the machine has changed.
+     * @param machineId    machine ID (the same as its position in the MachineList)
+     */
+    private void updateFreePEs(int machineId) {
+        if (freePE_ == null || machineId < 0 || machineId >= freePE_.length) {
+            return;
+        }
+        Machine machine = super.resource_.getMachineList().getMachine(machineId);
+        boolean was_free = (freeMachines_[machineId >> 6] & (1L << machineId)) != 0;
+        if (was_free) {
+            numFreePE_ -= freePE_[machineId];
+        }
+        numFreePEAll_ -= freePE_[machineId];
+        freePE_[machineId] = machine.getNumFreePE();
+        numFreePEAll_ += freePE_[machineId];
+        if (!machine.getFailed() && freePE_[machineId] > 0) {
+            freeMachines_[machineId >> 6] |= (1L << machineId);
+            numFreePE_ += freePE_[machineId];
+        } else {
+            freeMachines_[machineId >> 6] &= ~(1L << machineId);
+        }
+    }
+
+    /**
+     * Returns the first working machine having a free PE whose ID is at least from, or -1 if there is no such machine.
+     */
+    private int nextFreeMachine(int from) {
+        int w = from >> 6;
+        if (w >= freeMachines_.length) {
+            return -1;
+        }
+        long word = freeMachines_[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
             }
-            if (ev.get_tag() == 5555) {
-                super.sim_schedule(GridSim.getEntityId("Alea_3.0_scheduler"), 0.0, 5555, this.resId_+"x"+this.killed_cpus);
-                //super.sim_schedule(GridSim.getEntityId("Alea_3.0_scheduler"), 0.0, 5555, this.killed_cpus);
-                continue;
+            if (++w == freeMachines_.length) {
+                return -1;
             }
+            word = freeMachines_[w];
+        }
+    }
 
+    /**
+     * Sets the status of the PE and updates the index of free PEs.
+     */
+    private void setStatusPE(boolean status, int machineId, int peId) {
+        super.resource_.setStatusPE(status, machineId, peId);
+        updateFreePEs(machineId);
+    }
 
-            // Internal Event if the event source is this entity
-            if (ev.get_src() == super.myId_ && gridletInExecList_.size() > 0) {
+    /**
+     * Prints the usage of this resource when the simulation finishes.
+     */
+    void printUsage() {
+        double mips = resource_.getMIPSRating() * GridSim.clock();
+        mips -= wfailure_time;
+        double usage = resource_.getNumPE() * GridSim.clock();
+        usage -= failure_time;
+
+        used_mips = Math.round((used_mips / mips) * 10000.0);
+        used_usage = Math.round((used_usage / usage) * 10000.0);
+        System.out.println(resource_.getResourceName() + " wusage = " + used_mips / 100.0 + "%, usage = " + used_usage / 100.0 + "%, shortened = " + shortened);
+        failure_time = 0.0;
+        wfailure_time = 0.0;
+        used_mips = 0.0;
+        used_usage = 0.0;
+    }
 
-                updateGridletProcessing();   // update Gridlets
-                checkGridletCompletion();    // check for finished Gridlets
+    /**
+     * Handles restarts, failure notifications and the internal events that finish Gridlets.
+     */
+    private void processInternalEvent(int src, int tag, Object data) {
+        MachineList list = null;
+        int size = 0;
+
+        // failure finished - restart this resource
+        if (tag == 7777) {
+            failed = false;
+            list = super.resource_.getMachineList();
+            size = list.size();
+            for (int i = 0; i < size; i++) {
+                list.getMachine(i).setFailed(false);
+                updateFreePEs(i);
             }
+            // update machine usage
+            ctx.load += (ctx.activePEs / ctx.availPEs) * (GridSim.clock() - ctx.last_event);
+            ctx.classic_load += (ctx.classic_activePEs / ctx.classic_availPEs) * (GridSim.clock() - ctx.last_event);
+            ctx.max_load += 1.0 * (GridSim.clock() - ctx.last_event);
+            ctx.last_event = GridSim.clock();
+
+            // update number of CPUs
+            ctx.classic_availPEs += this.totalPE_;
+            ctx.availPEs += this.totalPE_ * this.resource_.getMIPSRatingOfOnePE();
+            //System.out.println(resName_ + ": restart all="+this.resource_.isWorking());
+            sim_schedule(GridSim.getEntityId("Alea_3.0_scheduler"), 0.0, 5555511, this.resId_);
+            return;
         }
 
-        // CHECK for ANY INTERNAL EVENTS WAITING TO BE PROCESSED
-        while (super.sim_waiting() > 0) {
-            // wait for event and ignore since it is likely to be related to
-            // internal event scheduled to update Gridlets processing
-            super.sim_get_next(ev);
+        if (tag == 6666) {
+            Failure failure = (Failure) data;
+            mach_failed = false;
+            int[] ids = failure.getIds();
+            list = super.resource_.getMachineList();
+
+            int onPEs = 0;
+            double onMIPS = 0.0;
+
+            for (int i = 0; i < ids.length; i++) {
+                list.getMachine(ids[i]).setFailed(false);
+                updateFreePEs(ids[i]);
+                //System.out.println(resName_ + " starting machine: "+ids[i]);
+                onPEs += list.getMachine(ids[i]).getNumPE();
+                onMIPS += list.getMachine(ids[i]).getNumPE() * this.resource_.getMIPSRatingOfOnePE();
 
-            if (ev.get_tag() == 7777 || ev.get_tag() == 6666) {
-                System.out.println(super.resName_ + " ignore resource/machine restart.");
-            } else {
-                System.out.println(super.resName_ +
-                        ".SpaceShared.body(): ignore internal events");
             }
+            // update machine usage
+            ctx.load += (ctx.activePEs / ctx.availPEs) * (GridSim.clock() - ctx.last_event);
+            ctx.classic_load += (ctx.classic_activePEs / ctx.classic_availPEs) * (GridSim.clock() - ctx.last_event);
+            ctx.max_load += 1.0 * (GridSim.clock() - ctx.last_event);
+            ctx.last_event = GridSim.clock();
+
+            // update number of CPUs
+            ctx.classic_availPEs += onPEs;
+            ctx.availPEs += onMIPS;
+            allocateQueueGridlet();
+            //System.out.println(resName_ + ": restart some, all on?="+this.resource_.isWorking());
+            //System.out.println(Math.round(GridSim.clock())+": restart of: "+resName_ +" restart: "+ids.length+" machines. ["+ids[0]+"](x2), running: "+getNumRunning()+"/"+this.resource_.getNumPE()+",  from: "+Math.round(failure.getTime()));
+            sim_schedule(GridSim.getEntityId("Alea_3.0_scheduler"), 0.0, 5555511, this.resId_);
+            return;
+        }
+        if (tag == 5555) {
+            sim_schedule(GridSim.getEntityId("Alea_3.0_scheduler"), 0.0, 5555, this.resId_+"x"+this.killed_cpus);
+            //super.sim_schedule(GridSim.getEntityId("Alea_3.0_scheduler"), 0.0, 5555, this.killed_cpus);
+            return;
+        }
+
+
+        // Internal Event if the event source is this entity
+        if (src == super.myId_ && gridletInExecList_.size() > 0) {
+
+            updateGridletProcessing();   // update Gridlets
+            checkGridletCompletion();    // check for finished Gridlets
         }
     }
 
@@ -253,7 +393,11 @@ class AdvancedSpaceShared extends AllocPolicy {
                     System.out.println("Gridlet FAILED: not enough CPUs, requested=" + gl.getNumPE() + ", max. available=" + super.totalPE_);
                     rgl.setGridletStatus(Gridlet.FAILED);
                     rgl.finalizeGridlet();
-                    super.sendFinishGridlet(rgl.getGridlet());
+                    if (ExperimentSetup.useEventEngine) {
+                        SimulationEngine.send(get_id(), gl.getUserID(), GridSimTags.GRIDLET_RETURN, rgl.getGridlet(), gl.getGridletOutputSize());
+                    } else {
+                        super.sendFinishGridlet(rgl.getGridlet());
+                    }
                     failure = true;
                 }
             }
@@ -399,6 +543,7 @@ class AdvancedSpaceShared extends AllocPolicy {
 
             // Removes the Gridlet from the execution list
             ResGridlet rgl = (ResGridlet) gridletInExecList_.remove(found);
+            stopProgress(rgl);
 
             // if a Gridlet is finished upon cancelling, then set it to success
             // instead.
@@ -412,7 +557,7 @@ class AdvancedSpaceShared extends AllocPolicy {
                 gridletPausedList_.add(rgl);   // add into the paused list
 
                 // Set the PE on which Gridlet finished to FREE
-                super.resource_.setStatusPE(PE.FREE, rgl.getMachineID(),
+                setStatusPE(PE.FREE, rgl.getMachineID(),
                         rgl.getPEID());
 
                 // empty slot is available, hence process a new Gridlet
@@ -502,7 +647,7 @@ class AdvancedSpaceShared extends AllocPolicy {
             rgl.finalizeGridlet();
 
             // Set PE on which Gridlet finished to FREE
-            super.resource_.setStatusPE(PE.FREE, rgl.getMachineID(),
+            setStatusPE(PE.FREE, rgl.getMachineID(),
                     rgl.getPEID());
 
             super.gridletMigrate(rgl.getGridlet(), destId, ack);
@@ -591,7 +736,7 @@ class AdvancedSpaceShared extends AllocPolicy {
                 // the queue list
 
                 if (obj.getNumPE() > 1) {
-                    if (resource_.getNumFreePE() >= obj.getNumPE()) {
+                    if (numFreePEAll_ >= obj.getNumPE()) {
                         // Do not even try to allocate if not enough PEs free
                         success = allocatePEtoGridlet(obj, obj.getNumPE());
                     }
@@ -610,7 +755,8 @@ class AdvancedSpaceShared extends AllocPolicy {
      * Updates the execution of all Gridlets for a period of time.
      * The time period is determined from the last update time up to the
      * current time. Once this operation is successfull, then the last update
-     * time refers to the current time.
+     * time refers to the current time. Gridlets receive their MI share for this
+     * period lazily, see syncProgress().
      * @pre $none
      * @post $none
      */
@@ -633,31 +779,7 @@ class AdvancedSpaceShared extends AllocPolicy {
         double load = super.calculateTotalLoad(size);
         super.addTotalLoad(load);
 
-        // if no Gridlets in execution then ignore the rest
-        if (size == 0) {
-            return;
-        }
-
-        ResGridlet obj = null;
-
-        // a loop that allocates MI share for each Gridlet accordingly
-        /*Iterator iter = gridletInExecList_.iterator();
-        while ( iter.hasNext() ) {
-        obj = (ResGridlet) iter.next();
-        
-        // Updates the Gridlet length that is currently being executed
-        load = getMIShare( timeSpan, obj.getMachineID());
-        obj.updateGridletFinishedSoFar(load);
-        }*/
-        for (int r = 0; r < gridletInExecList_.size(); r++) {
-            obj = (ResGridlet) gridletInExecList_.get(r);
-
-            // Updates the Gridlet length that is currently being executed
-            load = getMIShare(timeSpan, obj.getMachineID());
-            obj.updateGridletFinishedSoFar(load);
-
-        }
-
+        // the MI share of each running Gridlet is added when its progress is needed (see syncProgress)
     }
 
     /**
@@ -693,32 +815,18 @@ class AdvancedSpaceShared extends AllocPolicy {
      */
     private boolean allocatePEtoGridlet(ResGridlet rgl) {
         // IDENTIFY MACHINE which has a free PE and add this Gridlet to it.
-        Machine myMachine = null;
-        MachineList mList = resource_.getMachineList();
-        //System.out.println(rgl.getGridletID()+" start..."+mList.size());
-        int peIndex = -1;
-        // gets the list of PEs and find one empty PE
-
-        //System.out.println(rgl.getGridletID()+" avail machines = ");
-        for (int i = 0; i < mList.size(); i++) {
-            myMachine = (Machine) mList.get(i);
-            if (!myMachine.getFailed() && myMachine.getNumFreePE() > 0) {
-                break;
-            } else {
-                peIndex += myMachine.getNumPE();
-                myMachine = null;
-            }
-
-        }
+        // the first working machine which has a free PE
+        int m = nextFreeMachine(0);
         // If a Machine is empty then ignore the rest
-        if (myMachine == null) {
+        if (m < 0) {
             System.out.println(rgl.getGridletID() + " null machine");
             return false;
         }
+        Machine myMachine = (Machine) resource_.getMachineList().get(m);
         //System.out.println(rgl.getGridletID()+" not null machine...");
         PEList MyPEList = myMachine.getPEList();
         int freePE = MyPEList.getFreePEID();
-        peIndex += freePE + 1;
+        int peIndex = firstPE_[m] + freePE;
         // ALLOCATE IMMEDIATELY
 
         rgl.setMachineAndPEID(myMachine.getMachineID(), freePE);
@@ -730,8 +838,9 @@ class AdvancedSpaceShared extends AllocPolicy {
         rgl.setGridletStatus(Gridlet.INEXEC);   // change Gridlet status
         // add this Gridlet into execution list
         gridletInExecList_.add(rgl);
+        startProgress(rgl);
         // Set allocated PE to BUSY status
-        super.resource_.setStatusPE(PE.BUSY, rgl.getMachineID(), freePE);
+        setStatusPE(PE.BUSY, rgl.getMachineID(), freePE);
 
         // Identify Completion Time and Set Interrupt
         int rating = machineRating_[rgl.getMachineID()];
@@ -743,15 +852,15 @@ class AdvancedSpaceShared extends AllocPolicy {
 
 
         //update machine usage
-        Scheduler.load += (Scheduler.activePEs / Scheduler.availPEs) * (GridSim.clock() - Scheduler.last_event);
-        Scheduler.classic_load += (Scheduler.classic_activePEs / Scheduler.classic_availPEs) * (GridSim.clock() - Scheduler.last_event);
-        Scheduler.max_load += 1.0 * (GridSim.clock() - Scheduler.last_event);
-        Scheduler.last_event = GridSim.clock();
-        Scheduler.activePEs += 1 * super.resource_.getMIPSRatingOfOnePE();
-        Scheduler.classic_activePEs += 1;
+        ctx.load += (ctx.activePEs / ctx.availPEs) * (GridSim.clock() - ctx.last_event);
+        ctx.classic_load += (ctx.classic_activePEs / ctx.classic_availPEs) * (GridSim.clock() - ctx.last_event);
+        ctx.max_load += 1.0 * (GridSim.clock() - ctx.last_event);
+        ctx.last_event = GridSim.clock();
+        ctx.activePEs += 1 * super.resource_.getMIPSRatingOfOnePE();
+        ctx.classic_activePEs += 1;
 
         // then send this into itself
-        super.sim_schedule(super.myId_, roundUpTime, GridSimTags.INSIGNIFICANT);
+        sim_schedule(super.myId_, roundUpTime, GridSimTags.INSIGNIFICANT);
 
         return true;
     }
@@ -771,40 +880,25 @@ class AdvancedSpaceShared extends AllocPolicy {
 
         MachineList machines = resource_.getMachineList();
         int allocate = numPE;
-        int peIndex = -1;
         LinkedList<Integer> PEs = new LinkedList();
 
-        for (int i = 0; i < machines.size(); i++) {
+        // working machines with a free PE in the order of their IDs
+        for (int i = nextFreeMachine(0); i >= 0 && allocate > 0; i = nextFreeMachine(i + 1)) {
             Machine machine = (Machine) machines.get(i);
-            // cannot use such machine
-            if (machine.getFailed()) {
-                peIndex += machine.getNumPE();
-                continue;
-            }
-            int usedPEs = Math.min(allocate, machine.getNumFreePE());
-            if (machine.getNumFreePE() <= 0) {
-                peIndex += machine.getNumPE();
-                continue;
-            }
+            int usedPEs = Math.min(allocate, freePE_[i]);
             for (int j = 0; j < usedPEs; j++) {
                 PEList MyPEList = machine.getPEList();
                 int freePE = MyPEList.getFreePEID();
 
                 // Allocate this gridlet to Machine and its PEs
                 rgl.setMachineAndPEID(machine.getMachineID(), freePE);
-                PEs.add(peIndex + freePE + 1);
+                PEs.add(firstPE_[i] + freePE);
 
                 // Set allocated PEs to BUSY status
-                super.resource_.setStatusPE(PE.BUSY, machine.getMachineID(), freePE);
+                setStatusPE(PE.BUSY, machine.getMachineID(), freePE);
 
                 allocate--;
             }
-
-            if (allocate <= 0) {
-                break;
-            } else {
-                peIndex += machine.getNumPE();
-            }
         }
 
         ((ComplexGridlet) rgl.getGridlet()).setPEs(PEs);
@@ -813,6 +907,7 @@ class AdvancedSpaceShared extends AllocPolicy {
 
         // add this Gridlet into execution list
         gridletInExecList_.add(rgl);
+        startProgress(rgl);
 
 
         // Identify Completion Time and Set Interrupt
@@ -835,15 +930,15 @@ class AdvancedSpaceShared extends AllocPolicy {
         rgl.setFinishTime(roundUpTime);
 
         //update machine usage
-        Scheduler.load += (Scheduler.activePEs / Scheduler.availPEs) * (GridSim.clock() - Scheduler.last_event);
-        Scheduler.classic_load += (Scheduler.classic_activePEs / Scheduler.classic_availPEs) * (GridSim.clock() - Scheduler.last_event);
-        Scheduler.max_load += 1.0 * (GridSim.clock() - Scheduler.last_event);
-        Scheduler.last_event = GridSim.clock();
-        Scheduler.activePEs += numPE * super.resource_.getMIPSRatingOfOnePE();
-        Scheduler.classic_activePEs += numPE;
+        ctx.load += (ctx.activePEs / ctx.availPEs) * (GridSim.clock() - ctx.last_event);
+        ctx.classic_load += (ctx.classic_activePEs / ctx.classic_availPEs) * (GridSim.clock() - ctx.last_event);
+        ctx.max_load += 1.0 * (GridSim.clock() - ctx.last_event);
+        ctx.last_event = GridSim.clock();
+        ctx.activePEs += numPE * super.resource_.getMIPSRatingOfOnePE();
+        ctx.classic_activePEs += numPE;
 
         // then send this into itself
-        super.sim_schedule(super.myId_, roundUpTime, GridSimTags.INSIGNIFICANT);
+        sim_schedule(super.myId_, roundUpTime, GridSimTags.INSIGNIFICANT);
 
         return true;
 
@@ -873,29 +968,22 @@ class AdvancedSpaceShared extends AllocPolicy {
     }
 
     /**
-     * Checks all Gridlets in the execution list whether they are finished or
-     * not.
+     * Checks all Gridlets that are due whether they are finished or not. Finished
+     * Gridlets are completed in the order of the execution list.
      * @pre $none
      * @post $none
      */
     private void checkGridletCompletion() {
-        ResGridlet obj = null;
-        int i = 0;
-
-        // NOTE: This one should stay as it is since gridletFinish()
-        // will modify the content of this list if a Gridlet has finished.
-        // Can't use iterator since it will cause an exception
-        while (i < gridletInExecList_.size()) {
-            obj = (ResGridlet) gridletInExecList_.get(i);
-
-            if (obj.getRemainingGridletLength() == 0.0) {
-
+        // finishing a Gridlet may start a queued one, which is checked as well (as it is appended to the execution list)
+        ArrayList<Progress> finished = findFinishedGridlets();
+        while (finished.size() > 0) {
+            for (int i = 0; i < finished.size(); i++) {
+                ResGridlet obj = finished.get(i).rgl;
                 gridletInExecList_.remove(obj);
+                stopProgress(obj);
                 gridletFinish(obj, Gridlet.SUCCESS);
-                continue;
             }
-
-            i++;
+            finished = findFinishedGridlets();
         }
 
         // if there are still Gridlets left in the execution
@@ -928,10 +1016,10 @@ class AdvancedSpaceShared extends AllocPolicy {
             for (int i = 0; i < machines.length; i++) {
                 // because gridlet's setMachineAndPEID(int machineID, int peID) (ResGridlet class)
                 // generates always pair machine_ID:PE_ID into 2 arrays, these arrays have always the same length
-                super.resource_.setStatusPE(PE.FREE, machines[i], pes[i]);
+                setStatusPE(PE.FREE, machines[i], pes[i]);
             }
         } else {
-            super.resource_.setStatusPE(PE.FREE, rgl.getMachineID(), rgl.getPEID());
+            setStatusPE(PE.FREE, rgl.getMachineID(), rgl.getPEID());
         }
 
         // the order is important! Set the status first then finalize
@@ -946,20 +1034,20 @@ class AdvancedSpaceShared extends AllocPolicy {
         }
 
         //super.sendFinishGridlet( rgl.getGridlet() );
-        super.sim_schedule(GridSim.getEntityId("Alea_3.0_scheduler"), 0.0, GridSimTags.GRIDLET_RETURN, rgl.getGridlet());
+        sim_schedule(GridSim.getEntityId("Alea_3.0_scheduler"), 0.0, GridSimTags.GRIDLET_RETURN, rgl.getGridlet());
 
         //update machine usage
-        Scheduler.load += (Scheduler.activePEs / Scheduler.availPEs) * (GridSim.clock() - Scheduler.last_event);
-        Scheduler.classic_load += (Scheduler.classic_activePEs / Scheduler.classic_availPEs) * (GridSim.clock() - Scheduler.last_event);
-        Scheduler.max_load += 1.0 * (GridSim.clock() - Scheduler.last_event);
+        ctx.load += (ctx.activePEs / ctx.availPEs) * (GridSim.clock() - ctx.last_event);
+        ctx.classic_load += (ctx.classic_activePEs / ctx.classic_availPEs) * (GridSim.clock() - ctx.last_event);
+        ctx.max_load += 1.0 * (GridSim.clock() - ctx.last_event);
 
 
-        Scheduler.last_event = GridSim.clock();
-        Scheduler.activePEs -= rgl.getNumPE() * super.resource_.getMIPSRatingOfOnePE();
-        Scheduler.classic_activePEs -= rgl.getNumPE();
+        ctx.last_event = GridSim.clock();
+        ctx.activePEs -= rgl.getNumPE() * super.resource_.getMIPSRatingOfOnePE();
+        ctx.classic_activePEs -= rgl.getNumPE();
 
         //decrease requestedPEs value
-        Scheduler.requestedPEs -= rgl.getNumPE();
+        ctx.requestedPEs -= rgl.getNumPE();
 
         used_mips += rgl.getNumPE() * rgl.getGridlet().getActualCPUTime() * this.resource_.getMIPSRatingOfOnePE();
         used_usage += rgl.getNumPE() * rgl.getGridlet().getActualCPUTime();
@@ -990,6 +1078,7 @@ class AdvancedSpaceShared extends AllocPolicy {
 
             // Get the Gridlet from the execution list
             rgl = (ResGridlet) gridletInExecList_.remove(found);
+            stopProgress(rgl);
 
             // if a Gridlet is finished upon cancelling, then set it to success
             // instead.
@@ -1000,7 +1089,7 @@ class AdvancedSpaceShared extends AllocPolicy {
             }
 
             // Set PE on which Gridlet finished to FREE
-            super.resource_.setStatusPE(PE.FREE, rgl.getMachineID(),
+            setStatusPE(PE.FREE, rgl.getMachineID(),
                     rgl.getPEID());
             allocateQueueGridlet();
             return rgl;
@@ -1031,10 +1120,17 @@ class AdvancedSpaceShared extends AllocPolicy {
                     "Error - an event is null.");
             return;
         }
-        if (ev.get_tag() == 9999) {
+        processFailure(ev.get_tag(), ev.get_data());
+    }
+
+    /**
+     * Handles machine (9999) and resource (8888) failures.
+     */
+    private void processFailure(int tag, Object data) {
+        if (tag == 9999) {
             //System.out.println(Math.round(GridSim.clock())+": "+resName_ +": starts killing machines remaining jobs="+ gridletInExecList_.size()+" failed machines now/total="+resource_.getNumFailedMachines()+"/"+resource_.getNumMachines());        
 
-            Failure failure = (Failure) ev.get_data();
+            Failure failure = (Failure) data;
             double duration = failure.getDuration();
             int[] ids = failure.getIds();
             //Scheduler.decreasePEs(this.resId_, ids.length);
@@ -1049,25 +1145,25 @@ class AdvancedSpaceShared extends AllocPolicy {
             } else {
                 killed_cpus = ids.length;
                 last_time = now;
-                super.sim_schedule(super.myId_, 0.01, 5555, null);
+                sim_schedule(super.myId_, 0.01, 5555, null);
             }
             //super.sim_schedule(GridSim.getEntityId("Alea_3.0_scheduler"), 0.0, 5555, this.resId_);
-            super.sim_schedule(super.myId_, duration, 6666, failure);
+            sim_schedule(super.myId_, duration, 6666, failure);
 
-        } else if (ev.get_tag() == 8888) {
-            double duration = (Double) ev.get_data();
+        } else if (tag == 8888) {
+            double duration = (Double) data;
             failed = true;
             setResourceFailed();
             // this will cause the resource to restart
             failure_time += duration * this.resource_.getNumPE();
             wfailure_time += duration * this.resource_.getMIPSRating();
-            Scheduler.failure_time += duration * this.resource_.getNumPE();
-            Scheduler.wfailure_time += duration * this.resource_.getMIPSRating();
-            super.sim_schedule(GridSim.getEntityId("Alea_3.0_scheduler"), 0.0, 5555, this.resId_);
-            super.sim_schedule(super.myId_, duration, 7777);
+            ctx.failure_time += duration * this.resource_.getNumPE();
+            ctx.wfailure_time += duration * this.resource_.getMIPSRating();
+            sim_schedule(GridSim.getEntityId("Alea_3.0_scheduler"), 0.0, 5555, this.resId_);
+            sim_schedule(super.myId_, duration, 7777);
 
         } else {
-            System.out.println("Unknown tag: " + ev.get_tag());
+            System.out.println("Unknown tag: " + tag);
         }
     }
 
@@ -1085,19 +1181,20 @@ class AdvancedSpaceShared extends AllocPolicy {
             offPEs += list.getMachine(ids[i]).getNumPE();
             offMIPS += list.getMachine(ids[i]).getMIPSRating();
             list.getMachine(ids[i]).setFailed(true);
+            updateFreePEs(ids[i]);
             idss += ids[i] + ",";
 
         }
         failure_time += duration * offPEs;
-        Scheduler.failure_time += duration * offPEs;
+        ctx.failure_time += duration * offPEs;
 
         wfailure_time += duration * offMIPS;
-        Scheduler.wfailure_time += duration * offMIPS;
+        ctx.wfailure_time += duration * offMIPS;
 
         // update number of CPUs
-        Scheduler.classic_availPEs -= offPEs;
-        Scheduler.availPEs -= offMIPS;
-        Scheduler.last_event = GridSim.clock();
+        ctx.classic_availPEs -= offPEs;
+        ctx.availPEs -= offMIPS;
+        ctx.last_event = GridSim.clock();
         int req = 0;
         for (int i = 0; i < gridletInExecList_.size(); i++) {
             ResGridlet rgl = (ResGridlet) gridletInExecList_.get(i);
@@ -1135,44 +1232,31 @@ class AdvancedSpaceShared extends AllocPolicy {
     public int setGridletsFailed(int failedMachID) {
 
         int killed = 0;
+        if (running_ == null || failedMachID < 0 || failedMachID >= running_.length) {
+            return killed;
+        }
 
-        ResGridlet rgl;
-
-        // go on with the gridlet in InExec list.
-        int machID;
-        int[] machIDs;
-        for (int i = 0; i < gridletInExecList_.size(); i++) {
-            rgl = (ResGridlet) gridletInExecList_.get(i);
+        // only fail gridlets allocated to the machine which has failed (in the order of the InExec list)
+        ArrayList<Progress> failed = new ArrayList(running_[failedMachID]);
+        Collections.sort(failed, BY_SEQ);
+        for (int i = 0; i < failed.size(); i++) {
+            ResGridlet rgl = failed.get(i).rgl;
+            syncProgress(rgl);
             if (rgl.getRemainingGridletLength() == 0.0) {
                 rgl.setGridletStatus(Gridlet.SUCCESS);
             }
-            if (rgl.getNumPE() > 1) {
-                machIDs = rgl.getListMachineID();
-            } else {
-                machIDs = new int[1];
-                machIDs[0] = rgl.getMachineID();
-            }
+            int status = rgl.getGridletStatus();
 
-
-            // only fail gridlets allocated to the machines which have failed
-            for (int j = 0; j < machIDs.length; j++) {
-                machID = machIDs[j];
-                if (machID == failedMachID) {
-                    int status = rgl.getGridletStatus();
-
-                    // if the gridlet has already finished, then just send it back.
-                    // Otherwise, set status to FAILED
-                    if (status != Gridlet.SUCCESS) {
-                        status = Gridlet.FAILED_RESOURCE_UNAVAILABLE;
-                    }
-                    //Scheduler.removeGi(this.resId_, ((ComplexGridlet) rgl.getGridlet()));
-                    gridletFinish(rgl, status);
-                    gridletInExecList_.remove(rgl);
-                    i--;
-                    killed++;
-                    break;
-                }
+            // if the gridlet has already finished, then just send it back.
+            // Otherwise, set status to FAILED
+            if (status != Gridlet.SUCCESS) {
+                status = Gridlet.FAILED_RESOURCE_UNAVAILABLE;
             }
+            //Scheduler.removeGi(this.resId_, ((ComplexGridlet) rgl.getGridlet()));
+            stopProgress(rgl);
+            gridletFinish(rgl, status);
+            gridletInExecList_.remove(rgl);
+            killed++;
         }
         return killed;
     }
@@ -1193,6 +1277,7 @@ class AdvancedSpaceShared extends AllocPolicy {
         updateGridletProcessing();
         for (int i = 0; i < gridletInExecList_.size(); i++) {
             ResGridlet obj = (ResGridlet) gridletInExecList_.get(i);
+            stopProgress(obj);
             if (obj.getRemainingGridletLength() == 0.0) {
                 obj.setGridletStatus(Gridlet.SUCCESS);
             }
@@ -1219,30 +1304,161 @@ class AdvancedSpaceShared extends AllocPolicy {
         int size = list.size();
         for (int i = 0; i < size; i++) {
             list.getMachine(i).setFailed(true);
+            updateFreePEs(i);
         }
 
         // update number of CPUs
-        Scheduler.classic_availPEs -= this.totalPE_;
-        Scheduler.availPEs -= this.totalPE_ * this.resource_.getMIPSRatingOfOnePE();
-        Scheduler.last_event = GridSim.clock();
+        ctx.classic_availPEs -= this.totalPE_;
+        ctx.availPEs -= this.totalPE_ * this.resource_.getMIPSRatingOfOnePE();
+        ctx.last_event = GridSim.clock();
         System.out.println(resName_ + ": all jobs killed, machines pre/post/total=" + prev + "/" + resource_.getNumFailedMachines() + "/" + resource_.getNumMachines());
 
     }
 
+    /**
+     * Sends the event through SimJava or through the SimulationEngine if it is used instead.
+     */
+    public void sim_schedule(int dest, double delay, int tag, Object data) {
+        if (ExperimentSetup.useEventEngine) {
+            SimulationEngine.schedule(get_id(), dest, delay, tag, data);
+        } else {
+            super.sim_schedule(dest, delay, tag, data);
+        }
+    }
+
+    /**
+     * Sends the event through SimJava or through the SimulationEngine if it is used instead.
+     */
+    public void sim_schedule(int dest, double delay, int tag) {
+        if (ExperimentSetup.useEventEngine) {
+            SimulationEngine.schedule(get_id(), dest, delay, tag, null);
+        } else {
+            super.sim_schedule(dest, delay, tag);
+        }
+    }
+
+    /**
+     * Starts the progress accounting of a Gridlet added into the execution list. It receives its MI share since the last update
+     * time (as it would by updateGridletProcessing()).
+     */
+    private void startProgress(ResGridlet rgl) {
+        Progress p = new Progress(rgl, machineRating_[rgl.getMachineID()], lastUpdateTime_, progressSeq_++);
+        progress_.put(rgl, p);
+        completions_.add(p);
+        int[] ids = getMachineIDs(rgl);
+        for (int i = 0; i < ids.length; i++) {
+            if (!running_[ids[i]].contains(p)) {
+                running_[ids[i]].add(p);
+            }
+        }
+    }
+
+    /** Adds the MI share of the Gridlet up to the last update time. */
+    private void syncProgress(ResGridlet rgl) {
+        Progress p = progress_.get(rgl);
+        if (p != null && lastUpdateTime_ > p.sync) {
+            rgl.updateGridletFinishedSoFar(getMIShare(lastUpdateTime_ - p.sync, rgl.getMachineID()));
+            p.sync = lastUpdateTime_;
+        }
+    }
+
+    /** Stops the progress accounting of a Gridlet removed from the execution list (its progress is updated first). */
+    private void stopProgress(ResGridlet rgl) {
+        syncProgress(rgl);
+        Progress p = progress_.remove(rgl);
+        if (p != null) {
+            // removed from the heap lazily
+            p.removed = true;
+            int[] ids = getMachineIDs(rgl);
+            for (int i = 0; i < ids.length; i++) {
+                running_[ids[i]].remove(p);
+            }
+        }
+    }
+
+    /**
+     * Returns running Gridlets whose remaining length is zero at the last update time, in the order of the execution list.
+     * Only Gridlets whose expected completion is due are checked.
+     */
+    private ArrayList<Progress> findFinishedGridlets() {
+        ArrayList<Progress> finished = new ArrayList();
+        ArrayList<Progress> not_yet = new ArrayList();
+        while (!completions_.isEmpty() && completions_.peek().due <= lastUpdateTime_ + 1e-6) {
+            Progress p = completions_.poll();
+            if (p.removed) {
+                continue;
+            }
+            syncProgress(p.rgl);
+            if (p.rgl.getRemainingGridletLength() == 0.0) {
+                finished.add(p);
+            } else {
+                // rounding, the rest will be checked later
+                p.setDue();
+                not_yet.add(p);
+            }
+        }
+        completions_.addAll(not_yet);
+        Collections.sort(finished, BY_SEQ);
+        return finished;
+    }
+
+    /**
+     * Returns the number of free PEs of working machines (of all machines if failures are not simulated).
+     */
     public int getNumFreePE() {
-        int free = 0;
-        MachineList mlist = this.resource_.getMachineList();
         if (ExperimentSetup.failures) {
-            for (int i = 0; i < mlist.size(); i++) {
-                Machine m = mlist.getMachine(i);
-                if (m.getFailed() == false) {
-                    free += m.getNumFreePE();
-                }
-            }
-        } else {
-            free = this.resource_.getNumFreePE();
+            return numFreePE_;
+        }
+        return numFreePEAll_;
+    }
+
+    /**
+     * Returns the IDs of machines the Gridlet is allocated to (a machine may be listed more than once).
+     */
+    private static int[] getMachineIDs(ResGridlet rgl) {
+        if (rgl.getNumPE() > 1) {
+            return rgl.getListMachineID();
+        }
+        return new int[]{rgl.getMachineID()};
+    }
+
+    /** orders Progress objects as their Gridlets were added into the execution list */
+    private static final Comparator<Progress> BY_SEQ = new Comparator<Progress>() {
+
+        public int compare(Progress a, Progress b) {
+            return (a.seq < b.seq) ? -1 : ((a.seq > b.seq) ? 1 : 0);
+        }
+    };
+
+    /**
+     * Progress of one running Gridlet: the rating used for its MI share, the last update time included in its finished length
+     * and its expected completion.
+     */
+    private static class Progress implements Comparable<Progress> {
+
+        ResGridlet rgl;
+        int rating;
+        double sync;
+        long seq;
+        double due;
+        boolean removed = false;
+
+        Progress(ResGridlet rgl, int rating, double sync, long seq) {
+            this.rgl = rgl;
+            this.rating = rating;
+            this.sync = sync;
+            this.seq = seq;
+            setDue();
+        }
+
+        /** Time when the remaining length of the Gridlet reaches zero. */
+        void setDue() {
+            due = sync + rgl.getRemainingGridletLength() / rating;
+        }
+
+        public int compareTo(Progress o) {
+            return (due < o.due) ? -1 : ((due > o.due) ? 1 : 0);
         }
-        return free;
     }
 } // end class
 
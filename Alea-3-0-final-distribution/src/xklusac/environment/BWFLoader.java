@@ -0,0 +1,223 @@
+package xklusac.environment;
+
+import eduni.simjava.Sim_event;
+import gridsim.*;
+import java.io.File;
+import xklusac.extensions.*;
+import eduni.simjava.distributions.Sim_normal_obj;
+
+/**
+ * Class BWFLoader<p>
+ * Loads jobs dynamically over time from the file in the Binary Workload Format (BWF, see BinaryTrace and TraceConverter). Then
+ * sends these gridlets to the scheduler. The jobs are the same as created by the loader of the original format (SWF, GWF, MWF, PWF),
+ * but no text parsing is needed as the file is mapped to memory.
+ */
+public class BWFLoader extends EngineGridSim {
+
+    /** current folder */
+    String folder_prefix = "";
+    /** the binary trace */
+    BinaryTrace trace = null;
+    /** format of the original file */
+    int format;
+    /** total number of jobs in experiment */
+    int total_jobs = 0;
+    /** message tag */
+    private static int SendGridletInfo = 999;
+    /** number of PEs in the "biggest" resource */
+    int maxPE = 1;
+    /** minimal PE rating of the slowest resource */
+    int minPErating = 1;
+    int maxPErating = 1;
+    /** gridlet counter */
+    int current_gl = 0;
+    /** data set name */
+    String data_set = "";
+    /** counter of invalid jobs */
+    int fail = 0;
+    double multiplier = 1.0;
+    boolean estimates;
+    int submitted = 0;
+    /** delay of the last submitted job (used by SWF and GWF to plan the end of submission) */
+    double last_delay = 0.0;
+    Sim_normal_obj norm;
+
+    /** Creates a new instance of BWFLoader */
+    public BWFLoader(String name, double baudRate, int total_jobs, String data_set, int maxPE, int minPErating, int maxPErating,
+            double multiplier, boolean estimates) throws Exception {
+        super(name, baudRate);
+        if (ExperimentSetup.meta) {
+            folder_prefix = "/scratch/xklusac/" + ExperimentSetup.path;
+        } else {
+            folder_prefix = System.getProperty("user.dir");
+        }
+        if (ExperimentSetup.data) {
+            String[] path = folder_prefix.split("/");
+            if (path.length == 1) {
+                path = folder_prefix.split("\\\\");
+            }
+            folder_prefix = "";
+            for (int i = 0; i < path.length - 1; i++) {
+                folder_prefix += path[i] + "/";
+            }
+        }
+        trace = new BinaryTrace(new File(folder_prefix + "/data-set/" + data_set));
+        this.format = trace.getFormat();
+        this.total_jobs = Math.min(total_jobs, trace.size());
+        this.maxPE = maxPE;
+        this.minPErating = minPErating;
+        this.maxPErating = maxPErating;
+        this.data_set = data_set;
+        this.multiplier = multiplier;
+        this.estimates = estimates;
+        // the same distribution as used by MWFLoader and SWFLoader
+        this.norm = new Sim_normal_obj("normal distr", 0.0, 5.0, (121 + ExperimentSetup.rnd_seed));
+    }
+
+    /** Reads jobs from data_set file and sends them to the Scheduler entity dynamically over time. */
+    public void body() {
+        if (format == BinaryTrace.MWF || format == BinaryTrace.GWF) {
+            super.gridSimHold(5.0);
+        } else {
+            super.gridSimHold(10.0);    // hold by 10 second
+        }
+
+        while (current_gl < total_jobs) {
+
+            Sim_event ev = new Sim_event();
+            sim_get_next(ev);
+
+            if (ev.get_tag() == GridSimTags.JUNK_PKT) {
+                loadNextGridlet();
+                continue;
+            }
+        }
+
+        endOfSubmission();
+        Sim_event ev = new Sim_event();
+        sim_get_next(ev);
+
+        if (ev.get_tag() == GridSimTags.END_OF_SIMULATION) {
+            System.out.println("Shuting down the " + data_set + "_JobLoader... with: " + fail + " fails. Submitted: " + submitted + " jobs.");
+        }
+        shutdownUserEntity();
+        super.terminateIOEntities();
+    }
+
+    /** Reads one job and sends it to the Scheduler. Next reading is planned according to the job arrival time. */
+    private void loadNextGridlet() {
+        ComplexGridlet gl = readGridlet(current_gl);
+        current_gl++;
+        if (gl == null && current_gl < total_jobs) {
+            sim_schedule(this.getEntityId(this.getEntityName()), 0.0, GridSimTags.JUNK_PKT);
+            return;
+        } else if (gl == null && current_gl >= total_jobs) {
+            return;
+        }
+        // to synchronize job arrival wrt. the data set.
+        double delay = Math.max(0.0, (gl.getArrival_time() - super.clock()));
+        submitted++;
+        last_delay = delay;
+        sim_schedule(this.getEntityId("Alea_3.0_scheduler"), delay, SendGridletInfo, gl);
+
+        if (current_gl < total_jobs) {
+            // use delay - next job will be loaded after the simulation time is equal to the previous job arrival.
+            sim_schedule(this.getEntityId(this.getEntityName()), delay, GridSimTags.JUNK_PKT);
+        }
+    }
+
+    /** Informs the Scheduler that all jobs have been sent (in the same way as the loader of the original format). */
+    private void endOfSubmission() {
+        if (format == BinaryTrace.MWF) {
+            sim_schedule(this.getEntityId("Alea_3.0_scheduler"), 0.0, 612345, new Integer(submitted));
+        } else if (format == BinaryTrace.SWF) {
+            sim_schedule(this.getEntityId("Alea_3.0_scheduler"), Math.round(last_delay + 2), 612345, new Integer(current_gl));
+        } else if (format == BinaryTrace.GWF) {
+            sim_schedule(this.getEntityId("Alea_3.0_scheduler"), last_delay + 1, 612345, new Integer(submitted));
+        } else {
+            sim_schedule(this.getEntityId("Alea_3.0_scheduler"), 0.0, 612345, null);
+        }
+    }
+
+    /**
+     * Processes one event delivered by the SimulationEngine. This replaces the body() thread when
+     * ExperimentSetup.useEventEngine is set.
+     */
+    public void processEvent(SimulationEvent ev) {
+        if (ev.getTag() == GridSimTags.JUNK_PKT && current_gl < total_jobs) {
+            loadNextGridlet();
+            if (current_gl >= total_jobs) {
+                endOfSubmission();
+            }
+        }
+    }
+
+    /** Reads one job from the trace, the values are computed as in the loader of the original format. */
+    private ComplexGridlet readGridlet(int j) {
+        int id = trace.getInt(BinaryTrace.ID, j);
+        // such line is not a valid job in the original file
+        if (id == -1) {
+            fail++;
+            return null;
+        }
+        int numCPU = trace.getInt(BinaryTrace.NUM_PE, j);
+        // PWFLoader does not limit the number of PEs
+        if (format != BinaryTrace.PWF && numCPU > maxPE) {
+            numCPU = maxPE;
+        }
+        long arrival = trace.getLong(BinaryTrace.ARRIVAL, j);
+        long run_time = trace.getLong(BinaryTrace.RUNTIME, j);
+        long job_limit = trace.getLong(BinaryTrace.JOB_LIMIT, j);
+        double length = trace.getDouble(BinaryTrace.LENGTH, j);
+        double deadline = trace.getDouble(BinaryTrace.DEADLINE, j);
+        double estimatedMachine = trace.getDouble(BinaryTrace.SPEEDUP, j);
+        String os = null;
+        String arch = null;
+        double perc = 0.0;
+        double estimatedLength = 0.0;
+
+        if (format == BinaryTrace.MWF) {
+            arrival = Math.round(new Double(arrival) / multiplier);
+            //we have to shorten jobs that started before the beginning of the trace
+            if (arrival == 0) {
+                run_time = trace.getLong(BinaryTrace.RUNTIME_AT_START, j);
+                length = Math.max(1.0, Math.round((run_time * estimatedMachine) * 1.0));
+            }
+            deadline = Math.round(job_limit + arrival);
+        } else if (format == BinaryTrace.PWF) {
+            estimatedLength = (int) run_time * maxPErating;
+            os = "Linux";
+            arch = "Risc arch.";
+        } else {
+            // minPErating is the default speed of the slowest machine in the data set
+            length = Math.round(((int) run_time) * maxPErating);
+            if (format == BinaryTrace.SWF) {
+                os = "Linux";
+                arch = "Risc arch.";
+            }
+        }
+        if (format != BinaryTrace.PWF) {
+            if (estimates) {
+                //roughest estimate that can be done = queue limit
+                estimatedLength = Math.round(Math.max((job_limit * maxPErating), length));
+            } else {
+                // exact estimates
+                estimatedLength = length;
+            }
+        }
+        if (format == BinaryTrace.MWF || format == BinaryTrace.SWF) {
+            // setup user's estimates
+            perc = norm.sample() + ExperimentSetup.userPercentage;
+        }
+
+        ComplexGridlet gl = new ComplexGridlet(id, trace.getString(BinaryTrace.USER, j), job_limit, new Double(length), estimatedLength, 10, 10,
+                os, arch, arrival, deadline, 1, numCPU, estimatedMachine, trace.getString(BinaryTrace.QUEUE, j), trace.getString(BinaryTrace.PROPERTIES, j), perc);
+        if (format == BinaryTrace.MWF) {
+            gl.setPower(trace.getDouble(BinaryTrace.POWER, j));
+            gl.setNumNodes(trace.getInt(BinaryTrace.NUM_NODES, j));
+        }
+        // and set user id to the Scheduler entity - otherwise it would be returned to the JobLoader when completed.
+        gl.setUserID(super.getEntityId("Alea_3.0_scheduler"));
+        return gl;
+    }
+}
@@ -0,0 +1,153 @@
+package xklusac.environment;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Class BinaryTrace<p>
+ * Read-only view of a workload converted to the Binary Workload Format (BWF, see TraceConverter). The file starts with a header
+ * (magic number, version, source format, number of jobs, offsets of columns and of the string table), then one column per job
+ * attribute follows (all values of one attribute are stored together) and the string table (user names, queue names and property
+ * sets) is at the end. Each column is mapped to memory, so jobs are read without any parsing.
+ */
+public class BinaryTrace {
+
+    /** "ABWF" */
+    public static final int MAGIC = 0x41425746;
+    public static final int VERSION = 1;
+    /** source formats */
+    public static final int SWF = 0;
+    public static final int GWF = 1;
+    public static final int MWF = 2;
+    public static final int PWF = 3;
+    /** job ID, -1 marks a line of the source file that is not a valid job (the text loaders return null for it) */
+    public static final int ID = 0;
+    /** arrival time (s) from the beginning of the trace, MWF arrivals are not divided by the multiplier yet */
+    public static final int ARRIVAL = 1;
+    /** runtime (s) */
+    public static final int RUNTIME = 2;
+    /** runtime (s) used when the (MWF) job arrives at time 0, i.e., started before the beginning of the trace */
+    public static final int RUNTIME_AT_START = 3;
+    /** requested number of PEs (not limited by maxPE yet) */
+    public static final int NUM_PE = 4;
+    public static final int NUM_NODES = 5;
+    public static final int POWER = 6;
+    /** index of user name in the string table */
+    public static final int USER = 7;
+    /** index of queue name in the string table */
+    public static final int QUEUE = 8;
+    /** index of properties in the string table */
+    public static final int PROPERTIES = 9;
+    /** speed of the machine where the job was executed (MWF, PWF), 0.0 when not known */
+    public static final int SPEEDUP = 10;
+    /** length (MI) computed from RUNTIME and SPEEDUP, 0.0 when it depends on the experiment setup (SWF, GWF) */
+    public static final int LENGTH = 11;
+    public static final int JOB_LIMIT = 12;
+    /** deadline, MWF deadlines are computed again from the final arrival time */
+    public static final int DEADLINE = 13;
+    public static final int COLUMNS = 14;
+    /** size of one value of each column in bytes */
+    public static final int[] WIDTH = {4, 8, 8, 8, 4, 4, 8, 4, 4, 4, 8, 8, 8, 8};
+    /** size of the header in bytes */
+    public static final int HEADER_SIZE = 4 * 4 + COLUMNS * 8 + 8 + 4;
+    private int format;
+    private int size;
+    /** one mapping is limited to 2 GB - columns are mapped in chunks of 2^CHUNK_BITS bytes (values never cross two chunks) */
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+    /** chunks of each column */
+    private MappedByteBuffer[][] columns = new MappedByteBuffer[COLUMNS][];
+    private String[] strings;
+
+    /** Opens the BWF file and maps its columns to memory. */
+    public BinaryTrace(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            if (raf.readInt() != MAGIC) {
+                throw new IOException(file + " is not a BWF file.");
+            }
+            if (raf.readInt() != VERSION) {
+                throw new IOException(file + " has unsupported BWF version.");
+            }
+            format = raf.readInt();
+            size = raf.readInt();
+            long[] offsets = new long[COLUMNS];
+            for (int c = 0; c < COLUMNS; c++) {
+                offsets[c] = raf.readLong();
+            }
+            long strings_offset = raf.readLong();
+            int strings_count = raf.readInt();
+            for (int c = 0; c < COLUMNS; c++) {
+                long length = (long) size * WIDTH[c];
+                int chunks = (int) ((length + CHUNK_MASK) >>> CHUNK_BITS);
+                columns[c] = new MappedByteBuffer[Math.max(1, chunks)];
+                for (int k = 0; k < columns[c].length; k++) {
+                    long from = (long) k << CHUNK_BITS;
+                    columns[c][k] = channel.map(FileChannel.MapMode.READ_ONLY, offsets[c] + from, Math.min(CHUNK_MASK + 1, length - from));
+                }
+            }
+            strings = new String[strings_count];
+            FileInputStream fis = new FileInputStream(file);
+            try {
+                fis.getChannel().position(strings_offset);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(fis, 65536));
+                for (int s = 0; s < strings_count; s++) {
+                    strings[s] = in.readUTF();
+                }
+            } finally {
+                fis.close();
+            }
+        } finally {
+            // mapped buffers remain valid when the file is closed
+            raf.close();
+        }
+    }
+
+    /** Returns the format of the source file (SWF, GWF, MWF or PWF). */
+    public int getFormat() {
+        return format;
+    }
+
+    /** Returns the number of jobs (including invalid lines). */
+    public int size() {
+        return size;
+    }
+
+    public int getInt(int column, int job) {
+        long position = job * 4L;
+        return columns[column][(int) (position >>> CHUNK_BITS)].getInt((int) (position & CHUNK_MASK));
+    }
+
+    public long getLong(int column, int job) {
+        long position = job * 8L;
+        return columns[column][(int) (position >>> CHUNK_BITS)].getLong((int) (position & CHUNK_MASK));
+    }
+
+    public double getDouble(int column, int job) {
+        long position = job * 8L;
+        return columns[column][(int) (position >>> CHUNK_BITS)].getDouble((int) (position & CHUNK_MASK));
+    }
+
+    /**
+     * Returns the name of the source data set of a BWF data set (e.g., metacentrum.mwf for metacentrum.mwf.bwf), other names are
+     * returned unchanged. The companion files (.machines, .failures) and data set specific settings use the source name.
+     */
+    public static String getSourceName(String data_set) {
+        if (data_set.endsWith(".bwf")) {
+            return data_set.substring(0, data_set.length() - ".bwf".length());
+        }
+        return data_set;
+    }
+
+    /** Returns the string stored in the given column (USER, QUEUE or PROPERTIES) for the job. */
+    public String getString(int column, int job) {
+        return strings[getInt(column, job)];
+    }
+}
@@ -29,6 +29,8 @@ public class ComplexResourceCharacteristics extends ResourceCharacteristics {
     private LinkedList <Integer> cpu_ids = new LinkedList();
     /** not used in Alea 2.0 */
     private boolean failed;
+    /** precompiled properties, see PropertyMatcher */
+    private long[] propertyMask = new long[0];
     
     /** Creates a new instance of ComplexResourceCharacteristics */
     public ComplexResourceCharacteristics(String architecture, String OS,
@@ -57,6 +59,15 @@ public class ComplexResourceCharacteristics extends ResourceCharacteristics {
         this.properties = properties;
     }
     
+    public long[] getPropertyMask() {
+        return propertyMask;
+    }
+    
+    /** Compiles the properties of this resource into a bit mask. Called by Scheduler once the index of the matcher is ready. */
+    public void compilePropertyMask(PropertyMatcher matcher) {
+        this.propertyMask = matcher.compileResource(getResourceName(), properties);
+    }
+    
     public LinkedList getCpu_ids() {
         return cpu_ids;
     }
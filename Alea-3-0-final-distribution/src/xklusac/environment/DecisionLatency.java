@@ -0,0 +1,123 @@
+package xklusac.environment;
+
+import java.util.LinkedList;
+import xklusac.extensions.LogHistogram;
+
+/**
+ * Class DecisionLatency<p>
+ * Collects the wall clock time (ns) of scheduling decisions, i.e., calls of SchedulingPolicy.addNewJob(), selectJob(),
+ * OptimizationAlgorithm.execute(), Scheduler.compressSchedule() and Scheduler.updateResourceInfoAfterFailureOrRestart().
+ * Each call is recorded into a LogHistogram of its operation and of the length of queue (schedule) at the time of the call,
+ * lengths are grouped by powers of two (0, 1, 2-3, 4-7, ...). This shows how the decision latency grows with the backlog.
+ * Each SimulationContext has its own instance.
+ */
+public class DecisionLatency {
+
+    public static final int ADD_NEW_JOB = 0;
+    public static final int SELECT_JOB = 1;
+    public static final int OPTIMIZATION = 2;
+    public static final int ON_DEMAND_OPTIMIZATION = 3;
+    public static final int COMPRESSION = 4;
+    public static final int FAILURE = 5;
+    private static final String[] names = {"addNewJob", "selectJob", "optimization", "on-demand optimization", "compressSchedule", "failure/restart"};
+    /** number of groups of queue lengths */
+    private static final int BACKLOG_CLASSES = 32;
+    /** histograms of operations (all calls) */
+    private LogHistogram[] totals = new LogHistogram[names.length];
+    /** histograms of operations per group of queue lengths, created when used */
+    private LogHistogram[][] histograms = new LogHistogram[names.length][BACKLOG_CLASSES];
+    /** sum of queue lengths per operation */
+    private double[] backlog_sum = new double[names.length];
+
+    /** Records one call of the operation that took nanos ns when backlog jobs were in the queue (schedule). */
+    public void record(int operation, long nanos, int backlog) {
+        int group = getGroup(backlog);
+        if (totals[operation] == null) {
+            totals[operation] = new LogHistogram();
+        }
+        if (histograms[operation][group] == null) {
+            histograms[operation][group] = new LogHistogram();
+        }
+        totals[operation].add(nanos);
+        histograms[operation][group].add(nanos);
+        backlog_sum[operation] += backlog;
+    }
+
+    /**
+     * Returns one line per operation and per group of queue lengths: prefix, operation, queue length, calls, p50, p99, max (in
+     * microseconds) and average queue length. The first line of each operation covers all calls.
+     */
+    public LinkedList<String> getReport(String prefix) {
+        LinkedList<String> lines = new LinkedList();
+        for (int op = 0; op < names.length; op++) {
+            if (totals[op] == null) {
+                continue;
+            }
+            lines.add(getLine(prefix, op, "all", totals[op], backlog_sum[op] / totals[op].getCount()));
+            for (int g = 0; g < BACKLOG_CLASSES; g++) {
+                if (histograms[op][g] != null) {
+                    lines.add(getLine(prefix, op, getGroupName(g), histograms[op][g], -1.0));
+                }
+            }
+        }
+        return lines;
+    }
+
+    /** Returns a short summary (operation, calls, p50, p99, max) of all operations for the console. */
+    public LinkedList<String> getSummary() {
+        LinkedList<String> lines = new LinkedList();
+        for (int op = 0; op < names.length; op++) {
+            if (totals[op] != null) {
+                LogHistogram h = totals[op];
+                lines.add(names[op] + ": " + h.getCount() + " calls, p50 = " + toMicros(h.getQuantile(0.5)) + " us, p99 = " +
+                        toMicros(h.getQuantile(0.99)) + " us, max = " + toMicros(h.getMax()) + " us, avg. queue = " +
+                        Math.round(backlog_sum[op] / h.getCount()));
+            }
+        }
+        return lines;
+    }
+
+    /** Clears all histograms before new experiment starts. */
+    public void reset() {
+        for (int op = 0; op < names.length; op++) {
+            totals[op] = null;
+            backlog_sum[op] = 0.0;
+            for (int g = 0; g < BACKLOG_CLASSES; g++) {
+                histograms[op][g] = null;
+            }
+        }
+    }
+
+    private String getLine(String prefix, int op, String group, LogHistogram h, double avg_backlog) {
+        String line = prefix + "\t" + names[op] + "\t" + group + "\t" + h.getCount() + "\t" + toMicros(h.getQuantile(0.5)) +
+                "\t" + toMicros(h.getQuantile(0.99)) + "\t" + toMicros(h.getMax());
+        if (avg_backlog >= 0.0) {
+            line += "\t" + Math.round(avg_backlog * 100.0) / 100.0;
+        } else {
+            line += "\t-";
+        }
+        return line;
+    }
+
+    /** Returns the group of queue length: 0 for empty queue, k for 2^(k-1) - 2^k-1 jobs. */
+    private static int getGroup(int backlog) {
+        if (backlog <= 0) {
+            return 0;
+        }
+        return Math.min(BACKLOG_CLASSES - 1, 32 - Integer.numberOfLeadingZeros(backlog));
+    }
+
+    private static String getGroupName(int group) {
+        if (group <= 1) {
+            return "" + group;
+        }
+        if (group == BACKLOG_CLASSES - 1) {
+            return ">=" + (1 << (group - 1));
+        }
+        return (1 << (group - 1)) + "-" + ((1 << group) - 1);
+    }
+
+    private static double toMicros(double nanos) {
+        return Math.round(nanos / 10.0) / 100.0;
+    }
+}
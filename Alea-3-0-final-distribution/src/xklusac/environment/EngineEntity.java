@@ -0,0 +1,12 @@
+package xklusac.environment;
+
+/**
+ * Interface EngineEntity<p>
+ * Entity that can be driven by the single-threaded SimulationEngine. Instead of waiting for the next event
+ * in its own body() thread, the entity is called back once per delivered event.
+ */
+public interface EngineEntity {
+
+    /** Processes one event delivered by the SimulationEngine. */
+    public void processEvent(SimulationEvent ev);
+}
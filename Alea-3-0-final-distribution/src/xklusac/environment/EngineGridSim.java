@@ -0,0 +1,50 @@
+package xklusac.environment;
+
+import gridsim.GridSim;
+
+/**
+ * Class EngineGridSim<p>
+ * GridSim entity that can also be driven by the SimulationEngine. When ExperimentSetup.useEventEngine is set,
+ * the entity registers itself in the engine and all its events are sent through the engine instead of SimJava.
+ * The Scheduler, job loaders and FailureLoaderNew extend this class.
+ */
+public abstract class EngineGridSim extends GridSim implements EngineEntity {
+
+    /** baud rate of the I/O ports of this entity */
+    protected double baudRate;
+
+    /**
+     * Creates the entity.
+     * @param name name of the entity
+     * @param baudRate baud rate of its I/O ports
+     */
+    public EngineGridSim(String name, double baudRate) throws Exception {
+        super(name, baudRate);
+        this.baudRate = baudRate;
+        if (ExperimentSetup.useEventEngine) {
+            SimulationEngine.register(get_id(), this, baudRate);
+        }
+    }
+
+    /**
+     * Sends the event through SimJava or through the SimulationEngine if it is used instead.
+     */
+    public void sim_schedule(int dest, double delay, int tag, Object data) {
+        if (ExperimentSetup.useEventEngine) {
+            SimulationEngine.schedule(get_id(), dest, delay, tag, data);
+        } else {
+            super.sim_schedule(dest, delay, tag, data);
+        }
+    }
+
+    /**
+     * Sends the event through SimJava or through the SimulationEngine if it is used instead.
+     */
+    public void sim_schedule(int dest, double delay, int tag) {
+        if (ExperimentSetup.useEventEngine) {
+            SimulationEngine.schedule(get_id(), dest, delay, tag, null);
+        } else {
+            super.sim_schedule(dest, delay, tag);
+        }
+    }
+}
@@ -30,7 +30,6 @@ import xklusac.extensions.*;
 public class ExperimentSetup {
 
     public static double powerCap = 2800.00;
-    public static double totalPower = 0.00;
     /** bandwith */
     static double baudRate = 10000;
     /** total count of Job Submission System */
@@ -70,16 +69,44 @@ public class ExperimentSetup {
     static boolean data = false;
     /** auxiliary variable */
     static boolean useHeap = false;
+    /** set true to run the simulation by the single-threaded SimulationEngine instead of SimJava threads */
+    static boolean useEventEngine = false;
+    /** set true to re-evaluate only the changed part of schedule in ResourceInfo.update() */
+    static boolean useDeltaUpdate = false;
+    /** set true to find gaps for jobs using the availability profile instead of holes (CONS, BestGap, GapSearch) */
+    public static boolean useAvailabilityProfile = false;
+    /** set true to evaluate the candidate resources of a new job in parallel (CONS, BestGap) */
+    public static boolean useParallelCandidates = false;
+    /** number of threads used to evaluate the candidate resources */
+    public static int candidate_threads = 1;
+    /** number of parallel walkers (and threads) used by ParallelSearch */
+    public static int search_walkers = 1;
+    /** set true to write result files by a background thread (see Output) */
+    public static boolean useAsyncOutput = false;
+    /** set true to store the trace of finished jobs (jobs(...).csv and jobs_*.csv files) */
+    public static boolean writeJobTrace = true;
+    /** set true to measure the time of scheduling decisions (see DecisionLatency) */
+    public static boolean measureLatency = true;
+    /** number of jobs at the head of the queue that obtain a reservation (Backfilling with k reservations, alg 3) */
+    public static int reservation_depth = 4;
+    /** set true to re-plan only jobs planned on failed machines after a failure (schedule-based algorithms) */
+    public static boolean useScheduleRepair = false;
     /** auxiliary variable */
     static int userPercentage;
     /** andom number generator seed */
     static int rnd_seed;
+    /** added to the random number generator seeds, runs of the same setup with other seeds differ (see SweepRunner) */
+    static int seed = 0;
+    /** directory of result files (null = the working directory, see getResultDir()) */
+    static String result_dir = null;
+    /** data set, number of jobs and algorithm of a single run (see applySetting()), null or -1 = lists in main() are used */
+    static String cell_data_set = null;
+    static int cell_jobs = -1;
+    static int cell_alg = -1;
     /** auxiliary variable */
     static int max_estim;
     /** auxiliary variable */
     static String path;
-    /** auxiliary variable */
-    static Hashtable<String, User> users = new Hashtable<String, User>();
     /** multiplies the number of iterations of opt. algorithms */
     public static int multiplicator;
     /** auxiliary variable */
@@ -92,9 +119,6 @@ public class ExperimentSetup {
     static String name = "";
     /** the weight of fairness criterion in objective function */
     public static int fair_weight;
-    public static SchedulingPolicy policy = null;
-    public static OptimizationAlgorithm opt_alg = null;
-    public static OptimizationAlgorithm fix_alg = null;
     public static boolean use_compresion = false;
 
     /**
@@ -102,10 +126,15 @@ public class ExperimentSetup {
      * It is also capable of multiple starts of the simulation with different setup (machine count, job parameters, data sets).
      */
     public static void main(String[] args) {
+        // settings of a single run given by -cell name=value ... (used by SweepRunner)
+        LinkedList<String> cell = null;
         // if required - start the graphical output using -v parameter
         if (args.length > 0) {
             if (args[0].equals("-v")) {
                 visualize = true;
+            } else if (args[0].equals("-cell")) {
+                visualize = false;
+                cell = new LinkedList(Arrays.asList(args).subList(1, args.length));
             }
         } else {
             // change this to true if you want to visualize always, disregarding parameters.
@@ -126,6 +155,8 @@ public class ExperimentSetup {
         // Similarly machine failures (if simulated) should be placed in a file called e.g., "metacentrum.mwf.failures".
         // Please read carefully the copyright note when using public workload traces!
         //String data_sets[] = {"SDSC-SP2.swf", "hpc2n.swf", "star.swf", "thunder.swf", "metacentrum.mwf", "meta2008.mwf", "atlas.swf",};
+        // synthetic workloads (extension syn) are generated with the parameters given in e.g., "synthetic.syn", see SyntheticWorkload
+        //String data_sets[] = {"synthetic.syn"};
         String data_sets[] = {"metacentrum.mwf"};
 
         // number of gridlets in data set
@@ -162,7 +193,52 @@ public class ExperimentSetup {
 
         // use binary heap dat structure to represent schedule (generally faster solution)
         useHeap = true;
+        // use single-threaded event engine instead of SimJava threads (faster on large traces)
+        useEventEngine = false;
+        // evaluate schedule from the first changed position only (checkpoints in ResourceInfo)
+        useDeltaUpdate = true;
+        // find gaps for new jobs using availability profile of CPUs instead of the list of holes
+        useAvailabilityProfile = false;
+        // evaluate candidate resources of a new job in parallel (CONS, BestGap), the selected resource is the same as in sequential version
+        useParallelCandidates = false;
+        candidate_threads = Runtime.getRuntime().availableProcessors();
+        // number of independent walkers of ParallelSearch (alg 22, 23), each walker runs in its own thread
+        search_walkers = Runtime.getRuntime().availableProcessors();
+        // result files are written by a background thread, the content of files is the same
+        useAsyncOutput = false;
+        Output.setAsynchronous(useAsyncOutput);
+        // store the trace of finished jobs, the statistics (Graphs, Fairness) are computed without it
+        writeJobTrace = true;
+        // measure the time of each scheduling decision (Latency(...).csv)
+        measureLatency = true;
+        // number of reserved jobs of Backfilling with k reservations (alg 3), 1 reserves the head only as EASY does
+        reservation_depth = 4;
+        // after a failure re-plan only jobs whose planned CPUs belong to failed machines, the rest of schedule stays (false = re-plan all jobs of the resource)
+        useScheduleRepair = false;
 
+        // data sets are outside the project folder (i.e. in ../data-set/)
+        data = true;
+        // multiply the number of iterations of optimization techniques
+        multiplicator = 1;
+        // used to influence the frequency of job arrivals (mwf files only)
+        double multiplier = 1.0;
+
+        // the settings of a single run override the settings above
+        if (cell != null) {
+            for (int i = 0; i < cell.size(); i++) {
+                String[] setting = cell.get(i).split("=", 2);
+                if (setting.length < 2 || !applySetting(setting[0].trim(), setting[1].trim())) {
+                    System.out.println("Wrong setting of the run: " + cell.get(i));
+                    System.exit(1);
+                }
+            }
+            if (cell_data_set != null) {
+                data_sets[0] = cell_data_set;
+            }
+            if (cell_jobs >= 0) {
+                total_gridlet[0] = cell_jobs;
+            }
+        }
 
         //defines the name format of output files
         String problem = "Result";
@@ -196,13 +272,6 @@ public class ExperimentSetup {
             problem += "-DurPrec" + userPercentage;
         }
 
-        // data sets are outside the project folder (i.e. in ../data-set/)
-        data = true;
-        // multiply the number of iterations of optimization techniques
-        multiplicator = 1;
-        // used to influence the frequency of job arrivals (mwf files only)
-        double multiplier = 1.0;
-
         // used only when executed on a real cluster (do not change)
         path = "estim100/";
         meta = false;
@@ -215,12 +284,7 @@ public class ExperimentSetup {
             problem += date;
         }
 
-        String user_dir = "";
-        if (ExperimentSetup.meta) {
-            user_dir = "/scratch/xklusac/" + path;
-        } else {
-            user_dir = System.getProperty("user.dir");
-        }
+        String user_dir = getResultDir();
         try {
             Output out = new Output();
             out.deleteResults(user_dir + "/jobs(" + problem + "" + ExperimentSetup.algID + ").csv");
@@ -244,16 +308,20 @@ public class ExperimentSetup {
             prevAlgID = -1;
 
             // selects algorithm
-            // write down the IDs of algorithm that you want to use (FCFS = 0, EDF = 1, EASY = 2, CONS = 4, PBS PRO = 5, BestGap = 10, BestGap+RandomSearch = 11, ...)
+            // write down the IDs of algorithm that you want to use (FCFS = 0, EDF = 1, EASY = 2, Backfilling with k reservations = 3, CONS = 4, PBS PRO = 5, BestGap = 10, BestGap+RandomSearch = 11, ...)
             int algorithms[] = {2};
+            if (cell_alg >= 0) {
+                algorithms[0] = cell_alg;
+            }
 
             // select which algorithms from the algorithms[] list will be used.
             for (int sel_alg = 0; sel_alg <= 0; sel_alg++) {
 
                 // reset values from previous iterations
                 use_compresion = false;
-                opt_alg = null;
-                fix_alg = null;
+                // state of this run (resources, queues, counters, users, policy and optimization algorithms)
+                SimulationContext ctx = new SimulationContext();
+                result_collector.setContext(ctx);
 
                 // get proper algorithm
                 int alg = algorithms[sel_alg];
@@ -276,77 +344,118 @@ public class ExperimentSetup {
                     String[] exclude_from_processing = {""};
                     String report_name = null;
                     GridSim.init(entities, calendar, trace_flag, exclude_from_file, exclude_from_processing, report_name);
-                    scheduler = new Scheduler(scheduler_name, baudRate, entities, results, alg, data_sets[set], total_gridlet[set], suff, windows, result_collector, sel_alg);
+                    scheduler = new Scheduler(scheduler_name, baudRate, entities, results, alg, data_sets[set], total_gridlet[set], suff, windows, result_collector, sel_alg + seed, ctx);
                 } catch (Exception ex) {
                     Logger.getLogger(ExperimentSetup.class.getName()).log(Level.SEVERE, null, ex);
                 }
                 // this will set up the proper algorithm according to the algorithms[] list
                 if (alg == 0) {
-                    policy = new FCFS(scheduler);
+                    ctx.policy = new FCFS(scheduler);
                     suff = "FCFS";
                 }
                 if (alg == 1) {
-                    policy = new EDF(scheduler);
+                    ctx.policy = new EDF(scheduler);
                     suff = "EDF";
                 }
                 if (alg == 2) {
-                    policy = new EASY_Backfilling(scheduler);
+                    ctx.policy = new EASY_Backfilling(scheduler);
                     // fixed version of EASY Backfilling
                     suff = "EASY";
                 }
+                if (alg == 3) {
+                    ctx.policy = new Depth_Backfilling(scheduler);
+                    suff = "Depth-" + reservation_depth + "-Backfilling";
+                }
                 if (alg == 4) {
-                    policy = new CONS(scheduler);
+                    ctx.policy = new CONS(scheduler);
                     use_compresion = true;
                     suff = "CONS+compression";
                 }
                 // do not use PBS-PRO on other than "metacentrum.mwf" data - not enough information is available.
                 if (alg == 5) {
-                    policy = new PBS_PRO(scheduler);
+                    ctx.policy = new PBS_PRO(scheduler);
                     suff = "PBS-PRO";
                 }
 
                 if (alg == 10) {
-                    policy = new BestGap(scheduler);
+                    ctx.policy = new BestGap(scheduler);
                     suff = "BestGap";
                 }
                 if (alg == 11) {
                     suff = "BestGap+RandSearch(" + multiplicator + ")";
-                    policy = new BestGap(scheduler);
-                    opt_alg = new RandomSearch();
+                    ctx.policy = new BestGap(scheduler);
+                    ctx.opt_alg = new RandomSearch(ctx);
                     if (useEventOpt) {
-                        fix_alg = new GapSearch();
+                        ctx.fix_alg = new GapSearch(ctx);
                         suff += "-EventOptLS";
                     }
                 }
 
                 if (alg == 19) {
                     suff = "CONS+LS(" + multiplicator + ")";
-                    policy = new CONS(scheduler);
-                    opt_alg = new GapSearch();
+                    ctx.policy = new CONS(scheduler);
+                    ctx.opt_alg = new GapSearch(ctx);
 
                     if (useEventOpt) {
-                        fix_alg = new GapSearch();
+                        ctx.fix_alg = new GapSearch(ctx);
                         suff += "-EventOptLS";
                     }
                 }
                 if (alg == 20) {
                     suff = "CONS+RandSearch(" + multiplicator + ")";
-                    policy = new CONS(scheduler);
-                    opt_alg = new RandomSearch();
+                    ctx.policy = new CONS(scheduler);
+                    ctx.opt_alg = new RandomSearch(ctx);
                     if (useEventOpt) {
-                        fix_alg = new GapSearch();
+                        ctx.fix_alg = new GapSearch(ctx);
                         suff += "-EventOptLS";
                     }
                 }
                 if (alg == 21) {
                     suff = "CONS-no-compress";
-                    policy = new CONS(scheduler);
+                    ctx.policy = new CONS(scheduler);
                     if (useEventOpt) {
-                        fix_alg = new GapSearch();
+                        ctx.fix_alg = new GapSearch(ctx);
                         // instead of compression, use LS-based optimization on early job completion
                         suff += "-EventOptLS";
                     }
                 }
+                if (alg == 22) {
+                    suff = "CONS+ParallelLS(" + multiplicator + ")";
+                    ctx.policy = new CONS(scheduler);
+                    ctx.opt_alg = new ParallelSearch(ctx, true);
+
+                    if (useEventOpt) {
+                        ctx.fix_alg = new GapSearch(ctx);
+                        suff += "-EventOptLS";
+                    }
+                }
+                if (alg == 23) {
+                    suff = "CONS+ParallelRandSearch(" + multiplicator + ")";
+                    ctx.policy = new CONS(scheduler);
+                    ctx.opt_alg = new ParallelSearch(ctx, false);
+                    if (useEventOpt) {
+                        ctx.fix_alg = new GapSearch(ctx);
+                        suff += "-EventOptLS";
+                    }
+                }
+                if (alg == 24) {
+                    suff = "CONS+SA(" + multiplicator + ")";
+                    ctx.policy = new CONS(scheduler);
+                    ctx.opt_alg = new NeighborhoodSearch(ctx, NeighborhoodSearch.ANNEALING);
+                    if (useEventOpt) {
+                        ctx.fix_alg = new GapSearch(ctx);
+                        suff += "-EventOptLS";
+                    }
+                }
+                if (alg == 25) {
+                    suff = "CONS+TS(" + multiplicator + ")";
+                    ctx.policy = new CONS(scheduler);
+                    ctx.opt_alg = new NeighborhoodSearch(ctx, NeighborhoodSearch.TABU);
+                    if (useEventOpt) {
+                        ctx.fix_alg = new GapSearch(ctx);
+                        suff += "-EventOptLS";
+                    }
+                }
 
                 System.out.println("Now scheduling " + total_gridlet[set] + " jobs by: " + suff + ", using " + data_sets[set] + " data set.");
 
@@ -361,19 +470,23 @@ public class ExperimentSetup {
                         String failure_loader_name = data_sets[set] + "_FailureLoader";
 
                         // creates all grid resources
-                        MachineLoader m_loader = new MachineLoader(10000, 3.0, data_sets[set]);
-                        rnd_seed = sel_alg;
+                        MachineLoader m_loader = new MachineLoader(10000, 3.0, data_sets[set], ctx);
+                        rnd_seed = sel_alg + seed;
 
                         // creates 1 scheduler
 
                         JobLoader job_loader = new JobLoader(job_loader_name, baudRate, total_gridlet[set], data_sets[set], maxPE, minPErating, maxPErating,
                                 multiplier, pass_count, m_loader.total_CPUs, estimates);
                         if (failures) {
-                            FailureLoaderNew failure = new FailureLoaderNew(failure_loader_name, baudRate, data_sets[set], clusterNames, machineNames, 0);
+                            FailureLoaderNew failure = new FailureLoaderNew(failure_loader_name, baudRate, data_sets[set], clusterNames, machineNames, 0, ctx);
                         }
                         // start the simulation
                         System.out.println("Starting the Alea 3.0");
-                        GridSim.startGridSimulation();
+                        if (useEventEngine) {
+                            SimulationEngine.run();
+                        } else {
+                            GridSim.startGridSimulation();
+                        }
                     } catch (Exception e) {
                         System.out.println("Unwanted errors happened!");
                         System.out.println(e.getMessage());
@@ -383,17 +496,7 @@ public class ExperimentSetup {
 
                     System.out.println("=============== END OF TEST " + pass_count + " ====================");
                     // reset inner variables of the simulator
-                    Scheduler.load = 0.0;
-                    Scheduler.classic_load = 0.0;
-                    Scheduler.max_load = 0.0;
-                    Scheduler.classic_activePEs = 0.0;
-                    Scheduler.classic_availPEs = 0.0;
-                    Scheduler.activePEs = 0.0;
-                    Scheduler.availPEs = 0.0;
-                    Scheduler.requestedPEs = 0.0;
-                    Scheduler.last_event = 0.0;
-                    Scheduler.start_event = -10.0;
-                    Scheduler.runtime = 0.0;
+                    ctx.resetCounters();
 
                     // reset internal SimJava variables to start new experiment with different job/gridlet setup
                     Sim_system.setInComplete(true);
@@ -401,12 +504,94 @@ public class ExperimentSetup {
                     result_collector.generateResults(suff, experiment_count);
                     result_collector.reset();
                     results.clear();
+                    // the result files of this run are complete
+                    Output.close();
                     System.out.println("Max. estim has been used = " + max_estim);
                     System.gc();
                 }
             }
         }
         // end of the whole simulation
+        Output.close();
+        if (cell != null) {
+            // SweepRunner waits for the end of this JVM
+            System.exit(0);
+        }
+    }
+
+    /** Returns the directory of result files. */
+    static String getResultDir() {
+        if (result_dir != null) {
+            return result_dir;
+        } else if (meta) {
+            return "/scratch/xklusac/" + path;
+        }
+        return System.getProperty("user.dir");
+    }
+
+    /**
+     * Applies one setting of a single run (see SweepRunner). Known names are data_set, jobs, alg, seed, estimate (exact, user,
+     * avg, last, user-prec, dur-prec), userPercentage, failures, reqs, useEventOpt, multiplicator, reservation_depth,
+     * useScheduleRepair, useEventEngine, useHeap, useDeltaUpdate and result_dir.
+     * @return false if the name is not known or the value is not valid
+     */
+    public static boolean applySetting(String name, String value) {
+        try {
+            if (name.equals("data_set")) {
+                cell_data_set = value;
+            } else if (name.equals("jobs")) {
+                cell_jobs = Integer.parseInt(value);
+            } else if (name.equals("alg")) {
+                cell_alg = Integer.parseInt(value);
+            } else if (name.equals("seed")) {
+                seed = Integer.parseInt(value);
+            } else if (name.equals("estimate")) {
+                // runtime estimates used by the scheduler
+                if (!Arrays.asList("exact", "user", "avg", "last", "user-prec", "dur-prec").contains(value)) {
+                    return false;
+                }
+                estimates = !value.equals("exact");
+                useAvgLength = value.equals("avg");
+                useLastLength = value.equals("last");
+                useUserPrecision = value.equals("user-prec");
+                useDurationPrecision = value.equals("dur-prec");
+            } else if (name.equals("userPercentage")) {
+                userPercentage = Integer.parseInt(value);
+            } else if (name.equals("failures")) {
+                failures = parseBoolean(value);
+            } else if (name.equals("reqs")) {
+                reqs = parseBoolean(value);
+            } else if (name.equals("useEventOpt")) {
+                useEventOpt = parseBoolean(value);
+            } else if (name.equals("multiplicator")) {
+                multiplicator = Integer.parseInt(value);
+            } else if (name.equals("reservation_depth")) {
+                reservation_depth = Integer.parseInt(value);
+            } else if (name.equals("useScheduleRepair")) {
+                useScheduleRepair = parseBoolean(value);
+            } else if (name.equals("useEventEngine")) {
+                useEventEngine = parseBoolean(value);
+            } else if (name.equals("useHeap")) {
+                useHeap = parseBoolean(value);
+            } else if (name.equals("useDeltaUpdate")) {
+                useDeltaUpdate = parseBoolean(value);
+            } else if (name.equals("result_dir")) {
+                result_dir = value;
+            } else {
+                return false;
+            }
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+        return true;
+    }
+
+    /** Parses true or false, other values are not valid. */
+    private static boolean parseBoolean(String value) {
+        if (!value.equals("true") && !value.equals("false")) {
+            throw new IllegalArgumentException(value);
+        }
+        return value.equals("true");
     }
 
     /** This method initializes the GUI, creating all windows that will be used to draw results. */
@@ -18,7 +18,7 @@ import xklusac.extensions.*;
  * This class is responsible for loading and generating of machine failures.
  *  @author Dalibor Klusacek
  */
-public class FailureLoaderNew extends GridSim {
+public class FailureLoaderNew extends EngineGridSim {
 
     /** input */
     Input r = new Input();
@@ -37,10 +37,15 @@ public class FailureLoaderNew extends GridSim {
     int start_epoch = 0;
     long tot_f_t = 0;
     int subm_fails = 0;
+    /** true when start epoch and failure counters are set */
+    boolean prepared = false;
+    /** state of the simulation run (failure counters) */
+    SimulationContext ctx;
 
     /** Creates a new instance of FailureLoader */
-    public FailureLoaderNew(String name, double baudRate, String data_set, LinkedList clusterNames, LinkedList machineNames, int version) throws Exception {
+    public FailureLoaderNew(String name, double baudRate, String data_set, LinkedList clusterNames, LinkedList machineNames, int version, SimulationContext ctx) throws Exception {
         super(name, baudRate);
+        this.ctx = ctx;
         if (ExperimentSetup.meta) {
             folder_prefix = "/scratch/xklusac/" + ExperimentSetup.path;
         } else {
@@ -59,6 +64,8 @@ public class FailureLoaderNew extends GridSim {
         }
 
 
+        // failures of a BWF data set are read from the .failures file of its source data set
+        data_set = BinaryTrace.getSourceName(data_set);
         if (data_set.equals("das2.gwf") && version == 1) {
             br = r.openFile(new File(folder_prefix + "/data-set/" + data_set + ".failuresL"));
             System.out.println(name + " loads " + folder_prefix + "/data-set/" + data_set + ".failuresL");
@@ -80,95 +87,20 @@ public class FailureLoaderNew extends GridSim {
         super.gridSimHold(5.0);    // hold by 10 second
 
 
-        if (data_set.equals("metacentrum.mwf")) {
-            // 1230768000 is the EPOCH time of 1.1.2009 00:00:00
-            start_epoch = 1230768000;
-        } else if (data_set.equals("das2.gwf")) {
-            start_epoch = 1109087545;
-        } else if (data_set.equals("grid5000.gwf")) {
-            start_epoch = 1115812623;
-        } else if (data_set.equals("sharcnet.gwf")) {
-            start_epoch = 1135130133;
-        } else if (data_set.equals("meta2008.mwf")) {
-            start_epoch = 1199145600;
-        }
+        prepareFailures();
 
         boolean ok = true;
-        Scheduler.failure_time = 0;
-        Scheduler.wfailure_time = 0;
-        System.out.println("Reseting failure counters in Scheduler, now = " + Scheduler.failure_time + " and " + Scheduler.wfailure_time);
         while (ok) {
 
             Sim_event ev = new Sim_event();
             sim_get_next(ev);
 
             if (ev.get_tag() == GridSimTags.JUNK_PKT) {
-
-                try {
-                    line = br.readLine();
-                } catch (IOException ex) {
-                    ex.printStackTrace();
-                    ok = false;
-                }
-                if (line == null) {
-                    break;
-                }
-                String[] values = null;
-                if (data_set.equals("meta")) {
-                    values = line.split(" ");
-                } else {
-                    values = line.split("\t");
-                }
-                //System.out.println("GO FOR >> "+line);
-                // machine failure
-                if (values.length > 3) {
-
-                    double time = new Double(Integer.parseInt(values[0]) - start_epoch);
-                    double duration = Integer.parseInt(values[2]);
-                    if (duration < 60) {
-                        super.sim_schedule(this.getEntityId(this.getEntityName()), 0.0, GridSimTags.JUNK_PKT);
-                        continue;
-                    }
-                    String name = values[1];
-                    String[] ids_str = values[3].split(" ");
-                    int[] ids = new int[ids_str.length];
-
-                    for (int i = 0; i < ids_str.length; i++) {
-                        ids[i] = Integer.parseInt(ids_str[i]);
-                    }
-
-                    tot_f_t += duration * 2 * ids.length;
-
-
-                    Failure failure = new Failure(name, time, duration, ids);
-                    //System.out.println(name+" "+Integer.parseInt(values[1])+" "+duration+" "+ids[0]);
-                    // to synchronize failure arrival wrt. the data set.
-                    double delay = Math.max(0.0, (time - super.clock()));
-                    // some time is needed to transfer this job to the scheduler, i.e., delay should be delay = delay - transfer_time. Fix this in the future.
-                    //System.out.println(Math.round(clock())+": Sending machine failure: " + values[0] + ", " + name + ", machID=" + ids[0] + ", delay = " + (Math.round(delay / 360.0))/10.0 + " hours, should arrive at: "+(Math.round(clock()+delay)));
-                    subm_fails += ids.length;
-
-                    //System.out.println(Math.round(clock()+delay)+": sending F: " + name +" machines:["+printIds(ids)+"], dur:"+duration);
-                    super.sim_schedule(this.getEntityId(name), delay, MachFailureTag, failure);
-                    //System.out.println(values[0]+" "+values[1]+" "+values[2]+" "+values[3]+" t="+Math.round(clock()+delay));
-                    super.sim_schedule(this.getEntityId(this.getEntityName()), delay, GridSimTags.JUNK_PKT);
-
-                // resource failure
-                } else {
-                    double time = new Double(Integer.parseInt(values[0]));
-                    String name = values[1];
-                    double duration = new Double(Integer.parseInt(values[2]));
-                    // to synchronize failure arrival wrt. the data set.
-                    double delay = Math.max(0.0, (time - super.clock()));
-                    // some time is needed to transfer this job to the scheduler, i.e., delay should be delay = delay - transfer_time. Fix this in the future.
-                    //System.out.println("Sending machine failure: " + values[0] + ", " + name + ", with delay = " + Math.round(delay / 3600));
-                    super.sim_schedule(this.getEntityId(name), delay, ResFailureTag, duration);
-                    super.sim_schedule(this.getEntityId(this.getEntityName()), delay, GridSimTags.JUNK_PKT);
-                }
+                ok = sendNextFailure();
             } else if (ev.get_tag() == GridSimTags.END_OF_SIMULATION) {
                 ok = false;
                 System.out.println("FailureLoader quits failure submission...");
-                super.sim_schedule(this.getEntityId(this.getEntityName()), 0.0, GridSimTags.END_OF_SIMULATION);
+                sim_schedule(this.getEntityId(this.getEntityName()), 0.0, GridSimTags.END_OF_SIMULATION);
             }
 
         }
@@ -190,6 +122,109 @@ public class FailureLoaderNew extends GridSim {
 
     }
 
+    /** Sets the trace start epoch and resets the failure counters of the simulation run. */
+    private void prepareFailures() {
+        if (data_set.equals("metacentrum.mwf")) {
+            // 1230768000 is the EPOCH time of 1.1.2009 00:00:00
+            start_epoch = 1230768000;
+        } else if (data_set.equals("das2.gwf")) {
+            start_epoch = 1109087545;
+        } else if (data_set.equals("grid5000.gwf")) {
+            start_epoch = 1115812623;
+        } else if (data_set.equals("sharcnet.gwf")) {
+            start_epoch = 1135130133;
+        } else if (data_set.equals("meta2008.mwf")) {
+            start_epoch = 1199145600;
+        }
+
+        ctx.failure_time = 0;
+        ctx.wfailure_time = 0;
+        System.out.println("Reseting failure counters, now = " + ctx.failure_time + " and " + ctx.wfailure_time);
+        prepared = true;
+    }
+
+    /**
+     * Reads one failure from file and sends it to the specified resource. Next reading is planned according to the failure time.
+     * @return false if there is no more failure to read
+     */
+    private boolean sendNextFailure() {
+        try {
+            line = br.readLine();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return false;
+        }
+        if (line == null) {
+            return false;
+        }
+        String[] values = null;
+        if (data_set.equals("meta")) {
+            values = line.split(" ");
+        } else {
+            values = line.split("\t");
+        }
+        //System.out.println("GO FOR >> "+line);
+        // machine failure
+        if (values.length > 3) {
+
+            double time = new Double(Integer.parseInt(values[0]) - start_epoch);
+            double duration = Integer.parseInt(values[2]);
+            if (duration < 60) {
+                sim_schedule(this.getEntityId(this.getEntityName()), 0.0, GridSimTags.JUNK_PKT);
+                return true;
+            }
+            String name = values[1];
+            String[] ids_str = values[3].split(" ");
+            int[] ids = new int[ids_str.length];
+
+            for (int i = 0; i < ids_str.length; i++) {
+                ids[i] = Integer.parseInt(ids_str[i]);
+            }
+
+            tot_f_t += duration * 2 * ids.length;
+
+
+            Failure failure = new Failure(name, time, duration, ids);
+            //System.out.println(name+" "+Integer.parseInt(values[1])+" "+duration+" "+ids[0]);
+            // to synchronize failure arrival wrt. the data set.
+            double delay = Math.max(0.0, (time - super.clock()));
+            // some time is needed to transfer this job to the scheduler, i.e., delay should be delay = delay - transfer_time. Fix this in the future.
+            //System.out.println(Math.round(clock())+": Sending machine failure: " + values[0] + ", " + name + ", machID=" + ids[0] + ", delay = " + (Math.round(delay / 360.0))/10.0 + " hours, should arrive at: "+(Math.round(clock()+delay)));
+            subm_fails += ids.length;
+
+            //System.out.println(Math.round(clock()+delay)+": sending F: " + name +" machines:["+printIds(ids)+"], dur:"+duration);
+            sim_schedule(this.getEntityId(name), delay, MachFailureTag, failure);
+            //System.out.println(values[0]+" "+values[1]+" "+values[2]+" "+values[3]+" t="+Math.round(clock()+delay));
+            sim_schedule(this.getEntityId(this.getEntityName()), delay, GridSimTags.JUNK_PKT);
+
+        // resource failure
+        } else {
+            double time = new Double(Integer.parseInt(values[0]));
+            String name = values[1];
+            double duration = new Double(Integer.parseInt(values[2]));
+            // to synchronize failure arrival wrt. the data set.
+            double delay = Math.max(0.0, (time - super.clock()));
+            // some time is needed to transfer this job to the scheduler, i.e., delay should be delay = delay - transfer_time. Fix this in the future.
+            //System.out.println("Sending machine failure: " + values[0] + ", " + name + ", with delay = " + Math.round(delay / 3600));
+            sim_schedule(this.getEntityId(name), delay, ResFailureTag, duration);
+            sim_schedule(this.getEntityId(this.getEntityName()), delay, GridSimTags.JUNK_PKT);
+        }
+        return true;
+    }
+
+    /**
+     * Processes one event delivered by the SimulationEngine. This replaces the body() thread when
+     * ExperimentSetup.useEventEngine is set.
+     */
+    public void processEvent(SimulationEvent ev) {
+        if (!prepared) {
+            prepareFailures();
+        }
+        if (ev.getTag() == GridSimTags.JUNK_PKT) {
+            sendNextFailure();
+        }
+    }
+
     private String printIds(int[] ids) {
         String idss = "";
         for (int i = 0; i < ids.length; i++) {
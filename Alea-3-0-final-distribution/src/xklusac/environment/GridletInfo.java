@@ -62,6 +62,8 @@ public class GridletInfo {
     /** queue where this gridlet was submitted */
     private String queue;
     private String properties;
+    /** precompiled properties, see PropertyMatcher */
+    private long[] propertyMask = new long[0];
     private LinkedList<Integer> PEs = new LinkedList();
     private String user = "";
     private double avg_length = 0.0;
@@ -69,6 +71,8 @@ public class GridletInfo {
     private long jobLimit = 0;
     private double percentage;
     private boolean init;
+    /** PEs planned for this job by the last evaluation of the schedule (ExperimentSetup.useScheduleRepair only) */
+    int[] planned_pes = null;
 
     /** Creates a new instance of GridletInfo object based on the "real" gridlet
      * @param gl - Gridlet - the constructor gets the important informations about gridlet and
@@ -105,6 +109,42 @@ public class GridletInfo {
         this.setInit(true);
     }
 
+    /** Creates a copy of given GridletInfo (used for trial evaluation of schedules). Both objects share the real gridlet.
+     * @param gi - GridletInfo to be copied
+     */
+    public GridletInfo(GridletInfo gi) {
+        this.ownerID = gi.ownerID;
+        this.ID = gi.ID;
+        this.resourceID = gi.resourceID;
+        this.status = gi.status;
+        this.length = gi.length;
+        this.finishedSoFar = gi.finishedSoFar;
+        this.cost = gi.cost;
+        this.completitionFactor = gi.completitionFactor;
+        this.gl = gi.gl;
+        this.archRequired = gi.archRequired;
+        this.osRequired = gi.osRequired;
+        this.release_date = gi.release_date;
+        this.due_date = gi.due_date;
+        this.tardiness = gi.tardiness;
+        this.time_to_release = gi.time_to_release;
+        this.priority = gi.priority;
+        this.numPE = gi.numPE;
+        this.expectedFinishTime = gi.expectedFinishTime;
+        this.expectedStartTime = gi.expectedStartTime;
+        this.estimatedLength = gi.estimatedLength;
+        this.estimatedMachine = gi.estimatedMachine;
+        this.queue = gi.queue;
+        this.properties = gi.properties;
+        this.propertyMask = gi.propertyMask;
+        this.user = gi.user;
+        this.avg_length = gi.avg_length;
+        this.last_length = gi.last_length;
+        this.jobLimit = gi.jobLimit;
+        this.percentage = gi.percentage;
+        this.init = gi.init;
+    }
+
     /** Getter method */
     public int getOwnerID() {
         return ownerID;
@@ -326,6 +366,15 @@ public class GridletInfo {
         this.properties = properties;
     }
 
+    /** Compiles the properties of this job into a bit mask using the index of the given matcher. */
+    public void compilePropertyMask(PropertyMatcher matcher) {
+        this.propertyMask = matcher.compileJob(properties);
+    }
+
+    public long[] getPropertyMask() {
+        return propertyMask;
+    }
+
     public String getUser() {
         return user;
     }
@@ -0,0 +1,176 @@
+package xklusac.environment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * Class JobIndex<p>
+ * Index of jobs of one list of ResourceInfo (resInExec or resSchedule). It maps (owner ID, gridlet ID) to the job and the job
+ * (its identity, so copies of a job in other lists or in copies of ResourceInfo are independent) to its position in the list.
+ * Each ResourceInfo has its own indexes, nothing is stored into GridletInfo.<p>
+ * If the order of the list does not matter (resInExec), a job is removed by moving the last job of the list to its place, so
+ * the removal takes O(1). In an ordered list (resSchedule) positions are stored relative to an offset, thus removing the first
+ * job or appending a job changes no other position. Positions behind another changed position are renumbered lazily by the next
+ * lookup, therefore a sequence of changes (e.g., a local search moving jobs) costs nothing until a job is looked up.
+ * The list must be changed through ResourceInfo which notifies the index, other changes are detected by the lookup and the
+ * index is rebuilt.
+ */
+public class JobIndex {
+
+    /** the indexed list */
+    private ArrayList<GridletInfo> list;
+    /** true if the order of the list does not matter (resInExec) */
+    private boolean unordered;
+    /** jobs of the list, created by the first lookup */
+    private HashMap<Long, GridletInfo> jobs = null;
+    /** positions of jobs in the list plus offset */
+    private IdentityHashMap<GridletInfo, Integer> positions = null;
+    /** increased when the first job of an ordered list is removed */
+    private int offset = 0;
+    /** positions of jobs are valid below this position of the list */
+    private int valid = 0;
+
+    public JobIndex(ArrayList<GridletInfo> list, boolean unordered) {
+        this.list = list;
+        this.unordered = unordered;
+    }
+
+    /** Returns the position of the job with the same owner and ID as gi, or -1 if there is no such job in the list. */
+    public int indexOf(GridletInfo gi) {
+        if (jobs == null || jobs.size() != list.size()) {
+            // the list was changed directly (or not indexed yet)
+            rebuild();
+        }
+        GridletInfo g = jobs.get(key(gi));
+        if (g == null) {
+            return -1;
+        }
+        int p = getPosition(g);
+        if (p < 0) {
+            rebuild();
+            g = jobs.get(key(gi));
+            p = (g == null) ? -1 : getPosition(g);
+        }
+        return p;
+    }
+
+    /** Returns the position of gi itself (not of another job with the same IDs), or -1 if it is not in the list. */
+    public int indexOfJob(GridletInfo gi) {
+        if (jobs == null || jobs.size() != list.size()) {
+            rebuild();
+        }
+        if (!positions.containsKey(gi)) {
+            return -1;
+        }
+        int p = getPosition(gi);
+        if (p < 0) {
+            rebuild();
+            p = positions.containsKey(gi) ? getPosition(gi) : -1;
+        }
+        return p;
+    }
+
+    /** Notifies the index that gi has been inserted at the given position. */
+    public void added(int position, GridletInfo gi) {
+        if (jobs == null) {
+            return;
+        }
+        jobs.put(key(gi), gi);
+        positions.put(gi, position + offset);
+        if (position == valid && position == list.size() - 1) {
+            // appended to the end of the list
+            valid++;
+        } else {
+            valid = Math.min(valid, position);
+        }
+    }
+
+    /** Notifies the index that gi has been removed from the given position of an ordered list. */
+    public void removed(int position, GridletInfo gi) {
+        if (jobs == null) {
+            return;
+        }
+        forget(gi);
+        if (position == 0) {
+            // positions of all other jobs decrease by one
+            offset++;
+            valid = Math.max(0, valid - 1);
+        } else {
+            valid = Math.min(valid, position);
+        }
+    }
+
+    /**
+     * Removes the job at the given position of an unordered list in O(1), the last job of the list is moved to its place.
+     * @return the removed job
+     */
+    public GridletInfo remove(int position) {
+        GridletInfo last = list.remove(list.size() - 1);
+        GridletInfo gi = last;
+        if (position < list.size()) {
+            gi = list.set(position, last);
+        }
+        if (jobs != null) {
+            forget(gi);
+            if (gi != last) {
+                positions.put(last, position + offset);
+            }
+            valid = Math.min(valid, list.size());
+        }
+        return gi;
+    }
+
+    /** Notifies the index that the list has been cleared or replaced. */
+    public void cleared() {
+        jobs = null;
+        positions = null;
+        offset = 0;
+        valid = 0;
+    }
+
+    /** Returns the position of gi (which must be known to the index), or -1 if the list was changed without notification. */
+    private int getPosition(GridletInfo gi) {
+        int p = positions.get(gi) - offset;
+        if (p < 0 || p >= valid) {
+            // renumber jobs behind the first change
+            renumber();
+            p = positions.get(gi) - offset;
+        }
+        if (p >= 0 && p < list.size() && list.get(p) == gi) {
+            return p;
+        }
+        return -1;
+    }
+
+    private void forget(GridletInfo gi) {
+        Long key = key(gi);
+        if (jobs.get(key) == gi) {
+            jobs.remove(key);
+        }
+        positions.remove(gi);
+    }
+
+    private void renumber() {
+        for (int j = valid; j < list.size(); j++) {
+            positions.put(list.get(j), j + offset);
+        }
+        valid = list.size();
+    }
+
+    private void rebuild() {
+        jobs = new HashMap(Math.max(16, list.size() * 2));
+        positions = new IdentityHashMap(Math.max(16, list.size()));
+        offset = 0;
+        for (int j = 0; j < list.size(); j++) {
+            GridletInfo g = list.get(j);
+            jobs.put(key(g), g);
+            positions.put(g, j);
+        }
+        valid = list.size();
+    }
+
+    private static Long key(GridletInfo gi) {
+        return (((long) gi.getOwnerID()) << 32) | (gi.getID() & 0xffffffffL);
+    }
+}
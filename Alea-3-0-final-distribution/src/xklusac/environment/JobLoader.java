@@ -12,6 +12,8 @@ package xklusac.environment;
 /**
  * Class JobLoader<p>
  * generates the workload for the simulation. PWA, GWA, MetaCentrum and Pisa workloads are understood. Selction is done via file extension (swf,gwf,mwf,pwf).
+ * Any of these workloads can be converted by TraceConverter to the <b>BINARY WORKLOAD FORMAT (BWF)</b> which is loaded much faster (extension bwf, e.g., metacentrum.mwf.bwf).<p>
+ * Synthetic workloads of any size are generated by SyntheticLoader (extension syn, see SyntheticWorkload).<p>
  * Alea 2.1 supports <b>GRID WORKLOADS FORMAT (GWF)</b> which is described at the <b>GRID WORKLOAD ARCHIVE (GWA)</b>: <a href="http://gwa.ewi.tudelft.nl">http://gwa.ewi.tudelft.nl</a><p>
  * Alea 2.1 supports <b>STANDARD WORKLOADS FORMAT (SWF)</b> which is described at the <b>PARALLEL WORKLOADS ARCHIVE (GWA)</b>: <a href="http://www.cs.huji.ac.il/labs/parallel/workload/">http://www.cs.huji.ac.il/labs/parallel/workload/</a><p>
  * Alea 2.1 supports <b>MetaCentrum WORKLOAD FORMAT (MWF)</b> which is described at: <a href="http://www.fi.muni.cz/~xklusac/workload/">http://www.fi.muni.cz/~xklusac/workload/</a><p>
@@ -51,7 +53,11 @@ public class JobLoader {
     /** Creates the Loader entity that will send jobs to the Scheduler */
     private void init(String set){
         try {         
-            if(set.contains("gwf")){
+            if(SyntheticWorkload.isSynthetic(set)){
+                SyntheticLoader synthetic_loader = new SyntheticLoader(name, baudRate, total_jobs, data_set, maxPE, maxPErating, estimates);
+            }else if(set.endsWith(".bwf")){
+                BWFLoader binary_loader = new BWFLoader(name, baudRate, total_jobs, data_set, maxPE, minPErating, maxPErating, multiplier, estimates);
+            }else if(set.contains("gwf")){
                 GWFLoader gwa_loader = new GWFLoader(name, baudRate, total_jobs, data_set, maxPE, minPErating, maxPErating);                
             }else if(set.contains("swf")){
                 SWFLoader pwa_loader = new SWFLoader(name, baudRate, total_jobs, data_set, maxPE, minPErating, maxPErating);
@@ -60,7 +66,7 @@ public class JobLoader {
             }else if(set.contains("pwf")){
                 PWFLoader pisa_loader = new PWFLoader(name, baudRate, total_jobs, data_set, maxPE, minPErating, maxPErating, exp);
             }else{
-                System.out.println("Wrong workload format or file extension (gwf,swf,mwf,pwf)");
+                System.out.println("Wrong workload format or file extension (gwf,swf,mwf,pwf,bwf,syn)");
             }
         } catch (Exception ex) {
             ex.printStackTrace();
@@ -15,7 +15,7 @@ import eduni.simjava.distributions.Sim_normal_obj;
  * Loads jobs dynamically over time from the file. Then sends these gridlets to the scheduler. MWF stands for Metacentrum Workloads Format (MWF).
  * @author Dalibor Klusacek
  */
-public class MWFLoader extends GridSim {
+public class MWFLoader extends EngineGridSim {
 
     /** input */
     Input r = new Input();
@@ -156,32 +156,12 @@ public class MWFLoader extends GridSim {
             sim_get_next(ev);
 
             if (ev.get_tag() == GridSimTags.JUNK_PKT) {
-
-                ComplexGridlet gl = readGridlet(current_gl);
-                current_gl++;
-                if (gl == null && current_gl < total_jobs) {
-                    super.sim_schedule(this.getEntityId(this.getEntityName()), 0.0, GridSimTags.JUNK_PKT);
-                    continue;
-                } else if (gl == null && current_gl >= total_jobs) {
-                    continue;
-                }
-                // to synchronize job arrival wrt. the data set.
-                double delay = Math.max(0.0, (gl.getArrival_time() - super.clock()));
-                submitted++;
-                // some time is needed to transfer this job to the scheduler, i.e., delay should be delay = delay - transfer_time. Fix this in the future.
-                super.sim_schedule(this.getEntityId("Alea_3.0_scheduler"), delay, SendGridletInfo, gl);
-
-                delay = Math.max(0.0, (gl.getArrival_time() - super.clock()));
-                if (current_gl < total_jobs) {
-                    // use delay - next job will be loaded after the simulation time is equal to the previous job arrival.
-                    super.sim_schedule(this.getEntityId(this.getEntityName()), delay, GridSimTags.JUNK_PKT);
-                }
-
+                loadNextGridlet();
                 continue;
             }
         }
 
-        super.sim_schedule(this.getEntityId("Alea_3.0_scheduler"), 0.0, 612345, new Integer(submitted));
+        endOfSubmission();
         Sim_event ev = new Sim_event();
         sim_get_next(ev);
 
@@ -194,6 +174,47 @@ public class MWFLoader extends GridSim {
 
     }
 
+    /** Reads one job and sends it to the Scheduler. Next reading is planned according to the job arrival time. */
+    private void loadNextGridlet() {
+        ComplexGridlet gl = readGridlet(current_gl);
+        current_gl++;
+        if (gl == null && current_gl < total_jobs) {
+            sim_schedule(this.getEntityId(this.getEntityName()), 0.0, GridSimTags.JUNK_PKT);
+            return;
+        } else if (gl == null && current_gl >= total_jobs) {
+            return;
+        }
+        // to synchronize job arrival wrt. the data set.
+        double delay = Math.max(0.0, (gl.getArrival_time() - super.clock()));
+        submitted++;
+        // some time is needed to transfer this job to the scheduler, i.e., delay should be delay = delay - transfer_time. Fix this in the future.
+        sim_schedule(this.getEntityId("Alea_3.0_scheduler"), delay, SendGridletInfo, gl);
+
+        delay = Math.max(0.0, (gl.getArrival_time() - super.clock()));
+        if (current_gl < total_jobs) {
+            // use delay - next job will be loaded after the simulation time is equal to the previous job arrival.
+            sim_schedule(this.getEntityId(this.getEntityName()), delay, GridSimTags.JUNK_PKT);
+        }
+    }
+
+    /** Informs the Scheduler that all jobs have been sent. */
+    private void endOfSubmission() {
+        sim_schedule(this.getEntityId("Alea_3.0_scheduler"), 0.0, 612345, new Integer(submitted));
+    }
+
+    /**
+     * Processes one event delivered by the SimulationEngine. This replaces the body() thread when
+     * ExperimentSetup.useEventEngine is set.
+     */
+    public void processEvent(SimulationEvent ev) {
+        if (ev.getTag() == GridSimTags.JUNK_PKT && current_gl < total_jobs) {
+            loadNextGridlet();
+            if (current_gl >= total_jobs) {
+                endOfSubmission();
+            }
+        }
+    }
+
     /** Reads one job from file. */
     private ComplexGridlet readGridlet(int j) {
 
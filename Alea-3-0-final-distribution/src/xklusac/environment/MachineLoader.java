@@ -31,13 +31,18 @@ public class MachineLoader {
     private double bandwidth;
     private double cost;
     private String data_set;
+    /** state of the simulation run the resources are created for */
+    private SimulationContext ctx;
     public int total_CPUs = 0;
 
     /** Creates a new instance of MachineLoader */
-    public MachineLoader(double bandwidth, double cost, String data_set) {
+    public MachineLoader(double bandwidth, double cost, String data_set, SimulationContext ctx) {
         System.out.println("Starting Machine Loader ...");
+        this.ctx = ctx;
         this.bandwidth = bandwidth;
         this.cost = cost;
+        // machines of a BWF data set are read from the .machines file of its source data set
+        data_set = BinaryTrace.getSourceName(data_set);
         this.data_set = data_set;
         this.total_CPUs = 0;
         init(data_set);
@@ -46,7 +51,9 @@ public class MachineLoader {
     /** Based on the type of workload, machines and Grid resources are generated here. */
     private void init(String set) {
 
-        if (set.contains("gwf")) {
+        if (SyntheticWorkload.isSynthetic(set)) {
+            createSyntheticGridResources(bandwidth, cost, set);
+        } else if (set.contains("gwf")) {
             createGridResources(bandwidth, cost, set);
         } else if (set.contains("swf")) {
             createGridResources(bandwidth, cost, set);
@@ -181,7 +188,7 @@ public class MachineLoader {
 
             try {
                 // this is usefull because we can define resources internal scheduling system (FCFS/RR/BackFilling,FairQueuing...)
-                policy = new AdvancedSpaceShared(name, "AdvancedSpaceSharedPolicy", resConfig);
+                policy = new AdvancedSpaceShared(name, "AdvancedSpaceSharedPolicy", resConfig, ctx);
             } catch (Exception ex) {
                 ex.printStackTrace();
             }
@@ -193,6 +200,9 @@ public class MachineLoader {
 
                 GridResource gridRes = new GridResource(name, bandwidth, resConfig,
                         resCalendar, policy);
+                if (ExperimentSetup.useEventEngine) {
+                    SimulationEngine.addResource(policy, bandwidth);
+                }
 
             } catch (Exception e) {
                 System.out.println("Error in creating GridResource.");
@@ -373,7 +383,7 @@ public class MachineLoader {
             //SpaceShared policy2 = null;
             try {
                 // this is usefull because we can define resources internal scheduling system (FCFS/RR/BackFilling,FairQueuing...)
-                policy = new AdvancedSpaceShared(name, "AdvancedSpaceSharedPolicy", resConfig);
+                policy = new AdvancedSpaceShared(name, "AdvancedSpaceSharedPolicy", resConfig, ctx);
             //policy2 = new SpaceShared(name, "SpaceShared");
             } catch (Exception ex) {
                 ex.printStackTrace();
@@ -386,6 +396,9 @@ public class MachineLoader {
 
                 GridResource gridRes = new GridResource(name, bandwidth, resConfig,
                         resCalendar, policy);
+                if (ExperimentSetup.useEventEngine) {
+                    SimulationEngine.addResource(policy, bandwidth);
+                }
                 int max = gridRes.getResourceCharacteristics().getNumPE();
                 if (max > ExperimentSetup.maxPE) {
                     ExperimentSetup.maxPE = max;
@@ -484,7 +497,7 @@ public class MachineLoader {
             //SpaceShared policy2 = null;
             try {
                 // this is usefull because we can define resources internal scheduling system (FCFS/RR/BackFilling,FairQueuing...)
-                policy = new AdvancedSpaceShared(name, "AdvancedSpaceSharedPolicy", resConfig);
+                policy = new AdvancedSpaceShared(name, "AdvancedSpaceSharedPolicy", resConfig, ctx);
             //policy2 = new SpaceShared(name, "SpaceShared");
             } catch (Exception ex) {
                 ex.printStackTrace();
@@ -512,6 +525,9 @@ public class MachineLoader {
 
                 GridResource gridRes = new GridResource(name, bandwidth, resConfig,
                         resCalendar, policy);
+                if (ExperimentSetup.useEventEngine) {
+                    SimulationEngine.addResource(policy, bandwidth);
+                }
             //System.out.println(id+"\t"+resConfig.getResourceID());
             } catch (Exception e) {
                 System.out.println("Error in creating GridResource.");
@@ -519,4 +535,69 @@ public class MachineLoader {
             }
         }
     }
+
+    /** Creates Grid resources of a synthetic data set (see SyntheticWorkload), thousands of machines can be generated. */
+    protected void createSyntheticGridResources(double bandwidth, double cost, String data_set) {
+        SyntheticWorkload workload = SyntheticWorkload.load(data_set);
+        SyntheticWorkload.Cluster[] clusters = workload.getClusters();
+
+        for (int j = 0; j < clusters.length; j++) {
+            SyntheticWorkload.Cluster c = clusters[j];
+            if (c.rating > ExperimentSetup.maxPErating) {
+                ExperimentSetup.maxPErating = c.rating;
+            }
+            if (c.rating < ExperimentSetup.minPErating) {
+                ExperimentSetup.minPErating = c.rating;
+            }
+            if (c.machines * c.pe > ExperimentSetup.maxPE) {
+                ExperimentSetup.maxPE = c.machines * c.pe;
+            }
+            total_CPUs += c.machines * c.pe;
+
+            MachineList mList = new MachineList();
+            LinkedList<String> names = new LinkedList();
+            for (int m = 0; m < c.machines; m++) {
+                PEList peList = new PEList();
+                for (int k = 0; k < c.pe; k++) {
+                    peList.add(new PE(k, c.rating));
+                }
+                mList.add(new Machine(m, peList));
+                names.addLast(c.name + "-" + m);
+            }
+            ExperimentSetup.clusterNames.addLast(c.name);
+            ExperimentSetup.machineNames.addLast(names);
+
+            double time_zone = 0.0;         // time zone this resource located
+            ComplexResourceCharacteristics resConfig = new ComplexResourceCharacteristics(
+                    "Xeon", "Linux", mList, ResourceCharacteristics.SPACE_SHARED, time_zone, cost, 2000000, c.getPropertyString(), "");
+
+            AdvancedSpaceShared policy = null;
+            try {
+                policy = new AdvancedSpaceShared(c.name, "AdvancedSpaceSharedPolicy", resConfig, ctx);
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+
+            long seed = 11L * 13 * 17 * 19 * 23 + 1;
+            // the grid resource is on 7 days a week, no holidays
+            LinkedList Weekends = new LinkedList();
+            Weekends.add(new Integer(Calendar.SATURDAY));
+            Weekends.add(new Integer(Calendar.SUNDAY));
+            LinkedList Holidays = new LinkedList();
+            try {
+                ResourceCalendar resCalendar = new ResourceCalendar(time_zone,
+                        0.0, 0.0, 0.0, Weekends, Holidays, seed);
+
+                GridResource gridRes = new GridResource(c.name, bandwidth, resConfig,
+                        resCalendar, policy);
+                if (ExperimentSetup.useEventEngine) {
+                    SimulationEngine.addResource(policy, bandwidth);
+                }
+            } catch (Exception e) {
+                System.out.println("Error in creating GridResource.");
+                System.out.println(e.getMessage());
+            }
+        }
+        System.out.println("Generated " + clusters.length + " clusters with " + total_CPUs + " CPUs.");
+    }
 }
@@ -0,0 +1,164 @@
+package xklusac.environment;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+
+/**
+ * Class PropertyMatcher<p>
+ * Precompiles job and resource properties into bit masks, so that Scheduler.isSuitable() does not have to parse
+ * property strings on every call. Every known property gets one bit. A job mask contains the required (known) properties,
+ * a resource mask contains the supported properties plus all properties implied by them according to the implication table.
+ * A resource then fulfills the job's requirements if (job & ~resource) == 0.<p>
+ * Data sets that do not use properties (all but "metacentrum.mwf" and "meta2008.mwf") specify the names of
+ * allowed resources instead. In that case resource names are indexed and job is suitable when its mask intersects
+ * the resource mask.<p>
+ * The index depends on the data set, so each SimulationContext has its own matcher (SimulationContext.matcher).
+ */
+public class PropertyMatcher {
+
+    /**
+     * Implication table. The first property of each row (required by a job) is also satisfied by a resource that
+     * supports any of the remaining properties of the row (e.g., machine with 16 CPUs per node can run nodecpus1 job).
+     */
+    public static String[][] implications = {
+        {"nodecpus1", "nodecpus2", "nodecpus4", "nodecpus8", "nodecpus16"},
+        {"nodecpus2", "nodecpus4", "nodecpus8", "nodecpus16"},
+        {"nodecpus4", "nodecpus8", "nodecpus16"},
+        {"nodecpus8", "nodecpus16"},
+        {"p26", "p35", "p6"},
+        {"p35", "p6"}
+    };
+    /** bit index of every known property (or resource name) */
+    private HashMap<String, Integer> index = new HashMap();
+    /** known properties in the order of their bit index */
+    private LinkedList<String> names = new LinkedList();
+    /** true if data set uses properties, false if jobs specify the names of allowed resources */
+    private boolean useProperties = false;
+
+    /**
+     * Resets the index. Must be called before any job or resource mask is compiled.
+     * @param data_set name of the data set
+     * @param avail_properties properties that are known in this data set
+     */
+    public void init(String data_set, LinkedList<String> avail_properties) {
+        index.clear();
+        names.clear();
+        useProperties = data_set.equals("metacentrum.mwf") || data_set.equals("meta2008.mwf") || SyntheticWorkload.isSynthetic(data_set);
+        if (useProperties) {
+            for (int i = 0; i < avail_properties.size(); i++) {
+                addName(avail_properties.get(i));
+            }
+        }
+    }
+
+    /** Returns true if data set uses properties, false if jobs specify the names of allowed resources. */
+    public boolean usesProperties() {
+        return useProperties;
+    }
+
+    /** Adds new property or resource name into the index (if not yet present). */
+    public void addName(String name) {
+        if (!index.containsKey(name)) {
+            index.put(name, names.size());
+            names.add(name);
+        }
+    }
+
+    /** Compiles job's properties into a bit mask. Unknown properties are ignored (such properties are not checked). */
+    public long[] compileJob(String properties) {
+        long[] mask = new long[words()];
+        if (properties == null) {
+            return mask;
+        }
+        String[] props;
+        if (useProperties) {
+            properties = properties.replaceAll("\\[", "");
+            properties = properties.replaceAll("\\]", "");
+            props = properties.split(";");
+        } else {
+            props = properties.split(" ");
+        }
+        for (int i = 0; i < props.length; i++) {
+            Integer bit = index.get(props[i]);
+            if (bit != null) {
+                set(mask, bit);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Compiles resource's properties into a bit mask. A property is supported if the property string of the resource contains it
+     * (the same as in ResourceInfo.supportProperty()), then the implication table is applied.
+     */
+    public long[] compileResource(String name, String properties) {
+        long[] mask = new long[words()];
+        if (!useProperties) {
+            Integer bit = index.get(name);
+            if (bit != null) {
+                set(mask, bit);
+            }
+            return mask;
+        }
+        if (properties == null) {
+            return mask;
+        }
+        for (int i = 0; i < names.size(); i++) {
+            if (properties.contains(names.get(i))) {
+                set(mask, i);
+            }
+        }
+        // apply implications - rows are complete, so the original mask is enough
+        long[] supported = mask.clone();
+        for (int r = 0; r < implications.length; r++) {
+            Integer implied = index.get(implications[r][0]);
+            if (implied == null) {
+                continue;
+            }
+            for (int j = 1; j < implications[r].length; j++) {
+                Integer bit = index.get(implications[r][j]);
+                if (bit != null && isSet(supported, bit)) {
+                    set(mask, implied);
+                    break;
+                }
+            }
+        }
+        return mask;
+    }
+
+    /** Decides whether the resource fulfills the job's requirements. */
+    public boolean matches(long[] resource, long[] job) {
+        if (useProperties) {
+            // all required properties must be supported
+            for (int i = 0; i < job.length; i++) {
+                long res = (i < resource.length) ? resource[i] : 0L;
+                if ((job[i] & ~res) != 0L) {
+                    return false;
+                }
+            }
+            return true;
+        } else {
+            // job must allow this resource
+            int n = Math.min(job.length, resource.length);
+            for (int i = 0; i < n; i++) {
+                if ((job[i] & resource[i]) != 0L) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /** Number of long words needed for current index. */
+    private int words() {
+        return (names.size() + 63) / 64;
+    }
+
+    private static void set(long[] mask, int bit) {
+        mask[bit >> 6] |= 1L << (bit & 63);
+    }
+
+    private static boolean isSet(long[] mask, int bit) {
+        return (mask[bit >> 6] & (1L << (bit & 63))) != 0L;
+    }
+}
@@ -2,11 +2,13 @@ package xklusac.environment;
 
 import gridsim.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
-import xklusac.extensions.BinaryHeap;
-import xklusac.extensions.HeapNode;
+import java.util.List;
+import xklusac.extensions.AvailabilityProfile;
+import xklusac.extensions.FreeSlotHeap;
 import xklusac.extensions.Hole;
 import xklusac.extensions.StartComparator;
 
@@ -28,6 +30,9 @@ public class ResourceInfo {
     public ArrayList<GridletInfo> resInExec;
     /** List representing schedule for this resource (gridletInfos) */
     public ArrayList<GridletInfo> resSchedule;
+    /** positions of jobs in resInExec and resSchedule */
+    protected JobIndex exec_index;
+    protected JobIndex schedule_index;
     /** Sum of tardiness of all finished jobs */
     protected double prev_tard = 0.0;
     /** Denotes if previously selected gridlet was succesfully sended by JSS - prevents anticipating of gridlets */
@@ -75,39 +80,75 @@ public class ResourceInfo {
     protected boolean stable_s = false;
     double[] r_tuwt;
     double[] r_tusa;
+    /** true if the list of running jobs has changed since the last update - the whole schedule must be evaluated again */
+    protected boolean exec_changed = true;
+    /** incremented whenever the running jobs or the working CPUs change (see getExecVersion) */
+    protected int exec_version = 0;
+    /** checkpoints of schedule evaluation, stored before every checkpoint_step-th job of the schedule */
+    protected ArrayList<ScheduleCheckpoint> checkpoints = new ArrayList();
+    /** number of valid checkpoints */
+    protected int checkpoint_count = 0;
+    /**
+     * distance between two checkpoints, it grows with the number of CPUs (a checkpoint holds O(numPE) data), so there are at most
+     * 16 checkpoints per numPE jobs of the schedule
+     */
+    protected int checkpoint_step = 4;
+    /** jobs in the order they were evaluated by the last update */
+    protected ArrayList<GridletInfo> evaluated = new ArrayList();
+    /** runtimes of evaluated jobs */
+    protected double[] evaluated_runtime = new double[0];
+    /** holes created by the evaluated jobs */
+    protected ArrayList<Hole> evaluated_holes = new ArrayList();
+    /** availability profile of CPUs (created on demand from the evaluated schedule, then kept up to date by update()) */
+    protected AvailabilityProfile profile = null;
+    /** sorted free times of CPUs (running jobs and failed CPUs) reserved in the profile */
+    protected double[] profile_base = null;
+    /** reservations of jobs in schedule made in the profile: {start, finish, CPUs} */
+    protected IdentityHashMap<GridletInfo, double[]> profile_jobs = new IdentityHashMap<GridletInfo, double[]>();
+    /** free slots of CPUs used when ExperimentSetup.useHeap is set (reused by every update) */
+    protected FreeSlotHeap free_slots;
+    /** auxiliary array - IDs of CPUs used by a job */
+    private int[] used_ids;
+    /** state of the simulation run (users of jobs) */
+    private SimulationContext ctx;
+    /** true for trial and schedule copies - their evaluation must not change the gridlets shared with the real schedule */
+    private boolean copy = false;
 
     /** Creates a new instance of ResourceInfo with "in schedule" and "on resource" lists of gridletInfos
      *@param resource Resource characteristics (number of CPU, rating, etc.)
+     *@param ctx state of the simulation run
      */
-    public ResourceInfo(ComplexResourceCharacteristics resource) {
+    public ResourceInfo(ComplexResourceCharacteristics resource, SimulationContext ctx) {
         this.resource = resource;
+        this.ctx = ctx;
         this.numPE = resource.getNumPE();
         this.finishTimeOnPE = new double[resource.getNumPE()];
+        this.free_slots = new FreeSlotHeap(resource.getNumPE());
+        this.used_ids = new int[resource.getNumPE()];
         this.resInExec = new ArrayList();
         this.resSchedule = new ArrayList();
+        this.exec_index = new JobIndex(resInExec, true);
+        this.schedule_index = new JobIndex(resSchedule, false);
         this.peRating = resource.getMIPSRatingOfOnePE();
+        this.checkpoint_step = Math.max(4, numPE / 16);
         this.stable_w = false;
         this.stable_s = false;
     }
 
     /** Removes GridletInfo from list of "Gridlets on Resource" (only GridletInfo there not gridlets)
+     * The last running job takes the place of the removed one (the order of running jobs does not matter).
      *@param gi gridletInfo to be removed
      */
     public void lowerResInExec(GridletInfo gi) {
-        boolean removed = false;
-        for (int j = 0; j < resInExec.size(); j++) {
-            GridletInfo giRes = (GridletInfo) resInExec.get(j);
-
-            if (giRes.getID() == gi.getID() && giRes.getOwnerID() == gi.getOwnerID()) {
-                resInExec.remove(j);
-                stable = false;
-                stable_w = false;
-                stable_s = false;
-                removed = true;
-                break;
-            }
-        }
-        if (!removed) {
+        int j = exec_index.indexOf(gi);
+        if (j >= 0) {
+            exec_index.remove(j);
+            stable = false;
+            exec_changed = true;
+            exec_version++;
+            stable_w = false;
+            stable_s = false;
+        } else {
             System.out.println("Error removing gi from InExec list.");
         }
     }
@@ -116,18 +157,24 @@ public class ResourceInfo {
      *@param gi gridletInfo to be removed
      */
     public void lowerResScheduleList(GridletInfo gi) {
-        for (int j = 0; j < resSchedule.size(); j++) {
-            GridletInfo giRes = (GridletInfo) resSchedule.get(j);
-            if (giRes.getID() == gi.getID() && giRes.getOwnerID() == gi.getOwnerID()) {
-                resSchedule.remove(j);
-                stable = false;
-                stable_w = false;
-                stable_s = false;
-                break;
-            }
+        int j = schedule_index.indexOf(gi);
+        if (j >= 0) {
+            schedule_index.removed(j, resSchedule.remove(j));
+            stable = false;
+            stable_w = false;
+            stable_s = false;
         }
     }
 
+    /**
+     * Returns the version of running jobs and working CPUs of this resource. It changes when a job is started or finished here
+     * and when a machine of this resource fails or restarts, so values computed from the running jobs (e.g., the earliest start
+     * time used by EASY Backfilling) remain valid while the version is the same.
+     */
+    public int getExecVersion() {
+        return exec_version;
+    }
+
     /*
      * Gets the number of currently free CPUs on a resource.
      */
@@ -264,7 +311,7 @@ public class ResourceInfo {
      * Auxiliary function - predicts when and which PEs will be used for this gi.
      *
      */
-    private void predictPEs(double finishTimeOnPE[], GridletInfo gi) {
+    private LinkedList<Integer> predictPEs(double finishTimeOnPE[], GridletInfo gi) {
         int index = 0;
         double min = Double.MAX_VALUE - 10;
         LinkedList<Integer> PEs = new LinkedList();
@@ -287,7 +334,10 @@ public class ResourceInfo {
             }
         }
         PEs.add(index);
-        gi.setPEs(PEs);
+        if (!copy) {
+            gi.setPEs(PEs);
+        }
+        return PEs;
     }
 
     /*
@@ -368,38 +418,12 @@ public class ResourceInfo {
         holes.addLast(h_last);
     }
 
-    /** This method constructs the binary heap that stores information about first free slots on CPUs. */
-    private BinaryHeap createBinaryHeap() {
-        BinaryHeap slots = new BinaryHeap();
-        HashMap<Double, ArrayList> time_slots = new HashMap<Double, ArrayList>();
-        double time = 0.0;
-
-        for (int i = 0; i < finishTimeOnPE.length; i++) {
-            time = finishTimeOnPE[i];
-            if (!time_slots.containsKey(time)) {
-                ArrayList<Integer> cpus = new ArrayList<Integer>();
-                cpus.add(i);
-                time_slots.put(time, cpus);
-            } else {
-                ArrayList<Integer> cpus = time_slots.get(time);
-                cpus.add(i);
-                time_slots.put(time, cpus);
-            }
-        }
-        Object[] keys = time_slots.keySet().toArray();
-        for (int i = 0; i < time_slots.size(); i++) {
-            ArrayList<Integer> cpus = time_slots.get((Double) keys[i]);
-            slots.insert(new HeapNode((Double) keys[i], cpus));
-        }
-        return slots;
-    }
-
     /** Selects index of the last CPU necessary to run multi-CPU gridlet. Also, it builds the hole-list during execution. Auxiliary method.
      * @param finishTimeOnPE[] field representing earliest free slot of each CPU on machine
      * @param gi gridletInfo describing the multi-CPU gridlet
-     * @param slots Binary heap with first free slots
+     * @param slots heap with first free slots
      */
-    private int findFirstFreeSlotForWaitingJob(double finishTimeOnPE[], GridletInfo gi, BinaryHeap slots) {
+    private int findFirstFreeSlotForWaitingJob(double finishTimeOnPE[], GridletInfo gi, FreeSlotHeap slots) {
         int index = 0;
         double min = Double.MAX_VALUE - 10;
         double hole_start = -1.0;
@@ -411,85 +435,48 @@ public class ResourceInfo {
         //slots.printCPUcount("start for "+gi.getID());
         if (ExperimentSetup.useHeap) {
             int needed = gi.getNumPE();
-            int found = 0;
+            int used = 0;
             hole_size = 0;
-            ArrayList<Integer> usedIDs = new ArrayList<Integer>();
             while (needed > 0) {
 
-                //System.out.println(gi.getID()+":  needed = "+needed);
-                HeapNode hn = (HeapNode) slots.findMin();
-                earl_job_start = hn.getTime();
-                ArrayList<Integer> cpuIDs = hn.getCpuIDs(gi.getID());
+                earl_job_start = slots.getMinTime();
+                int available = slots.getMinCount();
                 // all ids in this node
-                if (cpuIDs.size() >= needed) {
-                    //System.out.println("prior size = "+cpuIDs.size()+" used = "+usedIDs.size());
-                    for (int i = 0; i < needed; i++) {
-                        usedIDs.add(cpuIDs.remove(0));
-                        //System.out.println(i+": size = "+cpuIDs.size()+" used = "+usedIDs.size());
-                    }
-                    //System.out.println("post size = "+cpuIDs.size()+" used = "+usedIDs.size());
+                if (available >= needed) {
+                    slots.takeFromMin(needed, used_ids, used);
+                    used += needed;
                     needed = 0;
-                    // vyprazdneny uzel odstranime
-                    if (cpuIDs.size() == 0) {
-                        //hn.setCpuIDs(cpuIDs);
-                        slots.deleteMin();
-                    } else {
-                        hn.setCpuIDs(cpuIDs);
-                    }
-                    //if(gi.getID()>4000) System.out.println(gi.getID()+": OK needed = "+needed+" of "+gi.getNumPE()+" Res_cpus = "+finishTimeOnPE.length+" heap size = "+slots.size()+" so far = "+usedIDs.size());
-                    //slots.printCPUcount("all found for "+gi.getID());
 
                     // more nodes needed => empty the whole node while gap will appear as a side effect
                 } else {
-                    int founded = cpuIDs.size();
-                    needed = needed - founded;
-                    hole_size += founded;
-                    //if(gi.getID()>4000) System.out.println(gi.getID()+": prior "+founded+" steps have "+usedIDs.size());
-                    for (int i = 0; i < founded; i++) {
-
-                        usedIDs.add(cpuIDs.remove(0));
-                        //if(gi.getID()>4000) System.out.println(gi.getID()+": in "+i+" th step have "+usedIDs.size());
-                    }
-                    //if(gi.getID()>4000) System.out.println(gi.getID()+": past "+founded+" steps have "+usedIDs.size());
-                    //hn.setCpuIDs(cpuIDs);
-                    hole_start = hn.getTime();
-                    // delete empty node
-                    slots.deleteMin();
+                    needed = needed - available;
+                    hole_size += available;
+                    // the emptied node is removed
+                    slots.takeFromMin(available, used_ids, used);
+                    used += available;
+                    hole_start = earl_job_start;
                     //create hole
-                    //if(gi.getID()>4000) System.out.println(gi.getID()+": KO needed = "+needed+" of "+gi.getNumPE()+" Res_cpus = "+finishTimeOnPE.length+" heap size = "+slots.size()+" so far = "+usedIDs.size());
-                    //slots.printCPUcount("more needed for "+gi.getID());
-                    HeapNode hnext = (HeapNode) slots.findMin();
-                    min = hnext.getTime();
+                    min = slots.getMinTime();
                     double length = min - hole_start;
                     Hole h = new Hole(hole_start, min, length, (length * peRating), hole_size, gi);
-                    //System.out.println(gi.getID()+" New hole s = "+Math.round(hole_start)+" size = "+hole_size+" length = "+Math.round(length));
                     holes_length += length * hole_size;
                     holes_mips += length * peRating * hole_size;
                     holes.addLast(h);
                 }
             }
-            // update of binary heap structure
+            // update of the heap structure
             double glFinishTime = gi.getJobRuntime(peRating);
             if (glFinishTime < 1.0) {
                 glFinishTime = 1.0;
             }
             int roundUpTime = (int) (glFinishTime + 1);
             double end = earl_job_start + roundUpTime;
-            //if(gi.getID()>4000) System.out.println(gi.getID()+": Insert new node with CPUids "+usedIDs.size()+" == "+gi.getNumPE());
-            slots.insert(new HeapNode(end, usedIDs));
+            slots.insert(end, used_ids, 0, used);
             // update of old structure - compatibility reasons
-            int lasti = usedIDs.get(usedIDs.size() - 1);
-
-
-
-            for (int i = 0; i < usedIDs.size(); i++) {
-                index = usedIDs.get(i);
-                if (i != (usedIDs.size() - 1)) {
-                    finishTimeOnPE[index] = -999;
-                }
-
+            for (int i = 0; i < used - 1; i++) {
+                finishTimeOnPE[used_ids[i]] = -999;
             }
-            index = lasti;
+            index = used_ids[used - 1];
 
         } else {
             // classical array will be used instead of Binary Heap
@@ -587,10 +574,9 @@ public class ResourceInfo {
             } else if (gi.getStatus() != Gridlet.SUCCESS && gi.getStatus() != Gridlet.INEXEC && gi.getStatus() != Gridlet.QUEUED && gi.getStatus() != Gridlet.FAILED_RESOURCE_UNAVAILABLE) {
                 //System.out.println(gi.getID() + " status=" + gi.getGridlet().getGridletStatusString() + " resource=" + resource.getResourceName()+" at clock="+GridSim.clock());
                 if (PEs.size() < gi.getNumPE()) {
-                    predictPEs(finishTimeOnPE, gi);
+                    PEs = predictPEs(finishTimeOnPE, gi);
                 }
                 double max = 0.0;
-                PEs = gi.getPEs();
                 for (int k = 0; k < gi.getNumPE(); k++) {
                     if (max < finishTimeOnPE[PEs.get(k)]) {
                         max = finishTimeOnPE[PEs.get(k)];
@@ -624,161 +610,31 @@ public class ResourceInfo {
     /**
      * This method update information about schedule such as job start/finish time, number of nondelayed jobs, makespan, etc. Usefull for schedule-based methods mainly.
      * It can be easily modified to provide more information about e.g., slowdown. If there is no change since the last computation
-     * it is not performed to save time.
+     * it is not performed to save time. If ExperimentSetup.useDeltaUpdate is set and only the schedule has changed since the last computation
+     * (the same time, the same running jobs), only the part of schedule from the first changed position is evaluated again.
      *
      */
     public void update(double current_time) {
-        double total_tardiness = 0.0;
-        double tardiness = 0.0;
-        int nondelayed = 0;
-        double start_hole_min = Double.MAX_VALUE;
-        double start_hole_max = 0.0;
-        double end_hole = 0.0;
-        int size_hole = 0;
-        GridletInfo last = null;
-        int idUns[] = new int[resSchedule.size()];
-
-
         if (prev_clock == current_time && stable) {
-            // no change - so save computational time            
+            // no change - so save computational time
             return;
         } else {
-            stable_w = false;
-            stable_s = false;
-            // setup the field representing CPUs earliest free slot times
-            holes.clear();
-            holes_length = 0.0;
-            holes_mips = 0.0;
-            res_usage = 0.0;
-            accum_start_time = 0.0;
-            accum_sd = 0.0;
-            accum_wait = 0.0;
-            accum_resp = 0.0;
-
-            // initialize the free slot array (must be done)
-            predictFirstFreeSlots(current_time); //OK works
-            BinaryHeap slots = null;
-            if (ExperimentSetup.useHeap) {
-                slots = createBinaryHeap();
-            }
-
-            // calculate all required values for jobs in schedule
-
-            for (int j = 0; j < resSchedule.size(); j++) {
-                GridletInfo gi = (GridletInfo) resSchedule.get(j);
-                idUns[j] = gi.getID();
-                //update the res_usage value
-                res_usage += gi.getJobRuntime(peRating) * peRating * gi.getNumPE();
-
-                // simulate the FCFS attitude of LRM on the resource
-                int index = findFirstFreeSlotForWaitingJob(finishTimeOnPE, gi, slots);
-                gi.setInit(false);
-                // set expected start time wrt. current schedule
-                gi.setExpectedStartTime(finishTimeOnPE[index]);
-                accum_start_time += finishTimeOnPE[index];
-
-
-                double glFinishTime = gi.getJobRuntime(peRating);
-                if (glFinishTime < 1.0) {
-                    glFinishTime = 1.0;
-                }
-                int roundUpTime = (int) (glFinishTime + 1);
-
-                double earliestNextTime = finishTimeOnPE[index];
-
-                // time when the gridlet will be probably finished on CPU #index
-                finishTimeOnPE[index] += roundUpTime;
-                // sets expected finish time
-                gi.setExpectedFinishTime(finishTimeOnPE[index]);
-                // tardiness of this gridlet in this schedule
-                tardiness = Math.max(0.0, finishTimeOnPE[index] - gi.getDue_date());
-                accum_wait += Math.max(0.0, gi.getExpectedStartTime() - gi.getRelease_date());
-                accum_resp += Math.max(0.0, gi.getExpectedFinishTime() - gi.getRelease_date());
-                accum_sd += (Math.max(1.0, (finishTimeOnPE[index] - gi.getRelease_date()))) / Math.max(1.0, roundUpTime);
-
-                gi.setTardiness(tardiness); // after this method we know each gridlet's tardiness
-
-                if (tardiness <= 0.0) {
-                    nondelayed++;
-                }
-                total_tardiness += tardiness;
-
-                // update also the rest of PEs finish-time required to run this gridlet
-                for (int k = 0; k < finishTimeOnPE.length; k++) {
-                    if (finishTimeOnPE[k] < -998) {
-                        finishTimeOnPE[k] = finishTimeOnPE[index];
-                    }
-                }
-                //start_hole = earliestNextTime;
-                start_hole_max = finishTimeOnPE[index];
-            }
-
-
-            // prepare min and max starting points for last gap
-            for (int i = 0; i < finishTimeOnPE.length; i++) {
-                if (finishTimeOnPE[i] > start_hole_max) {
-                    start_hole_max = finishTimeOnPE[i];
-                }
-                if (finishTimeOnPE[i] < start_hole_min) {
-                    start_hole_min = finishTimeOnPE[i];
-                }
-            }
-
-            expected_fails = resSchedule.size() - nondelayed;
-
-            // add expected tardiness of running jobs
-            for (int j = 0; j < resInExec.size(); j++) {
-                GridletInfo gi = (GridletInfo) resInExec.get(j);
-                total_tardiness += gi.getTardiness();
-                if (gi.getTardiness() <= 0.0) {
-                    nondelayed++;
-                }
-            }
-
-            // calculate makespan
-            double makespan = 0.0;
-            for (int j = 0; j < finishTimeOnPE.length; j++) {
-                if (finishTimeOnPE[j] > makespan) {
-                    makespan = finishTimeOnPE[j];
-                }
-            }
-
-            // add tardiness and score of already finished jobs
-            expected_score = nondelayed;
-            total_tardiness += prev_tard;
-            nondelayed += prev_score;
-
-            // set the variables to new values
-            resource_tardiness = total_tardiness;
-            resource_score = nondelayed;
-            resource_makespan = makespan;
-
-            stable = true;
-            prev_clock = current_time;
-
-            //Hole h_last = new Hole(start_hole, Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, numPE, last);
-            //holes.addLast(h_last);
-            //System.arraycopy(est, numPE, est, numPE, numPE);
-
-            double finishTimeOnPE2[] = new double[resource.getNumPE()];
-            for (int i = 0; i < finishTimeOnPE.length; i++) {
-                finishTimeOnPE2[i] = finishTimeOnPE[i];
-            }
-            // add hole to the end of schedule (infinite hole)
-            //createLastHoles(finishTimeOnPE2, numPE);
-            createLastGapsFast(finishTimeOnPE2, numPE, start_hole_min, start_hole_max);
-
-            //sort the schedule via start times - so that less gaps will appear
-            Collections.sort(resSchedule, new StartComparator());
+            boolean delta = ExperimentSetup.useDeltaUpdate && prev_clock == current_time && !exec_changed;
+            evaluateSchedule(current_time, delta);
+        }
+    }
 
-            for (int j = 0; j < resSchedule.size(); j++) {
-                GridletInfo gi = (GridletInfo) resSchedule.get(j);
-                if (gi.getID() != idUns[j]) {
-                    System.out.println("Sorted, gaps corrupted..." + gi.getID() + "/" + idUns[j]);
-                }
-            }
+    /** Returns the state of the simulation run this resource belongs to. */
+    public SimulationContext getContext() {
+        return ctx;
+    }
 
-        }
+    /**
+     * Marks the schedule as changed so that the next update(current_time) evaluates the whole schedule again.
+     */
+    public void invalidate() {
+        stable = false;
+        exec_changed = true;
     }
 
     /**
@@ -787,42 +643,101 @@ public class ResourceInfo {
      *
      */
     public void forceUpdate(double current_time) {
-        double total_tardiness = 0.0;
+        evaluateSchedule(current_time, false);
+    }
+
+    /**
+     * Evaluates the schedule (see update). If delta is true, the evaluation starts from the last checkpoint stored before the first
+     * position where the schedule differs from the previously evaluated one.
+     */
+    private void evaluateSchedule(double current_time, boolean delta) {
         double tardiness = 0.0;
-        int nondelayed = 0;
-        double start_hole_max = 0.0;
         double start_hole_min = Double.MAX_VALUE;
-        GridletInfo last = null;
-        // setup the field representing CPUs earliest free slot times
-        holes.clear();
-        holes_length = 0.0;
-        holes_mips = 0.0;
-        res_usage = 0.0;
-        accum_start_time = 0.0;
-        accum_sd = 0.0;
-        accum_wait = 0.0;
-        accum_resp = 0.0;
         int idUns[] = new int[resSchedule.size()];
         stable_w = false;
         stable_s = false;
 
         // initialize the free slot array (must be done)
         predictFirstFreeSlots(current_time); //OK works
-        BinaryHeap slots = null;
-        if (ExperimentSetup.useHeap) {
-            slots = createBinaryHeap();
+
+        // find the checkpoint where the evaluation can continue
+        int c = 0;
+        if (delta && checkpoint_count > 0 && Arrays.equals(finishTimeOnPE, checkpoints.get(0).finishTimeOnPE)) {
+            c = Math.min(findFirstChangedPosition() / checkpoint_step, checkpoint_count - 1);
+        }
+        int first = c * checkpoint_step;
+        FreeSlotHeap slots = null;
+        double total_tardiness = 0.0;
+        int nondelayed = 0;
+        double start_hole_max = 0.0;
+        // setup the field representing CPUs earliest free slot times
+        holes.clear();
+        if (c > 0) {
+            ScheduleCheckpoint cp = checkpoints.get(c);
+            System.arraycopy(cp.finishTimeOnPE, 0, finishTimeOnPE, 0, finishTimeOnPE.length);
+            if (ExperimentSetup.useHeap) {
+                slots = free_slots;
+                slots.copyFrom(cp.slots);
+            }
+            holes.addAll(evaluated_holes.subList(0, cp.holes));
+            holes_length = cp.holes_length;
+            holes_mips = cp.holes_mips;
+            res_usage = cp.res_usage;
+            accum_start_time = cp.accum_start_time;
+            accum_sd = cp.accum_sd;
+            accum_wait = cp.accum_wait;
+            accum_resp = cp.accum_resp;
+            total_tardiness = cp.total_tardiness;
+            nondelayed = cp.nondelayed;
+            start_hole_max = cp.start_hole_max;
+        } else {
+            holes_length = 0.0;
+            holes_mips = 0.0;
+            res_usage = 0.0;
+            accum_start_time = 0.0;
+            accum_sd = 0.0;
+            accum_wait = 0.0;
+            accum_resp = 0.0;
+            if (ExperimentSetup.useHeap) {
+                slots = free_slots;
+                slots.build(finishTimeOnPE);
+            }
+        }
+        // checkpoints (and evaluated jobs) after the first changed position are no longer valid
+        checkpoint_count = c;
+        while (evaluated.size() > first) {
+            evaluated.remove(evaluated.size() - 1);
+        }
+        if (evaluated_runtime.length < resSchedule.size()) {
+            evaluated_runtime = new double[resSchedule.size() * 2];
+            for (int j = 0; j < evaluated.size(); j++) {
+                evaluated_runtime[j] = evaluated.get(j).getJobRuntime(peRating);
+            }
+        }
+
+        for (int j = 0; j < first; j++) {
+            idUns[j] = resSchedule.get(j).getID();
         }
 
         // calculate all required values for jobs in schedule
-        for (int j = 0; j < resSchedule.size(); j++) {
+        for (int j = first; j <= resSchedule.size(); j++) {
+            if (j % checkpoint_step == 0 && j / checkpoint_step >= checkpoint_count) {
+                storeCheckpoint(slots, total_tardiness, nondelayed, start_hole_max);
+            }
+            if (j == resSchedule.size()) {
+                break;
+            }
             GridletInfo gi = (GridletInfo) resSchedule.get(j);
             idUns[j] = gi.getID();
+            evaluated.add(gi);
+            evaluated_runtime[j] = gi.getJobRuntime(peRating);
             //update the res_usage value
             res_usage += gi.getJobRuntime(peRating) * peRating * gi.getNumPE();
 
             // simulate the FCFS attitude of LRM on the resource
             int index = findFirstFreeSlotForWaitingJob(finishTimeOnPE, gi, slots);
             gi.setInit(false);
+            // set expected start time wrt. current schedule
             gi.setExpectedStartTime(finishTimeOnPE[index]);
             accum_start_time += finishTimeOnPE[index];
 
@@ -833,12 +748,10 @@ public class ResourceInfo {
             }
             int roundUpTime = (int) (glFinishTime + 1);
 
-            double earliestNextTime = finishTimeOnPE[index];
-
             // time when the gridlet will be probably finished on CPU #index
             finishTimeOnPE[index] += roundUpTime;
+            // sets expected finish time
             gi.setExpectedFinishTime(finishTimeOnPE[index]);
-
             // tardiness of this gridlet in this schedule
             tardiness = Math.max(0.0, finishTimeOnPE[index] - gi.getDue_date());
             accum_wait += Math.max(0.0, gi.getExpectedStartTime() - gi.getRelease_date());
@@ -853,17 +766,27 @@ public class ResourceInfo {
             total_tardiness += tardiness;
 
             // update also the rest of PEs finish-time required to run this gridlet
+            int[] pes = ExperimentSetup.useScheduleRepair ? new int[gi.getNumPE()] : null;
+            int used = 0;
             for (int k = 0; k < finishTimeOnPE.length; k++) {
                 if (finishTimeOnPE[k] < -998) {
                     finishTimeOnPE[k] = finishTimeOnPE[index];
+                    if (pes != null && used < pes.length - 1) {
+                        pes[used++] = k;
+                    }
                 }
-                /*else if(finishTimeOnPE[k] < earliestNextTime){
-                // since it is FCFS resource, do no allow earlier starts
-                finishTimeOnPE[k] = earliestNextTime;
-                }*/
             }
-            start_hole_max = earliestNextTime;
+            if (pes != null) {
+                pes[used++] = index;
+                gi.planned_pes = (used == pes.length) ? pes : Arrays.copyOf(pes, used);
+            }
+            start_hole_max = finishTimeOnPE[index];
         }
+        // remember holes created by the jobs in schedule (holes list is cleared whenever the schedule changes)
+        evaluated_holes.clear();
+        evaluated_holes.addAll(holes);
+        exec_changed = false;
+
         // prepare min and max starting points for last gap
         for (int i = 0; i < finishTimeOnPE.length; i++) {
             if (finishTimeOnPE[i] > start_hole_max) {
@@ -874,9 +797,13 @@ public class ResourceInfo {
             }
         }
 
-
         expected_fails = resSchedule.size() - nondelayed;
 
+        // the schedule has become shorter - drop unused checkpoints, one is kept for reuse
+        while (checkpoints.size() > checkpoint_count + 1) {
+            checkpoints.remove(checkpoints.size() - 1);
+        }
+
         // add expected tardiness of running jobs
         for (int j = 0; j < resInExec.size(); j++) {
             GridletInfo gi = (GridletInfo) resInExec.get(j);
@@ -886,6 +813,7 @@ public class ResourceInfo {
             }
         }
 
+        // calculate makespan
         double makespan = 0.0;
         for (int j = 0; j < finishTimeOnPE.length; j++) {
             if (finishTimeOnPE[j] > makespan) {
@@ -905,8 +833,9 @@ public class ResourceInfo {
 
         stable = true;
         prev_clock = current_time;
-        //Hole h_last = new Hole(start_hole, Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, numPE, last);
-        //holes.addLast(h_last);
+        if (profile != null) {
+            updateProfile();
+        }
 
         double finishTimeOnPE2[] = new double[resource.getNumPE()];
         for (int i = 0; i < finishTimeOnPE.length; i++) {
@@ -918,12 +847,185 @@ public class ResourceInfo {
 
         //sort the schedule via start times - so that less gaps will appear
         Collections.sort(resSchedule, new StartComparator());
+
         for (int j = 0; j < resSchedule.size(); j++) {
             GridletInfo gi = (GridletInfo) resSchedule.get(j);
             if (gi.getID() != idUns[j]) {
-                System.out.println("Force: Sorted, gaps corrupted..." + gi.getID() + "/" + idUns[j]);
+                System.out.println("Sorted, gaps corrupted..." + gi.getID() + "/" + idUns[j]);
+            }
+        }
+    }
+
+    /** Returns the first position of schedule that differs from the previously evaluated schedule (different job or its runtime). */
+    private int findFirstChangedPosition() {
+        int size = Math.min(evaluated.size(), resSchedule.size());
+        for (int j = 0; j < size; j++) {
+            GridletInfo gi = resSchedule.get(j);
+            if (gi != evaluated.get(j) || gi.getJobRuntime(peRating) != evaluated_runtime[j]) {
+                return j;
+            }
+        }
+        return size;
+    }
+
+    /** Stores the current state of schedule evaluation as the next checkpoint. */
+    private void storeCheckpoint(FreeSlotHeap slots, double total_tardiness, int nondelayed, double start_hole_max) {
+        if (checkpoints.size() == checkpoint_count) {
+            checkpoints.add(new ScheduleCheckpoint(finishTimeOnPE.length));
+        }
+        ScheduleCheckpoint cp = checkpoints.get(checkpoint_count);
+        System.arraycopy(finishTimeOnPE, 0, cp.finishTimeOnPE, 0, finishTimeOnPE.length);
+        // the first checkpoint is created directly from finishTimeOnPE, heap is not needed
+        if (slots != null && checkpoint_count > 0) {
+            if (cp.slots == null) {
+                cp.slots = FreeSlotHeap.createSnapshot();
+            }
+            cp.slots.copyFrom(slots);
+        }
+        cp.holes = holes.size();
+        cp.holes_length = holes_length;
+        cp.holes_mips = holes_mips;
+        cp.res_usage = res_usage;
+        cp.accum_start_time = accum_start_time;
+        cp.accum_sd = accum_sd;
+        cp.accum_wait = accum_wait;
+        cp.accum_resp = accum_resp;
+        cp.total_tardiness = total_tardiness;
+        cp.nondelayed = nondelayed;
+        cp.start_hole_max = start_hole_max;
+        checkpoint_count++;
+    }
+
+    /**
+     * Creates a trial copy of this schedule with gridlet gi inserted at given position. The copy can be evaluated (update())
+     * without changing this schedule, trial copies of different resources can be evaluated concurrently. Only the affected part
+     * of the schedule is copied - jobs since the last checkpoint before the position are replaced by their copies, jobs before it
+     * are not changed by the (delta) evaluation and are shared. Running jobs are copied. This resource info must be updated.
+     * @param index position of gi in the schedule
+     * @param gi gridletInfo to be placed (should be a copy, its values are changed by the evaluation)
+     */
+    public ResourceInfo createTrialCopy(int index, GridletInfo gi) {
+        ResourceInfo trial = new ResourceInfo(resource, ctx);
+        trial.copy = true;
+        trial.prev_tard = prev_tard;
+        trial.prev_score = prev_score;
+        trial.prev_clock = prev_clock;
+        trial.exec_changed = false;
+        for (int j = 0; j < resInExec.size(); j++) {
+            trial.resInExec.add(new GridletInfo((GridletInfo) resInExec.get(j)));
+        }
+
+        // the whole schedule is copied when delta update is not possible
+        int c = 0;
+        if (ExperimentSetup.useDeltaUpdate && stable && !exec_changed && checkpoint_count > 0) {
+            c = Math.min(index / checkpoint_step, checkpoint_count - 1);
+        }
+        int first = c * checkpoint_step;
+        for (int j = 0; j < resSchedule.size(); j++) {
+            GridletInfo gs = (GridletInfo) resSchedule.get(j);
+            if (j < first) {
+                trial.resSchedule.add(gs);
+            } else {
+                trial.resSchedule.add(new GridletInfo(gs));
+            }
+        }
+        trial.resSchedule.add(index, gi);
+
+        if (c > 0) {
+            // checkpoints before c are only read, checkpoint c is stored again during the evaluation
+            trial.checkpoints.addAll(checkpoints.subList(0, c));
+            trial.checkpoints.add(new ScheduleCheckpoint(checkpoints.get(c)));
+            trial.checkpoint_count = c + 1;
+            trial.evaluated.addAll(evaluated.subList(0, first));
+            trial.evaluated_runtime = evaluated_runtime.clone();
+            trial.evaluated_holes.addAll(evaluated_holes);
+        }
+        return trial;
+    }
+
+    /**
+     * Creates a private copy of this schedule - every job in the schedule and every running job is replaced by its copy
+     * (the evaluation sets the expected finish time, tardiness and CPUs of running jobs).
+     * The copy can be changed and evaluated without changing this schedule, copies of all resources are used by a search walker
+     * of ParallelSearch, so several copies of one schedule are evaluated concurrently.
+     */
+    public ResourceInfo createScheduleCopy() {
+        ResourceInfo copy = new ResourceInfo(resource, ctx);
+        copy.copy = true;
+        copy.prev_tard = prev_tard;
+        copy.prev_score = prev_score;
+        copy.prev_clock = prev_clock;
+        copy.exec_changed = false;
+        for (int j = 0; j < resInExec.size(); j++) {
+            copy.resInExec.add(new GridletInfo((GridletInfo) resInExec.get(j)));
+        }
+        for (int j = 0; j < resSchedule.size(); j++) {
+            copy.resSchedule.add(new GridletInfo((GridletInfo) resSchedule.get(j)));
+        }
+        return copy;
+    }
+
+    /**
+     * Replaces the whole schedule by the given list of jobs (used when the best schedule found by ParallelSearch is applied).
+     * Once schedule is changed it is not stable until update method is called.
+     */
+    public void setSchedule(List<GridletInfo> schedule) {
+        stable = false;
+        stable_w = false;
+        stable_s = false;
+        resSchedule.clear();
+        for (int j = 0; j < schedule.size(); j++) {
+            GridletInfo gi = schedule.get(j);
+            resSchedule.add(gi);
+            // PEs are stored in the gridlet shared with the real schedule
+            if (!copy) {
+                gi.getPEs().clear();
             }
         }
+        schedule_index.cleared();
+        holes.clear();
+    }
+
+    /**
+     * Removes jobs whose PEs planned by the last evaluation of the schedule include some of the given PEs (e.g., PEs of failed
+     * machines), other jobs stay in the schedule in the same order. Jobs without planned PEs are removed as well.
+     * Requires ExperimentSetup.useScheduleRepair, otherwise all jobs are removed.
+     * @param pes true for each PE (index as in finishTimeOnPE) that cannot be used
+     * @return the removed jobs in the schedule order
+     */
+    public LinkedList<GridletInfo> removeJobsOnPEs(boolean[] pes) {
+        LinkedList<GridletInfo> removed = new LinkedList();
+        ArrayList<GridletInfo> kept = new ArrayList(resSchedule.size());
+        for (int i = 0; i < resSchedule.size(); i++) {
+            GridletInfo gi = resSchedule.get(i);
+            boolean touched = (gi.planned_pes == null);
+            for (int k = 0; !touched && k < gi.planned_pes.length; k++) {
+                touched = pes[gi.planned_pes[k]];
+            }
+            if (touched) {
+                removed.add(gi);
+            } else {
+                kept.add(gi);
+            }
+        }
+        if (removed.size() > 0) {
+            clearSchedule();
+            resSchedule.addAll(kept);
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all jobs from the schedule (e.g., before they are planned again).
+     * Once schedule is changed it is not stable until update method is called.
+     */
+    public void clearSchedule() {
+        stable = false;
+        stable_w = false;
+        stable_s = false;
+        resSchedule.clear();
+        schedule_index.cleared();
+        holes.clear();
     }
 
     /**
@@ -934,7 +1036,12 @@ public class ResourceInfo {
         stable_w = false;
         stable_s = false;
         holes.clear();
-        return resSchedule.remove(gi);
+        int index = schedule_index.indexOfJob(gi);
+        if (index < 0) {
+            return false;
+        }
+        schedule_index.removed(index, resSchedule.remove(index));
+        return true;
     }
 
     /**
@@ -945,7 +1052,9 @@ public class ResourceInfo {
         stable_w = false;
         stable_s = false;
         holes.clear();
-        return (GridletInfo) resSchedule.remove(index);
+        GridletInfo gi = (GridletInfo) resSchedule.remove(index);
+        schedule_index.removed(index, gi);
+        return gi;
     }
 
     /**
@@ -956,6 +1065,7 @@ public class ResourceInfo {
         stable_w = false;
         stable_s = false;
         GridletInfo gi = (GridletInfo) resSchedule.remove(0);
+        schedule_index.removed(0, gi);
         holes.clear();
         return gi;
     }
@@ -968,7 +1078,11 @@ public class ResourceInfo {
         stable_w = false;
         stable_s = false;
         resSchedule.add(gi);
-        gi.getPEs().clear();
+        schedule_index.added(resSchedule.size() - 1, gi);
+        // PEs are stored in the gridlet shared with the real schedule
+        if (!copy) {
+            gi.getPEs().clear();
+        }
         holes.clear();
     }
 
@@ -980,7 +1094,11 @@ public class ResourceInfo {
         stable_w = false;
         stable_s = false;
         resSchedule.add(index, gi);
-        gi.getPEs().clear();
+        schedule_index.added(index, gi);
+        // PEs are stored in the gridlet shared with the real schedule
+        if (!copy) {
+            gi.getPEs().clear();
+        }
         holes.clear();
     }
 
@@ -991,7 +1109,10 @@ public class ResourceInfo {
         stable = false;
         stable_w = false;
         stable_s = false;
+        exec_changed = true;
+        exec_version++;
         resInExec.add(gi);
+        exec_index.added(resInExec.size() - 1, gi);
         holes.clear();
 
     }
@@ -1025,15 +1146,30 @@ public class ResourceInfo {
      * This method tries to find a suitable hole (gap) for gridlet gi in current schedule. Suitable == long enough, large enough wrt. PEs.
      */
     public boolean findHoleForGridlet(GridletInfo gi) {
-        if (gi.getNumPE() > this.numPE) {
+        int index = findHolePosition(gi);
+        if (index < 0) {
             return false;
         }
+        this.addGInfo(index, gi);
+        return true;
+    }
+
+    /**
+     * Finds the position of schedule where gridlet gi would be placed by findHoleForGridlet(). The schedule is not changed.
+     * @return the position or -1 if there is no suitable hole
+     */
+    public int findHolePosition(GridletInfo gi) {
+        if (gi.getNumPE() > this.numPE) {
+            return -1;
+        }
         double mips = gi.getJobRuntime(peRating) * peRating;
         Hole candidate = null;
         double prev_end = Double.MAX_VALUE;
+        // holes are accessed by index - LinkedList.get(i) would be too slow
+        Object[] hole_list = holes.toArray();
 
-        for (int i = 0; i < holes.size(); i++) {
-            Hole h = (Hole) holes.get(i);
+        for (int i = 0; i < hole_list.length; i++) {
+            Hole h = (Hole) hole_list[i];
 
             if (h.getSize() >= gi.getNumPE() && h.getStart() <= prev_end) {
                 if (candidate == null) {
@@ -1052,11 +1188,10 @@ public class ResourceInfo {
                     if (nextGi == null) {
                         index = resSchedule.size();
                     } else {
-                        index = resSchedule.indexOf(nextGi);
+                        index = schedule_index.indexOfJob(nextGi);
                     }
 
-                    this.addGInfo(index, gi);
-                    return true;
+                    return index;
                 } else {
                     // hole(s) are still small
                     // decrease remaining length of hole
@@ -1074,7 +1209,123 @@ public class ResourceInfo {
             }
         }
         System.out.println("No hole found for gi=" + gi.getID() + " which is weird because holes=" + holes.size());
-        return false;
+        return -1;
+    }
+
+    /**
+     * Returns the availability profile of CPUs according to the current schedule (running jobs and expected
+     * start/finish times of jobs in schedule). The schedule is updated first if it has changed.
+     */
+    public AvailabilityProfile getProfile() {
+        if (!stable) {
+            update(GridSim.clock());
+        }
+        if (profile == null) {
+            profile = new AvailabilityProfile(prev_clock, numPE);
+            profile_base = null;
+            profile_jobs.clear();
+            updateProfile();
+        }
+        return profile;
+    }
+
+    /**
+     * Brings the availability profile up to date with the evaluated schedule. Only the changes are applied - the free times of CPUs
+     * when running jobs have started or finished, and the reservations of jobs that were added, removed or moved.
+     */
+    private void updateProfile() {
+        profile.advance(prev_clock);
+        // free slots of running jobs (and failed CPUs)
+        double base[] = checkpoints.get(0).finishTimeOnPE.clone();
+        Arrays.sort(base);
+        if (!Arrays.equals(base, profile_base)) {
+            if (profile_base != null) {
+                reserveBase(profile_base, false);
+            }
+            reserveBase(base, true);
+            profile_base = base;
+        }
+        // jobs in schedule
+        IdentityHashMap<GridletInfo, double[]> jobs = new IdentityHashMap<GridletInfo, double[]>(resSchedule.size() * 2);
+        for (int j = 0; j < resSchedule.size(); j++) {
+            GridletInfo gs = (GridletInfo) resSchedule.get(j);
+            double[] r = profile_jobs.remove(gs);
+            if (r == null || r[0] != gs.getExpectedStartTime() || r[1] != gs.getExpectedFinishTime() || r[2] != gs.getNumPE()) {
+                if (r != null) {
+                    profile.release(r[0], r[1], (int) r[2]);
+                }
+                r = new double[]{gs.getExpectedStartTime(), gs.getExpectedFinishTime(), gs.getNumPE()};
+                profile.reserve(r[0], r[1], (int) r[2]);
+            }
+            jobs.put(gs, r);
+        }
+        // jobs no longer in schedule (started or removed)
+        for (double[] r : profile_jobs.values()) {
+            profile.release(r[0], r[1], (int) r[2]);
+        }
+        profile_jobs = jobs;
+    }
+
+    /** Reserves (or releases) the CPUs until their free times, CPUs with equal free time are reserved together. */
+    private void reserveBase(double[] base, boolean reserve) {
+        int count = 1;
+        for (int i = 0; i < base.length; i++) {
+            if (i + 1 < base.length && base[i + 1] == base[i]) {
+                count++;
+            } else {
+                if (reserve) {
+                    profile.reserve(prev_clock, base[i], count);
+                } else {
+                    profile.release(prev_clock, base[i], count);
+                }
+                count = 1;
+            }
+        }
+    }
+
+    /**
+     * Finds the earliest start time of gridlet gi using the availability profile and places gi into the schedule
+     * so that it starts at that time, i.e., before the first job that starts later. This is an alternative to findHoleForGridlet().
+     */
+    public boolean findProfileSlotForGridlet(GridletInfo gi) {
+        int index = findProfilePosition(gi);
+        if (index < 0) {
+            return false;
+        }
+        this.addGInfo(index, gi);
+        return true;
+    }
+
+    /**
+     * Finds the position of schedule where gridlet gi would be placed by findProfileSlotForGridlet(). The schedule is not changed.
+     * @return the position or -1 if there is no such time
+     */
+    public int findProfilePosition(GridletInfo gi) {
+        if (gi.getNumPE() > this.numPE) {
+            return -1;
+        }
+        AvailabilityProfile p = getProfile();
+        double glFinishTime = gi.getJobRuntime(peRating);
+        if (glFinishTime < 1.0) {
+            glFinishTime = 1.0;
+        }
+        int roundUpTime = (int) (glFinishTime + 1);
+        double start = p.findEarliestStart(gi.getNumPE(), roundUpTime, prev_clock);
+        if (start == Double.MAX_VALUE) {
+            return -1;
+        }
+        // schedule is sorted by start times - find the first job that starts later
+        int lo = 0;
+        int hi = resSchedule.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (((GridletInfo) resSchedule.get(mid)).getExpectedStartTime() <= start) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
     }
 
     /**
@@ -1114,13 +1365,16 @@ public class ResourceInfo {
         }
     }
 
+    /** Returns the position of gi (the same object) in the resource's schedule or -1. */
+    public int indexOfGInfo(GridletInfo gi) {
+        return schedule_index.indexOfJob(gi);
+    }
+
     /** Finds the position of specified gridlet in the resource's schedule. */
     public int findGridletInfoPosition(GridletInfo gi) {
-        for (int j = 0; j < resSchedule.size(); j++) {
-            GridletInfo gs = (GridletInfo) resSchedule.get(j);
-            if (gs.getID() == gi.getID() && gs.getUser().equals(gi.getUser())) {
-                return j;
-            }
+        int j = schedule_index.indexOf(gi);
+        if (j >= 0 && resSchedule.get(j).getUser().equals(gi.getUser())) {
+            return j;
         }
         return -1;
     }
@@ -1140,13 +1394,13 @@ public class ResourceInfo {
 
             for (int i = 0; i < resInExec.size(); i++) {
                 GridletInfo gi = resInExec.get(i);
-                int user_index = Scheduler.users.indexOf(new String(gi.getUser()));
+                int user_index = ctx.users.indexOf(new String(gi.getUser()));
                 r_tuwt[user_index] += Math.max(0.0, gi.getGridlet().getExecStartTime() - gi.getRelease_date());
                 r_tuwt[user_index + size] += gi.getNumPE() * gi.getJobRuntime(peRating);
             }
             for (int i = 0; i < resSchedule.size(); i++) {
                 GridletInfo gi = resSchedule.get(i);
-                int user_index = Scheduler.users.indexOf(new String(gi.getUser()));
+                int user_index = ctx.users.indexOf(new String(gi.getUser()));
                 r_tuwt[user_index] += Math.max(0.0, gi.getExpectedStartTime() - gi.getRelease_date());
                 r_tuwt[user_index + size] += gi.getNumPE() * gi.getJobRuntime(peRating);
             }
@@ -15,11 +15,15 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import xklusac.extensions.Input;
+import xklusac.extensions.LogHistogram;
 import xklusac.extensions.Output;
 
 /**
@@ -79,18 +83,30 @@ public class ResultCollector {
     private int neg_score = 0;
     /** auxiliary variable */
     private int received = 0;
-    static Double[] slowdowns = new Double[5];
-    static Double[] resp_times = new Double[6];
-    static Double[] wait_times = new Double[6];
+    /** number of jobs in the classes of slowdown, response time and wait time (summed over the experiments of this collector) */
+    private Double[] slowdowns = new Double[5];
+    private Double[] resp_times = new Double[6];
+    private Double[] wait_times = new Double[6];
+    /** number of jobs with given wait time (minutes), response time (minutes) and slowdown, the last bin holds the larger values */
+    private double[] wait_hist = new double[1442];
+    private double[] resp_hist = new double[2882];
+    private double[] sld_hist = new double[1002];
+    /** runtime (s) below which the bounded slowdown does not grow */
+    private static final double BSLD_THRESHOLD = 10.0;
+    /** columns of Quantiles(...).csv after the data set column */
+    static final String QUANTILE_COLUMNS = "\tgroup\tname\tjobs\twait_p50\twait_p95\twait_p99\twait_max\tbsld_p50\tbsld_p95\tbsld_p99\tbsld_max";
+    /** quantile sketches of wait time [0] and bounded slowdown [1] of all jobs and per user, queue and cluster */
+    private LogHistogram[] all_quantiles = createSketches();
+    private TreeMap<String, LogHistogram[]> user_quantiles = new TreeMap();
+    private TreeMap<String, LogHistogram[]> queue_quantiles = new TreeMap();
+    private TreeMap<String, LogHistogram[]> cluster_quantiles = new TreeMap();
     private String user_dir = "";
+    /** state of the current simulation run (see setContext()) */
+    private SimulationContext ctx = null;
 
     /** Creates a new instance of ResultCollector */
     public ResultCollector(LinkedList results, String prob) {
-        if (ExperimentSetup.meta) {
-            user_dir = "/scratch/xklusac/" + ExperimentSetup.path;
-        } else {
-            user_dir = System.getProperty("user.dir");
-        }
+        user_dir = ExperimentSetup.getResultDir();
 
         this.results = results;
         this.problem = prob;
@@ -102,6 +118,9 @@ public class ResultCollector {
             out.deleteResults(user_dir + "/RGraphs(" + problem + ").csv");
             out.deleteResults(user_dir + "/SGraphs(" + problem + ").csv");
             out.deleteResults(user_dir + "/Fairness(" + problem + ").csv");
+            out.deleteResults(user_dir + "/Quantiles(" + problem + ").csv");
+            out.deleteResults(user_dir + "/Sketches(" + problem + ").csv");
+            out.deleteResults(user_dir + "/Latency(" + problem + ").csv");
         } catch (IOException ex) {
             ex.printStackTrace();
         }
@@ -110,6 +129,11 @@ public class ResultCollector {
         clear(wait_times);
     }
 
+    /** Sets the state of the simulation run whose results are collected next. */
+    public void setContext(SimulationContext ctx) {
+        this.ctx = ctx;
+    }
+
     /** generate results */
     public void generateHeader(String data_set) {
         String waxis = "algorithm";
@@ -149,6 +173,9 @@ public class ResultCollector {
             out.writeString(user_dir + "/SGraphs(" + problem + ").csv", saxis);
             out.writeString(user_dir + "/RGraphs(" + problem + ").csv", raxis);
             out.writeString(user_dir + "/Fairness(" + problem + ").csv", data_set + "\tsld_min\tsld_max\tsld_avg\twait_min\twait_max\twait_avg");
+            out.writeString(user_dir + "/Quantiles(" + problem + ").csv", data_set + QUANTILE_COLUMNS);
+            out.writeString(user_dir + "/Sketches(" + problem + ").csv", data_set + "\tgroup\tname\twait\tbsld");
+            out.writeString(user_dir + "/Latency(" + problem + ").csv", data_set + "\toperation\tqueue_length\tcalls\tp50_us\tp99_us\tmax_us\tavg_queue_length");
         } catch (IOException ex) {
             ex.printStackTrace();
         }
@@ -257,15 +284,19 @@ public class ResultCollector {
             // delete old one, will be left at the end
             if (ExperimentSetup.algID != ExperimentSetup.prevAlgID) {
                 out.deleteResults(user_dir + "/Users" + prob + ".csv");
-                out.deleteResults(user_dir + "/jobs" + prob + ".csv");
+                if (ExperimentSetup.writeJobTrace) {
+                    out.deleteResults(user_dir + "/jobs" + prob + ".csv");
+                }
             }
 
-            String end = addJobs((user_dir + "/jobs" + prob + ".csv"), jobs);
-            jobs = end;
-            System.out.println("jobs here = " + jobs);
-
             out.writeString(user_dir + "/Users" + prob + ".csv", fair);
-            out.writeString(user_dir + "/jobs" + prob + ".csv", jobs);
+            // the list of jobs is copied from the job trace
+            if (ExperimentSetup.writeJobTrace) {
+                String end = addJobs((user_dir + "/jobs" + prob + ".csv"), jobs);
+                jobs = end;
+                System.out.println("jobs here = " + jobs);
+                out.writeString(user_dir + "/jobs" + prob + ".csv", jobs);
+            }
             out.writeString(user_dir + "/Results(" + problem + ").csv", suff + "\t" +
                     Math.round(submitted * 100.0) / (experiment_count * 100.0) + "\t" +
                     Math.round(avg_deadline_score * 100.0) / (experiment_count * 100.0) + "\t" +
@@ -310,6 +341,8 @@ public class ResultCollector {
         }
 
         generateJobsStatistics(suff, avg_deadline_score);
+        generateQuantiles(suff);
+        generateLatency(suff);
 
         results.clear();
         clear(slowdowns);
@@ -361,7 +394,7 @@ public class ResultCollector {
 
         } else {
             success++;
-            ExperimentSetup.totalPower -= gi.getGridlet().getPower();
+            ctx.totalPower -= gi.getGridlet().getPower();
             finish_time = gi.getGridlet().getFinishTime();
             cpu_time = gi.getGridlet().getActualCPUTime();
             arrival = gi.getGridlet().getArrival_time();
@@ -405,28 +438,116 @@ public class ResultCollector {
         awsd += saj * Math.max(1.0, ((response / Math.max(1.0, cpu_time)))); // prevent division by zero
 
         // write out job's result
-        try {
-            // giID - wait - runtime - userID - numPE
-            out.writeString(user_dir + "/jobs(" + problem + "" + ExperimentSetup.algID + ").csv", gridlet_received.getGridletID() + "\t" + Math.max(0.0, (response - cpu_time)) +
-                    "\t" + cpu_time + "\t" + gi.getUser() + "\t" + gi.getNumPE());
+        if (ExperimentSetup.writeJobTrace) {
+            try {
+                // giID - wait - runtime - userID - numPE
+                out.writeString(user_dir + "/jobs(" + problem + "" + ExperimentSetup.algID + ").csv", gridlet_received.getGridletID() + "\t" + Math.max(0.0, (response - cpu_time)) +
+                        "\t" + cpu_time + "\t" + gi.getUser() + "\t" + gi.getNumPE());
+
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+        addJobStatistics(Math.max(0.0, (response - cpu_time)), cpu_time, gi.getUser(), gi.getNumPE());
+
+        String cluster = null;
+        ResourceInfo ri = ctx.getResourceInfo(gridlet_received.getResourceID());
+        if (ri != null) {
+            // we lower the load of resource, update info about overall tardiness
+            ri.lowerResInExec(gi);
+            ri.prev_tard += g_tard;
+            if (g_tard <= 0.0) {
+                ri.prev_score++;
+            }
+            cluster = ri.resource.getResourceName();
+        }
+        addQuantiles(Math.max(0.0, (response - cpu_time)), Math.max(1.0, (response / Math.max(BSLD_THRESHOLD, cpu_time))), gi.getUser(), gi.getQueue(), cluster);
+
+    }
+
+    /** Records wait time and bounded slowdown of a finished job into the quantile sketches. */
+    private void addQuantiles(double wait, double bsld, String user, String queue, String cluster) {
+        all_quantiles[0].add(wait);
+        all_quantiles[1].add(bsld);
+        LogHistogram[] sketches = getSketches(user_quantiles, user);
+        sketches[0].add(wait);
+        sketches[1].add(bsld);
+        sketches = getSketches(queue_quantiles, queue);
+        sketches[0].add(wait);
+        sketches[1].add(bsld);
+        // job that was not started has no cluster
+        if (cluster != null) {
+            sketches = getSketches(cluster_quantiles, cluster);
+            sketches[0].add(wait);
+            sketches[1].add(bsld);
+        }
+    }
+
+    private LogHistogram[] getSketches(TreeMap<String, LogHistogram[]> map, String name) {
+        if (name == null) {
+            name = "";
+        }
+        LogHistogram[] sketches = map.get(name);
+        if (sketches == null) {
+            sketches = createSketches();
+            map.put(name, sketches);
+        }
+        return sketches;
+    }
+
+    private static LogHistogram[] createSketches() {
+        return new LogHistogram[]{new LogHistogram(), new LogHistogram()};
+    }
 
+    /**
+     * Writes p50, p95, p99 and max of wait time and bounded slowdown of all jobs, users, queues and clusters. The buckets of the
+     * sketches are written into Sketches(...).csv, so the results of several runs can be merged (see SweepRunner).
+     */
+    private void generateQuantiles(String suff) {
+        String file = user_dir + "/Quantiles(" + problem + ").csv";
+        String sketch_file = user_dir + "/Sketches(" + problem + ").csv";
+        try {
+            out.writeString(file, getQuantileLine(suff, "all", "all", all_quantiles));
+            out.writeString(sketch_file, getSketchLine(suff, "all", "all", all_quantiles));
+            writeQuantiles(file, sketch_file, suff, "user", user_quantiles);
+            writeQuantiles(file, sketch_file, suff, "queue", queue_quantiles);
+            writeQuantiles(file, sketch_file, suff, "cluster", cluster_quantiles);
         } catch (IOException ex) {
             ex.printStackTrace();
         }
+    }
 
-        for (int j = 0; j < resourceInfoList.size(); j++) {
-            ResourceInfo ri = (ResourceInfo) resourceInfoList.get(j);
-            if (gridlet_received.getResourceID() == ri.resource.getResourceID()) {
-                // we lower the load of resource, update info about overall tardiness and exit cycle
-                ri.lowerResInExec(gi);
-                ri.prev_tard += g_tard;
-                if (g_tard <= 0.0) {
-                    ri.prev_score++;
-                }
-                break;
+    private void writeQuantiles(String file, String sketch_file, String suff, String group, TreeMap<String, LogHistogram[]> map) throws IOException {
+        for (Iterator<String> it = map.keySet().iterator(); it.hasNext();) {
+            String name = it.next();
+            out.writeString(file, getQuantileLine(suff, group, name, map.get(name)));
+            out.writeString(sketch_file, getSketchLine(suff, group, name, map.get(name)));
+        }
+    }
+
+    private static String getSketchLine(String suff, String group, String name, LogHistogram[] sketches) {
+        return suff + "\t" + group + "\t" + name + "\t" + sketches[0].encode() + "\t" + sketches[1].encode();
+    }
+
+    /** Writes the latency of scheduling decisions (see DecisionLatency). */
+    private void generateLatency(String suff) {
+        LinkedList<String> lines = ctx.latency.getReport(suff);
+        try {
+            for (int i = 0; i < lines.size(); i++) {
+                out.writeString(user_dir + "/Latency(" + problem + ").csv", lines.get(i));
             }
+        } catch (IOException ex) {
+            ex.printStackTrace();
         }
+    }
 
+    /** Returns one line of Quantiles(...).csv, sketches are the wait time [0] and bounded slowdown [1] sketches. */
+    static String getQuantileLine(String suff, String group, String name, LogHistogram[] sketches) {
+        LogHistogram w = sketches[0];
+        LogHistogram s = sketches[1];
+        return suff + "\t" + group + "\t" + name + "\t" + w.getCount() +
+                "\t" + round(w.getQuantile(0.5)) + "\t" + round(w.getQuantile(0.95)) + "\t" + round(w.getQuantile(0.99)) + "\t" + round(w.getMax()) +
+                "\t" + round(s.getQuantile(0.5)) + "\t" + round(s.getQuantile(0.95)) + "\t" + round(s.getQuantile(0.99)) + "\t" + round(s.getMax());
     }
 
     /**
@@ -434,6 +555,8 @@ public class ResultCollector {
      */
     public void computeResults(double av_PEs, double wav_PEs, double failure_time, double wfailure_time,
             double clock, double runtime, double classic_load, double max_load, int submitted) {
+        // job traces are read when the results are generated
+        Output.flush();
         avail_time = GridSim.clock() * av_PEs;
         avail_time -= failure_time;
         double usage = Math.round((job_time / avail_time) * 10000.0);
@@ -507,8 +630,16 @@ public class ResultCollector {
         clear(slowdowns);
         clear(resp_times);
         clear(wait_times);
-
-        ExperimentSetup.users.clear();
+        Arrays.fill(wait_hist, 0.0);
+        Arrays.fill(resp_hist, 0.0);
+        Arrays.fill(sld_hist, 0.0);
+        all_quantiles = createSketches();
+        user_quantiles.clear();
+        queue_quantiles.clear();
+        cluster_quantiles.clear();
+        ctx.latency.reset();
+
+        ctx.user_stats.clear();
     }
 
     private void clear(Double[] field) {
@@ -565,73 +696,51 @@ public class ResultCollector {
         }
 
     }
-    // generate entry into Graphs_* file using the trace stored in Jobs.csv file
-    private void generateJobsStatistics(String suff, double job_count) {
-        String line = "";
-        Input r = new Input();
-        BufferedReader br = r.openFile(new File(user_dir + "/jobs(" + problem + "" + ExperimentSetup.algID + ").csv"));
-        Double[] wt = new Double[1442];
-        Double[] rt = new Double[2882];
-        Double[] sd = new Double[1002];
-        clear(wt);
-        clear(rt);
-        clear(sd);
+    /**
+     * Updates the histograms of wait time, response time and slowdown and the user's statistics when a job finishes.
+     */
+    private void addJobStatistics(double wait, double runtime, String user, int numPE) {
+        double sld = Math.max(1.0, (Math.max(0.0, (wait + runtime)) / Math.max(1.0, runtime)));
+        double resp = Math.max(0.0, (wait + runtime));
+        // wait and response time in minutes
+        int index = (int) Math.round(wait / 60.0);
+        int rindex = (int) Math.round(resp / 60.0);
+        int sindex = (int) Math.round(sld);
+
+        // increase counter regarding the jobs
+        if (index > 1440) {
+            wait_hist[1441]++;
+        } else {
+            wait_hist[index]++;
+        }
 
-        while (true) {
-            try {
-                line = br.readLine();
-            } catch (IOException ex) {
-                ex.printStackTrace();
-            }
-            if (line == null) {
-                break;
-            } else {
-                String values[] = line.split("\t");
-                double wait = Double.parseDouble(values[1]);
-                double sld = Math.max(1.0, (Math.max(0.0, (wait + Double.parseDouble(values[2]))) / Math.max(1.0, Double.parseDouble(values[2]))));
-                double resp = Math.max(0.0, (wait + Double.parseDouble(values[2])));
-                // wait time in minutes
-                wait = Math.round(wait / 60.0);
-                resp = Math.round(resp / 60.0);
-                Long inl = Math.round(wait);
-                int index = Integer.valueOf(inl.intValue());
-
-                Long inr = Math.round(resp);
-                int rindex = Integer.valueOf(inr.intValue());
-
-                Long sindexl = Math.round(sld);
-                int sindex = Integer.valueOf(sindexl.intValue());
-
-                // increase counter regarding the jobs
-                if (index > 1440) {
-                    wt[1441]++;
-                } else {
-                    wt[index]++;
-                }
+        if (rindex > 2880) {
+            resp_hist[2881]++;
+        } else {
+            resp_hist[rindex]++;
+        }
 
-                if (rindex > 2880) {
-                    rt[2881]++;
-                } else {
-                    rt[index]++;
-                }
+        // increase slowdown counter
+        if (sindex > 1000) {
+            sld_hist[1001]++;
+        } else {
+            sld_hist[sindex]++;
+        }
 
-                // increase slowdown counter
-                if (sindex > 1000) {
-                    sd[1001]++;
-                } else {
-                    sd[sindex]++;
-                }
+        // handle users' fairness
+        User u = ctx.user_stats.get(user);
+        u.updateJobs(1.0);
+        u.updateSlowdown(sld);
+        u.updateWait(wait);
+        u.updateRuntime(runtime * numPE);
+    }
 
-                // handle users' fairness
-                User u = ExperimentSetup.users.get(values[3]);
-                wait = Double.parseDouble(values[1]);
-                //System.out.println(ExperimentSetup.users.size()+" user = "+values[3]+" curr="+u);
-                u.updateJobs(1.0);
-                u.updateSlowdown(sld);
-                u.updateWait(wait);
-                u.updateRuntime(Double.parseDouble(values[2]) * Integer.parseInt(values[4]));
-            }
-        }
+    // generate entry into Graphs_* file using the histograms collected when jobs finished
+    private void generateJobsStatistics(String suff, double job_count) {
+        double[] wt = wait_hist;
+        double[] rt = resp_hist;
+        double[] sd = sld_hist;
+        String line = "";
 
         //make the analysis and write it out to Graphs_*.csv
         line = suff;
@@ -669,9 +778,9 @@ public class ResultCollector {
         double max_wait = -1.0;
         double avg_wait = 0.0;
 
-        Enumeration keys = ExperimentSetup.users.keys();
-        for (int i = 0; i < ExperimentSetup.users.size(); i++) {
-            User u = ExperimentSetup.users.get(keys.nextElement());
+        Enumeration keys = ctx.user_stats.keys();
+        for (int i = 0; i < ctx.user_stats.size(); i++) {
+            User u = ctx.user_stats.get(keys.nextElement());
             // slowdown and wait time normalized by user utilized runtime
             double us = u.getSlowdown() / u.getRuntime();
             double uw = u.getWait() / u.getRuntime();
@@ -692,8 +801,8 @@ public class ResultCollector {
             avg_wait += uw;
         }
 
-        avg_sld = avg_sld / ExperimentSetup.users.size();
-        avg_wait = avg_wait / ExperimentSetup.users.size();
+        avg_sld = avg_sld / ctx.user_stats.size();
+        avg_wait = avg_wait / ctx.user_stats.size();
         fline += "\t" + min_sld + "\t" + max_sld + "\t" + avg_sld + "\t" + min_wait + "\t" + max_wait + "\t" + avg_wait;
 
         // write out job's result
@@ -708,37 +817,22 @@ public class ResultCollector {
         }
 
         // delete job trace after each experiment
-        try {
-            out.deleteResults(user_dir + "/jobs(" + problem + "" + ExperimentSetup.algID + ").csv");
-        } catch (IOException ex) {
-            ex.printStackTrace();
+        if (ExperimentSetup.writeJobTrace) {
+            try {
+                out.deleteResults(user_dir + "/jobs(" + problem + "" + ExperimentSetup.algID + ").csv");
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
         }
 
     }
 
+    /** Copies the job trace into filename (in one pass), the last line is not written but returned. */
     private String addJobs(String filename, String text) {
         String line = "";
         String output = "";
         Input r = new Input();
         BufferedReader br = r.openFile(new File(user_dir + "/jobs(" + problem + "" + ExperimentSetup.algID + ").csv"));
-        int c = 0;
-
-        while (true) {
-            try {
-                line = br.readLine();
-            } catch (IOException ex) {
-                ex.printStackTrace();
-            }
-            if (line == null) {
-                break;
-            } else {
-                c++;
-            }
-        }
-        System.out.println("------------- There are " + c + " jobs now, file = " + filename);
-        r.closeFile(br);
-        br = r.openFile(new File(user_dir + "/jobs(" + problem + "" + ExperimentSetup.algID + ").csv"));
-        int k = 0;
         if (!text.equals("")) {
             try {
                 out.writeString(filename, text);
@@ -746,6 +840,9 @@ public class ResultCollector {
                 Logger.getLogger(ResultCollector.class.getName()).log(Level.SEVERE, null, ex);
             }
         }
+        int c = 0;
+        // each line is written when the next one is read
+        String previous = null;
 
         while (true) {
             try {
@@ -756,20 +853,23 @@ public class ResultCollector {
             if (line == null) {
                 break;
             } else {
-                k++;
+                c++;
                 String[] values = line.split("\t");
                 line = values[0] + "\t" + round(Double.parseDouble(values[1])) + "\t" + values[2] + "\t" + values[3];
-                if (c == k) {
-                    output += line + "";
-                } else {
+                if (previous != null) {
                     try {
-                        out.writeString(filename, line);
+                        out.writeString(filename, previous);
                     } catch (IOException ex) {
                         Logger.getLogger(ResultCollector.class.getName()).log(Level.SEVERE, null, ex);
                     }
                 }
+                previous = line;
             }
         }
+        if (previous != null) {
+            output += previous + "";
+        }
+        System.out.println("------------- There are " + c + " jobs now, file = " + filename);
         r.closeFile(br);
         return output;
     }
@@ -777,35 +877,35 @@ public class ResultCollector {
     private String predictFairness() {
         double fairness = 0;
         String line = "";
-        double[] nuwt = new double[Scheduler.users.size()];
-        double[] tuwt = new double[Scheduler.users.size()];
-        double[] tusa = new double[Scheduler.users.size()];
-        double[] tujobs = new double[Scheduler.users.size()];
+        double[] nuwt = new double[ctx.users.size()];
+        double[] tuwt = new double[ctx.users.size()];
+        double[] tusa = new double[ctx.users.size()];
+        double[] tujobs = new double[ctx.users.size()];
         double nwt = 0.0;
 
         // load known values
-        for (int i = 0; i < Scheduler.users.size(); i++) {
+        for (int i = 0; i < ctx.users.size(); i++) {
             nuwt[i] = 0.0;
-            tuwt[i] = Scheduler.total_uwt.get(i);
-            tusa[i] = Scheduler.users_time.get(i);
-            tujobs[i] = Scheduler.users_jobs.get(i) + Scheduler.users_P_jobs.get(i);
+            tuwt[i] = ctx.total_uwt.get(i);
+            tusa[i] = ctx.users_time.get(i);
+            tujobs[i] = ctx.users_jobs.get(i) + ctx.users_P_jobs.get(i);
         }
         // now tuwt and tusa stores both known and predicted values
         // now proceed with fairness computation        
-        for (int i = 0; i < Scheduler.users.size(); i++) {
+        for (int i = 0; i < ctx.users.size(); i++) {
             nuwt[i] = tuwt[i] / Math.max(1.0, tusa[i]);
             nwt += nuwt[i];
         }
-        nwt = nwt / (1.0 * Scheduler.users.size());
+        nwt = nwt / (1.0 * ctx.users.size());
         int totj = 0;
 
         // calculate the sum of powers of average normalized wt - normalized user wt
-        for (int i = 0; i < Scheduler.users.size(); i++) {
+        for (int i = 0; i < ctx.users.size(); i++) {
             // to avoid decreasement of values when the power is computed we add 1.0 
-            if (i < Scheduler.users.size() - 1) {
-                line += Scheduler.users.get(i) + "\t" + tuwt[i] + "\t" + nuwt[i] + "\t" + tusa[i] + "\t" + tujobs[i] + "\n";
+            if (i < ctx.users.size() - 1) {
+                line += ctx.users.get(i) + "\t" + tuwt[i] + "\t" + nuwt[i] + "\t" + tusa[i] + "\t" + tujobs[i] + "\n";
             } else {
-                line += Scheduler.users.get(i) + "\t" + tuwt[i] + "\t" + nuwt[i] + "\t" + tusa[i] + "\t" + tujobs[i] + "";
+                line += ctx.users.get(i) + "\t" + tuwt[i] + "\t" + nuwt[i] + "\t" + tusa[i] + "\t" + tujobs[i] + "";
             }
             totj += tujobs[i];
             //System.out.println("user"+i+" nuwt="+(Math.round(nuwt[i]*100.0))/100.0+" tusa="+Math.round(tusa[i]));            
@@ -817,7 +917,7 @@ public class ResultCollector {
         return line;
     }
 
-    private double round(double d) {
+    private static double round(double d) {
         d = Math.round(d * 10000.0) * 1.0 / 10000.0;
         return d;
     }
@@ -0,0 +1,54 @@
+package xklusac.environment;
+
+import xklusac.extensions.FreeSlotHeap;
+
+/**
+ * Class ScheduleCheckpoint<p>
+ * Stores the state of the schedule evaluation (ResourceInfo.update()) just before a given position of the schedule is evaluated,
+ * i.e., the free slots of CPUs and the values accumulated over the previous jobs. When a job is added or removed, the evaluation
+ * can continue from the last checkpoint before the changed position instead of evaluating the whole schedule again.
+ */
+public class ScheduleCheckpoint {
+
+    /** earliest free slot of each CPU */
+    double finishTimeOnPE[];
+    /** copy of the heap with free slots (if ExperimentSetup.useHeap is used), see FreeSlotHeap.createSnapshot() */
+    FreeSlotHeap slots = null;
+    /** number of holes created so far */
+    int holes = 0;
+    double holes_length = 0.0;
+    double holes_mips = 0.0;
+    double res_usage = 0.0;
+    double accum_start_time = 0.0;
+    double accum_sd = 0.0;
+    double accum_wait = 0.0;
+    double accum_resp = 0.0;
+    double total_tardiness = 0.0;
+    double start_hole_max = 0.0;
+    int nondelayed = 0;
+
+    /** Creates a new instance of ScheduleCheckpoint */
+    public ScheduleCheckpoint(int numPE) {
+        this.finishTimeOnPE = new double[numPE];
+    }
+
+    /** Creates a copy of given checkpoint */
+    public ScheduleCheckpoint(ScheduleCheckpoint cp) {
+        this.finishTimeOnPE = cp.finishTimeOnPE.clone();
+        if (cp.slots != null) {
+            this.slots = FreeSlotHeap.createSnapshot();
+            this.slots.copyFrom(cp.slots);
+        }
+        this.holes = cp.holes;
+        this.holes_length = cp.holes_length;
+        this.holes_mips = cp.holes_mips;
+        this.res_usage = cp.res_usage;
+        this.accum_start_time = cp.accum_start_time;
+        this.accum_sd = cp.accum_sd;
+        this.accum_wait = cp.accum_wait;
+        this.accum_resp = cp.accum_resp;
+        this.total_tardiness = cp.total_tardiness;
+        this.start_hole_max = cp.start_hole_max;
+        this.nondelayed = cp.nondelayed;
+    }
+}
@@ -22,12 +22,12 @@ import xklusac.extensions.*;
  *               object represents one Resource.
  * @author       Dalibor Klusacek
  */
-public class Scheduler extends GridSim {
+public class Scheduler extends EngineGridSim {
 
     /** list of Resources */
     private LinkedList resList;
-    /** list of ResourceInfo objects */
-    public static ArrayList resourceInfoList;
+    /** state of this simulation run */
+    private SimulationContext ctx;
     /** Resource count */
     private int totalResource;
     /** list of Resource's IDs */
@@ -41,51 +41,13 @@ public class Scheduler extends GridSim {
     private double clock1 = 0.0;
     /** Time after the end of scheduling */
     private double clock2 = 0.0;
+    /** Part of clock spent by optimization algorithms (opt_alg, fix_alg) */
+    private double opt_clock = 0.0;
     /** Tag signaling that gridlet/job was sent */
     public static int GridletWasSent = 111223344;
     public static int ScheduleJobsNow = 1119055678;
-    private static LinkedList schedQueue = new LinkedList();
-    private static LinkedList schedQueue2 = new LinkedList();
-    /** incoming job queue */
-    public static LinkedList<GridletInfo> queue = new LinkedList();
-    /** incoming job queue */
-    public static LinkedList q10 = new LinkedList();
-    /** incoming job queue */
-    public static LinkedList q5 = new LinkedList();
-    /** incoming job queue */
-    public static LinkedList q2 = new LinkedList();
-    /** incoming job queue */
-    public static LinkedList q7 = new LinkedList();
-    /** incoming job queue */
-    public static LinkedList q8 = new LinkedList();
-    /** incoming job queue */
-    public static LinkedList q9 = new LinkedList();
-    /** incoming job queue */
-    public static LinkedList q6 = new LinkedList();
-    /** incoming job queue */
-    public static LinkedList q11 = new LinkedList();
-    /** incoming job queue */
-    public static LinkedList q1 = new LinkedList();
-    /** incoming job queue */
-    public static LinkedList q4 = new LinkedList();
-    /** incoming job queue */
-    public static LinkedList q3 = new LinkedList();
-    /** incoming job queue */
-    public static LinkedList short_queue = new LinkedList();
-    /** incoming job queue */
-    public static LinkedList normal_queue = new LinkedList();
-    /** incoming job queue */
-    public static LinkedList quark_queue = new LinkedList();
-    /** incoming job queue */
-    public static LinkedList long_queue = new LinkedList();
-    /** incoming job queue */
-    public static LinkedList ncbr_queue = new LinkedList();
-    /** incoming job queue */
-    public static LinkedList iti_queue = new LinkedList();
-    /** incoming job queue */
-    public static LinkedList cpmd_queue = new LinkedList();
-    /** List of all incoming job queues */
-    public static LinkedList<LinkedList> all_queues = new LinkedList();
+    private LinkedList schedQueue = new LinkedList();
+    private LinkedList schedQueue2 = new LinkedList();
     /** denotes queue/schedule strategy */
     public static int global_policy = 1;
     /** denotes used algorithm */
@@ -94,31 +56,11 @@ public class Scheduler extends GridSim {
     private int waiting_size = 0;
     /** denotes best machine's MIPS rating */
     double bestMachine = 0.0;
-    /** denotes # of active PEs */
-    static double activePEs = 0.0;
-    /** denotes # of available PEs */
-    public static double availPEs = 0.0;
-    public static double classic_activePEs = 0.0;
-    /** denotes # of available PEs */
-    public static double classic_availPEs = 0.0;
-    /** denotes # of PEs requested by currently present jobs */
-    static double requestedPEs = 0.0;
-    /** denotes load of the system */
-    static double load = 0.0;
-    static double classic_load = 0.0;
-    /** denotes maximal possible load of the system */
-    static double max_load = 0.0;
-    /** denotes last time event when the load was updated */
-    static double last_event = 0.0;
-    /** denotes start time of the simulation */
-    static double start_event = -10.0;
     /** denotes restart of simulation - variables will be reset */
     private boolean restart = true;
     /** auxiliary variable */
     double wait = 0.0;
     /** auxiliary variable */
-    static Random perm_rnd = new Random(1024768);
-    /** auxiliary variable */
     Input r = new Input();
     /** auxiliary variable */
     String folder_prefix = "";
@@ -142,36 +84,26 @@ public class Scheduler extends GridSim {
     private static int SendGridletInfo = 999;
     private static int PeriodicOptimization = 111551;
     /** auxiliary variable */
-    public static double runtime = 0.0;
-    /** auxiliary variable */
     private int in_job_counter = 0;
     /** auxiliary variable */
     int day_count = 0;
     /** auxiliary variable */
     int hour_count = 0;
     /** auxiliary variable */
-    public static Random rand = new Random(1223);
-    /** auxiliary variable */
-    public static String data_set = "";
-    /** auxiliary variable */
     boolean end_of_submission = false;
     /** auxiliary variable */
     String suff = "";
     /** auxiliary variable */
     boolean repeated = false;
     /** auxiliary variable */
-    static LinkedList<String> avail_properties = new LinkedList();
+    LinkedList<String> avail_properties = new LinkedList();
     /** auxiliary variable */
     public int succ_m = 0;
     /** auxiliary variable */
     int bad = 0;
     /** auxiliary variable */
-    static double failure_time = 0.0;
-    /** auxiliary variable */
     double wavail_time = 0.0;
     /** auxiliary variable */
-    static double wfailure_time = 0.0;
-    /** auxiliary variable */
     double av_PEs = 0.0;
     /** auxiliary variable */
     double wav_PEs = 0.0;
@@ -182,22 +114,6 @@ public class Scheduler extends GridSim {
     /** auxiliary variable */
     int week_count = 0;
     /** auxiliary variable */
-    public static LinkedList<String> users = new LinkedList();
-    /** auxiliary variable */
-    public static LinkedList<Double> users_time = new LinkedList();
-    /** auxiliary variable */
-    public static LinkedList<Double> users_length = new LinkedList();
-    /** auxiliary variable */
-    public static LinkedList<Double> users_last_length = new LinkedList();
-    /** auxiliary variable */
-    public static LinkedList<Double> users_P_length = new LinkedList();
-    /** auxiliary variable */
-    public static LinkedList<Double> total_uwt = new LinkedList();
-    /** auxiliary variable */
-    public static LinkedList<Integer> users_jobs = new LinkedList();
-    /** auxiliary variable */
-    public static LinkedList<Integer> users_P_jobs = new LinkedList();
-    /** auxiliary variable */
     Visualizator anim = null;
     /** auxiliary variable */
     LinkedList<Visualizator> windows = null;
@@ -228,8 +144,6 @@ public class Scheduler extends GridSim {
     /** auxiliary variable */
     int reqc = 0;
     /** auxiliary variable */
-    public static int busyc = 0;
-    /** auxiliary variable */
     int availCPUS = 0;
     /** auxiliary variable */
     LinkedList<Integer> availCPUs = new LinkedList();
@@ -244,8 +158,6 @@ public class Scheduler extends GridSim {
     /** auxiliary variable */
     boolean failures;
     /** auxiliary variable */
-    static boolean reqs;
-    /** auxiliary variable */
     int submitted = 0;
     /** auxiliary variable */
     int maxPE = 0;
@@ -273,49 +185,46 @@ public class Scheduler extends GridSim {
      * @param windows list of references on the GUI windows
      * @param rc reference to a result collector instance
      * @param rnd random number generator seed
+     * @param ctx state of this simulation run
      *
      */
     public Scheduler(String name, double baudRate, int totalJSS, LinkedList results, int algorithm, String data_set,
-            int total_gridlet, String suff, LinkedList windows, ResultCollector rc, int rnd) throws Exception {
+            int total_gridlet, String suff, LinkedList windows, ResultCollector rc, int rnd, SimulationContext ctx) throws Exception {
         super(name, baudRate);
-        if (ExperimentSetup.meta) {
-            folder_prefix = "/scratch/xklusac/" + ExperimentSetup.path;
-        } else {
-            folder_prefix = System.getProperty("user.dir");
-        }
+        this.ctx = ctx;
+        folder_prefix = ExperimentSetup.getResultDir();
         this.failures = ExperimentSetup.failures;
-        this.reqs = ExperimentSetup.reqs;
         this.windows = windows;
         if (windows.size() > 0) {
             visualize = true;
         }
-        this.perm_rnd = new Random(1223 + rnd + 1);
-        this.rand = new Random(1024768 + rnd + 1);
+        ctx.perm_rnd = new Random(1223 + rnd + 1);
+        ctx.rand = new Random(1024768 + rnd + 1);
         this.algorithm = algorithm;
-        this.data_set = data_set;
+        ctx.data_set = data_set;
         this.suff = suff;
         this.repeated = false;
 
         // add all PBS queues into the queue list
-        if (data_set.equals("metacentrum.mwf")) {
-            all_queues.addLast(q10);    // priority = 	99
-            all_queues.addLast(q5);    // priority = 	80
-            all_queues.addLast(q2);    // priority = 	70
-            all_queues.addLast(q7);    // priority = 	70
-            all_queues.addLast(q8);    // priority = 	70
-            all_queues.addLast(q9);    // priority = 	70
-            all_queues.addLast(q6);    // priority = 	65
-            all_queues.addLast(q11);    // priority = 	65
-            all_queues.addLast(q1);    // priority = 	62
-            all_queues.addLast(q4);    // priority = 	60
-            all_queues.addLast(q3);    // priority = 	50
+        if (BinaryTrace.getSourceName(ctx.data_set).equals("metacentrum.mwf")) {
+            ctx.all_queues.addLast(ctx.q10);    // priority = 	99
+            ctx.all_queues.addLast(ctx.q5);    // priority = 	80
+            ctx.all_queues.addLast(ctx.q2);    // priority = 	70
+            ctx.all_queues.addLast(ctx.q7);    // priority = 	70
+            ctx.all_queues.addLast(ctx.q8);    // priority = 	70
+            ctx.all_queues.addLast(ctx.q9);    // priority = 	70
+            ctx.all_queues.addLast(ctx.q6);    // priority = 	65
+            ctx.all_queues.addLast(ctx.q11);    // priority = 	65
+            ctx.all_queues.addLast(ctx.q1);    // priority = 	62
+            ctx.all_queues.addLast(ctx.q4);    // priority = 	60
+            ctx.all_queues.addLast(ctx.q3);    // priority = 	50
         } else {
-            all_queues.addLast(cpmd_queue);   // priority = 71
-            all_queues.addLast(ncbr_queue);   // priority = 70
-            all_queues.addLast(iti_queue);    // priority = 70
-            all_queues.addLast(long_queue);   // priority = 62
-            all_queues.addLast(short_queue);  // priority = 60
-            all_queues.addLast(normal_queue); // priority = 50
+            ctx.all_queues.addLast(ctx.cpmd_queue);   // priority = 71
+            ctx.all_queues.addLast(ctx.ncbr_queue);   // priority = 70
+            ctx.all_queues.addLast(ctx.iti_queue);    // priority = 70
+            ctx.all_queues.addLast(ctx.long_queue);   // priority = 62
+            ctx.all_queues.addLast(ctx.short_queue);  // priority = 60
+            ctx.all_queues.addLast(ctx.normal_queue); // priority = 50
         }
         this.totalGridlet_ = total_gridlet;
         this.current_gl = 0;
@@ -332,16 +241,21 @@ public class Scheduler extends GridSim {
         for (int i = 0; i < a_v.length; i++) {
             avail_properties.add(a_v[i]);
         }
+        // synthetic data sets may define their own properties
+        if (SyntheticWorkload.isSynthetic(ctx.data_set)) {
+            avail_properties.addAll(SyntheticWorkload.load(ctx.data_set).getPropertyNames());
+        }
+        ctx.matcher.init(BinaryTrace.getSourceName(ctx.data_set), avail_properties);
 
-        // reset user and job related data before new experiment starts
-        users.clear();
-        users_time.clear();
-        total_uwt.clear();
-        users_length.clear();
-        users_last_length.clear();
-        users_P_length.clear();
-        users_jobs.clear();
-        users_P_jobs.clear();
+        if (ExperimentSetup.useEventEngine) {
+            // replaces the initial gridSimHold(10.0) of body()
+            SimulationEngine.schedule(get_id(), get_id(), 10.0, SimulationEngine.StartSimulation, null);
+        }
+    }
+
+    /** Returns the state of this simulation run. */
+    public SimulationContext getContext() {
+        return ctx;
     }
 
     /**
@@ -360,420 +274,512 @@ public class Scheduler extends GridSim {
             super.gridSimHold(10.0);    // hold by 10 second
 
             resList = super.getGridResourceList();
+            if (createResourceInfos()) {
+                break; // break when we have the resource-related information
+            }
+        } //end while
+        startLoaders();
 
-            resourceInfoList = new ArrayList();
-            if (resList.size() > 0) {
-                totalResource = resList.size();
-                System.out.println("GridResource/Cluster count: " + totalResource);
-                resourceID = new int[totalResource];
-                resourceName = new String[totalResource];
-                // a loop to get all the resources available
-                int i = 0;
-                availPEs = 0.0;
-                classic_availPEs = 0.0;
-
-                for (i = 0; i < totalResource; i++) {
-                    // Resource list contains list of resource IDs
-                    resourceID[i] = ((Integer) resList.get(i)).intValue();
-                    // get their names as well
-                    resourceName[i] = GridSim.getEntityName(resourceID[i]);
-                    int res_id = ((Integer) resList.get(i)).intValue();
-                    // Get Resource Characteristic Info
-                    ComplexResourceCharacteristics res = (ComplexResourceCharacteristics) super.getResourceCharacteristics(res_id);
-                    ResourceInfo ri = new ResourceInfo(res);
-                    // increase number of available PEs
-                    availPEs += ri.resource.getNumPE() * ri.resource.getMIPSRatingOfOnePE();
-                    classic_availPEs += ri.resource.getNumPE();
-                    availCPUS += ri.resource.getNumPE();
-                    if (ri.resource.getMIPSRatingOfOnePE() > maxPE) {
-                        maxPE = ri.resource.getMIPSRatingOfOnePE();
-                    }
-                    // store machines according CPU count and their performance
-                    if (resourceInfoList.size() > 0) {
-                        for (int j = 0; j < resourceInfoList.size(); j++) {
-                            ResourceInfo rj = (ResourceInfo) resourceInfoList.get(j);
-                            if (ri.resource.getNumPE() >= rj.resource.getNumPE()) {
-                                if (ri.resource.getNumPE() == rj.resource.getNumPE() && ri.resource.getMIPSRatingOfOnePE() > rj.resource.getMIPSRatingOfOnePE()) {
-                                    resourceInfoList.add(j, ri);
-                                    break;
-                                }
-                                if (ri.resource.getNumPE() > rj.resource.getNumPE()) {
-                                    resourceInfoList.add(j, ri);
-                                    break;
-                                }
+        // Accept events until the simulation is finished
+        while (!end_of_submission || received < in_job_counter) {
+
+            Sim_event ev = new Sim_event();
+            sim_get_next(ev);
+            processEvent(ev.get_tag(), ev.get_data());
+        }
+
+        // all jobs were received
+        if (end_of_submission && received == in_job_counter) {
+            // turn off the JobLoader
+            super.send(this.getEntityId(ctx.data_set + "_JobLoader"), GridSimTags.SCHEDULE_NOW, GridSimTags.END_OF_SIMULATION, 0.0);
+            // turn off the FailureLoader
+            super.send(this.getEntityId(ctx.data_set + "_FailureLoader"), GridSimTags.SCHEDULE_NOW, GridSimTags.END_OF_SIMULATION, 0.0);
+            // turn off the Scheduler (this entity)
+            super.send(super.getEntityId(super.getEntityName()), GridSimTags.SCHEDULE_NOW, GridSimTags.END_OF_SIMULATION, 0.0);
+        }
+
+        Sim_event ev = new Sim_event();
+        while (ev.get_tag() != -1) {
+            sim_get_next(ev);
+            System.out.println(ev.get_tag() + ": (-1) this is the tag that should quit Scheduler");
+        }
+
+        if (ev.get_tag() == GridSimTags.END_OF_SIMULATION) {
+            writeResults();
+        }
+        // shut down I/O ports, turn off this entity
+        shutdownUserEntity();
+        super.terminateIOEntities();
+    }
+
+    /**
+     * Processes one event delivered by the SimulationEngine. This replaces the body() thread when
+     * ExperimentSetup.useEventEngine is set.
+     */
+    public void processEvent(SimulationEvent ev) {
+        if (ev.getTag() == SimulationEngine.StartSimulation) {
+            resList = SimulationEngine.getResourceList();
+            createResourceInfos();
+            startLoaders();
+            return;
+        }
+        processEvent(ev.getTag(), ev.getData());
+
+        // all jobs were received
+        if (end_of_submission && received == in_job_counter) {
+            writeResults();
+            SimulationEngine.stop();
+        }
+    }
+
+    /**
+     * Creates the list of ResourceInfo objects according to the list of resources (resList).
+     * @return false if no resource is available yet
+     */
+    private boolean createResourceInfos() {
+        ctx.resourceInfoList = new ArrayList();
+        if (resList.size() > 0) {
+            totalResource = resList.size();
+            System.out.println("GridResource/Cluster count: " + totalResource);
+            resourceID = new int[totalResource];
+            resourceName = new String[totalResource];
+            // a loop to get all the resources available
+            int i = 0;
+            ctx.availPEs = 0.0;
+            ctx.classic_availPEs = 0.0;
+
+            for (i = 0; i < totalResource; i++) {
+                // Resource list contains list of resource IDs
+                resourceID[i] = ((Integer) resList.get(i)).intValue();
+                // get their names as well
+                resourceName[i] = GridSim.getEntityName(resourceID[i]);
+                int res_id = ((Integer) resList.get(i)).intValue();
+                // Get Resource Characteristic Info
+                ComplexResourceCharacteristics res = null;
+                if (ExperimentSetup.useEventEngine) {
+                    res = SimulationEngine.getResourceCharacteristics(res_id);
+                } else {
+                    res = (ComplexResourceCharacteristics) super.getResourceCharacteristics(res_id);
+                }
+                if (!ctx.matcher.usesProperties()) {
+                    ctx.matcher.addName(res.getResourceName());
+                }
+                res.compilePropertyMask(ctx.matcher);
+                ResourceInfo ri = new ResourceInfo(res, ctx);
+                // increase number of available PEs
+                ctx.availPEs += ri.resource.getNumPE() * ri.resource.getMIPSRatingOfOnePE();
+                ctx.classic_availPEs += ri.resource.getNumPE();
+                availCPUS += ri.resource.getNumPE();
+                if (ri.resource.getMIPSRatingOfOnePE() > maxPE) {
+                    maxPE = ri.resource.getMIPSRatingOfOnePE();
+                }
+                // store machines according CPU count and their performance
+                if (ctx.resourceInfoList.size() > 0) {
+                    for (int j = 0; j < ctx.resourceInfoList.size(); j++) {
+                        ResourceInfo rj = (ResourceInfo) ctx.resourceInfoList.get(j);
+                        if (ri.resource.getNumPE() >= rj.resource.getNumPE()) {
+                            if (ri.resource.getNumPE() == rj.resource.getNumPE() && ri.resource.getMIPSRatingOfOnePE() > rj.resource.getMIPSRatingOfOnePE()) {
+                                ctx.resourceInfoList.add(j, ri);
+                                break;
                             }
-                            if (j == resourceInfoList.size() - 1) {
-                                resourceInfoList.add(ri);
+                            if (ri.resource.getNumPE() > rj.resource.getNumPE()) {
+                                ctx.resourceInfoList.add(j, ri);
                                 break;
                             }
                         }
-                    } else {
-                        resourceInfoList.add(ri);
+                        if (j == ctx.resourceInfoList.size() - 1) {
+                            ctx.resourceInfoList.add(ri);
+                            break;
+                        }
                     }
+                } else {
+                    ctx.resourceInfoList.add(ri);
                 }
-                ResourceInfo best = (ResourceInfo) resourceInfoList.get(0);
-                bestMachine = best.resource.getMIPSRatingOfOnePE();
-
-                System.out.println(perm_rnd.nextDouble() + " next");
-                System.out.println("List of resources:");
-                for (i = 0; i < resourceInfoList.size(); i++) {
-                    ResourceInfo ri = (ResourceInfo) resourceInfoList.get(i);
-                    total_machines += ri.resource.getNumMachines();
-                    System.out.println("id = " + ri.resource.getResourceID() + ", name = " + ri.resource.getResourceName() + ", CPUs = " + ri.resource.getNumPE() + ", CPU rating = " +
-                            ri.resource.getMIPSRatingOfOnePE() + ", machines = " + ri.resource.getNumMachines() + ", props=" + ri.resource.getProperties());
-                }
-                System.out.println("Total available MIPS power = " + availPEs + " MIPS in " + classic_availPEs + " CPUs and machines = " + total_machines);
-                wav_PEs = availPEs;
-                av_PEs = classic_availPEs;
-
-                // start periodical logging of results and visualization
-                if (visualize) {
-                    super.sim_schedule(this.getEntityId(this.getEntityName()), 0.0, 11155);
-                }
-                // start periodical optimization of schedule
-                super.sim_schedule(this.getEntityId(this.getEntityName()), 300.0, PeriodicOptimization);
-                break; // break when we have the resource-related information
+            }
+            ResourceInfo best = (ResourceInfo) ctx.resourceInfoList.get(0);
+            bestMachine = best.resource.getMIPSRatingOfOnePE();
+
+            System.out.println(ctx.perm_rnd.nextDouble() + " next");
+            System.out.println("List of resources:");
+            for (i = 0; i < ctx.resourceInfoList.size(); i++) {
+                ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(i);
+                total_machines += ri.resource.getNumMachines();
+                System.out.println("id = " + ri.resource.getResourceID() + ", name = " + ri.resource.getResourceName() + ", CPUs = " + ri.resource.getNumPE() + ", CPU rating = " +
+                        ri.resource.getMIPSRatingOfOnePE() + ", machines = " + ri.resource.getNumMachines() + ", props=" + ri.resource.getProperties());
+            }
+            System.out.println("Total available MIPS power = " + ctx.availPEs + " MIPS in " + ctx.classic_availPEs + " CPUs and machines = " + total_machines);
+            wav_PEs = ctx.availPEs;
+            av_PEs = ctx.classic_availPEs;
 
+            // start periodical logging of results and visualization
+            if (visualize) {
+                sim_schedule(this.getEntityId(this.getEntityName()), 0.0, 11155);
             }
-        } //end while
+            // start periodical optimization of schedule
+            sim_schedule(this.getEntityId(this.getEntityName()), 300.0, PeriodicOptimization);
+            return true;
+        }
+        return false;
+    }
+
+    /** Starts the FailureLoader and the JobLoader. */
+    private void startLoaders() {
         // start the FailureLoader
         if (failures) {
-            super.sim_schedule(this.getEntityId(data_set + "_FailureLoader"), 0.0, GridSimTags.JUNK_PKT);
+            sim_schedule(this.getEntityId(ctx.data_set + "_FailureLoader"), 0.0, GridSimTags.JUNK_PKT);
         }
         // start the JobLoader
-        super.sim_schedule(this.getEntityId(data_set + "_JobLoader"), 5.0, GridSimTags.JUNK_PKT);
-
-        // Accept events until the simulation is finished
-        while (!end_of_submission || received < in_job_counter) {
-
-            Sim_event ev = new Sim_event();
-            sim_get_next(ev);
-
-            // if periodic optimization is used, select proper algorithm according to 'algorithm' parameter
-            if (ev.get_tag() == PeriodicOptimization) {
-                if (ExperimentSetup.opt_alg != null) {
-                    // select number of iteration of TS
-                    int iteration = this.getScheduleSize() * 2;
-                    Date dd = new Date();
-                    clock1 = dd.getTime();
-                    ExperimentSetup.opt_alg.execute(iteration, 2000);
-                    Date dd2 = new Date();
-                    clock2 = dd2.getTime();
-                    clock += clock2 - clock1;
-                    // send periodical event that will arrive in 300s, i.e., in 5 minutes
-                    super.sim_schedule(this.getEntityId(this.getEntityName()), 300.0, PeriodicOptimization);
-                }
-                super.sim_schedule(this.getEntityId(this.getEntityName()), 0.0, ScheduleJobsNow);
-                continue;
-            }
+        sim_schedule(this.getEntityId(ctx.data_set + "_JobLoader"), 5.0, GridSimTags.JUNK_PKT);
+    }
 
-            // on-demand optimization when early job completion is detected
-            if (ev.get_tag() == 987654321 && ExperimentSetup.fix_alg != null) {
-                // select number of iteration of LS
-                int iteration = this.getScheduleSize() * 2;
+    /** Processes one incoming event. */
+    private void processEvent(int tag, Object data) {
+        // if periodic optimization is used, select proper algorithm according to 'algorithm' parameter
+        if (tag == PeriodicOptimization) {
+            if (ctx.opt_alg != null) {
+                // select number of iteration of TS
+                int iteration = ctx.getScheduleSize() * 2;
                 Date dd = new Date();
                 clock1 = dd.getTime();
-                ExperimentSetup.fix_alg.execute(iteration, 50);
+                int backlog = getBacklog();
+                long start = System.nanoTime();
+                ctx.opt_alg.execute(iteration, 2000);
+                recordLatency(DecisionLatency.OPTIMIZATION, start, backlog);
                 Date dd2 = new Date();
                 clock2 = dd2.getTime();
                 clock += clock2 - clock1;
-                super.sim_schedule(this.getEntityId(this.getEntityName()), 0.0, ScheduleJobsNow);
-                continue;
-            }
-            // JobLoader sended all gridlets
-            if (ev.get_tag() == 612345) {
-                end_of_submission = true;
-                this.submitted = (Integer) ev.get_data();
-                System.out.println("End of submission... " + in_job_counter + " arrived, > received " + received + " subm = " + submitted);
-                continue;
+                opt_clock += clock2 - clock1;
+                // send periodical event that will arrive in 300s, i.e., in 5 minutes
+                sim_schedule(this.getEntityId(this.getEntityName()), 300.0, PeriodicOptimization);
             }
+            sim_schedule(this.getEntityId(this.getEntityName()), 0.0, ScheduleJobsNow);
+            return;
+        }
 
-            // periodical result collection - will be replaced by simple ResultCollector calling.
-            if (ev.get_tag() == 11155) {
-                collectPeriodicalResults();
-                // send periodical event that will arrive in 3600s, i.e., in one hour
-                super.sim_schedule(this.getEntityId(this.getEntityName()), 3600.0, 11155);
-                continue;
-            }
+        // on-demand optimization when early job completion is detected
+        if (tag == 987654321 && ctx.fix_alg != null) {
+            // select number of iteration of LS
+            int iteration = ctx.getScheduleSize() * 2;
+            Date dd = new Date();
+            clock1 = dd.getTime();
+            int backlog = getBacklog();
+            long start = System.nanoTime();
+            ctx.fix_alg.execute(iteration, 50);
+            recordLatency(DecisionLatency.ON_DEMAND_OPTIMIZATION, start, backlog);
+            Date dd2 = new Date();
+            clock2 = dd2.getTime();
+            clock += clock2 - clock1;
+            opt_clock += clock2 - clock1;
+            sim_schedule(this.getEntityId(this.getEntityName()), 0.0, ScheduleJobsNow);
+            return;
+        }
+        // JobLoader sended all gridlets
+        if (tag == 612345) {
+            end_of_submission = true;
+            this.submitted = (Integer) data;
+            System.out.println("End of submission... " + in_job_counter + " arrived, > received " + received + " subm = " + submitted);
+            return;
+        }
 
-            // Gridlet was sent, do another scheduling round if possible
-            if (ev.get_tag() == GridletWasSent) {
+        // periodical result collection - will be replaced by simple ResultCollector calling.
+        if (tag == 11155) {
+            collectPeriodicalResults();
+            // send periodical event that will arrive in 3600s, i.e., in one hour
+            sim_schedule(this.getEntityId(this.getEntityName()), 3600.0, 11155);
+            return;
+        }
 
-                GridletInfo gi = (GridletInfo) ev.get_data();
+        // Gridlet was sent, do another scheduling round if possible
+        if (tag == GridletWasSent) {
 
-                waiting_size--;
-                prev_scheduled--;
+            GridletInfo gi = (GridletInfo) data;
 
-                // do another scheduling round
-                if (prev_scheduled == 0) {
-                    Date d = new Date();
-                    clock1 = d.getTime();
-                    scheduleGridlets();
-                    Date d2 = new Date();
-                    clock2 = d2.getTime();
-                    clock += clock2 - clock1;
-                }
-                continue;
-            }
-            if (ev.get_tag() == ScheduleJobsNow) {
-
-                // do another scheduling round
-                if (prev_scheduled == 0) {
-                    Date d = new Date();
-                    clock1 = d.getTime();
-                    scheduleGridlets();
-                    Date d2 = new Date();
-                    clock2 = d2.getTime();
-                    clock += clock2 - clock1;
-                }
-                continue;
-            }
-            // Failure appeared
-            if (ev.get_tag() == 5555) {
-                String data = (String) ev.get_data();
-                String[] d = data.split("x");
-                int resId = Integer.parseInt(d[0]);
-                int killed_cpus = Integer.parseInt(d[1]);
-                updateResourceInfoAfterFailureOrRestart(resId);
-                System.out.println(Math.round(clock()) + ": Failure of: " + super.getEntityName(resId) + ", running " + printRunningPEsOnResource(resId) + " CPUs, killed = " + killed_cpus + " resID = " + resId);
-                continue;
+            waiting_size--;
+            prev_scheduled--;
+
+            // do another scheduling round
+            if (prev_scheduled == 0) {
+                Date d = new Date();
+                clock1 = d.getTime();
+                scheduleGridlets();
+                Date d2 = new Date();
+                clock2 = d2.getTime();
+                clock += clock2 - clock1;
             }
-            // Restart appeared
-            if (ev.get_tag() == 5555511) {
-                int resId = (Integer) ev.get_data();
-                updateResourceInfoAfterFailureOrRestart(resId);
-                System.out.println(Math.round(clock()) + ": Restart of: " + super.getEntityName(resId) + ", running " + printRunningPEsOnResource(resId) + " CPUs,  resID = " + resId);
-                continue;
+            return;
+        }
+        if (tag == ScheduleJobsNow) {
+
+            // do another scheduling round
+            if (prev_scheduled == 0) {
+                Date d = new Date();
+                clock1 = d.getTime();
+                scheduleGridlets();
+                Date d2 = new Date();
+                clock2 = d2.getTime();
+                clock += clock2 - clock1;
             }
-            // gridlet was finished. Get it, record results and do another scheduling run
-            if (ev.get_tag() == GridSimTags.GRIDLET_RETURN) {
-                ComplexGridlet gridlet_received = (ComplexGridlet) ev.get_data();
-                boolean optimize = false;
-                //rc.addFinishedJobToResults(gridlet_received, resourceInfoList);
-
-                reqc -= gridlet_received.getNumPE();
-                received++;
-                double cpu_time = 0.0;
-                if (gridlet_received.getGridletStatus() == Gridlet.FAILED_RESOURCE_UNAVAILABLE || gridlet_received.getGridletStatus() == Gridlet.FAILED) {
-                    cpu_time = Math.max(1.0, gridlet_received.getActualCPUTime());
-                } else if (gridlet_received.getGridletStatus() == Gridlet.CANCELED) {
-                    cpu_time = 0.0;
-                } else {
-                    cpu_time = gridlet_received.getActualCPUTime();
-                    if (ExperimentSetup.fix_alg != null) {
-                        if (gridlet_received.getExpectedFinishTime() > gridlet_received.getFinishTime() && gridlet_received.getFinishTime() >= 0) {
-                            double diff = gridlet_received.getExpectedFinishTime() - gridlet_received.getFinishTime();
-                            // job finished earlier than expected - do optimization of schedule if the gap is large enough
-                            updateResourceInfos(clock());
-                            if (diff > ExperimentSetup.gap_length) {
-                                optimize = true;
-                            }
+            return;
+        }
+        // Failure appeared
+        if (tag == 5555) {
+            String[] d = ((String) data).split("x");
+            int resId = Integer.parseInt(d[0]);
+            int killed_cpus = Integer.parseInt(d[1]);
+            int backlog = getBacklog();
+            long start = System.nanoTime();
+            updateResourceInfoAfterFailureOrRestart(resId);
+            recordLatency(DecisionLatency.FAILURE, start, backlog);
+            System.out.println(Math.round(clock()) + ": Failure of: " + super.getEntityName(resId) + ", running " + printRunningPEsOnResource(resId) + " CPUs, killed = " + killed_cpus + " resID = " + resId);
+            return;
+        }
+        // Restart appeared
+        if (tag == 5555511) {
+            int resId = (Integer) data;
+            int backlog = getBacklog();
+            long start = System.nanoTime();
+            updateResourceInfoAfterFailureOrRestart(resId);
+            recordLatency(DecisionLatency.FAILURE, start, backlog);
+            System.out.println(Math.round(clock()) + ": Restart of: " + super.getEntityName(resId) + ", running " + printRunningPEsOnResource(resId) + " CPUs,  resID = " + resId);
+            return;
+        }
+        // gridlet was finished. Get it, record results and do another scheduling run
+        if (tag == GridSimTags.GRIDLET_RETURN) {
+            ComplexGridlet gridlet_received = (ComplexGridlet) data;
+            boolean optimize = false;
+            //rc.addFinishedJobToResults(gridlet_received, resourceInfoList);
+
+            reqc -= gridlet_received.getNumPE();
+            received++;
+            double cpu_time = 0.0;
+            if (gridlet_received.getGridletStatus() == Gridlet.FAILED_RESOURCE_UNAVAILABLE || gridlet_received.getGridletStatus() == Gridlet.FAILED) {
+                cpu_time = Math.max(1.0, gridlet_received.getActualCPUTime());
+            } else if (gridlet_received.getGridletStatus() == Gridlet.CANCELED) {
+                cpu_time = 0.0;
+            } else {
+                cpu_time = gridlet_received.getActualCPUTime();
+                if (ctx.fix_alg != null) {
+                    if (gridlet_received.getExpectedFinishTime() > gridlet_received.getFinishTime() && gridlet_received.getFinishTime() >= 0) {
+                        double diff = gridlet_received.getExpectedFinishTime() - gridlet_received.getFinishTime();
+                        // job finished earlier than expected - do optimization of schedule if the gap is large enough
+                        ctx.updateResourceInfos(clock());
+                        if (diff > ExperimentSetup.gap_length) {
+                            optimize = true;
                         }
                     }
+                }
 
-                    if (ExperimentSetup.use_compresion && ExperimentSetup.estimates) {
-                        if (gridlet_received.getExpectedFinishTime() > gridlet_received.getFinishTime() && gridlet_received.getFinishTime() >= 0) {
-                            double diff = gridlet_received.getExpectedFinishTime() - gridlet_received.getFinishTime();
-                            // job finished earlier than expected - do compression of schedule                            
-                            if (diff > 60.0) {
-                                int id = gridlet_received.getResourceID();
-                                compressSchedule(id);
-                            }
+                if (ExperimentSetup.use_compresion && ExperimentSetup.estimates) {
+                    if (gridlet_received.getExpectedFinishTime() > gridlet_received.getFinishTime() && gridlet_received.getFinishTime() >= 0) {
+                        double diff = gridlet_received.getExpectedFinishTime() - gridlet_received.getFinishTime();
+                        // job finished earlier than expected - do compression of schedule                            
+                        if (diff > 60.0) {
+                            int id = gridlet_received.getResourceID();
+                            int backlog = getBacklog();
+                            long start = System.nanoTime();
+                            compressSchedule(id);
+                            recordLatency(DecisionLatency.COMPRESSION, start, backlog);
                         }
                     }
                 }
+            }
 
-                rc.addFinishedJobToResults(gridlet_received, resourceInfoList);
+            rc.addFinishedJobToResults(gridlet_received, ctx.resourceInfoList);
 
-                // update of user's resource consuption
-                updateLengthStatistics(gridlet_received, cpu_time);
+            // update of user's resource consuption
+            updateLengthStatistics(gridlet_received, cpu_time);
 
-                if (received % 100 == 0) {
-                    if (algorithm > 9 || algorithm == 4) {
-                        System.out.println("*** " + received + " so far received, in schedule = " + getScheduleSize() + " jobs, at time = " + Math.round(clock()));
-                    } else {
-                        System.out.println("*** " + received + " so far received, in queue = " + getQueueSize() + " jobs, at time = " + Math.round(clock()));
-                    }
+            if (received % 100 == 0) {
+                if (algorithm > 9 || algorithm == 4) {
+                    System.out.println("*** " + received + " so far received, in schedule = " + ctx.getScheduleSize() + " jobs, at time = " + Math.round(clock()));
+                } else {
+                    System.out.println("*** " + received + " so far received, in queue = " + getQueueSize() + " jobs, at time = " + Math.round(clock()));
                 }
+            }
 
-                if (received % 5000 == 0) {
-                    // time to time collect the garbage
-                    System.gc();
-                }
+            if (received % 5000 == 0) {
+                // time to time collect the garbage
+                System.gc();
+            }
 
-                // optimize schedule if necessary
-                if (optimize && ExperimentSetup.fix_alg != null && getScheduleSize() > 0 && ExperimentSetup.useEventOpt) {
-                    // use LS
-                    event_opt++;
-                    super.sim_schedule(this.getEntityId(this.getEntityName()), 0.0, 987654321);
-                    // use Random Search
-                    //super.sim_schedule(this.getEntityId(this.getEntityName()), 0.0, 987654322);
+            // optimize schedule if necessary
+            if (optimize && ctx.fix_alg != null && ctx.getScheduleSize() > 0 && ExperimentSetup.useEventOpt) {
+                // use LS
+                event_opt++;
+                sim_schedule(this.getEntityId(this.getEntityName()), 0.0, 987654321);
+                // use Random Search
+                //sim_schedule(this.getEntityId(this.getEntityName()), 0.0, 987654322);
 
-                    // skip the rest - scheduling will be called by the optimization procedure
-                    continue;
+                // skip the rest - scheduling will be called by the optimization procedure
+                return;
 
-                }
+            }
 
-                // some resource is probably available - try send gridlets according to schedule
-                if (prev_scheduled == 0) {
-                    Date dd = new Date();
-                    clock1 = dd.getTime();
-                    scheduleGridlets();
-                    Date dd2 = new Date();
-                    clock2 = dd2.getTime();
-                    clock += clock2 - clock1;
-                }
+            // some resource is probably available - try send gridlets according to schedule
+            if (prev_scheduled == 0) {
+                Date dd = new Date();
+                clock1 = dd.getTime();
+                scheduleGridlets();
+                Date dd2 = new Date();
+                clock2 = dd2.getTime();
+                clock += clock2 - clock1;
+            }
 
-                // null gridlet to allow garbage collection
-                gridlet_received = null;
-                continue; // with other incoming event
+            // null gridlet to allow garbage collection
+            gridlet_received = null;
+            return; // with other incoming event
 
+        }
+        // New gridlet arrived
+        if (tag == SendGridletInfo) {
+            ComplexGridlet gl = (ComplexGridlet) data;
+            GridletInfo gi = new GridletInfo(gl);
+            gi.compilePropertyMask(ctx.matcher);
+            setLengthStatistics(gi);
+
+            if (restart) {
+                // reset internal variables at the beginning
+                ctx.activePEs = 0.0;
+                ctx.classic_activePEs = 0.0;
+                ctx.requestedPEs = 0.0;
+                ctx.last_event = clock();
+                restart = false;
+                in_job_counter = 0;
+                reqc = 0;
+                ctx.busyc = 0;
+                schedQueue.clear();
+                schedQueue2.clear();
+            } else {
+                // update machine usage
+                ctx.load += (ctx.activePEs / ctx.availPEs) * (GridSim.clock() - ctx.last_event);
+                ctx.classic_load += (ctx.classic_activePEs / ctx.classic_availPEs) * (GridSim.clock() - ctx.last_event);
+                ctx.max_load += 1.0 * (GridSim.clock() - ctx.last_event);
+                ctx.last_event = GridSim.clock();
             }
-            // New gridlet arrived
-            if (ev.get_tag() == SendGridletInfo) {
-                ComplexGridlet gl = (ComplexGridlet) ev.get_data();
-                GridletInfo gi = new GridletInfo(gl);
-                setLengthStatistics(gi);
-
-                if (restart) {
-                    // reset internal variables at the beginning
-                    activePEs = 0.0;
-                    classic_activePEs = 0.0;
-                    requestedPEs = 0.0;
-                    last_event = clock();
-                    restart = false;
-                    in_job_counter = 0;
-                    reqc = 0;
-                    busyc = 0;
-                    schedQueue.clear();
-                    schedQueue2.clear();
-                } else {
-                    // update machine usage
-                    load += (activePEs / availPEs) * (GridSim.clock() - last_event);
-                    classic_load += (classic_activePEs / classic_availPEs) * (GridSim.clock() - last_event);
-                    max_load += 1.0 * (GridSim.clock() - last_event);
-                    last_event = GridSim.clock();
-                }
 
-                // cancel all jobs that cannot be executed due to missing properties
-                if (!isExecutable(gi)) {
-                    bad++;
-                    System.out.println(Math.round(clock()) + " gi:" + gi.getID() + ": Error - unexecutable: [" + gi.getProperties() + "] CPUs=" + gi.getNumPE());
-                    try {
-                        if (gl.getActualCPUTime() > 0.0) {
-                            gl.setGridletStatus(Gridlet.FAILED_RESOURCE_UNAVAILABLE);
-                        } else {
-                            gl.setGridletStatus(Gridlet.CANCELED);
-                        }
-                    } catch (Exception ex) {
-                        ex.printStackTrace();
-                    }
-                    // due to failure some gridlets may not be executable anymore - therefore we have to cancel them
-                    // but MUST NOT increase the in_job_counter otherwise the simulation will not finish.
-                    if (!gl.isRepeated()) {
-                        in_job_counter++;
-                        reqc += gi.getNumPE();
+            // cancel all jobs that cannot be executed due to missing properties
+            if (!ctx.isExecutable(gi)) {
+                bad++;
+                System.out.println(Math.round(clock()) + " gi:" + gi.getID() + ": Error - unexecutable: [" + gi.getProperties() + "] CPUs=" + gi.getNumPE());
+                try {
+                    if (gl.getActualCPUTime() > 0.0) {
+                        gl.setGridletStatus(Gridlet.FAILED_RESOURCE_UNAVAILABLE);
+                    } else {
+                        gl.setGridletStatus(Gridlet.CANCELED);
                     }
-                    super.sim_schedule(this.getEntityId(this.getEntityName()), 0.0, GridSimTags.GRIDLET_RETURN, gl);
-                    continue;
+                } catch (Exception ex) {
+                    ex.printStackTrace();
                 }
-
-                // used for schedule-based methods when resource failure appears
-                // (planned jobs from schedule are rescheduled)
+                // due to failure some gridlets may not be executable anymore - therefore we have to cancel them
+                // but MUST NOT increase the in_job_counter otherwise the simulation will not finish.
                 if (!gl.isRepeated()) {
-                    //increase requestedPEs value
-                    requestedPEs += gi.getNumPE();
-                    waiting_size++;
                     in_job_counter++;
                     reqc += gi.getNumPE();
                 }
+                sim_schedule(this.getEntityId(this.getEntityName()), 0.0, GridSimTags.GRIDLET_RETURN, gl);
+                return;
+            }
 
+            // used for schedule-based methods when resource failure appears
+            // (planned jobs from schedule are rescheduled)
+            if (!gl.isRepeated()) {
+                //increase requestedPEs value
+                ctx.requestedPEs += gi.getNumPE();
+                waiting_size++;
+                in_job_counter++;
+                reqc += gi.getNumPE();
+            }
 
-                Date d = new Date();
-                clock1 = d.getTime();
 
-                // call scheduling algorithm here
-                ExperimentSetup.policy.addNewJob(gi);
+            Date d = new Date();
+            clock1 = d.getTime();
 
-                // write on screen info so that the simulation progress can be seen
-                if (in_job_counter % 100 == 0) {
-                    if (algorithm > 9 || algorithm == 4) {
-                        System.out.println(">>> " + in_job_counter + " so far arrived, in schedule = " + getScheduleSize() + " jobs, at time = " + Math.round(clock()));
-                    } else {
-                        System.out.println(">>> " + in_job_counter + " so far arrived, in queue = " + getQueueSize() + " jobs, at time = " + Math.round(clock()));
-                    }
-                }
+            // call scheduling algorithm here
+            int backlog = getBacklog();
+            long start = System.nanoTime();
+            ctx.policy.addNewJob(gi);
+            recordLatency(DecisionLatency.ADD_NEW_JOB, start, backlog);
 
-                // update total sched. generation time
-                Date d2 = new Date();
-                clock2 = d2.getTime();
-                clock += clock2 - clock1;
-
-                d = new Date();
-                clock1 = d.getTime();
-                // try to schedule according to prepared queue/schedule
-                if (prev_scheduled == 0) {
-                    scheduleGridlets();
+            // write on screen info so that the simulation progress can be seen
+            if (in_job_counter % 100 == 0) {
+                if (algorithm > 9 || algorithm == 4) {
+                    System.out.println(">>> " + in_job_counter + " so far arrived, in schedule = " + ctx.getScheduleSize() + " jobs, at time = " + Math.round(clock()));
+                } else {
+                    System.out.println(">>> " + in_job_counter + " so far arrived, in queue = " + getQueueSize() + " jobs, at time = " + Math.round(clock()));
                 }
-                d2 = new Date();
-                clock2 = d2.getTime();
-                clock += clock2 - clock1;
-                continue; // with other incoming event
+            }
 
+            // update total sched. generation time
+            Date d2 = new Date();
+            clock2 = d2.getTime();
+            clock += clock2 - clock1;
+
+            d = new Date();
+            clock1 = d.getTime();
+            // try to schedule according to prepared queue/schedule
+            if (prev_scheduled == 0) {
+                scheduleGridlets();
             }
-        }
+            d2 = new Date();
+            clock2 = d2.getTime();
+            clock += clock2 - clock1;
+            return; // with other incoming event
 
-        // all jobs were received
-        if (end_of_submission && received == in_job_counter) {
-            // turn off the JobLoader
-            super.send(this.getEntityId(data_set + "_JobLoader"), GridSimTags.SCHEDULE_NOW, GridSimTags.END_OF_SIMULATION, 0.0);
-            // turn off the FailureLoader
-            super.send(this.getEntityId(data_set + "_FailureLoader"), GridSimTags.SCHEDULE_NOW, GridSimTags.END_OF_SIMULATION, 0.0);
-            // turn off the Scheduler (this entity)
-            super.send(super.getEntityId(super.getEntityName()), GridSimTags.SCHEDULE_NOW, GridSimTags.END_OF_SIMULATION, 0.0);
         }
+    }
 
-        Sim_event ev = new Sim_event();
-        while (ev.get_tag() != -1) {
-            sim_get_next(ev);
-            System.out.println(ev.get_tag() + ": (-1) this is the tag that should quit Scheduler");
+    /** Writes out final results. */
+    private void writeResults() {
+        System.out.println("---------------------------- End Of Simulation - CALLING RESULT COLLECTOR ------------------------------------");
+        System.out.println("---------------------------- Event optimization performed = " + event_opt + " times. -------------------------");
+        System.out.println("---------------------------- Cancelled due miss. property = " + bad + " jobs. -------------------------");
+        if (ctx.opt_evaluations > 0) {
+            System.out.println("---------------------------- Optimization evaluations = " + ctx.opt_evaluations + " (" + Math.round(ctx.opt_evaluations / Math.max(0.001, opt_clock / 1000.0)) + " per second). -------------------------");
         }
-
-        if (ev.get_tag() == GridSimTags.END_OF_SIMULATION) {
-            // write out final results
-            System.out.println("---------------------------- End Of Simulation - CALLING RESULT COLLECTOR ------------------------------------");
-            System.out.println("---------------------------- Event optimization performed = " + event_opt + " times. -------------------------");
-            System.out.println("---------------------------- Cancelled due miss. property = " + bad + " jobs. -------------------------");
-            rc.computeResults(av_PEs, wav_PEs, failure_time, wfailure_time, clock, runtime, classic_load, max_load, submitted);
+        if (ExperimentSetup.measureLatency) {
+            LinkedList<String> latency = ctx.latency.getSummary();
+            for (int i = 0; i < latency.size(); i++) {
+                System.out.println("---------------------------- Latency of " + latency.get(i));
+            }
         }
-        // shut down I/O ports, turn off this entity
-        shutdownUserEntity();
-        super.terminateIOEntities();
+        rc.computeResults(av_PEs, wav_PEs, ctx.failure_time, ctx.wfailure_time, clock, ctx.runtime, ctx.classic_load, ctx.max_load, submitted);
     }
 
     /**
      * Starts scheduling according to the applied algorithm and prepared schedule/queue
      */
     private boolean scheduleGridlets() {
-        prev_scheduled = ExperimentSetup.policy.selectJob();
+        int backlog = getBacklog();
+        long start = System.nanoTime();
+        prev_scheduled = ctx.policy.selectJob();
+        recordLatency(DecisionLatency.SELECT_JOB, start, backlog);
         return true;
     }
 
-    /** Returns the number of jobs waiting (in the schedule). */
-    public static int getScheduleSize() {
-        int size = 0;
-        for (int i = 0; i < resourceInfoList.size(); i++) {
-            ResourceInfo ri = (ResourceInfo) resourceInfoList.get(i);
-            size += ri.resSchedule.size();
+    /** Returns the number of waiting jobs (in the queue or in the schedule), 0 when latency is not measured. */
+    private int getBacklog() {
+        if (!ExperimentSetup.measureLatency) {
+            return 0;
+        }
+        if (algorithm > 9 || algorithm == 4) {
+            return ctx.getScheduleSize();
+        } else {
+            return getQueueSize();
+        }
+    }
+
+    /** Records the time of a scheduling decision that started at start (System.nanoTime()), see DecisionLatency. */
+    private void recordLatency(int operation, long start, int backlog) {
+        if (ExperimentSetup.measureLatency) {
+            ctx.latency.record(operation, System.nanoTime() - start, backlog);
         }
-        return size;
     }
 
     /** Returns number of jobs currently in execution. */
     private int getRunningJobs() {
         int runningJobs = 0;
-        for (int i = 0; i < resourceInfoList.size(); i++) {
-            ResourceInfo ri = (ResourceInfo) resourceInfoList.get(i);
+        for (int i = 0; i < ctx.resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(i);
             runningJobs += ri.resInExec.size();
         }
         return runningJobs;
@@ -784,75 +790,27 @@ public class Scheduler extends GridSim {
      */
     private int getAvailPEs() {
         int avail = 0;
-        for (int i = 0; i < resourceInfoList.size(); i++) {
-            ResourceInfo ri = (ResourceInfo) resourceInfoList.get(i);
+        for (int i = 0; i < ctx.resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(i);
             avail += ri.getNumRunningPE();
         }
         return avail;
     }
 
-    /** Generates an array of permuted integers from 0 .. N-1. */
-    public static int[] permute(int N) {
-
-        int[] a = new int[N];
-
-        // insert integers 0..N-1
-        for (int i = 0; i < N; i++) {
-            a[i] = i;
-            // shuffle
-        }
-        for (int i = 0; i < N; i++) {
-            //int r = (int) (Math.random() * (i+1));     // int between 0 and i
-            int r = (int) (perm_rnd.nextDouble() * (i + 1));     // int between 0 and i
-
-            int swap = a[r];
-            a[r] = a[i];
-            a[i] = swap;
-        }
-        return a;
-
-    }
-
     /** Returns the number of working (non-failed) PEs on given resource. */
     private int printRunningPEsOnResource(int resId) {
-        ResourceInfo ri = null;
-        for (int i = 0; i < resourceInfoList.size(); i++) {
-            ri = (ResourceInfo) resourceInfoList.get(i);
-            if (ri.resource.getResourceID() == resId) {
-                break;
-            }
-        }
-        //System.out.println(resId+" Resource found "+ri.resource.getResourceName());
-        return ri.getNumRunningPE();
-    }
-
-    /**
-     * Updates internal variables of resource infos objects. Use for schedule-based algorithms only!
-     * @param current_time current simulation time used to predict total tardiness of all jobs in this moment
-     */
-    public static void updateResourceInfos(double current_time) {
-
-        for (int i = 0; i < resourceInfoList.size(); i++) {
-            ResourceInfo ri = (ResourceInfo) resourceInfoList.get(i);
-            ri.update(current_time);
-
-        }
+        return ctx.getResourceInfo(resId).getNumRunningPE();
     }
 
     /**
      * Updates internal ResourceInfo objects after failure or restart of some machine. Moreover - if schedule is built it is updated wrt. currently running machines
      */
     private void updateResourceInfoAfterFailureOrRestart(int resId) {
-        ResourceInfo ri = null;
-        for (int i = 0; i < resourceInfoList.size(); i++) {
-            ri = (ResourceInfo) resourceInfoList.get(i);
-            if (ri.resource.getResourceID() == resId) {
-                break;
-            }
-        }
+        ResourceInfo ri = ctx.getResourceInfo(resId);
         int index_id = 0;
         int numPE = 0;
         MachineList list = ri.resource.getMachineList();
+        boolean[] failed_pe = new boolean[ri.finishTimeOnPE.length];
         for (int i = 0; i < list.size(); i++) {
             Machine m = (Machine) list.get(i);
             if (!m.getFailed()) {
@@ -867,21 +825,28 @@ public class Scheduler extends GridSim {
                 for (int p = 0; p < m.getNumPE(); p++) {
                     //System.out.print(index_id+".");
                     ri.finishTimeOnPE[index_id] = Double.MAX_VALUE;
+                    failed_pe[index_id] = true;
                     index_id++;
                 }
 
             }
         }
         ri.numPE = numPE;
-        schedQueue.addAll(ri.resSchedule);
-        ri.resSchedule.clear();
+        ri.exec_version++;
+        if (ExperimentSetup.useScheduleRepair) {
+            // only jobs planned on failed machines are planned again, the rest of schedule stays as it is
+            schedQueue.addAll(ri.removeJobsOnPEs(failed_pe));
+        } else {
+            schedQueue.addAll(ri.resSchedule);
+            ri.clearSchedule();
+        }
         ri.forceUpdate(clock());
         // reschedule jobs that were planned on failed machines
         for (int i = 0; i < schedQueue.size(); i++) {
             removeGridletInfo(((GridletInfo) schedQueue.get(i)));
             ComplexGridlet gl = ((GridletInfo) schedQueue.get(i)).getGridlet();
             gl.setRepeated(true);
-            super.sim_schedule(this.getEntityId(this.getEntityName()), 0.0, SendGridletInfo, gl);
+            sim_schedule(this.getEntityId(this.getEntityName()), 0.0, SendGridletInfo, gl);
         }
         // if resource restarts/fails then start a new scheduling round, otherwise the simulation may hang forever
         if (schedQueue.size() == 0 && prev_scheduled == 0) {
@@ -895,91 +860,19 @@ public class Scheduler extends GridSim {
      */
     public static boolean isSuitable(ResourceInfo ri, GridletInfo gi) {
 
-        if (!reqs) {
+        if (!ExperimentSetup.reqs) {
             if (ri.getNumRunningPE() >= gi.getNumPE()) {
                 return true;
             } else {
                 return false;
             }
         }
-        // non-meta data set use different properties check
-        if (!data_set.equals("metacentrum.mwf") && !data_set.equals("meta2008.mwf")) {
-
-            if (ri.getNumRunningPE() >= gi.getNumPE()) {
-                //return true;
-                String req_p = gi.getProperties();
-                String[] props = req_p.split(" ");
-                for (int i = 0; i < props.length; i++) {
-                    if (props[i].equals(ri.resource.getResourceName())) {
-                        //System.out.println(gi.getID()+" run on "+ri.resource.getResourceName()+" --> "+req_p);
-                        return true;
-                    }
-                }
-                //System.out.println(gi.getID()+" DO NOT run on "+ri.resource.getResourceName()+" --> "+req_p);
-                return false;
-            } else {
-                return false;
-            }
-
-            // "metacentrum.mwf" data set uses properties
+        // only machine that has enough CPUs will be selected
+        if (ri.getNumRunningPE() >= gi.getNumPE()) {
+            // check properties (or allowed resource names for non-meta data sets), see PropertyMatcher
+            return ri.getContext().matcher.matches(ri.resource.getPropertyMask(), gi.getPropertyMask());
         } else {
-            // only machine that has enough CPUs will be selected
-            if (ri.getNumRunningPE() >= gi.getNumPE()) {
-                // check properties
-                String req_p = gi.getProperties();
-
-                req_p = req_p.replaceAll("\\[", "");
-                req_p = req_p.replaceAll("\\]", "");
-                String[] props = req_p.split(";");
-
-                for (int i = 0; i < props.length; i++) {
-
-                    // job requires generally unavailable property - we skip it
-                    if (!avail_properties.contains(props[i])) {
-                        // continue with new property
-                        continue;
-                        // we find the machine that has the property
-                    } else {
-                        if (!ri.supportProperty(props[i])) {
-                            // hacky
-                            if (props[i].equals("nodecpus1") && (ri.supportProperty("nodecpus2") || ri.supportProperty("nodecpus4") || ri.supportProperty("nodecpus8") || ri.supportProperty("nodecpus16"))) {
-                                continue;
-                            }
-                            if (props[i].equals("nodecpus2") && (ri.supportProperty("nodecpus4") || ri.supportProperty("nodecpus8") || ri.supportProperty("nodecpus16"))) {
-                                continue;
-                            }
-                            if (props[i].equals("nodecpus4") && (ri.supportProperty("nodecpus8") || ri.supportProperty("nodecpus16"))) {
-                                continue;
-                            }
-                            if (props[i].equals("nodecpus8") && ri.supportProperty("nodecpus16")) {
-                                continue;
-                            }
-                            if (props[i].equals("p26") && ri.supportProperty("p35")) {
-                                continue;
-                            }
-                            if (props[i].equals("p26") && ri.supportProperty("p6")) {
-                                continue;
-                            }
-                            if (props[i].equals("p35") && ri.supportProperty("p6")) {
-                                continue;
-                            } else {
-                                // resource does not support this property
-
-                                return false;
-                            }
-                        } else {
-                            // it does support it, next property is checked
-                            continue;
-                        }
-                    }
-                }
-                // all properties are supported
-                return true;
-                // not enough CPUs on this machine
-            } else {
-
-                return false;
-            }
+            return false;
         }
     }
 
@@ -989,114 +882,12 @@ public class Scheduler extends GridSim {
      */
     public static boolean isSuitableThenUpdate(ResourceInfo ri, GridletInfo gi, double current_time) {
 
-        if (!reqs) {
-            if (ri.getNumRunningPE() >= gi.getNumPE()) {
-                ri.update(current_time);
-                return true;
-            } else {
-                return false;
-            }
-        }
-        // non-meta data set use different properties check
-        if (!data_set.equals("metacentrum.mwf") && !data_set.equals("meta2008.mwf")) {
-
-            if (ri.getNumRunningPE() >= gi.getNumPE()) {
-                //return true;
-                String req_p = gi.getProperties();
-                String[] props = req_p.split(" ");
-                for (int i = 0; i < props.length; i++) {
-                    if (props[i].equals(ri.resource.getResourceName())) {
-                        ri.update(current_time);
-                        //System.out.println(ri.resource.getResourceName()+" OK for ["+props[i]+"]");
-                        //System.out.println(gi.getID()+" run on "+ri.resource.getResourceName()+" --> "+req_p);
-                        return true;
-                    } else {
-                        //System.out.println(ri.resource.getResourceName()+" is not good for ["+props[i]+"]");
-                    }
-                }
-                //System.out.println(gi.getID()+" DO NOT run on "+ri.resource.getResourceName()+" --> "+req_p);
-                return false;
-            } else {
-                //System.out.println(ri.getNumRunningPE()+" Malo CPU chce:"+gi.getNumPE());
-                return false;
-            }
-
-            // "metacentrum.mwf" data set uses properties
+        if (isSuitable(ri, gi)) {
+            ri.update(current_time);
+            return true;
         } else {
-            // only machine that has enough CPUs will be selected
-            if (ri.getNumRunningPE() >= gi.getNumPE()) {
-                // check properties
-                String req_p = gi.getProperties();
-
-                req_p = req_p.replaceAll("\\[", "");
-                req_p = req_p.replaceAll("\\]", "");
-                String[] props = req_p.split(";");
-
-                for (int i = 0; i < props.length; i++) {
-
-                    // job requires generally unavailable property - we skip it
-                    if (!avail_properties.contains(props[i])) {
-                        // continue with new property
-                        continue;
-                        // we find the machine that has the property
-                    } else {
-                        if (!ri.supportProperty(props[i])) {
-                            // hacky
-                            if (props[i].equals("nodecpus1") && (ri.supportProperty("nodecpus2") || ri.supportProperty("nodecpus4") || ri.supportProperty("nodecpus8") || ri.supportProperty("nodecpus16"))) {
-                                continue;
-                            }
-                            if (props[i].equals("nodecpus2") && (ri.supportProperty("nodecpus4") || ri.supportProperty("nodecpus8") || ri.supportProperty("nodecpus16"))) {
-                                continue;
-                            }
-                            if (props[i].equals("nodecpus4") && (ri.supportProperty("nodecpus8") || ri.supportProperty("nodecpus16"))) {
-                                continue;
-                            }
-                            if (props[i].equals("nodecpus8") && ri.supportProperty("nodecpus16")) {
-                                continue;
-                            }
-                            if (props[i].equals("p26") && ri.supportProperty("p35")) {
-                                continue;
-                            }
-                            if (props[i].equals("p26") && ri.supportProperty("p6")) {
-                                continue;
-                            }
-                            if (props[i].equals("p35") && ri.supportProperty("p6")) {
-                                continue;
-                            } else {
-                                // resource does not support this property
-                                return false;
-                            }
-                        } else {
-                            // it does support it, next property is checked
-                            continue;
-                        }
-                    }
-                }
-                // all properties are supported
-                ri.update(current_time);
-                return true;
-                // not enough CPUs on this machine
-            } else {
-                return false;
-            }
-        }
-    }
-
-    /**
-     * Checks whether this job is executable anywhere or not.
-     */
-    public static boolean isExecutable(GridletInfo gi) {
-        ResourceInfo ri = null;
-
-
-        for (int i = 0; i < resourceInfoList.size(); i++) {
-            ri = (ResourceInfo) resourceInfoList.get(i);
-            if (isSuitable(ri, gi)) {
-                return true;
-            }
+            return false;
         }
-        return false;
-
     }
 
     /**
@@ -1104,26 +895,26 @@ public class Scheduler extends GridSim {
      */
     private int getQueueSize() {
         int size = 0;
-        size += queue.size();
-        if (algorithm == 5 && data_set.equals("metacentrum.mwf")) {
-            size += all_queues.get(0).size();
-            size += all_queues.get(1).size();
-            size += all_queues.get(2).size();
-            size += all_queues.get(3).size();
-            size += all_queues.get(4).size();
-            size += all_queues.get(5).size();
-            size += all_queues.get(6).size();
-            size += all_queues.get(7).size();
-            size += all_queues.get(8).size();
-            size += all_queues.get(9).size();
-            size += all_queues.get(10).size();
-        } else if (algorithm == 5 && data_set.equals("meta2008.mwf")) {
-            size += all_queues.get(0).size();
-            size += all_queues.get(1).size();
-            size += all_queues.get(2).size();
-            size += all_queues.get(3).size();
-            size += all_queues.get(4).size();
-            size += all_queues.get(5).size();
+        size += ctx.queue.size();
+        if (algorithm == 5 && BinaryTrace.getSourceName(ctx.data_set).equals("metacentrum.mwf")) {
+            size += ctx.all_queues.get(0).size();
+            size += ctx.all_queues.get(1).size();
+            size += ctx.all_queues.get(2).size();
+            size += ctx.all_queues.get(3).size();
+            size += ctx.all_queues.get(4).size();
+            size += ctx.all_queues.get(5).size();
+            size += ctx.all_queues.get(6).size();
+            size += ctx.all_queues.get(7).size();
+            size += ctx.all_queues.get(8).size();
+            size += ctx.all_queues.get(9).size();
+            size += ctx.all_queues.get(10).size();
+        } else if (algorithm == 5 && BinaryTrace.getSourceName(ctx.data_set).equals("meta2008.mwf")) {
+            size += ctx.all_queues.get(0).size();
+            size += ctx.all_queues.get(1).size();
+            size += ctx.all_queues.get(2).size();
+            size += ctx.all_queues.get(3).size();
+            size += ctx.all_queues.get(4).size();
+            size += ctx.all_queues.get(5).size();
 
 
         }
@@ -1134,76 +925,76 @@ public class Scheduler extends GridSim {
      * Updates user-related information of job execution time used in fair-share mechanism
      */
     private void updateLengthStatistics(ComplexGridlet gridlet_received, double cpu_time) {
-        int user_index = users.indexOf(new String(gridlet_received.getUser()));
-        double old_time = users_time.get(user_index);
-        double prevwt = total_uwt.get(user_index);
+        int user_index = ctx.users.indexOf(new String(gridlet_received.getUser()));
+        double old_time = ctx.users_time.get(user_index);
+        double prevwt = ctx.total_uwt.get(user_index);
         old_time += cpu_time * gridlet_received.getNumPE();
         prevwt += Math.max(0.0, gridlet_received.getExecStartTime() - gridlet_received.getArrival_time());
         //System.out.println(gridlet_received.getGridletID()+" adding vwt ="+Math.round(gridlet_received.getExecStartTime() - gridlet_received.getArrival_time())+ " total="+ Math.round(prevwt));
 
         if (gridlet_received.getNumPE() > 1) {
-            double tot_length = users_P_length.get(user_index);
+            double tot_length = ctx.users_P_length.get(user_index);
             tot_length += gridlet_received.getGridletLength();
-            int tot_jobs = users_P_jobs.get(user_index);
+            int tot_jobs = ctx.users_P_jobs.get(user_index);
             tot_jobs++;
-            users_P_length.remove(user_index);
-            users_P_length.add(user_index, tot_length);
-            users_P_jobs.remove(user_index);
-            users_P_jobs.add(user_index, tot_jobs);
+            ctx.users_P_length.remove(user_index);
+            ctx.users_P_length.add(user_index, tot_length);
+            ctx.users_P_jobs.remove(user_index);
+            ctx.users_P_jobs.add(user_index, tot_jobs);
         } else {
-            double tot_length = users_length.get(user_index);
+            double tot_length = ctx.users_length.get(user_index);
             tot_length += gridlet_received.getGridletLength();
-            int tot_jobs = users_jobs.get(user_index);
+            int tot_jobs = ctx.users_jobs.get(user_index);
             tot_jobs++;
-            users_length.remove(user_index);
-            users_length.add(user_index, tot_length);
-            users_jobs.remove(user_index);
-            users_jobs.add(user_index, tot_jobs);
+            ctx.users_length.remove(user_index);
+            ctx.users_length.add(user_index, tot_length);
+            ctx.users_jobs.remove(user_index);
+            ctx.users_jobs.add(user_index, tot_jobs);
         }
 
-        users_time.remove(user_index);
-        total_uwt.remove(user_index);
-        users_time.add(user_index, old_time);
-        total_uwt.add(user_index, prevwt);
+        ctx.users_time.remove(user_index);
+        ctx.total_uwt.remove(user_index);
+        ctx.users_time.add(user_index, old_time);
+        ctx.total_uwt.add(user_index, prevwt);
 
-        users_last_length.remove(user_index);
-        users_last_length.add(user_index, gridlet_received.getGridletLength());
+        ctx.users_last_length.remove(user_index);
+        ctx.users_last_length.add(user_index, gridlet_received.getGridletLength());
     }
 
     /**
      * Sets job priority according to a fair share mechanism
      */
     private void setLengthStatistics(GridletInfo gi) {
-        if (users.indexOf(new String(gi.getUser())) == -1) {
-            users.addLast(gi.getUser());
-            users_time.addLast(0.0);
-            total_uwt.addLast(0.0);
-            users_last_length.addLast(0.0);
+        if (ctx.users.indexOf(new String(gi.getUser())) == -1) {
+            ctx.users.addLast(gi.getUser());
+            ctx.users_time.addLast(0.0);
+            ctx.total_uwt.addLast(0.0);
+            ctx.users_last_length.addLast(0.0);
 
             // sequential jobs
-            users_length.addLast(0.0);
-            users_jobs.addLast(0);
+            ctx.users_length.addLast(0.0);
+            ctx.users_jobs.addLast(0);
             // parallel jobs
-            users_P_length.addLast(0.0);
-            users_P_jobs.addLast(0);
+            ctx.users_P_length.addLast(0.0);
+            ctx.users_P_jobs.addLast(0);
 
             // store user into a map of all users.            
             User u = new User(gi.getUser());
             //System.out.println("Adding user "+gi.getUser());
-            ExperimentSetup.users.put(gi.getUser(), u);
+            ctx.user_stats.put(gi.getUser(), u);
 
         }
-        int user_index = users.indexOf(new String(gi.getUser()));
-        gi.setPriority(users_time.get(user_index));
+        int user_index = ctx.users.indexOf(new String(gi.getUser()));
+        gi.setPriority(ctx.users_time.get(user_index));
         double avg_length = 0.0;
         if (gi.getNumPE() > 1) {
-            avg_length = Math.round(Math.max(1.0, users_P_length.get(user_index)) / Math.max(1.0, users_P_jobs.get(user_index)));
+            avg_length = Math.round(Math.max(1.0, ctx.users_P_length.get(user_index)) / Math.max(1.0, ctx.users_P_jobs.get(user_index)));
             //System.out.println(gi.getID()+ " ******** of "+users_P_jobs.get(user_index)+" ********** SETTING PARALLEL ESTIMATE est = "+Math.round(avg_length/1)+" MIPS, real = "+Math.round(gi.getLength()/1)+" MIPS | diff = "+Math.round(((gi.getLength()-avg_length)/(gi.getLength()*0.01)))+" % ");
         } else {
-            avg_length = Math.round(Math.max(1.0, users_length.get(user_index)) / Math.max(1.0, users_jobs.get(user_index)));
+            avg_length = Math.round(Math.max(1.0, ctx.users_length.get(user_index)) / Math.max(1.0, ctx.users_jobs.get(user_index)));
             //System.out.println(gi.getID()+ " ******* of "+users_jobs.get(user_index)+" *********** SETTING SEQUENTIAL ESTIMATE est = "+Math.round(avg_length/1)+" MIPS, real = "+Math.round(gi.getLength()/1)+" MIPS | diff = "+Math.round(((gi.getLength()-avg_length)/(gi.getLength()*0.01)))+" % ");
         }
-        double last_length = Math.max(1.0, users_last_length.get(user_index));
+        double last_length = Math.max(1.0, ctx.users_last_length.get(user_index));
         gi.setAvg_length(avg_length);
         gi.setLast_length(last_length);
 
@@ -1227,20 +1018,11 @@ public class Scheduler extends GridSim {
      * Algorithm that compresses the schedule when early job completion is detected. typically used by Conservative backfilling.
      */
     private void compressSchedule(int resid) {
-        ResourceInfo ri = null;
         double runtime1 = new Date().getTime();
-
-        for (int i = 0; i < resourceInfoList.size(); i++) {
-            ri = (ResourceInfo) resourceInfoList.get(i);
-            if (ri.resource.getResourceID() == resid) {
-                break;
-            }
-        }
+        ResourceInfo ri = ctx.getResourceInfo(resid);
         //System.out.println("Starting compression of "+ri.resSchedule.size()+" jobs.");
         schedQueue2.addAll(ri.resSchedule);
-        ri.resSchedule.clear();
-        ri.stable = false;
-        ri.holes.clear();
+        ri.clearSchedule();
 
         double current_time = clock();
         for (int i = 0; i < schedQueue2.size(); i++) {
@@ -1250,7 +1032,7 @@ public class Scheduler extends GridSim {
         }
         schedQueue2.clear();
         //System.out.println("Compression completed ...");
-        runtime += (new Date().getTime() - runtime1);
+        ctx.runtime += (new Date().getTime() - runtime1);
         clock += new Date().getTime() - runtime1;
     }
 
@@ -1258,7 +1040,12 @@ public class Scheduler extends GridSim {
      * This method submits job to a specified resource
      */
     public void submitJob(ComplexGridlet gl, int resID) {
-        gridletSubmit(gl, resID);
+        if (ExperimentSetup.useEventEngine) {
+            // same link delay as gridletSubmit() has in GridSim
+            SimulationEngine.send(get_id(), resID, GridSimTags.GRIDLET_SUBMIT, gl, gl.getGridletFileSize());
+        } else {
+            gridletSubmit(gl, resID);
+        }
     }
 
     /**
@@ -1289,21 +1076,21 @@ public class Scheduler extends GridSim {
                 if (algorithm < 10) {
                     waitj = getQueueSize();
                 } else {
-                    waitj = getScheduleSize();
+                    waitj = ctx.getScheduleSize();
                 }
                 waiting.add(waitj);
                 running.add(getRunningJobs());
 
-                CommonObjectives.getActualUsage();
+                CommonObjectives.getActualUsage(ctx);
                 requested.add(reqc);
-                used.add(busyc);
+                used.add(ctx.busyc);
                 availCPUs.add(getAvailPEs());
                 boolean names = cl_names.size() > 0;
                 for (int c = 0; c < totalResource; c++) {
-                    cl_util.add(CommonObjectives.getClusterUsage(c));
-                    cl_status.add(CommonObjectives.getClusterStatus(c));
+                    cl_util.add(CommonObjectives.getClusterUsage(ctx, c));
+                    cl_status.add(CommonObjectives.getClusterStatus(ctx, c));
                     if (!names) {
-                        cl_names.add(((ResourceInfo) resourceInfoList.get(c)).resource.getResourceName());
+                        cl_names.add(((ResourceInfo) ctx.resourceInfoList.get(c)).resource.getResourceName());
                     }
                 }
 
@@ -1344,7 +1131,7 @@ public class Scheduler extends GridSim {
         }
 
         hours.add(hour_count);
-        day_util.add(CommonObjectives.getActualUsage());
+        day_util.add(CommonObjectives.getActualUsage(ctx));
         anim = windows.get(4);
         LinkedList<Integer> h = new LinkedList(hours);
         LinkedList<Double> day_u = new LinkedList(day_util);
@@ -1353,9 +1140,9 @@ public class Scheduler extends GridSim {
         boolean names = cl_names.size() > 0;
         hour_cl_util.clear();
         for (int c = 0; c < totalResource; c++) {
-            hour_cl_util.add(CommonObjectives.getClusterUsage(c));
+            hour_cl_util.add(CommonObjectives.getClusterUsage(ctx, c));
             if (!names) {
-                cl_names.add(((ResourceInfo) resourceInfoList.get(c)).resource.getResourceName());
+                cl_names.add(((ResourceInfo) ctx.resourceInfoList.get(c)).resource.getResourceName());
             }
         }
         LinkedList<Double> h_cl_u = new LinkedList(hour_cl_util);
@@ -1365,13 +1152,13 @@ public class Scheduler extends GridSim {
 
         // write out current results
         try {
-            out.writeString(folder_prefix + "/actual_usage_" + suff + ".csv", day_count + "\t" + CommonObjectives.getActualUsage());
+            out.writeString(folder_prefix + "/actual_usage_" + suff + ".csv", day_count + "\t" + CommonObjectives.getActualUsage(ctx));
             out.writeString(folder_prefix + "/running_" + suff + ".csv", day_count + "\t" + getRunningJobs());
         } catch (IOException ex) {
             ex.printStackTrace();
         }
-        day_usage += CommonObjectives.getActualUsage();
-        week_usage += CommonObjectives.getActualUsage();
+        day_usage += CommonObjectives.getActualUsage(ctx);
+        week_usage += CommonObjectives.getActualUsage(ctx);
 
         // write out queue length (not to be used for schedule-based algorithms)
         if (algorithm < 10) {
@@ -1384,7 +1171,7 @@ public class Scheduler extends GridSim {
         } else {
             // write out schedule size (do not use for queue-based algorithms)
             try {
-                out.writeString(folder_prefix + "/waiting_" + suff + ".csv", day_count + "\t" + getScheduleSize());
+                out.writeString(folder_prefix + "/waiting_" + suff + ".csv", day_count + "\t" + ctx.getScheduleSize());
             } catch (IOException ex) {
                 ex.printStackTrace();
             }
@@ -0,0 +1,212 @@
+package xklusac.environment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.LinkedList;
+import java.util.Random;
+import xklusac.algorithms.OptimizationAlgorithm;
+import xklusac.algorithms.SchedulingPolicy;
+
+/**
+ * Class SimulationContext<p>
+ * State of one simulation run: the resources and their schedules, the job queues, the load and failure counters, the per-user
+ * statistics, the property index, the decision latency, random number generators and the applied scheduling policy and
+ * optimization algorithms. A new context is created by ExperimentSetup for each run and passed to the Scheduler, ResultCollector,
+ * resources, loaders, policies and optimization algorithms, so nothing of one run is left in the next run in the same JVM.
+ * The configuration of experiments (ExperimentSetup) and services shared by all runs of the JVM remain static: the simulation
+ * kernel (GridSim, SimJava, SimulationEngine which is cleared at the end of each run), the result file writer (Output, its files
+ * are closed after each run) and the thread pools of CandidateEvaluator and ParallelSearch (they hold no state of a run).
+ */
+public class SimulationContext {
+
+    /** list of ResourceInfo objects */
+    public ArrayList resourceInfoList = new ArrayList();
+    /** ResourceInfo objects of resourceInfoList by resource ID (see getResourceInfo) */
+    private HashMap<Integer, ResourceInfo> resourceInfoById = null;
+    /** the list and its size when resourceInfoById was created */
+    private ArrayList registered_list = null;
+    private int registered_size = 0;
+    /** the applied scheduling policy */
+    public SchedulingPolicy policy = null;
+    /** periodically applied optimization algorithm (or null) */
+    public OptimizationAlgorithm opt_alg = null;
+    /** optimization algorithm applied on early job completion (or null) */
+    public OptimizationAlgorithm fix_alg = null;
+    /** name of the data set */
+    public String data_set = "";
+    /** incoming job queue (queue-based policies set its ordering and fitting, see WaitQueue) */
+    public WaitQueue queue = new WaitQueue(this, WaitQueue.BY_PE, WaitQueue.ARRIVAL);
+    /** incoming job queue */
+    public WaitQueue q10 = new WaitQueue(this, WaitQueue.BY_PE, WaitQueue.PRIORITY);
+    /** incoming job queue */
+    public WaitQueue q5 = new WaitQueue(this, WaitQueue.BY_PE, WaitQueue.PRIORITY);
+    /** incoming job queue */
+    public WaitQueue q2 = new WaitQueue(this, WaitQueue.BY_PE, WaitQueue.PRIORITY);
+    /** incoming job queue */
+    public WaitQueue q7 = new WaitQueue(this, WaitQueue.BY_PE, WaitQueue.PRIORITY);
+    /** incoming job queue */
+    public WaitQueue q8 = new WaitQueue(this, WaitQueue.BY_PE, WaitQueue.PRIORITY);
+    /** incoming job queue */
+    public WaitQueue q9 = new WaitQueue(this, WaitQueue.BY_PE, WaitQueue.PRIORITY);
+    /** incoming job queue */
+    public WaitQueue q6 = new WaitQueue(this, WaitQueue.BY_PE, WaitQueue.PRIORITY);
+    /** incoming job queue */
+    public WaitQueue q11 = new WaitQueue(this, WaitQueue.BY_PE, WaitQueue.PRIORITY);
+    /** incoming job queue */
+    public WaitQueue q1 = new WaitQueue(this, WaitQueue.BY_PE, WaitQueue.PRIORITY);
+    /** incoming job queue */
+    public WaitQueue q4 = new WaitQueue(this, WaitQueue.BY_PE, WaitQueue.PRIORITY);
+    /** incoming job queue */
+    public WaitQueue q3 = new WaitQueue(this, WaitQueue.BY_PE, WaitQueue.PRIORITY);
+    /** incoming job queue */
+    public WaitQueue short_queue = new WaitQueue(this, WaitQueue.BY_PE, WaitQueue.PRIORITY);
+    /** incoming job queue */
+    public WaitQueue normal_queue = new WaitQueue(this, WaitQueue.BY_PE, WaitQueue.PRIORITY);
+    /** incoming job queue */
+    public WaitQueue quark_queue = new WaitQueue(this, WaitQueue.BY_PE, WaitQueue.PRIORITY);
+    /** incoming job queue */
+    public WaitQueue long_queue = new WaitQueue(this, WaitQueue.BY_PE, WaitQueue.PRIORITY);
+    /** incoming job queue */
+    public WaitQueue ncbr_queue = new WaitQueue(this, WaitQueue.BY_PE, WaitQueue.PRIORITY);
+    /** incoming job queue */
+    public WaitQueue iti_queue = new WaitQueue(this, WaitQueue.BY_PE, WaitQueue.PRIORITY);
+    /** incoming job queue */
+    public WaitQueue cpmd_queue = new WaitQueue(this, WaitQueue.BY_PE, WaitQueue.PRIORITY);
+    /** queues of PBS PRO in the order of their priority */
+    public LinkedList<WaitQueue> all_queues = new LinkedList();
+    /** denotes # of active PEs */
+    public double activePEs = 0.0;
+    /** denotes # of available PEs */
+    public double availPEs = 0.0;
+    public double classic_activePEs = 0.0;
+    /** denotes # of available PEs */
+    public double classic_availPEs = 0.0;
+    /** denotes # of PEs requested by currently present jobs */
+    public double requestedPEs = 0.0;
+    /** denotes load of the system */
+    public double load = 0.0;
+    public double classic_load = 0.0;
+    /** denotes maximal possible load of the system */
+    public double max_load = 0.0;
+    /** denotes last time event when the load was updated */
+    public double last_event = 0.0;
+    /** denotes start time of the simulation */
+    public double start_event = -10.0;
+    /** CPU time of failed machines */
+    public double failure_time = 0.0;
+    /** MIPS time of failed machines */
+    public double wfailure_time = 0.0;
+    /** time spent by scheduling policies */
+    public double runtime = 0.0;
+    /** Number of schedule evaluations made by optimization algorithms */
+    public long opt_evaluations = 0;
+    /** number of busy CPUs */
+    public int busyc = 0;
+    /** total power of running jobs (see ExperimentSetup.powerCap) */
+    public double totalPower = 0.0;
+    /** random number generator of optimization algorithms */
+    public Random rand = new Random(1223);
+    /** random number generator of permutations (see permute()) */
+    public Random perm_rnd = new Random(1024768);
+    /** users of jobs and their statistics (the same index in all lists) */
+    public LinkedList<String> users = new LinkedList();
+    public LinkedList<Double> users_time = new LinkedList();
+    public LinkedList<Double> users_length = new LinkedList();
+    public LinkedList<Double> users_last_length = new LinkedList();
+    public LinkedList<Double> users_P_length = new LinkedList();
+    public LinkedList<Double> total_uwt = new LinkedList();
+    public LinkedList<Integer> users_jobs = new LinkedList();
+    public LinkedList<Integer> users_P_jobs = new LinkedList();
+    /** results of users (see ResultCollector) */
+    public Hashtable<String, User> user_stats = new Hashtable<String, User>();
+    /** latency of scheduling decisions (see ExperimentSetup.measureLatency) */
+    public DecisionLatency latency = new DecisionLatency();
+    /** index of properties of the data set (see Scheduler.isSuitable) */
+    public PropertyMatcher matcher = new PropertyMatcher();
+
+    /** Resets the load counters and timers before the next pass over the same data set. */
+    public void resetCounters() {
+        load = 0.0;
+        classic_load = 0.0;
+        max_load = 0.0;
+        classic_activePEs = 0.0;
+        classic_availPEs = 0.0;
+        activePEs = 0.0;
+        availPEs = 0.0;
+        requestedPEs = 0.0;
+        last_event = 0.0;
+        start_event = -10.0;
+        runtime = 0.0;
+        opt_evaluations = 0;
+    }
+
+    /**
+     * Returns the ResourceInfo of the resource with given ID (or null). The map of IDs is created again when resourceInfoList is
+     * replaced or its size changes.
+     */
+    public ResourceInfo getResourceInfo(int resId) {
+        if (resourceInfoById == null || registered_list != resourceInfoList || registered_size != resourceInfoList.size()) {
+            resourceInfoById = new HashMap();
+            for (int i = 0; i < resourceInfoList.size(); i++) {
+                ResourceInfo ri = (ResourceInfo) resourceInfoList.get(i);
+                resourceInfoById.put(ri.resource.getResourceID(), ri);
+            }
+            registered_list = resourceInfoList;
+            registered_size = resourceInfoList.size();
+        }
+        return resourceInfoById.get(resId);
+    }
+
+    /**
+     * Updates internal variables of resource infos objects. Use for schedule-based algorithms only!
+     * @param current_time current simulation time used to predict total tardiness of all jobs in this moment
+     */
+    public void updateResourceInfos(double current_time) {
+        for (int i = 0; i < resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) resourceInfoList.get(i);
+            ri.update(current_time);
+        }
+    }
+
+    /** Returns the number of jobs waiting (in the schedule). */
+    public int getScheduleSize() {
+        int size = 0;
+        for (int i = 0; i < resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) resourceInfoList.get(i);
+            size += ri.resSchedule.size();
+        }
+        return size;
+    }
+
+    /**
+     * Checks whether this job is executable anywhere or not.
+     */
+    public boolean isExecutable(GridletInfo gi) {
+        for (int i = 0; i < resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) resourceInfoList.get(i);
+            if (Scheduler.isSuitable(ri, gi)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Generates an array of permuted integers from 0 .. N-1. */
+    public int[] permute(int N) {
+        int[] a = new int[N];
+
+        // insert integers 0..N-1
+        for (int i = 0; i < N; i++) {
+            a[i] = i;
+        }
+        // shuffle
+        for (int i = 0; i < N; i++) {
+            int r = (int) (perm_rnd.nextDouble() * (i + 1));     // int between 0 and i
+            int swap = a[r];
+            a[r] = a[i];
+            a[i] = swap;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,178 @@
+package xklusac.environment;
+
+import eduni.simjava.Sim_system;
+import java.lang.reflect.Field;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+
+/**
+ * Class SimulationEngine<p>
+ * Single-threaded discrete event core that can be used instead of SimJava's thread-per-entity execution.
+ * All events are kept in one priority queue and delivered (one by one, in time order) to the registered
+ * EngineEntity callbacks, so no thread context switch is needed per event.<p>
+ * The entities (Scheduler, job loaders, FailureLoaderNew, AdvancedSpaceShared) are still created as GridSim
+ * entities so that entity IDs and names stay the same as in GridSim mode, they are only never started as threads.
+ * The SimJava clock is moved together with the engine clock, therefore GridSim.clock() and the Gridlet
+ * bookkeeping work unchanged.<p>
+ * Transfers that GridSim sends through the I/O ports of entities (job submission, return of a failed job)
+ * are sent with send(), which keeps the link delay of GridSim's Input port.<p>
+ * Use ExperimentSetup.useEventEngine to select this engine.
+ */
+public class SimulationEngine {
+
+    /** tag of the event that starts the Scheduler (replaces its initial gridSimHold) */
+    public static int StartSimulation = 111000111;
+    /** future event queue */
+    private static PriorityQueue<SimulationEvent> future = new PriorityQueue<SimulationEvent>();
+    /** entities that receive events */
+    private static HashMap<Integer, EngineEntity> entities = new HashMap<Integer, EngineEntity>();
+    /** allocation policies of all resources, in the order of their creation */
+    private static LinkedList<AdvancedSpaceShared> resources = new LinkedList();
+    /** counter used to keep the FIFO order of simultaneous events */
+    private static long serial = 0;
+    /** current simulation time */
+    private static double clock = 0.0;
+    /** false when the simulation should stop */
+    private static boolean running = false;
+    /** number of delivered events */
+    public static long processed = 0;
+    /** baud rates of the registered entities */
+    private static HashMap<Integer, Double> baud_rates = new HashMap<Integer, Double>();
+    /** time when the input port of an entity finishes receiving the last transfer sent to it */
+    private static HashMap<Integer, Double> input_busy = new HashMap<Integer, Double>();
+    /** SimJava clock field */
+    private static Field sim_clock = null;
+
+    /** Registers an entity that will receive events sent to the given entity ID. */
+    public static void register(int id, EngineEntity entity) {
+        entities.put(id, entity);
+    }
+
+    /** Registers an entity together with the baud rate of its I/O ports. */
+    public static void register(int id, EngineEntity entity, double baudRate) {
+        register(id, entity);
+        baud_rates.put(id, baudRate);
+    }
+
+    /** Registers the allocation policy of one resource - it receives events sent to both the GridResource and the policy. */
+    static void addResource(AdvancedSpaceShared policy, double baudRate) {
+        policy.initMachineRating();
+        register(policy.get_id(), policy, baudRate);
+        register(policy.resource_.getResourceID(), policy, baudRate);
+        resources.add(policy);
+    }
+
+    /** Returns the list of IDs of all resources (the same as GridSim.getGridResourceList() would return). */
+    public static LinkedList getResourceList() {
+        LinkedList list = new LinkedList();
+        for (int i = 0; i < resources.size(); i++) {
+            list.add(new Integer(resources.get(i).resource_.getResourceID()));
+        }
+        return list;
+    }
+
+    /** Returns the characteristics of the resource with given ID. */
+    public static ComplexResourceCharacteristics getResourceCharacteristics(int resId) {
+        for (int i = 0; i < resources.size(); i++) {
+            if (resources.get(i).resource_.getResourceID() == resId) {
+                return resources.get(i).resource_;
+            }
+        }
+        return null;
+    }
+
+    /** Schedules a new event. */
+    public static void schedule(int src, int dest, double delay, int tag, Object data) {
+        if (delay < 0.0) {
+            System.out.println("SimulationEngine: negative delay " + delay + " of tag " + tag + " replaced by 0.0");
+            delay = 0.0;
+        }
+        future.add(new SimulationEvent(clock + delay, serial++, src, dest, tag, data));
+    }
+
+    /**
+     * Sends data through the I/O ports as GridSim does. The event is delivered once the transfer of byteSize bytes
+     * at the lower baud rate of both entities is over. The input port of the receiver accepts one transfer at a time,
+     * so simultaneous transfers to the same entity are received one after another.
+     */
+    public static void send(int src, int dest, int tag, Object data, long byteSize) {
+        double start = clock;
+        Double busy = input_busy.get(dest);
+        if (busy != null && busy.doubleValue() > start) {
+            start = busy.doubleValue();
+        }
+        double arrival = start + byteSize / Math.min(getBaudRate(src), getBaudRate(dest));
+        input_busy.put(dest, arrival);
+        schedule(src, dest, arrival - clock, tag, data);
+    }
+
+    /** Returns the baud rate of an entity, entities without a known baud rate do not limit the transfer. */
+    private static double getBaudRate(int id) {
+        Double baud = baud_rates.get(id);
+        if (baud == null || baud.doubleValue() <= 0.0) {
+            return Double.MAX_VALUE;
+        }
+        return baud.doubleValue();
+    }
+
+    /** Returns the current simulation time. */
+    public static double clock() {
+        return clock;
+    }
+
+    /** Stops the simulation, remaining events are discarded. */
+    public static void stop() {
+        running = false;
+    }
+
+    /** Delivers events until the simulation is stopped or there is no event left. */
+    public static void run() {
+        long start = new Date().getTime();
+        running = true;
+        processed = 0;
+        while (running && future.size() > 0) {
+            SimulationEvent ev = future.poll();
+            setClock(ev.getTime());
+            EngineEntity entity = entities.get(ev.getDest());
+            if (entity == null) {
+                System.out.println("SimulationEngine: no entity with ID " + ev.getDest() + ", tag " + ev.getTag() + " ignored.");
+                continue;
+            }
+            entity.processEvent(ev);
+            processed++;
+        }
+        for (int i = 0; i < resources.size(); i++) {
+            resources.get(i).printUsage();
+        }
+        System.out.println("SimulationEngine: " + processed + " events delivered in " + (new Date().getTime() - start) + " ms.");
+        reset();
+    }
+
+    /** Clears the engine so that a new simulation can be started. */
+    public static void reset() {
+        future.clear();
+        entities.clear();
+        resources.clear();
+        baud_rates.clear();
+        input_busy.clear();
+        serial = 0;
+        running = false;
+        setClock(0.0);
+    }
+
+    /** Moves both the engine clock and the SimJava clock (used by GridSim.clock() and Gridlets). */
+    private static void setClock(double time) {
+        clock = time;
+        try {
+            if (sim_clock == null) {
+                sim_clock = Sim_system.class.getDeclaredField("clock");
+                sim_clock.setAccessible(true);
+            }
+            sim_clock.setDouble(null, time);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package xklusac.environment;
+
+/**
+ * Class SimulationEvent<p>
+ * One event in the future event queue of the SimulationEngine. Events are ordered by their time,
+ * events with the same time are ordered by the order in which they were scheduled (same as SimJava does).
+ */
+public class SimulationEvent implements Comparable<SimulationEvent> {
+
+    /** time when the event occurs */
+    private double time;
+    /** order in which the event was scheduled */
+    private long serial;
+    /** id of the entity that sent this event */
+    private int src;
+    /** id of the entity that will receive this event */
+    private int dest;
+    /** event tag */
+    private int tag;
+    /** data carried by this event */
+    private Object data;
+
+    /** Creates a new instance of SimulationEvent */
+    public SimulationEvent(double time, long serial, int src, int dest, int tag, Object data) {
+        this.time = time;
+        this.serial = serial;
+        this.src = src;
+        this.dest = dest;
+        this.tag = tag;
+        this.data = data;
+    }
+
+    public int compareTo(SimulationEvent ev) {
+        if (this.time < ev.time) {
+            return -1;
+        } else if (this.time > ev.time) {
+            return 1;
+        }
+        if (this.serial < ev.serial) {
+            return -1;
+        } else if (this.serial > ev.serial) {
+            return 1;
+        }
+        return 0;
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    public int getSrc() {
+        return src;
+    }
+
+    public int getDest() {
+        return dest;
+    }
+
+    public int getTag() {
+        return tag;
+    }
+
+    public Object getData() {
+        return data;
+    }
+}
@@ -0,0 +1,459 @@
+package xklusac.environment;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import xklusac.extensions.LogHistogram;
+
+/**
+ * Class SweepRunner<p>
+ * Runs a sweep of experiments - all combinations (cells) of the settings given by a matrix file. Each cell is one run of
+ * ExperimentSetup with the -cell argument in its own JVM, because the simulation kernel (GridSim, SimJava, SimulationEngine) is
+ * shared by the whole JVM. At most "cores" cells run at the same time. Results of a cell are stored in its own directory
+ * (cells/cell-N of the output directory), when the run ends successfully the file "done" is created there. When all cells
+ * finish, the tables of finished cells (Results(...).csv, SecRes(...).csv, Fairness(...).csv, ...) are merged into the output
+ * directory in the order of cells. The quantile sketches of cells that differ only by the seed (replications) are merged and
+ * their quantiles are written into MergedQuantiles(...).csv. A started sweep may be interrupted, it continues with unfinished
+ * cells when started again.<p>
+ * The matrix file contains lines "name = value1, value2, ..." (names are described in ExperimentSetup.applySetting()), integer
+ * values may be given as a range "0..9" and # starts a comment. The first line changes slowest, the last line changes fastest.
+ * Settings that are not given in the matrix file are the same as in ExperimentSetup.main(). Example:<p>
+ * data_set = metacentrum.mwf<br>
+ * jobs = 103656<br>
+ * alg = 2, 3, 4, 10, 19<br>
+ * estimate = exact, user, avg<br>
+ * seed = 0..9<p>
+ * Usage: java xklusac.environment.SweepRunner &lt;matrix file&gt; [output directory] [cores]. Options of worker JVMs (e.g., -Xmx)
+ * are given by the system property sweep.jvm. Workers run in the current working directory, so data sets are found as usual.
+ */
+public class SweepRunner {
+
+    /** tables of ResultCollector merged from all cells (the first line of each table is its header) */
+    private static final String[] TABLES = {"Results", "SecRes", "WGraphs", "RGraphs", "SGraphs", "Fairness", "Quantiles", "Latency"};
+    /** quantile sketches written by ResultCollector */
+    private static final String SKETCHES = "Sketches";
+    /** file marking a finished cell */
+    private static final String DONE = "done";
+    /** file with the settings of a cell */
+    private static final String SETTINGS = "cell.txt";
+    /** names of settings in the order of the matrix file */
+    private ArrayList<String> names = new ArrayList();
+    /** values of each setting */
+    private ArrayList<String[]> values = new ArrayList();
+    /** output directory */
+    private File output;
+    /** maximal number of cells running at the same time */
+    private int cores;
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: java [-Dsweep.jvm=\"<worker JVM options>\"] xklusac.environment.SweepRunner <matrix file> [output directory] [cores]");
+            return;
+        }
+        File matrix = new File(args[0]);
+        File output = new File(args.length > 1 ? args[1] : "sweep");
+        int cores = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        try {
+            SweepRunner runner = new SweepRunner(matrix, output, cores);
+            runner.run();
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /** Creates a new instance of SweepRunner, the matrix file is read and checked. */
+    public SweepRunner(File matrix, File output, int cores) throws IOException {
+        this.output = output;
+        this.cores = Math.max(1, cores);
+        readMatrix(matrix);
+    }
+
+    /** Runs all unfinished cells and merges the results of finished cells. */
+    public void run() throws Exception {
+        ArrayList<LinkedList<String>> cells = createCells();
+        File cell_root = new File(output, "cells");
+        cell_root.mkdirs();
+
+        ExecutorService pool = Executors.newFixedThreadPool(cores);
+        List<Future<Boolean>> runs = new ArrayList();
+        int skipped = 0;
+        for (int i = 0; i < cells.size(); i++) {
+            File dir = new File(cell_root, "cell-" + i);
+            if (isDone(dir, cells.get(i))) {
+                skipped++;
+            } else {
+                runs.add(pool.submit(new Cell(dir, cells.get(i))));
+            }
+        }
+        System.out.println("Sweep of " + cells.size() + " cells: " + skipped + " finished before, " + runs.size() + " to run on " + cores + " cores.");
+        int failed = 0;
+        for (int i = 0; i < runs.size(); i++) {
+            try {
+                if (!runs.get(i).get()) {
+                    failed++;
+                }
+            } catch (Exception ex) {
+                ex.printStackTrace();
+                failed++;
+            }
+        }
+        pool.shutdown();
+
+        merge(cells, cell_root);
+        mergeSketches(cells, cell_root);
+        System.out.println("Sweep finished: " + (cells.size() - failed) + " cells finished, " + failed + " failed. Results are in " + output.getAbsolutePath());
+    }
+
+    /** Reads the settings and their values. Values are checked by ExperimentSetup.applySetting() (no simulation runs in this JVM). */
+    private void readMatrix(File matrix) throws IOException {
+        BufferedReader br = new BufferedReader(new FileReader(matrix));
+        try {
+            String line;
+            while ((line = br.readLine()) != null) {
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                if (line.trim().length() == 0) {
+                    continue;
+                }
+                String[] setting = line.split("=", 2);
+                String name = setting[0].trim();
+                if (setting.length < 2 || name.equals("result_dir")) {
+                    throw new IllegalArgumentException("Wrong line of " + matrix + ": " + line);
+                }
+                LinkedList<String> list = new LinkedList();
+                String[] items = setting[1].split(",");
+                for (int i = 0; i < items.length; i++) {
+                    addValues(list, items[i].trim());
+                }
+                for (Iterator<String> it = list.iterator(); it.hasNext();) {
+                    String value = it.next();
+                    if (!ExperimentSetup.applySetting(name, value)) {
+                        throw new IllegalArgumentException("Wrong setting in " + matrix + ": " + name + " = " + value);
+                    }
+                }
+                names.add(name);
+                values.add(list.toArray(new String[list.size()]));
+            }
+        } finally {
+            br.close();
+        }
+    }
+
+    /** Adds the value or all integers of the range "from..to". */
+    private static void addValues(LinkedList<String> list, String item) {
+        int range = item.indexOf("..");
+        if (range > 0) {
+            try {
+                int from = Integer.parseInt(item.substring(0, range).trim());
+                int to = Integer.parseInt(item.substring(range + 2).trim());
+                for (int i = from; i <= to; i++) {
+                    list.add(String.valueOf(i));
+                }
+                return;
+            } catch (NumberFormatException ex) {
+                // not a range of integers
+            }
+        }
+        list.add(item);
+    }
+
+    /** Returns the settings "name=value" of all cells, the last setting changes fastest. */
+    private ArrayList<LinkedList<String>> createCells() {
+        ArrayList<LinkedList<String>> cells = new ArrayList();
+        int[] index = new int[names.size()];
+        while (true) {
+            LinkedList<String> cell = new LinkedList();
+            for (int i = 0; i < names.size(); i++) {
+                cell.add(names.get(i) + "=" + values.get(i)[index[i]]);
+            }
+            cells.add(cell);
+            // next combination
+            int i = names.size() - 1;
+            while (i >= 0 && ++index[i] == values.get(i).length) {
+                index[i] = 0;
+                i--;
+            }
+            if (i < 0) {
+                return cells;
+            }
+        }
+    }
+
+    /** Decides whether the cell has been finished with the same settings. */
+    private static boolean isDone(File dir, LinkedList<String> settings) throws IOException {
+        File settings_file = new File(dir, SETTINGS);
+        return new File(dir, DONE).exists() && settings_file.exists() && readLines(settings_file).equals(settings);
+    }
+
+    /**
+     * One cell - a run of ExperimentSetup in a new JVM.
+     */
+    private class Cell implements Callable<Boolean> {
+
+        private File dir;
+        private LinkedList<String> settings;
+
+        Cell(File dir, LinkedList<String> settings) {
+            this.dir = dir;
+            this.settings = settings;
+        }
+
+        public Boolean call() throws Exception {
+            // results of an unfinished run are removed
+            deleteFiles(dir);
+            dir.mkdirs();
+            writeLines(new File(dir, SETTINGS), settings);
+
+            List<String> command = new ArrayList();
+            command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+            String options = System.getProperty("sweep.jvm", "").trim();
+            if (options.length() > 0) {
+                command.addAll(Arrays.asList(options.split("\\s+")));
+            }
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(ExperimentSetup.class.getName());
+            command.add("-cell");
+            command.addAll(settings);
+            command.add("result_dir=" + dir.getAbsolutePath());
+
+            System.out.println("Starting " + dir.getName() + ": " + settings);
+            ProcessBuilder builder = new ProcessBuilder(command);
+            builder.redirectErrorStream(true);
+            Process process = builder.start();
+            // the output of the run is stored in its directory
+            copy(process.getInputStream(), new File(dir, "output.txt"));
+            int status = process.waitFor();
+
+            boolean ok = (status == 0 && hasResults(dir));
+            if (ok) {
+                new File(dir, DONE).createNewFile();
+                System.out.println("Finished " + dir.getName() + ": " + settings);
+            } else {
+                System.out.println("FAILED " + dir.getName() + " (exit status " + status + "), see " + new File(dir, "output.txt"));
+            }
+            return ok;
+        }
+    }
+
+    /** Decides whether the cell has written its results (the header and at least one line of Results(...).csv). */
+    private static boolean hasResults(File dir) throws IOException {
+        File[] files = dir.listFiles();
+        for (int i = 0; files != null && i < files.length; i++) {
+            if (files[i].getName().startsWith("Results(") && readLines(files[i]).size() > 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Merges the tables of finished cells into the output directory. The header of a table is repeated when the data set changes
+     * (as when ExperimentSetup runs several data sets), the first column of each line is labelled by the settings that differ
+     * between cells and are not part of it already (data set and algorithm).
+     */
+    private void merge(ArrayList<LinkedList<String>> cells, File cell_root) throws IOException {
+        LinkedHashMap<String, ArrayList<String>> tables = new LinkedHashMap();
+        HashMap<String, String> headers = new HashMap();
+        for (int i = 0; i < cells.size(); i++) {
+            File dir = new File(cell_root, "cell-" + i);
+            if (!isDone(dir, cells.get(i))) {
+                continue;
+            }
+            String label = getLabel(cells.get(i), null);
+            File[] files = dir.listFiles();
+            Arrays.sort(files);
+            for (int f = 0; f < files.length; f++) {
+                String name = files[f].getName();
+                if (!isTable(name)) {
+                    continue;
+                }
+                LinkedList<String> lines = readLines(files[f]);
+                if (lines.isEmpty()) {
+                    continue;
+                }
+                ArrayList<String> table = tables.get(name);
+                if (table == null) {
+                    table = new ArrayList();
+                    tables.put(name, table);
+                }
+                String header = lines.removeFirst();
+                if (!header.equals(headers.get(name))) {
+                    table.add(header);
+                    headers.put(name, header);
+                }
+                for (Iterator<String> it = lines.iterator(); it.hasNext();) {
+                    table.add(addLabel(it.next(), label));
+                }
+            }
+        }
+        for (Iterator<String> it = tables.keySet().iterator(); it.hasNext();) {
+            String name = it.next();
+            writeLines(new File(output, name), tables.get(name));
+        }
+    }
+
+    /**
+     * Merges the quantile sketches (Sketches(...).csv) of finished cells that differ only by the seed and writes the quantiles of
+     * the merged sketches into MergedQuantiles(...).csv of the output directory. The columns are the same as in Quantiles(...).csv.
+     */
+    private void mergeSketches(ArrayList<LinkedList<String>> cells, File cell_root) throws IOException {
+        LinkedHashMap<String, LinkedHashMap<String, LogHistogram[]>> tables = new LinkedHashMap();
+        HashMap<String, String> headers = new HashMap();
+        for (int i = 0; i < cells.size(); i++) {
+            File dir = new File(cell_root, "cell-" + i);
+            if (!isDone(dir, cells.get(i))) {
+                continue;
+            }
+            String label = getLabel(cells.get(i), "seed");
+            File[] files = dir.listFiles();
+            Arrays.sort(files);
+            for (int f = 0; f < files.length; f++) {
+                String name = files[f].getName();
+                if (!name.startsWith(SKETCHES + "(") || !name.endsWith(").csv")) {
+                    continue;
+                }
+                LinkedList<String> lines = readLines(files[f]);
+                if (lines.isEmpty()) {
+                    continue;
+                }
+                // Sketches(problem).csv -> MergedQuantiles(problem).csv
+                name = "MergedQuantiles" + name.substring(SKETCHES.length());
+                LinkedHashMap<String, LogHistogram[]> table = tables.get(name);
+                if (table == null) {
+                    table = new LinkedHashMap();
+                    tables.put(name, table);
+                    String header = lines.getFirst();
+                    headers.put(name, header.substring(0, header.indexOf('\t')) + ResultCollector.QUANTILE_COLUMNS);
+                }
+                lines.removeFirst();
+                for (Iterator<String> it = lines.iterator(); it.hasNext();) {
+                    String[] columns = it.next().split("\t");
+                    String key = addLabel(columns[0], label) + "\t" + columns[1] + "\t" + columns[2];
+                    LogHistogram[] sketches = {LogHistogram.parse(columns[3]), LogHistogram.parse(columns[4])};
+                    LogHistogram[] merged = table.get(key);
+                    if (merged == null) {
+                        table.put(key, sketches);
+                    } else {
+                        merged[0].merge(sketches[0]);
+                        merged[1].merge(sketches[1]);
+                    }
+                }
+            }
+        }
+        for (Iterator<String> it = tables.keySet().iterator(); it.hasNext();) {
+            String name = it.next();
+            ArrayList<String> lines = new ArrayList();
+            lines.add(headers.get(name));
+            LinkedHashMap<String, LogHistogram[]> table = tables.get(name);
+            for (Iterator<String> keys = table.keySet().iterator(); keys.hasNext();) {
+                String key = keys.next();
+                String[] columns = key.split("\t");
+                lines.add(ResultCollector.getQuantileLine(columns[0], columns[1], columns[2], table.get(key)));
+            }
+            writeLines(new File(output, name), lines);
+        }
+    }
+
+    /**
+     * Returns the settings of the cell that differ between cells (except data set, algorithm and the ignored setting), or "" if there
+     * are none.
+     */
+    private String getLabel(LinkedList<String> settings, String ignored) {
+        String label = "";
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            if (values.get(i).length > 1 && !name.equals("data_set") && !name.equals("alg") && !name.equals(ignored)) {
+                label += (label.length() > 0 ? "," : "") + settings.get(i);
+            }
+        }
+        return label;
+    }
+
+    private static String addLabel(String line, String label) {
+        if (label.length() == 0) {
+            return line;
+        }
+        int tab = line.indexOf('\t');
+        if (tab < 0) {
+            return line + "[" + label + "]";
+        }
+        return line.substring(0, tab) + "[" + label + "]" + line.substring(tab);
+    }
+
+    /** Decides whether the file is one of the merged tables, e.g., "Results(ResultR--Exact).csv". */
+    private static boolean isTable(String name) {
+        for (int i = 0; i < TABLES.length; i++) {
+            if (name.startsWith(TABLES[i] + "(") && name.endsWith(").csv")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static LinkedList<String> readLines(File file) throws IOException {
+        LinkedList<String> lines = new LinkedList();
+        BufferedReader br = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = br.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            br.close();
+        }
+        return lines;
+    }
+
+    private static void writeLines(File file, List<String> lines) throws IOException {
+        PrintWriter pw = new PrintWriter(new FileWriter(file));
+        try {
+            for (int i = 0; i < lines.size(); i++) {
+                pw.println(lines.get(i));
+            }
+        } finally {
+            pw.close();
+        }
+    }
+
+    /** Copies the stream into the file until the stream ends. */
+    private static void copy(InputStream in, File file) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            byte[] buffer = new byte[1 << 16];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+        } finally {
+            out.close();
+            in.close();
+        }
+    }
+
+    /** Deletes all files of the directory (the directory of a cell has no subdirectories). */
+    private static void deleteFiles(File dir) {
+        File[] files = dir.listFiles();
+        for (int i = 0; files != null && i < files.length; i++) {
+            files[i].delete();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package xklusac.environment;
+
+import eduni.simjava.Sim_event;
+import gridsim.*;
+import java.util.Random;
+import eduni.simjava.distributions.Sim_normal_obj;
+
+/**
+ * Class SyntheticLoader<p>
+ * Generates jobs of a synthetic workload (see SyntheticWorkload) dynamically over time and sends them to the scheduler. Each
+ * job is created when the previous one arrives, so the memory does not grow with the number of jobs. The workload is
+ * deterministic, it depends on the seed of the data set only.
+ */
+public class SyntheticLoader extends EngineGridSim {
+
+    /** parameters of the workload */
+    SyntheticWorkload workload;
+    /** random number generator of jobs */
+    Random r;
+    /** total number of jobs in experiment */
+    int total_jobs = 0;
+    /** message tag */
+    private static int SendGridletInfo = 999;
+    /** number of PEs in the "biggest" resource */
+    int maxPE = 1;
+    int maxPErating = 1;
+    /** gridlet counter */
+    int current_gl = 0;
+    /** data set name */
+    String data_set = "";
+    boolean estimates;
+    int submitted = 0;
+    /** arrival time of the last generated job */
+    double last_arrival = 0.0;
+    Sim_normal_obj norm;
+
+    /** Creates a new instance of SyntheticLoader */
+    public SyntheticLoader(String name, double baudRate, int total_jobs, String data_set, int maxPE, int maxPErating,
+            boolean estimates) throws Exception {
+        super(name, baudRate);
+        this.workload = SyntheticWorkload.load(data_set);
+        this.r = new Random(workload.seed + 1);
+        this.total_jobs = total_jobs;
+        this.maxPE = maxPE;
+        this.maxPErating = maxPErating;
+        this.data_set = data_set;
+        this.estimates = estimates;
+        // the same distribution as used by MWFLoader and SWFLoader
+        this.norm = new Sim_normal_obj("normal distr", 0.0, 5.0, (121 + ExperimentSetup.rnd_seed));
+    }
+
+    /** Generates jobs and sends them to the Scheduler entity dynamically over time. */
+    public void body() {
+        super.gridSimHold(10.0);    // hold by 10 second
+
+        while (current_gl < total_jobs) {
+
+            Sim_event ev = new Sim_event();
+            sim_get_next(ev);
+
+            if (ev.get_tag() == GridSimTags.JUNK_PKT) {
+                loadNextGridlet();
+                continue;
+            }
+        }
+
+        endOfSubmission();
+        Sim_event ev = new Sim_event();
+        sim_get_next(ev);
+
+        if (ev.get_tag() == GridSimTags.END_OF_SIMULATION) {
+            System.out.println("Shuting down the " + data_set + "_JobLoader... Submitted: " + submitted + " jobs.");
+        }
+        shutdownUserEntity();
+        super.terminateIOEntities();
+    }
+
+    /** Generates one job and sends it to the Scheduler. Next job is generated when this job arrives. */
+    private void loadNextGridlet() {
+        ComplexGridlet gl = createGridlet(current_gl);
+        current_gl++;
+        double delay = Math.max(0.0, (gl.getArrival_time() - super.clock()));
+        submitted++;
+        sim_schedule(this.getEntityId("Alea_3.0_scheduler"), delay, SendGridletInfo, gl);
+
+        if (current_gl < total_jobs) {
+            sim_schedule(this.getEntityId(this.getEntityName()), delay, GridSimTags.JUNK_PKT);
+        }
+    }
+
+    /** Informs the Scheduler that all jobs have been sent. */
+    private void endOfSubmission() {
+        sim_schedule(this.getEntityId("Alea_3.0_scheduler"), 0.0, 612345, new Integer(submitted));
+    }
+
+    /**
+     * Processes one event delivered by the SimulationEngine. This replaces the body() thread when
+     * ExperimentSetup.useEventEngine is set.
+     */
+    public void processEvent(SimulationEvent ev) {
+        if (ev.getTag() == GridSimTags.JUNK_PKT && current_gl < total_jobs) {
+            loadNextGridlet();
+            if (current_gl >= total_jobs) {
+                endOfSubmission();
+            }
+        }
+    }
+
+    /** Generates job with ID id. Lengths are computed as in SWFLoader (runtime on the fastest PE). */
+    private ComplexGridlet createGridlet(int id) {
+        last_arrival = workload.nextArrival(r, last_arrival);
+        long arrival = Math.round(last_arrival);
+        SyntheticWorkload.Cluster c = workload.sampleCluster(r);
+        int numCPU = Math.min(maxPE, workload.sampleNumPE(r, c.machines * c.pe));
+        long run_time = workload.sampleRuntime(r);
+        long job_limit = workload.sampleJobLimit(r, run_time);
+        String user = workload.sampleUser(r);
+        String queue = workload.sampleQueue(r);
+        String properties = workload.sampleProperties(r, c);
+
+        double length = Math.round(run_time * maxPErating);
+        double deadline = arrival + run_time * 2;
+        double estimatedLength = 0.0;
+        if (estimates) {
+            //roughest estimate that can be done = queue limit
+            estimatedLength = Math.round(Math.max((job_limit * maxPErating), length));
+        } else {
+            // exact estimates
+            estimatedLength = length;
+        }
+        double perc = norm.sample() + ExperimentSetup.userPercentage;
+
+        ComplexGridlet gl = new ComplexGridlet(id, user, job_limit, length, estimatedLength, 10, 10, "Linux", "Risc arch.", arrival, deadline, 1,
+                numCPU, 0.0, queue, properties, perc);
+        // and set user id to the Scheduler entity - otherwise it would be returned to the JobLoader when completed.
+        gl.setUserID(super.getEntityId("Alea_3.0_scheduler"));
+        return gl;
+    }
+}
@@ -0,0 +1,326 @@
+package xklusac.environment;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Class SyntheticWorkload<p>
+ * Parameters and random distributions of a synthetic workload and of the clusters it runs on. A synthetic data set is selected
+ * by the extension syn (e.g., "synthetic.syn"), the file "data-set/synthetic.syn" contains the parameters (lines "name = value",
+ * missing parameters and missing file mean the default values). Jobs are generated by SyntheticLoader and clusters by
+ * MachineLoader, no job is stored so the number of jobs is limited only by the simulation itself.<p>
+ * Jobs arrive according to a Poisson process whose rate follows a daily cycle, runtimes are log-uniform, the number of PEs is
+ * a power of two, users and queues are selected according to the Zipf distribution. Each job is generated for a cluster
+ * (selected with respect to its size) and requests some of its properties, so that it can always run somewhere.
+ * The same parameters (seed) always give the same workload and clusters.
+ */
+public class SyntheticWorkload {
+
+    /** seed of random number generators */
+    public long seed = 1;
+    /** number of clusters */
+    public int clusters = 10;
+    /** total number of machines (divided among clusters) */
+    public int machines = 1250;
+    /** number of PEs of one machine */
+    public int machine_pe = 8;
+    /** average MIPS rating of one PE */
+    public int pe_rating = 1000;
+    /** relative spread of PE rating between clusters (0.5 = +-50%) */
+    public double rating_spread = 0.5;
+    /** number of properties of each cluster */
+    public int cluster_properties = 4;
+    /** names of properties */
+    public String[] properties = {"linux", "x86_64", "brno", "plzen", "praha", "nfs4", "myrinet2000", "quadcore", "xeon", "opteron", "ncbr", "iti"};
+    /** average number of arrivals per hour */
+    public double arrival_rate = 60.0;
+    /** amplitude of the daily cycle of arrival rate (0.0 = constant rate, 1.0 = no arrivals in the night) */
+    public double daily_amplitude = 0.5;
+    /** hour of the day with the highest arrival rate */
+    public double peak_hour = 14.0;
+    /** the shortest and the longest runtime (seconds) */
+    public double runtime_min = 60.0;
+    public double runtime_max = 172800.0;
+    /** job limit (runtime estimate) is runtime * U(1, limit_factor) */
+    public double limit_factor = 3.0;
+    /** probability that a job is parallel */
+    public double parallel = 0.3;
+    /** parallel jobs request 2^1 - 2^max_pe_exp PEs */
+    public int max_pe_exp = 6;
+    /** number of users and the exponent of the Zipf distribution of users */
+    public int users = 500;
+    public double user_skew = 1.0;
+    /** names of queues and the exponent of the Zipf distribution of queues */
+    public String[] queues = {"normal", "short", "long", "cpmd", "ncbr", "iti"};
+    public double queue_skew = 1.0;
+    /** probability that a job requests some properties and the maximal number of requested properties */
+    public double job_properties = 0.5;
+    public int max_job_properties = 2;
+    /** clusters (created lazily) */
+    private Cluster[] cluster_list = null;
+    /** cumulative distributions used by sampling */
+    private double[] cluster_cdf;
+    private double[] user_cdf;
+    private double[] queue_cdf;
+
+    /** Creates the workload with default parameters. */
+    public SyntheticWorkload() {
+    }
+
+    /** Returns true if the data set is synthetic (generated). */
+    public static boolean isSynthetic(String data_set) {
+        return data_set.endsWith(".syn");
+    }
+
+    /** Creates the workload of data set, the parameters are read from the file of data set (if it exists). */
+    public static SyntheticWorkload load(String data_set) {
+        SyntheticWorkload w = new SyntheticWorkload();
+        File f = new File(getDataSetDir() + "/data-set/" + data_set);
+        if (!f.exists()) {
+            System.out.println("Synthetic data set " + f.getPath() + " not found, default parameters are used.");
+            return w;
+        }
+        Properties p = new Properties();
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(f);
+            p.load(in);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        } finally {
+            try {
+                if (in != null) {
+                    in.close();
+                }
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+        w.seed = Long.parseLong(p.getProperty("seed", "" + w.seed).trim());
+        w.clusters = getInt(p, "clusters", w.clusters);
+        w.machines = getInt(p, "machines", w.machines);
+        w.machine_pe = getInt(p, "machine_pe", w.machine_pe);
+        w.pe_rating = getInt(p, "pe_rating", w.pe_rating);
+        w.rating_spread = getDouble(p, "rating_spread", w.rating_spread);
+        w.cluster_properties = getInt(p, "cluster_properties", w.cluster_properties);
+        w.properties = getList(p, "properties", w.properties);
+        w.arrival_rate = getDouble(p, "arrival_rate", w.arrival_rate);
+        w.daily_amplitude = getDouble(p, "daily_amplitude", w.daily_amplitude);
+        w.peak_hour = getDouble(p, "peak_hour", w.peak_hour);
+        w.runtime_min = getDouble(p, "runtime_min", w.runtime_min);
+        w.runtime_max = getDouble(p, "runtime_max", w.runtime_max);
+        w.limit_factor = getDouble(p, "limit_factor", w.limit_factor);
+        w.parallel = getDouble(p, "parallel", w.parallel);
+        w.max_pe_exp = getInt(p, "max_pe_exp", w.max_pe_exp);
+        w.users = getInt(p, "users", w.users);
+        w.user_skew = getDouble(p, "user_skew", w.user_skew);
+        w.queues = getList(p, "queues", w.queues);
+        w.queue_skew = getDouble(p, "queue_skew", w.queue_skew);
+        w.job_properties = getDouble(p, "job_properties", w.job_properties);
+        w.max_job_properties = getInt(p, "max_job_properties", w.max_job_properties);
+        return w;
+    }
+
+    /** Returns the directory containing the data-set directory (the same as used by the loaders). */
+    static String getDataSetDir() {
+        String dir = "";
+        if (ExperimentSetup.meta) {
+            dir = "/scratch/xklusac/" + ExperimentSetup.path;
+        } else {
+            dir = System.getProperty("user.dir");
+        }
+        if (ExperimentSetup.data) {
+            String[] path = dir.split("/");
+            if (path.length == 1) {
+                path = dir.split("\\\\");
+            }
+            dir = "";
+            for (int i = 0; i < path.length - 1; i++) {
+                dir += path[i] + "/";
+            }
+        }
+        return dir;
+    }
+
+    /** Returns the clusters, machines are divided among them as equally as possible. */
+    public Cluster[] getClusters() {
+        if (cluster_list != null) {
+            return cluster_list;
+        }
+        Random r = new Random(seed);
+        cluster_list = new Cluster[clusters];
+        cluster_cdf = new double[clusters];
+        double total = 0.0;
+        for (int i = 0; i < clusters; i++) {
+            Cluster c = new Cluster();
+            c.name = "syn" + i;
+            c.machines = Math.max(1, machines / clusters + (i < machines % clusters ? 1 : 0));
+            c.pe = machine_pe;
+            c.rating = (int) Math.max(1, Math.round(pe_rating * (1.0 + rating_spread * (2.0 * r.nextDouble() - 1.0))));
+            // random subset of properties
+            String[] shuffled = properties.clone();
+            for (int k = shuffled.length - 1; k > 0; k--) {
+                int j = r.nextInt(k + 1);
+                String s = shuffled[k];
+                shuffled[k] = shuffled[j];
+                shuffled[j] = s;
+            }
+            c.properties = Arrays.copyOf(shuffled, Math.min(cluster_properties, shuffled.length));
+            cluster_list[i] = c;
+            total += c.machines * c.pe;
+            cluster_cdf[i] = total;
+        }
+        return cluster_list;
+    }
+
+    /** Returns the list of all property names (these must be known to PropertyMatcher). */
+    public LinkedList<String> getPropertyNames() {
+        return new LinkedList(Arrays.asList(properties));
+    }
+
+    /** Returns the arrival time of the next job that arrives after time t (Poisson process with daily cycle of rate). */
+    public double nextArrival(Random r, double t) {
+        double max_rate = arrival_rate * (1.0 + daily_amplitude) / 3600.0;
+        while (true) {
+            t += -Math.log(1.0 - r.nextDouble()) / max_rate;
+            // thinning - candidate is accepted with probability rate(t) / max_rate
+            double phase = 2.0 * Math.PI * (t - peak_hour * 3600.0) / 86400.0;
+            double rate = arrival_rate * (1.0 + daily_amplitude * Math.cos(phase)) / 3600.0;
+            if (r.nextDouble() * max_rate <= rate) {
+                return t;
+            }
+        }
+    }
+
+    /** Selects the cluster the job is generated for (with respect to the number of its PEs). */
+    public Cluster sampleCluster(Random r) {
+        Cluster[] list = getClusters();
+        return list[sample(cluster_cdf, r)];
+    }
+
+    /** Returns log-uniform runtime (seconds). */
+    public long sampleRuntime(Random r) {
+        double ln_min = Math.log(runtime_min);
+        double ln_max = Math.log(runtime_max);
+        return Math.max(1, Math.round(Math.exp(ln_min + r.nextDouble() * (ln_max - ln_min))));
+    }
+
+    /** Returns the job limit of a job with the runtime. */
+    public long sampleJobLimit(Random r, long runtime) {
+        return Math.max(runtime, Math.round(runtime * (1.0 + r.nextDouble() * (limit_factor - 1.0))));
+    }
+
+    /** Returns the number of PEs (a power of two, at most maxPE). */
+    public int sampleNumPE(Random r, int maxPE) {
+        if (r.nextDouble() >= parallel) {
+            return 1;
+        }
+        int exp = 1 + r.nextInt(Math.max(1, max_pe_exp));
+        int numPE = 1 << exp;
+        while (numPE > maxPE && numPE > 1) {
+            numPE = numPE / 2;
+        }
+        return numPE;
+    }
+
+    /** Returns the name of user. */
+    public String sampleUser(Random r) {
+        if (user_cdf == null) {
+            user_cdf = zipf(users, user_skew);
+        }
+        return "user" + sample(user_cdf, r);
+    }
+
+    /** Returns the name of queue. */
+    public String sampleQueue(Random r) {
+        if (queue_cdf == null) {
+            queue_cdf = zipf(queues.length, queue_skew);
+        }
+        return queues[sample(queue_cdf, r)];
+    }
+
+    /** Returns the requested properties ("[p1;p2]" or "" if there is no requirement), a subset of the properties of cluster. */
+    public String sampleProperties(Random r, Cluster c) {
+        if (c.properties.length == 0 || r.nextDouble() >= job_properties) {
+            return "";
+        }
+        int count = 1 + r.nextInt(Math.max(1, Math.min(max_job_properties, c.properties.length)));
+        int first = r.nextInt(c.properties.length);
+        String s = "[";
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                s += ";";
+            }
+            s += c.properties[(first + i) % c.properties.length];
+        }
+        return s + "]";
+    }
+
+    /** Returns cumulative (not normalized) Zipf distribution. */
+    private static double[] zipf(int n, double skew) {
+        double[] cdf = new double[Math.max(1, n)];
+        double total = 0.0;
+        for (int i = 0; i < cdf.length; i++) {
+            total += 1.0 / Math.pow(i + 1, skew);
+            cdf[i] = total;
+        }
+        return cdf;
+    }
+
+    /** Returns the index selected according to the cumulative distribution. */
+    private static int sample(double[] cdf, Random r) {
+        double x = r.nextDouble() * cdf[cdf.length - 1];
+        int i = Arrays.binarySearch(cdf, x);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return Math.min(i, cdf.length - 1);
+    }
+
+    private static int getInt(Properties p, String name, int value) {
+        return Integer.parseInt(p.getProperty(name, "" + value).trim());
+    }
+
+    private static double getDouble(Properties p, String name, double value) {
+        return Double.parseDouble(p.getProperty(name, "" + value).trim());
+    }
+
+    private static String[] getList(Properties p, String name, String[] value) {
+        String s = p.getProperty(name);
+        if (s == null || s.trim().length() == 0) {
+            return value;
+        }
+        return s.trim().split("[ ,]+");
+    }
+
+    /**
+     * One cluster of the synthetic workload.
+     */
+    public static class Cluster {
+
+        public String name;
+        public int machines;
+        /** PEs per machine */
+        public int pe;
+        /** MIPS rating of one PE */
+        public int rating;
+        public String[] properties;
+
+        /** Returns the properties as stored in ComplexResourceCharacteristics. */
+        public String getPropertyString() {
+            String s = "";
+            for (int i = 0; i < properties.length; i++) {
+                if (i > 0) {
+                    s += ";";
+                }
+                s += properties[i];
+            }
+            return s;
+        }
+    }
+}
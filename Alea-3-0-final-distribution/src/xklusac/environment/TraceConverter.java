@@ -0,0 +1,482 @@
+package xklusac.environment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+/**
+ * Class TraceConverter<p>
+ * Converts a workload file (SWF, GWF, MWF or PWF) to the Binary Workload Format (BWF, see BinaryTrace) which is then loaded by
+ * the BWFLoader. All values that do not depend on the experiment setup (e.g., MWF speedups computed from the .machines file,
+ * queue limits or properties) are computed once by the converter, the loader only applies multiplier, maxPE, maxPErating etc.<p>
+ * Usage: java xklusac.environment.TraceConverter data-set/metacentrum.mwf (writes data-set/metacentrum.mwf.bwf).
+ * Use "metacentrum.mwf.bwf" as the data set name in ExperimentSetup then.
+ */
+public class TraceConverter {
+
+    /** source file */
+    private File source;
+    /** data set name (file name of the source) */
+    private String data_set;
+    private int format;
+    /** temporary files and streams of the columns */
+    private File[] column_files = new File[BinaryTrace.COLUMNS];
+    private DataOutputStream[] columns = new DataOutputStream[BinaryTrace.COLUMNS];
+    private HashMap<String, Integer> string_ids = new HashMap();
+    private ArrayList<String> strings = new ArrayList();
+    private int records = 0;
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: java xklusac.environment.TraceConverter <workload file (swf,gwf,mwf,pwf)> [output file]");
+            return;
+        }
+        File source = new File(args[0]);
+        File target = new File(args.length > 1 ? args[1] : args[0] + ".bwf");
+        try {
+            TraceConverter converter = new TraceConverter(source);
+            int jobs = converter.convert(target);
+            System.out.println(source + " converted to " + target + ": " + jobs + " jobs.");
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /** Creates a new instance of TraceConverter, the format is selected via file extension (as in JobLoader). */
+    public TraceConverter(File source) {
+        this.source = source;
+        this.data_set = source.getName();
+        if (data_set.contains("gwf")) {
+            format = BinaryTrace.GWF;
+        } else if (data_set.contains("swf")) {
+            format = BinaryTrace.SWF;
+        } else if (data_set.contains("mwf")) {
+            format = BinaryTrace.MWF;
+        } else if (data_set.contains("pwf")) {
+            format = BinaryTrace.PWF;
+        } else {
+            throw new IllegalArgumentException("Wrong workload format or file extension (gwf,swf,mwf,pwf)");
+        }
+    }
+
+    /** Converts the source file, returns the number of stored jobs (including invalid lines). */
+    public int convert(File target) throws IOException {
+        File dir = target.getAbsoluteFile().getParentFile();
+        for (int c = 0; c < BinaryTrace.COLUMNS; c++) {
+            column_files[c] = File.createTempFile("bwf", ".col", dir);
+            columns[c] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(column_files[c]), 65536));
+        }
+        BufferedReader br = new BufferedReader(new FileReader(source), 65536);
+        try {
+            if (format == BinaryTrace.MWF) {
+                convertMWF(br);
+            } else if (format == BinaryTrace.SWF) {
+                convertSWF(br);
+            } else if (format == BinaryTrace.GWF) {
+                convertGWF(br);
+            } else {
+                convertPWF(br);
+            }
+        } finally {
+            br.close();
+            for (int c = 0; c < BinaryTrace.COLUMNS; c++) {
+                columns[c].close();
+            }
+        }
+        try {
+            assemble(target);
+        } finally {
+            for (int c = 0; c < BinaryTrace.COLUMNS; c++) {
+                column_files[c].delete();
+            }
+        }
+        return records;
+    }
+
+    /** Writes the header, the columns and the string table to the target file. */
+    private void assemble(File target) throws IOException {
+        long[] offsets = new long[BinaryTrace.COLUMNS];
+        long offset = BinaryTrace.HEADER_SIZE;
+        for (int c = 0; c < BinaryTrace.COLUMNS; c++) {
+            offsets[c] = offset;
+            offset += column_files[c].length();
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(target), 65536));
+        try {
+            out.writeInt(BinaryTrace.MAGIC);
+            out.writeInt(BinaryTrace.VERSION);
+            out.writeInt(format);
+            out.writeInt(records);
+            for (int c = 0; c < BinaryTrace.COLUMNS; c++) {
+                out.writeLong(offsets[c]);
+            }
+            out.writeLong(offset);
+            out.writeInt(strings.size());
+            byte[] buffer = new byte[65536];
+            for (int c = 0; c < BinaryTrace.COLUMNS; c++) {
+                BufferedInputStream in = new BufferedInputStream(new FileInputStream(column_files[c]), 65536);
+                try {
+                    int n;
+                    while ((n = in.read(buffer)) > 0) {
+                        out.write(buffer, 0, n);
+                    }
+                } finally {
+                    in.close();
+                }
+            }
+            for (int s = 0; s < strings.size(); s++) {
+                out.writeUTF(strings.get(s));
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /** Stores one job. */
+    private void write(int id, long arrival, long run_time, long run_time_at_start, int numCPU, int numNodes, double power,
+            String user, String queue, String properties, double speedup, double length, long job_limit, double deadline) throws IOException {
+        columns[BinaryTrace.ID].writeInt(id);
+        columns[BinaryTrace.ARRIVAL].writeLong(arrival);
+        columns[BinaryTrace.RUNTIME].writeLong(run_time);
+        columns[BinaryTrace.RUNTIME_AT_START].writeLong(run_time_at_start);
+        columns[BinaryTrace.NUM_PE].writeInt(numCPU);
+        columns[BinaryTrace.NUM_NODES].writeInt(numNodes);
+        columns[BinaryTrace.POWER].writeDouble(power);
+        columns[BinaryTrace.USER].writeInt(getStringId(user));
+        columns[BinaryTrace.QUEUE].writeInt(getStringId(queue));
+        columns[BinaryTrace.PROPERTIES].writeInt(getStringId(properties));
+        columns[BinaryTrace.SPEEDUP].writeDouble(speedup);
+        columns[BinaryTrace.LENGTH].writeDouble(length);
+        columns[BinaryTrace.JOB_LIMIT].writeLong(job_limit);
+        columns[BinaryTrace.DEADLINE].writeDouble(deadline);
+        records++;
+    }
+
+    /** Stores a line that is not a valid job (the text loader returns null for it). */
+    private void writeInvalid() throws IOException {
+        write(-1, 0, 0, 0, 0, 0, 0.0, "", "", "", 0.0, 0.0, 0, 0.0);
+    }
+
+    /** Returns the index of the string in the string table. */
+    private int getStringId(String s) {
+        Integer id = string_ids.get(s);
+        if (id == null) {
+            id = strings.size();
+            string_ids.put(s, id);
+            strings.add(s);
+        }
+        return id;
+    }
+
+    /** Converts MWF file, see MWFLoader. */
+    private void convertMWF(BufferedReader br) throws IOException {
+        // CPU descriptions from the .machines file
+        HashMap<Integer, String> cpus = new HashMap();
+        BufferedReader brc = new BufferedReader(new FileReader(source.getPath() + ".machines"));
+        try {
+            String machine;
+            while ((machine = brc.readLine()) != null) {
+                if (machine.length() == 0) {
+                    continue;
+                }
+                String[] props = machine.split("\t");
+                String[] pe_ids = props[10].split(",");
+                for (int c = 0; c < pe_ids.length; c++) {
+                    cpus.put(Integer.parseInt(pe_ids[c]), machine);
+                }
+            }
+        } finally {
+            brc.close();
+        }
+
+        // hardcoded results of our benchmarks (the same as in MWFLoader)
+        LinkedList<String> cpu_types = new LinkedList();
+        LinkedList<Double> cpu_bench = new LinkedList();
+        LinkedList<Double> cpu_speed = new LinkedList();
+        cpu_types.add("Pentium3");
+        cpu_types.add("AthlonMP");
+        cpu_types.add("Xeon");
+        cpu_types.add("Xeon");
+        cpu_types.add("Opteron");
+        cpu_types.add("Itanium2");
+        cpu_types.add("Pentium4");
+        cpu_types.add("unspecified");
+        cpu_bench.add(new Double(1.0));
+        cpu_bench.add(new Double(1.771666667));
+        cpu_bench.add(new Double(2.88));
+        cpu_bench.add(new Double(3.643333333));
+        cpu_bench.add(new Double(4.743333333));
+        cpu_bench.add(new Double(6.844));
+        cpu_bench.add(new Double(1.79));
+        cpu_bench.add(new Double(1.0));
+        cpu_speed.add(1000.0);
+        cpu_speed.add(1800.0);
+        cpu_speed.add(2400.0);
+        cpu_speed.add(3060.0);
+        cpu_speed.add(2200.0);
+        cpu_speed.add(1500.0);
+        cpu_speed.add(1000.0);
+        cpu_speed.add(1000.0);
+
+        int start_epoch = 0;
+        if (data_set.equals("metacentrum.mwf")) {
+            start_epoch = 1228910203;
+        } else {
+            start_epoch = 1199145600;
+        }
+
+        String line;
+        while ((line = br.readLine()) != null) {
+            if (line.length() == 0) {
+                writeInvalid();
+                continue;
+            }
+            String[] values = line.split("\t");
+            int id = Integer.parseInt(values[0]);
+            int numCPU;
+            try {
+                numCPU = Integer.parseInt(values[3]);
+            } catch (NumberFormatException ex) {
+                numCPU = 1;
+            }
+            int numNodes;
+            try {
+                numNodes = Integer.parseInt(values[4]);
+            } catch (NumberFormatException ex) {
+                numNodes = 1;
+            }
+            double power;
+            try {
+                power = Double.parseDouble(values[13]);
+            } catch (NumberFormatException ex) {
+                power = 1;
+            }
+            long arrival = Math.max(0, (Integer.parseInt(values[7]) - start_epoch));
+            long run_time = Math.max(1, Integer.parseInt(values[10]));
+            long run_time_at_start = Math.max(1, (Integer.parseInt(values[8]) + Integer.parseInt(values[10])) - start_epoch);
+
+            // speedup of the slowest CPU used by the job
+            String used_cpus[] = values[12].split(" ");
+            Double min = new Double(10000000000.0);
+            for (int k = 0; k < used_cpus.length; k++) {
+                int cpu_id = 0;
+                if (used_cpus[k].equals("unspecified")) {
+                    cpu_id = 191; //nympha1.zcu.cz/0
+                } else {
+                    cpu_id = Integer.parseInt(used_cpus[k]);
+                }
+                String cpu_desc[] = cpus.get(cpu_id).split("\t");
+                String cpu_type = cpu_desc[4];
+                Double rel_speed = 1.0 + ((Double.parseDouble(cpu_desc[2]) - cpu_speed.get(cpu_types.indexOf(cpu_type))) / cpu_speed.get(cpu_types.indexOf(cpu_type)));
+                Double now = rel_speed * cpu_bench.get(cpu_types.indexOf(cpu_type));
+                if (now < min) {
+                    min = now;
+                }
+            }
+            double speedup = Math.round(min * 100000);
+            double length = Math.max(1.0, Math.round((run_time * speedup) * 1.0));
+
+            String queue = values[2];
+            long job_limit = getMWFJobLimit(queue);
+
+            String properties = values[5];
+            properties = properties.replaceAll("\\[", "");
+            properties = properties.replaceAll("\\]", "");
+            if (data_set.equals("meta2008.mwf")) {
+                if (queue.equals("long")) {
+                    properties = properties + ";long";
+                }
+                if (queue.equals("iti")) {
+                    properties = properties + ";iti";
+                }
+                if (queue.equals("normal")) {
+                    properties = properties + ";q_normal";
+                }
+                if (queue.equals("short")) {
+                    properties = properties + ";q_short";
+                }
+                if (queue.equals("pa177")) {
+                    properties = properties + ";pa177";
+                }
+                if (queue.equals("privileged")) {
+                    properties = properties + ";forprivileged";
+                }
+                if (queue.equals("zsc")) {
+                    properties = properties + ";zsc";
+                }
+                if (queue.equals("interactive")) {
+                    properties = properties + ";q_normal";
+                }
+            }
+            // the deadline depends on the multiplier - it is computed by the loader
+            write(id, arrival, run_time, run_time_at_start, numCPU, numNodes, power, values[1], queue, properties, speedup, length, job_limit, 0.0);
+        }
+    }
+
+    /** Returns the queue limit (s) as used by MWFLoader. */
+    private long getMWFJobLimit(String queue_name) {
+        if (data_set.equals("metacentrum.mwf")) {
+            if (queue_name.equals("q1") || queue_name.equals("q2") || queue_name.equals("q6") || queue_name.equals("q7")
+                    || queue_name.equals("q9") || queue_name.equals("q10") || queue_name.equals("q11")) {
+                return 3600 * 720;
+            }
+            if (queue_name.equals("q4")) {
+                return 3600 * 2;
+            }
+            if (queue_name.equals("q8")) {
+                return 3600 * 4;
+            }
+            return 3600 * 24; // q3, q5 and normal
+        } else {
+            if (queue_name.equals("interactive")) {
+                return 3600 * 4;
+            }
+            if (queue_name.equals("maintenance") || queue_name.equals("short")) {
+                return 3600 * 2;
+            }
+            if (queue_name.equals("zsc") || queue_name.equals("xentest") || queue_name.equals("quark") || queue_name.equals("long")
+                    || queue_name.equals("ncbr") || queue_name.equals("iti")) {
+                return 3600 * 720;
+            }
+            return 3600 * 24; // egee, pa177, parallel, normal, cpmd and others
+        }
+    }
+
+    /** Converts SWF file, see SWFLoader. */
+    private void convertSWF(BufferedReader br) throws IOException {
+        int start_time = -1;
+        boolean header = true;
+        String line;
+        while ((line = br.readLine()) != null) {
+            // comments are skipped at the beginning of the file only
+            if (header && line.split("\t")[0].contains(";")) {
+                continue;
+            }
+            header = false;
+            for (int k = 0; k < 4 && line.length() > 0 && line.charAt(0) == ' '; k++) {
+                line = line.substring(1);
+            }
+            String[] values = line.split("\\s+");
+            // such line is not a job description or such job failed or was cancelled
+            if (values.length < 5 || values[1].equals("-1") || values[3].equals("-1") || values[4].equals("-1")) {
+                writeInvalid();
+                continue;
+            }
+            int id = Integer.parseInt(values[0]);
+            int numCPU;
+            try {
+                numCPU = Integer.parseInt(values[4]);
+            } catch (NumberFormatException ex) {
+                numCPU = 1;
+            }
+            long arrival = 0;
+            if (start_time < 0) {
+                start_time = Integer.parseInt(values[1]);
+                arrival = 0;
+            } else {
+                arrival = ((Integer.parseInt(values[1]) - start_time));
+            }
+            int run_time = Integer.parseInt(values[3]);
+            double deadline = arrival + run_time * 2;
+            long job_limit = Integer.parseInt(values[8]);
+            if (job_limit < 0) {
+                if (data_set.equals("thunder.swf")) {
+                    job_limit = 48000;
+                } else if (data_set.equals("atlas.swf")) {
+                    job_limit = 73200;
+                } else if (data_set.equals("star.swf")) {
+                    job_limit = 64800;
+                } else {
+                    job_limit = run_time;
+                }
+            }
+            write(id, arrival, run_time, run_time, numCPU, 1, 0.0, values[11], "q3", "", 0.0, 0.0, job_limit, deadline);
+        }
+    }
+
+    /** Converts GWF file, see GWFLoader. */
+    private void convertGWF(BufferedReader br) throws IOException {
+        int start_time = 0;
+        int j = 0;
+        String line;
+        while ((line = br.readLine()) != null) {
+            String[] values = line.split("\t");
+            // comments are skipped at the beginning of the file only
+            if (j == 0 && values[0].contains("#")) {
+                continue;
+            }
+            // such line is not a job description or such job failed or was cancelled
+            if (values.length < 21 || values[3].equals("-1") || values[4].equals("-1")) {
+                writeInvalid();
+                j++;
+                continue;
+            }
+            int id = Integer.parseInt(values[0]);
+            int numCPU;
+            try {
+                numCPU = Integer.parseInt(values[4]);
+            } catch (NumberFormatException ex) {
+                numCPU = 1;
+            }
+            long arrival = 0;
+            if (j == 0) {
+                start_time = Integer.parseInt(values[1]);
+                arrival = 0;
+            } else {
+                arrival = ((Integer.parseInt(values[1]) - start_time));
+            }
+            int run_time = Integer.parseInt(values[3]);
+            double deadline = arrival + run_time * 2;
+            String properties = "";
+            if (data_set.equals("das2.gwf")) {
+                properties = values[20];
+            } else {
+                properties = values[29];
+            }
+            long job_limit = Math.max(Integer.parseInt(values[8]), run_time);
+            write(id, arrival, run_time, run_time, numCPU, 1, 0.0, "J", "q3", properties, 0.0, 0.0, job_limit, deadline);
+            j++;
+        }
+    }
+
+    /** Converts PWF file, see PWFLoader. */
+    private void convertPWF(BufferedReader br) throws IOException {
+        int tic = 1;
+        int sync = 20;
+        // the first line is a header
+        String line = br.readLine();
+        while ((line = br.readLine()) != null) {
+            if (line.length() == 0) {
+                writeInvalid();
+                continue;
+            }
+            String[] values = line.split(" ");
+            int id = Integer.parseInt(values[0]);
+            int numCPU = Integer.parseInt(values[1]);
+            int arrival = Integer.parseInt(values[4]) * tic;
+            arrival += sync;
+            double length = Math.round(Integer.parseInt(values[5]) * Integer.parseInt(values[3])) * tic;
+            double estimatedMachine = Integer.parseInt(values[3]);
+            int deadline = Integer.parseInt(values[6]);
+            double deadline_d = 0.0;
+            if (deadline == 2147483647) {
+                deadline_d = Double.MAX_VALUE;
+            } else {
+                deadline_d = deadline * tic;
+                deadline_d += sync;
+            }
+            int run_time = Integer.parseInt(values[5]);
+            long job_limit = Math.round(run_time) * tic;
+            write(id, arrival, run_time, run_time, numCPU, 1, 0.0, "John_Doe", "q3", "", estimatedMachine, length, job_limit, deadline_d);
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package xklusac.environment;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.TreeSet;
+
+/**
+ * Class WaitQueue<p>
+ * Queue of waiting jobs used by queue-based policies (FCFS, EDF, EASY Backfilling, PBS PRO). Jobs are kept in the order of the
+ * policy (arrival, deadline or priority; jobs with the same key are kept in arrival order) and at the same time they are divided into
+ * buckets according to their size class (the number of PEs or nodes, grouped by powers of two: 0, 1, 2-3, 4-7, ...) and their property
+ * signature. A Pass visits the jobs in the queue order, but it skips whole buckets whose jobs cannot fit into the free capacity of any
+ * suitable resource. Therefore a scheduling pass does not grow with the number of jobs that cannot be started anyway.<p>
+ * The free capacity of resources is computed once per pass and updated by Pass.allocate() when a job is started, the values are the
+ * same as returned by ResourceInfo.getNumFreePE() (or getNumFreeNodes()).
+ */
+public class WaitQueue {
+
+    /** jobs are bucketed and fitted by the number of PEs */
+    public static final int BY_PE = 0;
+    /** jobs are bucketed and fitted by the number of nodes */
+    public static final int BY_NODES = 1;
+    /** order of jobs: arrival, deadline (due date), priority (ascending) */
+    public static final int ARRIVAL = 0;
+    public static final int DEADLINE = 1;
+    public static final int PRIORITY = 2;
+    /** state of the simulation run (its resources) */
+    private SimulationContext ctx;
+    private int size_type;
+    private int order;
+    /** all jobs in the queue order */
+    private TreeSet<Entry> all = new TreeSet();
+    /** non-empty buckets */
+    private HashMap<String, Bucket> buckets = new HashMap();
+    /** arrival counter */
+    private long seq = 0;
+
+    /** Creates a new empty queue */
+    public WaitQueue(SimulationContext ctx, int size_type, int order) {
+        this.ctx = ctx;
+        this.size_type = size_type;
+        this.order = order;
+    }
+
+    /** Adds the job into the queue. */
+    public void add(GridletInfo gi) {
+        int size = getSize(gi);
+        int size_class = getSizeClass(size);
+        long[] mask = gi.getPropertyMask();
+        String key = size_class + ":" + Arrays.toString(mask);
+        Bucket b = buckets.get(key);
+        if (b == null) {
+            b = new Bucket(key, size_class, mask);
+            buckets.put(key, b);
+        }
+        Entry e = new Entry(gi, getKey(gi), seq++, b);
+        b.jobs.add(e);
+        all.add(e);
+    }
+
+    /** Same as add(gi), jobs are ordered by the policy anyway. */
+    public void addLast(GridletInfo gi) {
+        add(gi);
+    }
+
+    public int size() {
+        return all.size();
+    }
+
+    public boolean isEmpty() {
+        return all.isEmpty();
+    }
+
+    /** Returns the first job of the queue (or null if the queue is empty). */
+    public GridletInfo getFirst() {
+        return all.isEmpty() ? null : all.first().gi;
+    }
+
+    /** Removes and returns the first job of the queue (or null if the queue is empty). */
+    public GridletInfo removeFirst() {
+        if (all.isEmpty()) {
+            return null;
+        }
+        Entry e = all.first();
+        remove(e);
+        return e.gi;
+    }
+
+    /** Returns at most count first jobs of the queue (in the queue order). */
+    public LinkedList<GridletInfo> getHead(int count) {
+        LinkedList<GridletInfo> list = new LinkedList();
+        for (Iterator<Entry> it = all.iterator(); it.hasNext() && list.size() < count;) {
+            list.add(it.next().gi);
+        }
+        return list;
+    }
+
+    /**
+     * Removes the job from the queue. The job is searched from the head of the queue, so it is cheap for jobs near the head.
+     * @return false if the job is not in the queue
+     */
+    public boolean remove(GridletInfo gi) {
+        for (Iterator<Entry> it = all.iterator(); it.hasNext();) {
+            Entry e = it.next();
+            if (e.gi == gi) {
+                remove(e);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void clear() {
+        all.clear();
+        buckets.clear();
+    }
+
+    /** Returns the jobs in the queue order. */
+    public LinkedList<GridletInfo> toList() {
+        LinkedList<GridletInfo> list = new LinkedList();
+        for (Iterator<Entry> it = all.iterator(); it.hasNext();) {
+            list.add(it.next().gi);
+        }
+        return list;
+    }
+
+    /** Returns the number of buckets (size classes and property signatures) of waiting jobs. */
+    public int getBucketCount() {
+        return buckets.size();
+    }
+
+    /** Starts a new pass over the queue with the current free capacity of resources. */
+    public Pass startPass() {
+        return new Pass(getFreeCapacity(ctx, size_type));
+    }
+
+    /**
+     * Starts a new pass over the queue with the given free capacity of resources (e.g., shared by passes over several queues).
+     * @param free free capacity of each resource of SimulationContext.resourceInfoList (see getFreeCapacity())
+     */
+    public Pass startPass(int[] free) {
+        return new Pass(free);
+    }
+
+    /** Returns the free capacity (PEs or nodes) of each resource of ctx.resourceInfoList. */
+    public static int[] getFreeCapacity(SimulationContext ctx, int size_type) {
+        int[] free = new int[ctx.resourceInfoList.size()];
+        for (int j = 0; j < free.length; j++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(j);
+            if (size_type == BY_NODES) {
+                free[j] = ri.getNumFreeNodes();
+            } else {
+                free[j] = ri.getNumFreePE();
+            }
+        }
+        return free;
+    }
+
+    /** Returns the size of the job used for fitting (PEs or nodes). */
+    public int getSize(GridletInfo gi) {
+        if (size_type == BY_NODES) {
+            return gi.getGridlet().getNumNodes();
+        }
+        return gi.getNumPE();
+    }
+
+    private void remove(Entry e) {
+        all.remove(e);
+        e.bucket.jobs.remove(e);
+        e.removed = true;
+        if (e.bucket.jobs.isEmpty()) {
+            buckets.remove(e.bucket.key);
+        }
+    }
+
+    private double getKey(GridletInfo gi) {
+        if (order == DEADLINE) {
+            return gi.getDue_date();
+        } else if (order == PRIORITY) {
+            return gi.getPriority();
+        }
+        return 0.0;
+    }
+
+    /** Returns the size class: 0 for size 0, k for 2^(k-1) - 2^k-1. */
+    private static int getSizeClass(int size) {
+        if (size <= 0) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size);
+    }
+
+    /**
+     * One pass of a policy over the queue. Jobs are returned in the queue order, jobs of buckets that cannot fit are skipped.
+     */
+    public class Pass {
+
+        /** free capacity of resources */
+        private int[] free;
+        /** incremented when the free capacity changes */
+        private int version = 0;
+        /** the next job of each bucket that is still visited */
+        private java.util.PriorityQueue<Entry> heads = new java.util.PriorityQueue();
+        private Entry current = null;
+        private boolean started = false;
+
+        Pass(int[] free) {
+            this.free = free;
+        }
+
+        /** Returns the next job that may fit, or null if there is no such job. */
+        public GridletInfo next() {
+            if (!started) {
+                // the first job of each bucket that fits
+                for (Iterator<Bucket> it = buckets.values().iterator(); it.hasNext();) {
+                    Bucket b = it.next();
+                    b.version = -1;
+                    if (fits(b)) {
+                        heads.add(b.jobs.first());
+                    }
+                }
+                started = true;
+            }
+            while (!heads.isEmpty()) {
+                Entry e = heads.poll();
+                Bucket b = e.bucket;
+                if (!fits(b)) {
+                    // no job of this bucket can be started in this pass anymore
+                    continue;
+                }
+                Entry following = b.jobs.higher(e);
+                if (following != null) {
+                    heads.add(following);
+                }
+                if (e.removed) {
+                    continue;
+                }
+                current = e;
+                return e.gi;
+            }
+            current = null;
+            return null;
+        }
+
+        /** Removes the job returned by the last next() from the queue. */
+        public void remove() {
+            if (current != null && !current.removed) {
+                WaitQueue.this.remove(current);
+            }
+        }
+
+        /** Returns the free capacity of the resource with index j in SimulationContext.resourceInfoList. */
+        public int getFree(int j) {
+            return free[j];
+        }
+
+        /** Decreases the free capacity of the resource with index j when the job has been started there. */
+        public void allocate(int j, GridletInfo gi) {
+            free[j] = Math.max(0, free[j] - getSize(gi));
+            version++;
+        }
+
+        /** Decides whether some suitable resource has enough free capacity for the smallest job of the bucket. */
+        private boolean fits(Bucket b) {
+            if (b.version != version) {
+                b.bound = 0;
+                for (int j = 0; j < free.length; j++) {
+                    if (free[j] > b.bound && (!ExperimentSetup.reqs || ctx.matcher.matches(((ResourceInfo) ctx.resourceInfoList.get(j)).resource.getPropertyMask(), b.mask))) {
+                        b.bound = free[j];
+                    }
+                }
+                b.version = version;
+            }
+            return b.min_size <= b.bound;
+        }
+    }
+
+    /**
+     * Jobs of the same size class and property signature in the queue order.
+     */
+    private static class Bucket {
+
+        String key;
+        int min_size;
+        long[] mask;
+        TreeSet<Entry> jobs = new TreeSet();
+        /** the largest free capacity of suitable resources and the version of Pass it was computed for */
+        int bound = 0;
+        int version = -1;
+
+        Bucket(String key, int size_class, long[] mask) {
+            this.key = key;
+            this.min_size = (size_class == 0) ? 0 : 1 << (size_class - 1);
+            this.mask = mask;
+        }
+    }
+
+    /**
+     * One waiting job.
+     */
+    private static class Entry implements Comparable<Entry> {
+
+        GridletInfo gi;
+        double key;
+        long seq;
+        Bucket bucket;
+        boolean removed = false;
+
+        Entry(GridletInfo gi, double key, long seq, Bucket bucket) {
+            this.gi = gi;
+            this.key = key;
+            this.seq = seq;
+            this.bucket = bucket;
+        }
+
+        public int compareTo(Entry o) {
+            if (key < o.key) {
+                return -1;
+            } else if (key > o.key) {
+                return 1;
+            }
+            return (seq < o.seq) ? -1 : ((seq > o.seq) ? 1 : 0);
+        }
+    }
+}
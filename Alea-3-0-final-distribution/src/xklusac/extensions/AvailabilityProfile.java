@@ -0,0 +1,157 @@
+package xklusac.extensions;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Class AvailabilityProfile<p>
+ * Represents the availability of CPUs of one resource in time (a "skyline"). It is a step function stored in a balanced
+ * tree (TreeMap) of breakpoints time -&gt; number of free CPUs, the number of free CPUs is constant between two breakpoints and
+ * the last value holds forever. Job reservations can be added and removed and the earliest start time of a job with given
+ * number of CPUs and duration can be found. A breakpoint is found, added or removed in O(log n) time, so the profile can be
+ * kept up to date when jobs start, finish or move instead of being created again. A reservation costs O(log n + k) where k is
+ * the number of breakpoints it covers. findEarliestStart() is not a log-time earliest fit: it finds the first breakpoint in
+ * O(log n) and then scans segments, i.e., O(log n + k) where k is the number of breakpoints between after and the found start
+ * (O(n) in the worst case). Backfilling calls it for each candidate job and cluster, so a pass costs O(jobs * clusters * n) in
+ * the worst case; profiles built from running jobs and k reservations stay small (n &lt;= running jobs + 2k + 1).
+ * It can be used instead of the list of Holes (gaps) when looking for a gap in schedule.
+ */
+public class AvailabilityProfile {
+
+    /** breakpoints: time -> number of free CPUs since this time until the next breakpoint */
+    private TreeMap<Double, Integer> steps = new TreeMap<Double, Integer>();
+    /** the first time of this profile */
+    private double start;
+    /** total number of CPUs */
+    private int numPE;
+
+    /**
+     * Creates a new profile with all CPUs free since the given time.
+     * @param start the first time of this profile (e.g., current time), reservations are cut at this time
+     * @param numPE total number of CPUs
+     */
+    public AvailabilityProfile(double start, int numPE) {
+        this.start = start;
+        this.numPE = numPE;
+        steps.put(start, numPE);
+    }
+
+    /**
+     * Reserves CPUs in the given interval.
+     * @param start start of the reservation
+     * @param end end of the reservation (Double.MAX_VALUE for reservation that never ends)
+     * @param pe number of reserved CPUs
+     */
+    public void reserve(double start, double end, int pe) {
+        change(start, end, -pe);
+    }
+
+    /**
+     * Removes reservation previously made by reserve(start, end, pe). The part of the reservation before the
+     * current start of the profile (see advance) has already been dropped and is ignored.
+     */
+    public void release(double start, double end, int pe) {
+        change(start, end, pe);
+    }
+
+    /**
+     * Moves the start of the profile to time t, breakpoints before t are dropped.
+     */
+    public void advance(double t) {
+        if (t <= start) {
+            return;
+        }
+        Map.Entry<Double, Integer> floor = steps.floorEntry(t);
+        steps.headMap(t, false).clear();
+        steps.put(t, floor.getValue());
+        start = t;
+    }
+
+    /**
+     * Finds the earliest time (not sooner than after) when the job with given number of CPUs and duration can start.
+     * The first usable breakpoint is found in the tree in O(log n), then segments are checked one by one (O(k) for k segments
+     * until the start is found, O(n) in the worst case). When a segment with too few CPUs is found, the search continues right
+     * after this segment.
+     * @return the start time or Double.MAX_VALUE when there is no such time
+     */
+    public double findEarliestStart(int pe, double duration, double after) {
+        if (pe > numPE) {
+            return Double.MAX_VALUE;
+        }
+        Double from = steps.floorKey(after);
+        if (from == null) {
+            from = start;
+        }
+        double candidate = Double.NaN;
+        for (Map.Entry<Double, Integer> e : steps.tailMap(from, true).entrySet()) {
+            double t = e.getKey();
+            if (!Double.isNaN(candidate) && t >= candidate + duration) {
+                return candidate;
+            }
+            if (e.getValue() < pe) {
+                candidate = Double.NaN;
+            } else if (Double.isNaN(candidate)) {
+                candidate = Math.max(t, after);
+            }
+        }
+        // the last segment holds forever
+        return Double.isNaN(candidate) ? Double.MAX_VALUE : candidate;
+    }
+
+    /** Returns the number of free CPUs at the given time. */
+    public int getFreePE(double t) {
+        Map.Entry<Double, Integer> e = steps.floorEntry(t);
+        if (e == null) {
+            return numPE;
+        }
+        return e.getValue();
+    }
+
+    /** Returns the number of breakpoints. */
+    public int size() {
+        return steps.size();
+    }
+
+    /** Adds delta to the number of free CPUs in interval [start, end). */
+    private void change(double from, double end, int delta) {
+        if (from < start) {
+            from = start;
+        }
+        if (end <= from) {
+            return;
+        }
+        split(from);
+        boolean forever = end >= Double.MAX_VALUE;
+        if (!forever) {
+            split(end);
+        }
+        Iterator<Map.Entry<Double, Integer>> it = (forever ? steps.tailMap(from, true) : steps.subMap(from, true, end, false)).entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Double, Integer> e = it.next();
+            e.setValue(e.getValue() + delta);
+        }
+        // merge breakpoints that no longer change the number of free CPUs
+        if (!forever) {
+            merge(end);
+        }
+        merge(from);
+    }
+
+    /** Makes sure there is a breakpoint at time t (t >= start). */
+    private void split(double t) {
+        Map.Entry<Double, Integer> e = steps.floorEntry(t);
+        if (e.getKey() != t) {
+            steps.put(t, e.getValue());
+        }
+    }
+
+    /** Removes the breakpoint at time t if the number of free CPUs does not change there. */
+    private void merge(double t) {
+        Map.Entry<Double, Integer> prev = steps.lowerEntry(t);
+        Integer value = steps.get(t);
+        if (prev != null && value != null && prev.getValue().intValue() == value.intValue()) {
+            steps.remove(t);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package xklusac.extensions;
+
+/**
+ * Class FreeSlotHeap<p>
+ * Binary heap of free slots of CPUs, i.e., groups of CPUs that become free at the same time. It replaces BinaryHeap of HeapNodes
+ * when computing the earliest start times of jobs in ResourceInfo. Only primitive arrays are used: times of nodes are kept
+ * in a double[], CPU IDs of each node are stored as a range of a shared int[] pool. All arrays are allocated once per resource,
+ * the heap is only reset when the schedule is evaluated again. Snapshots (see createSnapshot()) only hold a copy of another heap.<p>
+ * Nodes with the same time are ordered by their insertion order.
+ */
+public class FreeSlotHeap {
+
+    /** time when the CPUs of the node become free (index 1..size) */
+    private double[] time;
+    /** insertion order of the node (used to order nodes with the same time) */
+    private long[] order;
+    /** first CPU ID of the node in the pool */
+    private int[] first;
+    /** number of CPU IDs of the node */
+    private int[] count;
+    /** number of nodes */
+    private int size = 0;
+    /** next insertion order number */
+    private long inserted = 0;
+    /** CPU IDs of all nodes */
+    private int[] pool;
+    /** auxiliary pool used when the pool is compacted */
+    private int[] pool2;
+    /** first unused position of the pool */
+    private int poolEnd = 0;
+    /** auxiliary arrays used when the heap is built */
+    private int[] sorted;
+    private int[] sorted2;
+
+    /**
+     * Creates a new heap for a resource with numPE CPUs.
+     */
+    public FreeSlotHeap(int numPE) {
+        time = new double[numPE + 1];
+        order = new long[numPE + 1];
+        first = new int[numPE + 1];
+        count = new int[numPE + 1];
+        pool = new int[2 * numPE + 16];
+        pool2 = new int[2 * numPE + 16];
+        sorted = new int[numPE];
+        sorted2 = new int[numPE];
+    }
+
+    /** Creates an empty snapshot, see createSnapshot(). */
+    private FreeSlotHeap() {
+        time = new double[1];
+        order = new long[1];
+        first = new int[1];
+        count = new int[1];
+        pool = new int[0];
+    }
+
+    /**
+     * Creates a heap that only holds copies of other heaps (copyFrom()), e.g., in checkpoints of schedule evaluation. Its arrays
+     * have the size of the copied nodes and CPU IDs (they grow when a larger heap is copied) and the auxiliary arrays are not
+     * allocated, so a snapshot can be copied from and to, but not built or changed.
+     */
+    public static FreeSlotHeap createSnapshot() {
+        return new FreeSlotHeap();
+    }
+
+    /** Removes all nodes. */
+    public void reset() {
+        size = 0;
+        inserted = 0;
+        poolEnd = 0;
+    }
+
+    /**
+     * Builds the heap from the free slots of CPUs. CPUs with the same free slot form one node (in the order of their IDs).
+     * @param finishTimeOnPE earliest free slot of each CPU
+     */
+    public void build(double finishTimeOnPE[]) {
+        reset();
+        int n = finishTimeOnPE.length;
+        for (int i = 0; i < n; i++) {
+            sorted[i] = i;
+        }
+        sortByTime(finishTimeOnPE, 0, n);
+        int i = 0;
+        while (i < n) {
+            double t = finishTimeOnPE[sorted[i]];
+            int j = i;
+            while (j < n && finishTimeOnPE[sorted[j]] == t) {
+                j++;
+            }
+            // nodes are created in time order, so the heap property holds
+            size++;
+            time[size] = t;
+            order[size] = inserted++;
+            first[size] = poolEnd;
+            count[size] = j - i;
+            System.arraycopy(sorted, i, pool, poolEnd, j - i);
+            poolEnd += j - i;
+            i = j;
+        }
+    }
+
+    /** Makes this heap a copy of other heap (the arrays are reused). */
+    public void copyFrom(FreeSlotHeap other) {
+        if (time.length < other.size + 1) {
+            time = new double[other.size + 1];
+            order = new long[other.size + 1];
+            first = new int[other.size + 1];
+            count = new int[other.size + 1];
+        }
+        int ids = 0;
+        for (int i = 1; i <= other.size; i++) {
+            ids += other.count[i];
+        }
+        if (pool.length < ids) {
+            pool = new int[ids];
+        }
+        size = other.size;
+        inserted = other.inserted;
+        poolEnd = 0;
+        for (int i = 1; i <= size; i++) {
+            time[i] = other.time[i];
+            order[i] = other.order[i];
+            count[i] = other.count[i];
+            first[i] = poolEnd;
+            System.arraycopy(other.pool, other.first[i], pool, poolEnd, count[i]);
+            poolEnd += count[i];
+        }
+    }
+
+    /** Test if the heap is empty. */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Returns the number of nodes. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns the time of the earliest node. */
+    public double getMinTime() {
+        if (size == 0) {
+            throw new UnderflowException("Empty free slot heap");
+        }
+        return time[1];
+    }
+
+    /** Returns the number of CPUs in the earliest node. */
+    public int getMinCount() {
+        if (size == 0) {
+            throw new UnderflowException("Empty free slot heap");
+        }
+        return count[1];
+    }
+
+    /**
+     * Takes k CPUs (k <= getMinCount()) from the earliest node, the node is removed when it becomes empty.
+     * @param ids the CPU IDs are stored here
+     * @param offset position of the first stored ID in ids
+     */
+    public void takeFromMin(int k, int[] ids, int offset) {
+        if (k > getMinCount()) {
+            throw new UnderflowException("Not enough CPUs in the earliest node");
+        }
+        System.arraycopy(pool, first[1], ids, offset, k);
+        first[1] += k;
+        count[1] -= k;
+        if (count[1] == 0) {
+            deleteMin();
+        }
+    }
+
+    /**
+     * Takes k CPUs that become free the earliest (bulk version of takeFromMin).
+     * @param ids the CPU IDs are stored here (starting at index 0)
+     * @return the time when all k CPUs are free
+     */
+    public double takeEarliest(int k, int[] ids) {
+        int taken = 0;
+        double t = getMinTime();
+        while (taken < k) {
+            t = getMinTime();
+            int available = Math.min(getMinCount(), k - taken);
+            takeFromMin(available, ids, taken);
+            taken += available;
+        }
+        return t;
+    }
+
+    /**
+     * Inserts new node.
+     * @param t time when the CPUs become free
+     * @param ids CPU IDs
+     * @param offset position of the first ID in ids
+     * @param k number of CPU IDs
+     */
+    public void insert(double t, int[] ids, int offset, int k) {
+        if (poolEnd + k > pool.length) {
+            compact();
+        }
+        System.arraycopy(ids, offset, pool, poolEnd, k);
+        long o = inserted++;
+        int hole = ++size;
+        for (; hole > 1 && less(t, o, time[hole / 2], order[hole / 2]); hole /= 2) {
+            move(hole / 2, hole);
+        }
+        time[hole] = t;
+        order[hole] = o;
+        first[hole] = poolEnd;
+        count[hole] = k;
+        poolEnd += k;
+    }
+
+    /** Removes the earliest node. */
+    private void deleteMin() {
+        move(size, 1);
+        size--;
+        int hole = 1;
+        double t = time[1];
+        long o = order[1];
+        int f = first[1];
+        int c = count[1];
+        int child;
+        for (; hole * 2 <= size; hole = child) {
+            child = hole * 2;
+            if (child != size && less(time[child + 1], order[child + 1], time[child], order[child])) {
+                child++;
+            }
+            if (less(time[child], order[child], t, o)) {
+                move(child, hole);
+            } else {
+                break;
+            }
+        }
+        time[hole] = t;
+        order[hole] = o;
+        first[hole] = f;
+        count[hole] = c;
+    }
+
+    private boolean less(double t1, long o1, double t2, long o2) {
+        return t1 < t2 || (t1 == t2 && o1 < o2);
+    }
+
+    private void move(int from, int to) {
+        time[to] = time[from];
+        order[to] = order[from];
+        first[to] = first[from];
+        count[to] = count[from];
+    }
+
+    /** Moves CPU IDs of all nodes to the beginning of the pool. */
+    private void compact() {
+        int end = 0;
+        for (int i = 1; i <= size; i++) {
+            System.arraycopy(pool, first[i], pool2, end, count[i]);
+            first[i] = end;
+            end += count[i];
+        }
+        int[] p = pool;
+        pool = pool2;
+        pool2 = p;
+        poolEnd = end;
+    }
+
+    /** Stable merge sort of CPU IDs (sorted[from..to)) by their free slot. */
+    private void sortByTime(double finishTimeOnPE[], int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sortByTime(finishTimeOnPE, from, mid);
+        sortByTime(finishTimeOnPE, mid, to);
+        if (finishTimeOnPE[sorted[mid - 1]] <= finishTimeOnPE[sorted[mid]]) {
+            return;
+        }
+        int i = from;
+        int j = mid;
+        int k = from;
+        while (i < mid && j < to) {
+            if (finishTimeOnPE[sorted[j]] < finishTimeOnPE[sorted[i]]) {
+                sorted2[k++] = sorted[j++];
+            } else {
+                sorted2[k++] = sorted[i++];
+            }
+        }
+        while (i < mid) {
+            sorted2[k++] = sorted[i++];
+        }
+        while (j < to) {
+            sorted2[k++] = sorted[j++];
+        }
+        System.arraycopy(sorted2, from, sorted, from, to - from);
+    }
+}
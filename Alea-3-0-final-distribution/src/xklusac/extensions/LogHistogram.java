@@ -0,0 +1,185 @@
+package xklusac.extensions;
+
+/**
+ * Class LogHistogram<p>
+ * Mergeable quantile sketch (HDR-style log histogram). Each power of two is divided into 2^SUB_BITS buckets of the same width,
+ * so the relative error of a returned quantile is at most 2^-(SUB_BITS+1) (1.6%). Only the range of buckets between the smallest
+ * and the largest recorded value is allocated, so the memory is bounded by the range of values, not by their number. Values
+ * smaller than MIN_VALUE (e.g., zero wait time) are counted separately and reported as 0.0. Two histograms can be merged
+ * (e.g., results of parallel replications), merging gives exactly the same histogram as recording all values into one.
+ * A histogram can be stored as one line of text (see encode() and parse()) and merged later.
+ */
+public class LogHistogram {
+
+    /** number of bits of mantissa used to select the bucket within one power of two */
+    public static final int SUB_BITS = 5;
+    /** the smallest value that is not counted as zero */
+    public static final double MIN_VALUE = 1.0 / 1024.0;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MIN_EXPONENT = Math.getExponent(MIN_VALUE);
+    /** counts of the buckets, counts[0] is the bucket with index offset */
+    private long[] counts = null;
+    private int offset = 0;
+    private long zero_count = 0;
+    private long count = 0;
+    private double sum = 0.0;
+    private double min = Double.MAX_VALUE;
+    private double max = 0.0;
+
+    /** Creates a new instance of LogHistogram */
+    public LogHistogram() {
+    }
+
+    /** Records one value (negative values are recorded as 0.0). */
+    public void add(double value) {
+        value = Math.max(0.0, value);
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (value < MIN_VALUE) {
+            zero_count++;
+            return;
+        }
+        int index = getIndex(value);
+        ensure(index, index);
+        counts[index - offset]++;
+    }
+
+    /** Adds all values recorded by the other histogram. */
+    public void merge(LogHistogram other) {
+        count += other.count;
+        sum += other.sum;
+        zero_count += other.zero_count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        if (other.counts == null) {
+            return;
+        }
+        ensure(other.offset, other.offset + other.counts.length - 1);
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[other.offset + i - offset] += other.counts[i];
+        }
+    }
+
+    /**
+     * Returns all recorded data as one line of text: count, sum, min, max, number of zero values and "index:count" of each
+     * non-empty bucket, separated by spaces. The histogram returned by parse() is the same as this one.
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(count).append(' ').append(sum).append(' ').append(min).append(' ').append(max).append(' ').append(zero_count);
+        for (int i = 0; counts != null && i < counts.length; i++) {
+            if (counts[i] > 0) {
+                sb.append(' ').append(offset + i).append(':').append(counts[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Creates the histogram stored by encode(). */
+    public static LogHistogram parse(String line) {
+        String[] items = line.trim().split(" ");
+        LogHistogram h = new LogHistogram();
+        h.count = Long.parseLong(items[0]);
+        h.sum = Double.parseDouble(items[1]);
+        h.min = Double.parseDouble(items[2]);
+        h.max = Double.parseDouble(items[3]);
+        h.zero_count = Long.parseLong(items[4]);
+        if (items.length > 5) {
+            int[] index = new int[items.length - 5];
+            long[] bucket = new long[items.length - 5];
+            for (int i = 0; i < index.length; i++) {
+                String[] pair = items[i + 5].split(":");
+                index[i] = Integer.parseInt(pair[0]);
+                bucket[i] = Long.parseLong(pair[1]);
+            }
+            // buckets are stored in ascending order
+            h.ensure(index[0], index[index.length - 1]);
+            for (int i = 0; i < index.length; i++) {
+                h.counts[index[i] - h.offset] += bucket[i];
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Returns the q-quantile (0.0 - 1.0) of recorded values, i.e., the value of the ceil(q * count)-th smallest value. The middle of
+     * its bucket is returned (limited by the exact minimum and maximum). Returns 0.0 when no value has been recorded.
+     */
+    public double getQuantile(double q) {
+        if (count == 0) {
+            return 0.0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = zero_count;
+        if (seen >= rank) {
+            return 0.0;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                double lower = getLowerBound(offset + i);
+                double upper = getLowerBound(offset + i + 1);
+                return Math.max(min, Math.min(max, (lower + upper) / 2.0));
+            }
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    public double getMin() {
+        return count == 0 ? 0.0 : min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /** Returns the index of the bucket of the value (value >= MIN_VALUE). */
+    private static int getIndex(double value) {
+        int exponent = Math.getExponent(value);
+        int sub = (int) ((Double.doubleToRawLongBits(value) >>> (52 - SUB_BITS)) & (SUB_COUNT - 1));
+        return (exponent - MIN_EXPONENT) * SUB_COUNT + sub;
+    }
+
+    /** Returns the smallest value of the bucket. */
+    private static double getLowerBound(int index) {
+        int exponent = index / SUB_COUNT + MIN_EXPONENT;
+        int sub = index % SUB_COUNT;
+        return Math.scalb(1.0 + sub / (double) SUB_COUNT, exponent);
+    }
+
+    /** Makes sure that buckets from..to are allocated. */
+    private void ensure(int from, int to) {
+        if (counts == null) {
+            counts = new long[to - from + 1];
+            offset = from;
+            return;
+        }
+        int new_offset = Math.min(offset, from);
+        int new_end = Math.max(offset + counts.length - 1, to);
+        if (new_offset == offset && new_end == offset + counts.length - 1) {
+            return;
+        }
+        // grow by at least one power of two to avoid frequent copying
+        if (new_offset < offset) {
+            new_offset = Math.min(new_offset, offset - SUB_COUNT);
+            new_offset = Math.max(0, new_offset);
+        }
+        if (new_end > offset + counts.length - 1) {
+            new_end = Math.max(new_end, offset + counts.length - 1 + SUB_COUNT);
+        }
+        long[] new_counts = new long[new_end - new_offset + 1];
+        System.arraycopy(counts, 0, new_counts, offset - new_offset, counts.length);
+        counts = new_counts;
+        offset = new_offset;
+    }
+}
@@ -1,45 +1,261 @@
 package xklusac.extensions;
 import java.io.*;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 /**
  * Class Output<p>
- * This class is used to store results into text file.
+ * This class is used to store results into text file. Files are kept open and written through large buffers (the files are
+ * shared by all instances of Output), the content is the same as when each line is appended by a new FileWriter. Optionally,
+ * lines are handed to a background writer thread through a bounded queue (see setAsynchronous()). Data are written to disk
+ * when flush() or close() is called, ExperimentSetup closes the files at the end of each run.
  * @author Dalibor Klusacek
  */
 public class Output{
-    
+
+    /** size of the buffer of one file */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** capacity of the queue of the background writer */
+    private static final int QUEUE_SIZE = 8192;
+    /** open files */
+    private static HashMap<String, PrintWriter> writers = new HashMap();
+    /** queue of the background writer, null when lines are written by the calling thread */
+    private static BlockingQueue<Request> queue = null;
+    private static Thread writer = null;
+    private static boolean hook = false;
+
     /** This methods stores results "value" into file "s"
      *
      */
-    
+
     public void writeResults(String s, double value)
     throws IOException {
-        
-        PrintWriter pw = new PrintWriter(new FileWriter(s,true));
-        pw.println(value);
-        pw.close();
+
+        submit(new Request(Request.WRITE, s, String.valueOf(value)));
     }
-    
+
     /** This methods writes out string "value" into file "s"
      *
      */
-    
+
     public void writeString(String s, String value)
     throws IOException {
-        
-        PrintWriter pw = new PrintWriter(new FileWriter(s,true));
-        pw.println(value);
-        pw.close();
+
+        submit(new Request(Request.WRITE, s, value));
     }
-    
+
     /** This methods deletes file specified "s" parameter.
      *
      */
     public void deleteResults(String s)throws IOException {
-        
-        PrintWriter pw = new PrintWriter(new FileWriter(s));
-        //PrintWriter pw = new PrintWriter(s);
-        pw.close();
+
+        submit(new Request(Request.DELETE, s, null));
+    }
+
+    /**
+     * Writes all buffered lines of all files to disk. When the background writer is used, waits until it writes all lines
+     * submitted before.
+     */
+    public static void flush() {
+        try {
+            Request r = new Request(Request.FLUSH, null, null);
+            submit(r);
+            r.done.await();
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Flushes and closes all files (they are opened again when written).
+     */
+    public static void close() {
+        try {
+            Request r = new Request(Request.CLOSE, null, null);
+            submit(r);
+            r.done.await();
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Selects whether lines are written by a background thread (true) or by the calling thread (false). Files are flushed first.
+     */
+    public static synchronized void setAsynchronous(boolean asynchronous) {
+        if (asynchronous == (queue != null)) {
+            return;
+        }
+        flush();
+        if (asynchronous) {
+            queue = new ArrayBlockingQueue<Request>(QUEUE_SIZE);
+            final BlockingQueue<Request> q = queue;
+            writer = new Thread(new Runnable() {
+
+                public void run() {
+                    while (true) {
+                        try {
+                            Request r = q.take();
+                            if (r.type == Request.STOP) {
+                                r.done.countDown();
+                                return;
+                            }
+                            execute(r);
+                        } catch (InterruptedException ex) {
+                            return;
+                        }
+                    }
+                }
+            }, "result-writer");
+            // the shutdown hook closes the files through this thread
+            writer.setDaemon(true);
+            writer.start();
+        } else {
+            Request r = new Request(Request.STOP, null, null);
+            try {
+                queue.put(r);
+                r.done.await();
+            } catch (InterruptedException ex) {
+                ex.printStackTrace();
+            }
+            queue = null;
+            writer = null;
+        }
     }
-}
 
+    /**
+     * Closes all files when the JVM exits. The background writer may still hold queued lines, so the files are closed by the
+     * writer after these lines and the writer is stopped.
+     */
+    private static void closeOnExit() {
+        BlockingQueue<Request> q;
+        Thread w;
+        synchronized (Output.class) {
+            q = queue;
+            w = writer;
+        }
+        if (q == null) {
+            execute(new Request(Request.CLOSE, null, null));
+            return;
+        }
+        try {
+            q.put(new Request(Request.CLOSE, null, null));
+            q.put(new Request(Request.STOP, null, null));
+            w.join();
+        } catch (InterruptedException ex) {
+            ex.printStackTrace();
+        }
+    }
 
+    /** Executes the request directly or hands it to the background writer. */
+    private static void submit(Request r) throws IOException {
+        BlockingQueue<Request> q;
+        synchronized (Output.class) {
+            if (!hook) {
+                // lines buffered when the simulation ends unexpectedly are not lost
+                Runtime.getRuntime().addShutdownHook(new Thread() {
+
+                    public void run() {
+                        closeOnExit();
+                    }
+                });
+                hook = true;
+            }
+            q = queue;
+        }
+        if (q == null) {
+            execute(r);
+            if (r.error != null) {
+                throw r.error;
+            }
+        } else {
+            try {
+                q.put(r);
+            } catch (InterruptedException ex) {
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    /** Performs one request, all files are accessed here only. */
+    private static void execute(Request r) {
+        synchronized (writers) {
+            try {
+                perform(r);
+            } catch (IOException ex) {
+                r.error = ex;
+                // nobody waits for the result of the background writer
+                if (queue != null) {
+                    ex.printStackTrace();
+                }
+            } finally {
+                if (r.done != null) {
+                    r.done.countDown();
+                }
+            }
+        }
+    }
+
+    /** Performs one request. */
+    private static void perform(Request r) throws IOException {
+        if (r.type == Request.WRITE) {
+            PrintWriter pw = writers.get(r.file);
+            if (pw == null) {
+                pw = new PrintWriter(new BufferedWriter(new FileWriter(r.file, true), BUFFER_SIZE));
+                writers.put(r.file, pw);
+            }
+            pw.println(r.line);
+        } else if (r.type == Request.DELETE) {
+            PrintWriter pw = writers.remove(r.file);
+            if (pw != null) {
+                pw.close();
+            }
+            pw = new PrintWriter(new FileWriter(r.file));
+            pw.close();
+        } else if (r.type == Request.FLUSH || r.type == Request.CLOSE) {
+            boolean failed = false;
+            for (Iterator<PrintWriter> it = writers.values().iterator(); it.hasNext();) {
+                // checkError() flushes the writer
+                failed |= it.next().checkError();
+            }
+            if (r.type == Request.CLOSE) {
+                for (Iterator<PrintWriter> it = writers.values().iterator(); it.hasNext();) {
+                    it.next().close();
+                }
+                writers.clear();
+            }
+            if (failed) {
+                throw new IOException("Fail to write results!");
+            }
+        }
+    }
+
+    /**
+     * One operation with a file.
+     */
+    private static class Request {
+
+        static final int WRITE = 0;
+        static final int DELETE = 1;
+        static final int FLUSH = 2;
+        static final int CLOSE = 3;
+        static final int STOP = 4;
+        int type;
+        String file;
+        String line;
+        IOException error = null;
+        /** used by the requests the caller waits for */
+        CountDownLatch done = null;
+
+        Request(int type, String file, String line) {
+            this.type = type;
+            this.file = file;
+            this.line = line;
+            if (type >= FLUSH) {
+                done = new CountDownLatch(1);
+            }
+        }
+    }
+}
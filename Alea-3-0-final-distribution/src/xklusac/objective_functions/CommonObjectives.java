@@ -6,7 +6,7 @@ package xklusac.objective_functions;
 
 
 import xklusac.environment.ResourceInfo;
-import xklusac.environment.Scheduler;
+import xklusac.environment.SimulationContext;
 
 /**
  * This class contains implementations of common objective functions that can be used when guiding the scheduling algorithm toward desired performance.
@@ -17,11 +17,11 @@ public class CommonObjectives {
     /**
      * Calculates avg. slowdown
      */
-    public static double predictAvgSlowdown(double current_time) {
+    public static double predictAvgSlowdown(SimulationContext ctx, double current_time) {
         double sd = 0;
         int jobs = 0;
-        for (int i = 0; i < Scheduler.resourceInfoList.size(); i++) {
-            ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(i);
+        for (int i = 0; i < ctx.resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(i);
             ri.update(current_time);
             sd += ri.accum_sd;
             jobs += ri.resSchedule.size();
@@ -33,11 +33,11 @@ public class CommonObjectives {
     /**
      * Calculates avg. response time
      */
-    public static double predictAvgResponseTime(double current_time) {
+    public static double predictAvgResponseTime(SimulationContext ctx, double current_time) {
         double response = 0;
         int jobs = 0;
-        for (int i = 0; i < Scheduler.resourceInfoList.size(); i++) {
-            ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(i);
+        for (int i = 0; i < ctx.resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(i);
             ri.update(current_time);
             response += ri.accum_resp;
             jobs += ri.resSchedule.size();
@@ -49,46 +49,82 @@ public class CommonObjectives {
     /**
      * Calculates fairness of current solution (defacto std. deviation from mean normalized user wait time)
      */
-    public static double predictFairness(double current_time) {
-        double fairness = 0;
-        int jobs = 0;
-        double[] nuwt = new double[Scheduler.users.size()];
-        double[] tuwt = new double[Scheduler.users.size()];
-        double[] tusa = new double[Scheduler.users.size()];
-        double nwt = 0.0;
+    public static double predictFairness(SimulationContext ctx, double current_time) {
+        double[][] resource_values = new double[ctx.resourceInfoList.size()][];
+        double[] tuwt = new double[ctx.users.size()];
+        double[] tusa = new double[ctx.users.size()];
+        for (int i = 0; i < ctx.resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(i);
+            ri.update(current_time);
+            // add predicted values
+            resource_values[i] = ri.updateFairness(tuwt, tusa);
+        }
+        return calculateFairness(ctx, resource_values);
+    }
+
+    /**
+     * Calculates fairness from the predicted values of each resource (as returned by ResourceInfo.updateFairness(), in the
+     * order of SimulationContext.resourceInfoList). Allows to compute fairness of a schedule where some resources are replaced by their trial copies.
+     */
+    public static double calculateFairness(SimulationContext ctx, double[][] resource_values) {
+        double[] tuwt = new double[ctx.users.size()];
+        double[] tusa = new double[ctx.users.size()];
 
         // load known values
-        for (int i = 0; i < Scheduler.users.size(); i++) {
-            nuwt[i] = 0.0;
-            tuwt[i] = Scheduler.total_uwt.get(i);
-            tusa[i] = Scheduler.users_time.get(i);
+        for (int i = 0; i < ctx.users.size(); i++) {
+            tuwt[i] = ctx.total_uwt.get(i);
+            tusa[i] = ctx.users_time.get(i);
         }
-        int u_size = Scheduler.users.size();
+        int u_size = ctx.users.size();
 
-        for (int i = 0; i < Scheduler.resourceInfoList.size(); i++) {
-            ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(i);
-            ri.update(current_time);
+        for (int i = 0; i < resource_values.length; i++) {
             // add predicted values
-            double[] tuwt2 = ri.updateFairness(tuwt, tusa);
-            //double[] tuwt2 = ri.update_tuwt(tuwt);
-            //double[] tusa2 = ri.update_tusa(tusa);
+            double[] tuwt2 = resource_values[i];
 
-            for (int u = 0; u < Scheduler.users.size(); u++) {
+            for (int u = 0; u < ctx.users.size(); u++) {
                 tuwt[u] += tuwt2[u];
                 tusa[u] += tuwt2[u + u_size];
             }
         }
         // now tuwt and tusa stores both known and predicted values
+        return calculateFairness(tuwt, tusa);
+    }
+
+    /**
+     * Calculates fairness from the sum of predicted values of all resources (the same layout as returned by
+     * ResourceInfo.updateFairness(), i.e., users' wait times followed by users' squashed areas). Allows to maintain the sum
+     * incrementally when only some resources change.
+     */
+    public static double calculateFairness(SimulationContext ctx, double[] predicted) {
+        double[] tuwt = new double[ctx.users.size()];
+        double[] tusa = new double[ctx.users.size()];
+        int u_size = ctx.users.size();
+
+        // load known values and add predicted values
+        for (int i = 0; i < u_size; i++) {
+            tuwt[i] = ctx.total_uwt.get(i) + predicted[i];
+            tusa[i] = ctx.users_time.get(i) + predicted[i + u_size];
+        }
+        return calculateFairness(tuwt, tusa);
+    }
+
+    /**
+     * Calculates fairness from total wait times (tuwt) and total squashed areas (tusa) of users - both known and predicted values.
+     */
+    private static double calculateFairness(double[] tuwt, double[] tusa) {
+        double fairness = 0;
+        double[] nuwt = new double[tuwt.length];
+        double nwt = 0.0;
 
         // now proceed with fairness computation
-        for (int i = 0; i < Scheduler.users.size(); i++) {
+        for (int i = 0; i < tuwt.length; i++) {
             nuwt[i] = tuwt[i] / Math.max(1.0, tusa[i]);
             nwt += nuwt[i];
         }
-        nwt = nwt / (1.0 * Scheduler.users.size());
+        nwt = nwt / (1.0 * tuwt.length);
 
         // calculate the sum of powers of average normalized wt - normalized user wt
-        for (int i = 0; i < Scheduler.users.size(); i++) {
+        for (int i = 0; i < tuwt.length; i++) {
             // to avoid decreasement of values when the power is computed we add 1.0
             fairness += Math.pow((1.0 + (nwt - nuwt[i])), 2.0);
         }
@@ -100,11 +136,11 @@ public class CommonObjectives {
     /**
      * Calculates avg. wait time
      */
-    public static double predictAvgWaitTime(double current_time) {
+    public static double predictAvgWaitTime(SimulationContext ctx, double current_time) {
         double wait = 0;
         int jobs = 0;
-        for (int i = 0; i < Scheduler.resourceInfoList.size(); i++) {
-            ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(i);
+        for (int i = 0; i < ctx.resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(i);
             ri.update(current_time);
             wait += ri.accum_wait;
             jobs += ri.resSchedule.size();
@@ -116,11 +152,11 @@ public class CommonObjectives {
     /**
      * Calculates objective function: Avg. start time
      */
-    public static double predictAvgStartTime(double current_time) {
+    public static double predictAvgStartTime(SimulationContext ctx, double current_time) {
         double start = 0;
         int jobs = 0;
-        for (int i = 0; i < Scheduler.resourceInfoList.size(); i++) {
-            ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(i);
+        for (int i = 0; i < ctx.resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(i);
             ri.update(current_time);
             start += ri.accum_start_time;
             jobs += ri.resSchedule.size();
@@ -130,11 +166,11 @@ public class CommonObjectives {
     }
 
     /** Returns expected weighted machine usage wrt. prepared schedule. Use for schedule-based algorithms only! */
-    public static double predictWeightedMachineUsage(double current_time) {
+    public static double predictWeightedMachineUsage(SimulationContext ctx, double current_time) {
         double usage = 0.0;
         double makespan = Double.MIN_VALUE;
-        for (int i = 0; i < Scheduler.resourceInfoList.size(); i++) {
-            ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(i);
+        for (int i = 0; i < ctx.resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(i);
             ri.update(current_time);
             usage += ri.res_usage;
             double min = ri.resource_makespan;
@@ -142,7 +178,7 @@ public class CommonObjectives {
                 makespan = min;
             }
         }
-        usage = usage / (Scheduler.availPEs * (makespan - current_time));
+        usage = usage / (ctx.availPEs * (makespan - current_time));
         return usage;
     }
 
@@ -150,10 +186,10 @@ public class CommonObjectives {
      * Calculate aproximation of how many jobs will meet their deadline. Use for schedule-based algorithms only!
      * @param current_time current simulation time used to predict total tardiness of all jobs in this moment
      */
-    public static int predictNumberOfJobsThatMeetDeadline(double current_time) {
+    public static int predictNumberOfJobsThatMeetDeadline(SimulationContext ctx, double current_time) {
         int nondelayed = 0;
-        for (int i = 0; i < Scheduler.resourceInfoList.size(); i++) {
-            ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(i);
+        for (int i = 0; i < ctx.resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(i);
             ri.update(current_time);
             nondelayed += ri.resource_score;
         }
@@ -164,10 +200,10 @@ public class CommonObjectives {
      * Calculate aproximation of how many jobs will not meet their deadline. Use for schedule-based algorithms only!
      * @param current_time current simulation time used to predict total tardiness of all jobs in this moment
      */
-    public static int predictNumberOfDelayedJobs(double current_time) {
+    public static int predictNumberOfDelayedJobs(SimulationContext ctx, double current_time) {
         int delayed = 0;
-        for (int i = 0; i < Scheduler.resourceInfoList.size(); i++) {
-            ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(i);
+        for (int i = 0; i < ctx.resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(i);
             ri.update(current_time);
             delayed += ri.expected_fails;
         }
@@ -178,10 +214,10 @@ public class CommonObjectives {
      * Calculate aproximation of expected makespan. Use for schedule-based algorithms only!
      * @param current_time current simulation time used to predict total tardiness of all jobs in this moment
      */
-    public static double predictMakespan(double current_time) {
+    public static double predictMakespan(SimulationContext ctx, double current_time) {
         double makespan = Double.MIN_VALUE;
-        for (int i = 0; i < Scheduler.resourceInfoList.size(); i++) {
-            ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(i);
+        for (int i = 0; i < ctx.resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(i);
             ri.update(current_time);
             double min = ri.resource_makespan;
             if (min > makespan) {
@@ -194,10 +230,10 @@ public class CommonObjectives {
     /**
      * Calculates total tardiness
      */
-    public static double predictTotalTardiness(double current_time) {
+    public static double predictTotalTardiness(SimulationContext ctx, double current_time) {
         double total_tardiness = 0.0;
-        for (int i = 0; i < Scheduler.resourceInfoList.size(); i++) {
-            ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(i);
+        for (int i = 0; i < ctx.resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(i);
             ri.update(current_time);
             total_tardiness += ri.resource_tardiness;
         }
@@ -205,26 +241,26 @@ public class CommonObjectives {
     }
 
     /** Returns actual machine usage. May be used for all algorithms. */
-    public static double getActualUsage() {
+    public static double getActualUsage(SimulationContext ctx) {
         int busy = 0;
         double avail = 0;
-        for (int i = 0; i < Scheduler.resourceInfoList.size(); i++) {
-            ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(i);
+        for (int i = 0; i < ctx.resourceInfoList.size(); i++) {
+            ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(i);
             busy += ri.getNumBusyPE();
             avail += ri.getNumRunningPE();
         }
-        Scheduler.busyc = busy;
+        ctx.busyc = busy;
         return Math.round((busy / avail) * 1000) / 10.0;
     }
 
     /**
      * Calculates objective function: per cluster usage
      */
-    public static double getClusterUsage(int c) {
+    public static double getClusterUsage(SimulationContext ctx, int c) {
         int busy = 0;
         double avail = 0;
 
-        ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(c);
+        ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(c);
         busy += ri.getNumBusyPE();
 
         avail += ri.getNumRunningPE();
@@ -242,11 +278,11 @@ public class CommonObjectives {
     /**
      * Calculates percentage of running CPUs
      */
-    public static double getClusterStatus(int c) {
+    public static double getClusterStatus(SimulationContext ctx, int c) {
         int tot = 0;
         double avail = 0;
 
-        ResourceInfo ri = (ResourceInfo) Scheduler.resourceInfoList.get(c);
+        ResourceInfo ri = (ResourceInfo) ctx.resourceInfoList.get(c);
         tot = ri.resource.getNumPE();
 
         avail = ri.getNumRunningPE();
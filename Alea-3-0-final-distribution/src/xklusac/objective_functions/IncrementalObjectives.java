@@ -0,0 +1,139 @@
+package xklusac.objective_functions;
+
+import xklusac.environment.ResourceInfo;
+import xklusac.environment.SimulationContext;
+
+/**
+ * Class IncrementalObjectives<p>
+ * Keeps the contribution of each resource to the objective functions of the current schedule and their sums. When a move changes
+ * the schedule of one or two resources, only these resources are updated (refresh()) and the sums are corrected by the difference,
+ * so the objective values of the new schedule are obtained without walking the other resources. The values are the same as
+ * computed by ObjectiveVector.predict() (up to floating point rounding, the sums are therefore recomputed from time to time).
+ */
+public class IncrementalObjectives {
+
+    /** number of refreshes after which the sums are computed again from scratch */
+    private static final int RESYNC_PERIOD = 1000;
+    private SimulationContext ctx;
+    private double current_time;
+    private ResourceInfo[] resources;
+    private double[] resp;
+    private double[] wait;
+    private double[] sd;
+    private double[] tard;
+    private double[] makespan;
+    private int[] jobs;
+    private double[][] fair;
+    private double sum_resp;
+    private double sum_wait;
+    private double sum_sd;
+    private double sum_tard;
+    private int sum_jobs;
+    private double[] sum_fair;
+    /** auxiliary arrays required by ResourceInfo.updateFairness() */
+    private double[] tuwt;
+    private double[] tusa;
+    private int refreshes = 0;
+
+    /** Creates a new instance of IncrementalObjectives for the current schedule (ctx.resourceInfoList). */
+    public IncrementalObjectives(SimulationContext ctx, double current_time) {
+        this.ctx = ctx;
+        this.current_time = current_time;
+        int size = ctx.resourceInfoList.size();
+        resources = new ResourceInfo[size];
+        resp = new double[size];
+        wait = new double[size];
+        sd = new double[size];
+        tard = new double[size];
+        makespan = new double[size];
+        jobs = new int[size];
+        fair = new double[size][];
+        tuwt = new double[ctx.users.size()];
+        tusa = new double[ctx.users.size()];
+        for (int i = 0; i < size; i++) {
+            resources[i] = (ResourceInfo) ctx.resourceInfoList.get(i);
+            store(i);
+        }
+        resync();
+    }
+
+    /**
+     * Updates resource with index res (in ctx.resourceInfoList) after its schedule has been changed and corrects the sums.
+     */
+    public void refresh(int res) {
+        sum_resp -= resp[res];
+        sum_wait -= wait[res];
+        sum_sd -= sd[res];
+        sum_tard -= tard[res];
+        sum_jobs -= jobs[res];
+        double[] old_fair = fair[res];
+        store(res);
+        double[] new_fair = fair[res];
+        for (int u = 0; u < sum_fair.length; u++) {
+            sum_fair[u] += new_fair[u] - old_fair[u];
+        }
+        sum_resp += resp[res];
+        sum_wait += wait[res];
+        sum_sd += sd[res];
+        sum_tard += tard[res];
+        sum_jobs += jobs[res];
+
+        refreshes++;
+        if (refreshes % RESYNC_PERIOD == 0) {
+            resync();
+        }
+    }
+
+    /** Returns the objective values of the current schedule. */
+    public ObjectiveVector getVector() {
+        ObjectiveVector v = new ObjectiveVector();
+        double max = Double.MIN_VALUE;
+        for (int i = 0; i < makespan.length; i++) {
+            if (makespan[i] > max) {
+                max = makespan[i];
+            }
+        }
+        v.fairness = CommonObjectives.calculateFairness(ctx, sum_fair);
+        v.response = Math.max(0.0, sum_resp / Math.max(1, sum_jobs));
+        v.wait = Math.max(0.0, sum_wait / Math.max(1, sum_jobs));
+        v.slowdown = Math.max(1.0, sum_sd / Math.max(1, sum_jobs));
+        v.tardiness = sum_tard;
+        v.makespan = max;
+        return v;
+    }
+
+    /** Updates the resource and stores its contribution. */
+    private void store(int res) {
+        ResourceInfo ri = resources[res];
+        // does nothing when the schedule is stable
+        ri.update(current_time);
+        resp[res] = ri.accum_resp;
+        wait[res] = ri.accum_wait;
+        sd[res] = ri.accum_sd;
+        tard[res] = ri.resource_tardiness;
+        makespan[res] = ri.resource_makespan;
+        jobs[res] = ri.resSchedule.size();
+        // the returned array is replaced (not changed) by the next recomputation, so it can be kept
+        fair[res] = ri.updateFairness(tuwt, tusa);
+    }
+
+    /** Computes the sums from the stored contributions. */
+    private void resync() {
+        sum_resp = 0.0;
+        sum_wait = 0.0;
+        sum_sd = 0.0;
+        sum_tard = 0.0;
+        sum_jobs = 0;
+        sum_fair = new double[ctx.users.size() * 2];
+        for (int i = 0; i < resources.length; i++) {
+            sum_resp += resp[i];
+            sum_wait += wait[i];
+            sum_sd += sd[i];
+            sum_tard += tard[i];
+            sum_jobs += jobs[i];
+            for (int u = 0; u < sum_fair.length; u++) {
+                sum_fair[u] += fair[i][u];
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package xklusac.objective_functions;
+
+import java.util.Comparator;
+import xklusac.environment.ExperimentSetup;
+
+/**
+ * Class ObjectiveComparator<p>
+ * Compares two ObjectiveVectors using the weighted sum of relative improvements of fairness, avg. response time, avg. wait time
+ * and avg. slowdown. This is the decision used by schedule-based policies and optimization algorithms (BestGap, GapSearch, RandomSearch)
+ * when a new placement of a job is tested.
+ */
+public class ObjectiveComparator implements Comparator<ObjectiveVector> {
+
+    private double fair_weight;
+    private double resp_weight;
+    private double wait_weight;
+    private double sd_weight;
+
+    /** Creates a new instance of ObjectiveComparator with given weights of criteria */
+    public ObjectiveComparator(double fair_weight, double resp_weight, double wait_weight, double sd_weight) {
+        this.fair_weight = fair_weight;
+        this.resp_weight = resp_weight;
+        this.wait_weight = wait_weight;
+        this.sd_weight = sd_weight;
+    }
+
+    /** Returns the comparator used by the scheduling policies (fairness is weighted by ExperimentSetup.fair_weight, other criteria by 1.0) */
+    public static ObjectiveComparator createDefault() {
+        return new ObjectiveComparator(ExperimentSetup.fair_weight, 1.0, 1.0, 1.0);
+    }
+
+    /**
+     * Returns the weighted sum of relative improvements of current values wrt. previous values. Positive value means that
+     * the current schedule is better.
+     */
+    public double decision(ObjectiveVector previous, ObjectiveVector current) {
+        double fair = Math.max(0.0000000000001, previous.fairness);
+        double diff_fair = (previous.fairness - current.fairness) / fair;
+
+        double rt = Math.max(0.0000000000001, previous.response);
+        double diff_rt = (previous.response - current.response) / rt;
+
+        double wt = Math.max(0.0000000000001, previous.wait);
+        double diff_wt = (previous.wait - current.wait) / wt;
+
+        double sd = Math.max(1.0, previous.slowdown);
+        double diff_sd = (previous.slowdown - current.slowdown) / sd;
+
+        // decision taken upon fairness, slowdown, response time a wait time values
+        return (diff_fair * fair_weight) + (diff_rt * resp_weight) + (diff_wt * wait_weight) + (diff_sd * sd_weight);
+    }
+
+    /** Returns true if current schedule is better than the previous one. */
+    public boolean isBetter(ObjectiveVector previous, ObjectiveVector current) {
+        return decision(previous, current) > 0.0;
+    }
+
+    /**
+     * Compares two vectors, a negative number is returned when o1 is better than o2 (i.e., better vectors are sorted first).
+     */
+    public int compare(ObjectiveVector o1, ObjectiveVector o2) {
+        double d = decision(o2, o1);
+        if (d > 0.0) {
+            return -1;
+        } else if (d < 0.0) {
+            return 1;
+        }
+        return 0;
+    }
+}
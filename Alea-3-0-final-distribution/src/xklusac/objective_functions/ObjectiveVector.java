@@ -0,0 +1,95 @@
+package xklusac.objective_functions;
+
+import xklusac.environment.ResourceInfo;
+import xklusac.environment.SimulationContext;
+
+/**
+ * Class ObjectiveVector<p>
+ * Holds the values of objective functions of the current schedule: fairness, avg. response time, avg. wait time, avg. slowdown,
+ * total tardiness and makespan. All values are gathered in one pass over the resources, each resource is updated only once
+ * and its cached values are used when its schedule is stable. The values are the same as computed by the corresponding
+ * methods of CommonObjectives. Use ObjectiveComparator to decide whether one vector is better than another.
+ */
+public class ObjectiveVector {
+
+    /** fairness (see CommonObjectives.predictFairness()) */
+    public double fairness = 0.0;
+    /** avg. response time */
+    public double response = 0.0;
+    /** avg. wait time */
+    public double wait = 0.0;
+    /** avg. slowdown */
+    public double slowdown = 0.0;
+    /** total tardiness */
+    public double tardiness = 0.0;
+    /** makespan */
+    public double makespan = 0.0;
+
+    /**
+     * Predicts the objective values of the current schedule.
+     */
+    public static ObjectiveVector predict(SimulationContext ctx, double current_time) {
+        return predict(ctx, current_time, -1, null);
+    }
+
+    /**
+     * Predicts the objective values of the current schedule where resource with index res is replaced by trial
+     * (e.g., a trial copy of its schedule, see ResourceInfo.createTrialCopy()).
+     * @param res index of the replaced resource in SimulationContext.resourceInfoList (-1 = no resource is replaced)
+     * @param trial resource info used instead
+     */
+    public static ObjectiveVector predict(SimulationContext ctx, double current_time, int res, ResourceInfo trial) {
+        ResourceInfo[] resources = new ResourceInfo[ctx.resourceInfoList.size()];
+        for (int i = 0; i < resources.length; i++) {
+            resources[i] = (ResourceInfo) ctx.resourceInfoList.get(i);
+        }
+        if (res >= 0) {
+            resources[res] = trial;
+        }
+        return predict(ctx, current_time, resources);
+    }
+
+    /**
+     * Predicts the objective values of the schedule given by resources (e.g., private copies of all schedules, see
+     * ResourceInfo.createScheduleCopy()). Resources must be in the order of SimulationContext.resourceInfoList.
+     */
+    public static ObjectiveVector predict(SimulationContext ctx, double current_time, ResourceInfo[] resources) {
+        ObjectiveVector v = new ObjectiveVector();
+        double[][] fair_values = new double[resources.length][];
+        double[] tuwt = new double[ctx.users.size()];
+        double[] tusa = new double[ctx.users.size()];
+        double resp = 0;
+        double wait = 0;
+        double sd = 0;
+        double total_tardiness = 0.0;
+        double makespan = Double.MIN_VALUE;
+        int jobs = 0;
+
+        for (int i = 0; i < resources.length; i++) {
+            ResourceInfo ri = resources[i];
+            // does nothing when the schedule is stable
+            ri.update(current_time);
+            fair_values[i] = ri.updateFairness(tuwt, tusa);
+            resp += ri.accum_resp;
+            wait += ri.accum_wait;
+            sd += ri.accum_sd;
+            total_tardiness += ri.resource_tardiness;
+            if (ri.resource_makespan > makespan) {
+                makespan = ri.resource_makespan;
+            }
+            jobs += ri.resSchedule.size();
+        }
+        v.fairness = CommonObjectives.calculateFairness(ctx, fair_values);
+        v.response = Math.max(0.0, resp / Math.max(1, jobs));
+        v.wait = Math.max(0.0, wait / Math.max(1, jobs));
+        v.slowdown = Math.max(1.0, sd / Math.max(1, jobs));
+        v.tardiness = total_tardiness;
+        v.makespan = makespan;
+        return v;
+    }
+
+    @Override
+    public String toString() {
+        return "fairness=" + fairness + " response=" + response + " wait=" + wait + " slowdown=" + slowdown + " tardiness=" + tardiness + " makespan=" + makespan;
+    }
+}